@@ -0,0 +1,114 @@
+package me.tinyoverflow.griefprevention;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares checking a player's trust in a {@link TrustTable} against the
+ * {@code HashMap<String, ClaimPermission>} keyed by UUID strings claims used
+ * before, for claims trusting 10, 200 and 1000 players. Half of the checked
+ * players are trusted.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ClaimTrustBenchmark"}.
+ * Append {@code -prof gc} to compare allocations: the {@code gc.alloc.rate.norm}
+ * of the {@code fill} benchmarks is the memory a claim's trust takes, plus the
+ * garbage of growing the table or map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimTrustBenchmark
+{
+    private static final int CHECKED_PLAYERS = 1024;
+
+    @Param({ "10", "200", "1000" })
+    private int trustedPlayers;
+
+    private String[] trustedIds;
+    private UUID[] checkedPlayers;
+    private TrustTable trust;
+    private HashMap<String, ClaimPermission> stringMap;
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        trustedIds = new String[trustedPlayers];
+        UUID[] trusted = new UUID[trustedPlayers];
+        for (int i = 0; i < trustedPlayers; i++)
+        {
+            trusted[i] = new UUID(random.nextLong(), random.nextLong());
+            trustedIds[i] = trusted[i].toString();
+        }
+
+        checkedPlayers = new UUID[CHECKED_PLAYERS];
+        for (int i = 0; i < CHECKED_PLAYERS; i++)
+        {
+            checkedPlayers[i] = i % 2 == 0
+                    ? trusted[random.nextInt(trustedPlayers)]
+                    : new UUID(random.nextLong(), random.nextLong());
+        }
+
+        trust = fill();
+        stringMap = fillStringMap();
+    }
+
+    @Benchmark
+    public ClaimPermission trustTable()
+    {
+        return trust.getPermission(nextPlayer());
+    }
+
+    @Benchmark
+    public ClaimPermission stringMap()
+    {
+        return stringMap.get(nextPlayer().toString());
+    }
+
+    @Benchmark
+    public TrustTable fill()
+    {
+        TrustTable table = new TrustTable();
+        for (String id : trustedIds)
+        {
+            table.setPermission(id, ClaimPermission.Build);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public HashMap<String, ClaimPermission> fillStringMap()
+    {
+        HashMap<String, ClaimPermission> map = new HashMap<>();
+        for (String id : trustedIds)
+        {
+            // each claim loaded its own copies of the IDs from storage
+            map.put(new String(id), ClaimPermission.Build);
+        }
+        return map;
+    }
+
+    private UUID nextPlayer()
+    {
+        next = (next + 1) & (CHECKED_PLAYERS - 1);
+        return checkedPlayers[next];
+    }
+}
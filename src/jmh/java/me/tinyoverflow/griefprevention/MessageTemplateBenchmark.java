@@ -0,0 +1,84 @@
+package me.tinyoverflow.griefprevention;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rendering a compiled message template against the synchronized
+ * {@code String.replace} loop {@code DataStore.getMessage} used before, with
+ * messages of 0, 1 and 3 arguments.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="MessageTemplateBenchmark"}.
+ * Append {@code -t 4} to measure contention on the monitor, and {@code -prof gc}
+ * to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageTemplateBenchmark
+{
+    @Param({ "0", "1", "3" })
+    private int argumentCount;
+
+    private String text;
+    private MessageTemplate template;
+    private String[] args;
+
+    @Setup
+    public void setup()
+    {
+        switch (argumentCount)
+        {
+            case 0 -> {
+                text = "\u00A7cYou don't have permission to build here.";
+                args = new String[0];
+            }
+            case 1 -> {
+                text = "\u00A7cYou don't have {0}'s permission to build here.";
+                args = new String[]{ "Notch" };
+            }
+            default -> {
+                text = "\u00A7e{0} transferred {1} claim blocks to {2}. You have {1} blocks left.";
+                args = new String[]{ "Notch", "1500", "jeb_" };
+            }
+        }
+        template = MessageTemplate.compile(text);
+    }
+
+    @Benchmark
+    public String template()
+    {
+        return template.render(args);
+    }
+
+    @Benchmark
+    public String replaceLoop()
+    {
+        return renderByReplacing(text, args);
+    }
+
+    // the previous implementation of DataStore.getMessage
+    private synchronized String renderByReplacing(String message, String... args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            message = message.replace("{" + i + "}", args[i]);
+        }
+
+        return message;
+    }
+}
@@ -0,0 +1,100 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import me.tinyoverflow.griefprevention.PlayerData;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * In-memory data store without any secondary storage, for benchmarks.
+ */
+public class BenchmarkDataStore extends DataStore
+{
+    /**
+     * Creates a minimal world which only knows its name, UID and height limits.
+     *
+     * @param name the world name
+     * @return the world
+     */
+    public static World createWorld(String name)
+    {
+        UUID uid = UUID.nameUUIDFromBytes(name.getBytes());
+        return (World) Proxy.newProxyInstance(
+                World.class.getClassLoader(),
+                new Class<?>[] { World.class },
+                (proxy, method, args) -> switch (method.getName())
+                {
+                    case "getUID" -> uid;
+                    case "getName", "toString" -> name;
+                    case "getMinHeight" -> -64;
+                    case "getMaxHeight" -> 320;
+                    case "hashCode" -> uid.hashCode();
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+    /**
+     * Creates a top level claim which is not yet part of any data store.
+     *
+     * @param world the world
+     * @param x1    the lesser X coordinate
+     * @param z1    the lesser Z coordinate
+     * @param x2    the greater X coordinate
+     * @param z2    the greater Z coordinate
+     * @param id    the claim ID
+     * @return the claim
+     */
+    public static Claim createClaim(World world, int x1, int z1, int x2, int z2, long id)
+    {
+        return new Claim(
+                new Location(world, x1, 0, z1),
+                new Location(world, x2, 0, z2),
+                null,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                id
+        );
+    }
+
+    public void addClaim(Claim claim)
+    {
+        addClaim(claim, false);
+    }
+
+    @Override
+    void writeClaimToStorage(ClaimRecord claim)
+    {
+    }
+
+    @Override
+    void incrementNextClaimID()
+    {
+        nextClaimID++;
+    }
+
+    @Override
+    void deleteClaimFromSecondaryStorage(long claimID)
+    {
+    }
+
+    @Override
+    public PlayerData getPlayerDataFromStorage(UUID playerID)
+    {
+        PlayerData playerData = new PlayerData();
+        playerData.playerID = playerID;
+        return playerData;
+    }
+
+    @Override
+    void overrideSavePlayerData(UUID playerID, PlayerData playerData)
+    {
+    }
+}
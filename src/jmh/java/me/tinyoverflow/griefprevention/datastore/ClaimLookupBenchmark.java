@@ -0,0 +1,168 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares claim lookups through the lock-free claim index against the same
+ * lookups funneled through the data store monitor, which is how every
+ * {@code getClaimAt} call used to be served.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ClaimLookupBenchmark"}.
+ * Append {@code -prof gc} to the arguments to verify that lookups do not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimLookupBenchmark
+{
+    private static final int PROBE_COUNT = 1 << 12;
+
+    @Param({ "10000" })
+    private int claimCount;
+
+    private BenchmarkDataStore dataStore;
+    private Location[] probes;
+    private Claim churnClaim;
+
+    @Setup
+    public void setup()
+    {
+        dataStore = new BenchmarkDataStore();
+        World[] worlds = { BenchmarkDataStore.createWorld("world"), BenchmarkDataStore.createWorld("world_nether") };
+
+        // lay out 20x20 claims on a grid with 10 block gaps, spread over both worlds
+        int perRow = (int) Math.ceil(Math.sqrt(claimCount / (double) worlds.length));
+        for (int i = 0; i < claimCount; i++)
+        {
+            World world = worlds[i % worlds.length];
+            int cell = i / worlds.length;
+            int x = (cell % perRow) * 30;
+            int z = (cell / perRow) * 30;
+            dataStore.addClaim(BenchmarkDataStore.createClaim(world, x, z, x + 19, z + 19, i));
+        }
+
+        // probe inside and between claims alike
+        SplittableRandom random = new SplittableRandom(42);
+        probes = new Location[PROBE_COUNT];
+        for (int i = 0; i < PROBE_COUNT; i++)
+        {
+            probes[i] = new Location(
+                    worlds[random.nextInt(worlds.length)],
+                    random.nextInt(perRow * 30),
+                    64,
+                    random.nextInt(perRow * 30)
+            );
+        }
+
+        churnClaim = BenchmarkDataStore.createClaim(worlds[0], -100, -100, -50, -50, claimCount);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Claim lockFree(Cursor cursor)
+    {
+        return dataStore.getClaimAt(probes[cursor.next()], false, null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Claim synchronizedBaseline(Cursor cursor)
+    {
+        synchronized (dataStore)
+        {
+            return dataStore.getClaimAt(probes[cursor.next()], false, null);
+        }
+    }
+
+    @Benchmark
+    public int chunkClaims(Cursor cursor)
+    {
+        Location probe = probes[cursor.next()];
+        List<Claim> claims = dataStore.getClaims(probe.getWorld(), probe.getBlockX() >> 4, probe.getBlockZ() >> 4);
+        return claims.size();
+    }
+
+    @Benchmark
+    @Group("lockFreeWithWriter")
+    @GroupThreads(3)
+    public Claim lockFreeReader(Cursor cursor)
+    {
+        return dataStore.getClaimAt(probes[cursor.next()], false, null);
+    }
+
+    @Benchmark
+    @Group("lockFreeWithWriter")
+    @GroupThreads(1)
+    public void lockFreeWriter()
+    {
+        churn();
+    }
+
+    @Benchmark
+    @Group("synchronizedWithWriter")
+    @GroupThreads(3)
+    public Claim synchronizedReader(Cursor cursor)
+    {
+        synchronized (dataStore)
+        {
+            return dataStore.getClaimAt(probes[cursor.next()], false, null);
+        }
+    }
+
+    @Benchmark
+    @Group("synchronizedWithWriter")
+    @GroupThreads(1)
+    public void synchronizedWriter()
+    {
+        churn();
+    }
+
+    private void churn()
+    {
+        synchronized (dataStore)
+        {
+            if (churnClaim.inDataStore)
+            {
+                dataStore.deleteClaim(churnClaim, false, false);
+            }
+            else
+            {
+                dataStore.addClaim(churnClaim);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        private int position = 0;
+
+        int next()
+        {
+            return position++ & (PROBE_COUNT - 1);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Compares loading claims from one YAML file per claim, sequentially and on
+ * the startup worker pool, against reading the binary claim log.
+ *
+ * <p>World binding and indexing are identical for both formats and need a
+ * running server, so they are not part of the measurement.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ClaimStorageBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClaimStorageBenchmark
+{
+    @Param({ "100000" })
+    private int claimCount;
+
+    private Path directory;
+    private Path claimLog;
+    private List<FlatFileDataStore.ClaimFile> claimFiles;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        directory = Files.createTempDirectory("claim-storage-benchmark");
+        Path claimFolder = Files.createDirectory(directory.resolve("claims"));
+        claimLog = directory.resolve(BinaryDataStore.CLAIM_LOG_FILE_NAME);
+
+        List<ClaimRecord> records = new ArrayList<>(claimCount);
+        claimFiles = new ArrayList<>(claimCount);
+        for (int i = 0; i < claimCount; i++) {
+            int x = (i % 1000) * 30;
+            int z = (i / 1000) * 30;
+            ClaimRecord record = new ClaimRecord(
+                    i,
+                    -1,
+                    "world",
+                    x, 62, z,
+                    x + 19, 62, z + 19,
+                    UUID.randomUUID(),
+                    false,
+                    System.currentTimeMillis(),
+                    List.of(UUID.randomUUID().toString()),
+                    List.of(),
+                    List.of("public"),
+                    List.of()
+            );
+            records.add(record);
+
+            //same layout as FlatFileDataStore.getYamlForClaim
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.set("owner", record.ownerID().toString());
+            yaml.set("boundaries.lesser", "world;" + x + ";62;" + z);
+            yaml.set("boundaries.greater", "world;" + (x + 19) + ";62;" + (z + 19));
+            yaml.set("permissions.builders", record.builders());
+            yaml.set("permissions.containers", record.containers());
+            yaml.set("permissions.accessors", record.accessors());
+            yaml.set("permissions.managers", record.managers());
+
+            File file = claimFolder.resolve(i + ".yml").toFile();
+            Files.writeString(file.toPath(), yaml.saveToString(), StandardCharsets.UTF_8);
+            claimFiles.add(new FlatFileDataStore.ClaimFile(file, i));
+        }
+
+        ClaimLog.write(claimLog, records);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public List<FlatFileDataStore.ParsedClaim> yamlFilesSequential()
+    {
+        LongAdder readNanos = new LongAdder();
+        LongAdder parseNanos = new LongAdder();
+        List<FlatFileDataStore.ParsedClaim> parsedClaims = new ArrayList<>(claimFiles.size());
+        for (FlatFileDataStore.ClaimFile claimFile : claimFiles) {
+            parsedClaims.add(FlatFileDataStore.parseClaimFile(claimFile, readNanos, parseNanos));
+        }
+
+        return parsedClaims;
+    }
+
+    @Benchmark
+    public List<FlatFileDataStore.ParsedClaim> yamlFilesParallel()
+    {
+        LongAdder readNanos = new LongAdder();
+        LongAdder parseNanos = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        try {
+            return pool.submit(() -> claimFiles.parallelStream()
+                    .map(claimFile -> FlatFileDataStore.parseClaimFile(claimFile, readNanos, parseNanos))
+                    .toList()
+            ).join();
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<ClaimRecord> binaryLog() throws IOException
+    {
+        List<ClaimRecord> records = new ArrayList<>(claimCount);
+        ClaimLog.open(claimLog, records).close();
+        return records;
+    }
+}
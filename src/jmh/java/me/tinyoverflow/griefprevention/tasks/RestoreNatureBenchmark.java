@@ -0,0 +1,176 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.Material;
+import org.bukkit.World.Environment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many chunks per second the restore nature workers process with
+ * 1, 2 and 4 worker threads, for batches of {@value #CHUNKS} chunks like an
+ * admin restoring a larger area queues.
+ *
+ * <p>Chunk snapshots need a running server, so the chunks are synthetic volumes
+ * of terrain with player structures, towers, trees and dumped water, unpacked
+ * up front. Each operation processes a copy of such a volume.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="RestoreNatureBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestoreNatureBenchmark
+{
+    private static final int CHUNKS = 16;
+    private static final int SEA_LEVEL = 63;
+    private static final int MAX_Y = 320;
+
+    @Param({ "1", "2", "4" })
+    private int workerThreads;
+
+    private ForkJoinPool workers;
+    private RestoreNatureRules rules;
+    private RestoreNatureVolume source;
+
+    @Setup
+    public void setup()
+    {
+        workers = new ForkJoinPool(workerThreads);
+        rules = new RestoreNatureRules(
+                Environment.NORMAL,
+                EnumSet.of(Material.DIRT, Material.GRASS, Material.SNOW, Material.OAK_LOG),
+                EnumSet.of(Material.COBBLESTONE, Material.OAK_PLANKS, Material.GLASS, Material.TORCH),
+                EnumSet.of(Material.OAK_LEAVES),
+                EnumSet.of(Material.OAK_LOG),
+                EnumSet.of(Material.GRASS, Material.OAK_LEAVES, Material.VINE, Material.CACTUS),
+                false,
+                false
+        );
+        source = createVolume(new Random(42));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        workers.shutdown();
+    }
+
+    private static RestoreNatureVolume createVolume(Random random)
+    {
+        RestoreNatureVolume volume = new RestoreNatureVolume(0, 0, 0, MAX_Y);
+        int stone = volume.addId(Material.STONE);
+        int dirt = volume.addId(Material.DIRT);
+        int grassBlock = volume.addId(Material.GRASS_BLOCK);
+        int sandstone = volume.addId(Material.SANDSTONE);
+        int cobblestone = volume.addId(Material.COBBLESTONE);
+        int planks = volume.addId(Material.OAK_PLANKS);
+        int log = volume.addId(Material.OAK_LOG);
+        int leaves = volume.addId(Material.OAK_LEAVES);
+        int water = volume.addId(Material.WATER);
+
+        for (int x = 0; x < RestoreNatureVolume.SIZE; x++)
+        {
+            for (int z = 0; z < RestoreNatureVolume.SIZE; z++)
+            {
+                for (int y = 0; y < SEA_LEVEL - 3; y++)
+                {
+                    volume.set(x, y, z, random.nextInt(50) == 0 ? sandstone : stone);
+                }
+                for (int y = SEA_LEVEL - 3; y < SEA_LEVEL; y++)
+                {
+                    volume.set(x, y, z, dirt);
+                }
+                volume.set(x, SEA_LEVEL, z, grassBlock);
+            }
+        }
+
+        //a small house
+        for (int x = 3; x <= 8; x++)
+        {
+            for (int z = 3; z <= 8; z++)
+            {
+                for (int y = SEA_LEVEL + 1; y <= SEA_LEVEL + 5; y++)
+                {
+                    boolean wall = x == 3 || x == 8 || z == 3 || z == 8;
+                    if (wall || y == SEA_LEVEL + 5) volume.set(x, y, z, wall ? cobblestone : planks);
+                }
+            }
+        }
+
+        //dirt towers
+        for (int i = 0; i < 3; i++)
+        {
+            int x = 10 + random.nextInt(6);
+            int z = 1 + random.nextInt(16);
+            for (int y = SEA_LEVEL + 1; y < SEA_LEVEL + 20; y++)
+            {
+                volume.set(x, y, z, dirt);
+            }
+        }
+
+        //a tree
+        for (int y = SEA_LEVEL + 1; y < SEA_LEVEL + 6; y++)
+        {
+            volume.set(13, y, 13, log);
+        }
+        for (int x = 11; x <= 15; x++)
+        {
+            for (int z = 11; z <= 15; z++)
+            {
+                for (int y = SEA_LEVEL + 4; y < SEA_LEVEL + 8; y++)
+                {
+                    if (volume.get(x, y, z) == RestoreNatureVolume.AIR) volume.set(x, y, z, leaves);
+                }
+            }
+        }
+
+        //water dumped above sea level
+        for (int i = 0; i < 12; i++)
+        {
+            volume.set(1 + random.nextInt(16), SEA_LEVEL + 1 + random.nextInt(3), 1 + random.nextInt(16), water);
+        }
+
+        volume.markCaptured();
+        return volume;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public void processChunks(Blackhole blackhole)
+    {
+        List<ForkJoinTask<RestoreNatureVolume>> tasks = new ArrayList<>(CHUNKS);
+        for (int i = 0; i < CHUNKS; i++)
+        {
+            RestoreNatureProcessingTask task = new RestoreNatureProcessingTask(null, 0, rules, null, null, SEA_LEVEL, null);
+            tasks.add(workers.submit(() -> task.process(source.copy())));
+        }
+
+        for (ForkJoinTask<RestoreNatureVolume> task : tasks)
+        {
+            blackhole.consume(task.join());
+        }
+    }
+}
@@ -18,10 +18,13 @@
 
 package me.tinyoverflow.griefprevention;
 
+import me.tinyoverflow.griefprevention.datastore.AreaClaimLookup;
+import me.tinyoverflow.griefprevention.datastore.ClaimPermissionCache;
 import me.tinyoverflow.griefprevention.datastore.DataStore;
 import me.tinyoverflow.griefprevention.events.ClaimPermissionCheckEvent;
 import me.tinyoverflow.griefprevention.listeners.block.BlockPlaceListener;
-import me.tinyoverflow.griefprevention.tasks.RestoreNatureProcessingTask;
+import me.tinyoverflow.griefprevention.listeners.claim.ClaimPermissionCheckListener;
+import me.tinyoverflow.griefprevention.tasks.BlockMutationBatch;
 import me.tinyoverflow.griefprevention.utils.BoundingBox;
 import org.bukkit.*;
 import org.bukkit.World.Environment;
@@ -34,11 +37,14 @@ import org.bukkit.event.HandlerList;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.plugin.RegisteredListener;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Supplier;
 
 //represents a player claim
@@ -62,6 +68,11 @@ public class Claim {
     //note that the upper Y value is always ignored, because claims ALWAYS extend up to the sky
     public Location lesserBoundaryCorner;
     public Location greaterBoundaryCorner;
+    //integer copy of the boundaries, so containment checks don't allocate
+    //recomputed on demand after invalidateBounds(), which must be called whenever the corners change
+    private World boundsWorld;
+    private int minX, minY, minZ, maxX, maxY, maxZ;
+    private volatile boolean boundsValid = false;
     //modification date.  this comes from the file timestamp during load, and is updated with runtime changes
     public Date modifiedDate;
     //id number.  unique to this claim, never changes.
@@ -69,13 +80,11 @@ public class Claim {
     //ownerID.  for admin claims, this is NULL
     //use getOwnerName() to get a friendly name (will be "an administrator" for admin claims)
     public UUID ownerID;
-    //list of players who (beyond the claim owner) have permission to grant permissions in this claim
-    public ArrayList<String> managers = new ArrayList<>();
     //whether or not this claim is in the data store
     //if a claim instance isn't in the data store, it isn't "active" - players can't interract with it
     //why keep this?  so that claims which have been removed from the data store can be correctly
     //ignored even though they may have references floating around
-    public boolean inDataStore = false;
+    public volatile boolean inDataStore = false;
 
     public boolean areExplosivesAllowed = false;
 
@@ -84,13 +93,20 @@ public class Claim {
     public Claim parent = null;
     //children (subdivisions)
     //note subdivisions themselves never have children
-    public ArrayList<Claim> children = new ArrayList<>();
+    //copy-on-write, so lock-free claim lookups can iterate them while they change
+    public List<Claim> children = new CopyOnWriteArrayList<>();
+    //entities and active blocks in this claim, kept up to date by the ClaimActivityTracker once counted
+    //null and -1 until a limit check counts them, and again after the boundaries change
+    //the entity cleanup task has active blocks counted again regularly, other plugins change blocks without events
+    Set<Entity> entities = null;
+    int activeBlockCount = -1;
     //information about a siege involving this claim.  null means no siege is impacting this claim
     public SiegeData siegeData = null;
     //following a siege, buttons/levers are unlocked temporarily.  this represents that state
     public boolean doorsOpen = false;
     //permissions for this claim, see ClaimPermission class
-    private HashMap<String, ClaimPermission> playerIDToClaimPermissionMap = new HashMap<>();
+    //includes the players and groups who (beyond the claim owner) have permission to grant permissions in this claim
+    private TrustTable trust = new TrustTable();
     // intended for subclaims - they inherit no permissions
     private boolean inheritNothing = false;
 
@@ -129,9 +145,7 @@ public class Claim {
         }
 
         for (String managerID : managerIDs) {
-            if (managerID != null && !managerID.isEmpty()) {
-                managers.add(managerID);
-            }
+            setPermission(managerID, ClaimPermission.Manage);
         }
 
         this.inheritNothing = inheritNothing;
@@ -158,13 +172,12 @@ public class Claim {
         greaterBoundaryCorner = claim.greaterBoundaryCorner.clone();
         id = claim.id;
         ownerID = claim.ownerID;
-        managers = new ArrayList<>(claim.managers);
-        playerIDToClaimPermissionMap = new HashMap<>(claim.playerIDToClaimPermissionMap);
+        trust = new TrustTable(claim.trust);
         inDataStore = false; //since it's a copy of a claim, not in datastore!
         areExplosivesAllowed = claim.areExplosivesAllowed;
         parent = claim.parent;
         inheritNothing = claim.inheritNothing;
-        children = new ArrayList<>(claim.children);
+        children = new CopyOnWriteArrayList<>(claim.children);
         siegeData = claim.siegeData;
         doorsOpen = claim.doorsOpen;
     }
@@ -216,17 +229,35 @@ public class Claim {
         if (lesser.getWorld().getEnvironment() == Environment.NORMAL)
             seaLevel = GriefPrevention.instance.getSeaLevel(lesser.getWorld());
 
+        //each column is scanned when its turn comes, so large claims are cleaned up across several ticks
+        //columns in another claim by then keep their fluids, the land may have been claimed again meanwhile
+        World world = lesser.getWorld();
+        AreaClaimLookup claims = GriefPrevention.instance.dataStore.getClaimLookup(world, new BoundingBox(this));
+        BlockMutationBatch batch = new BlockMutationBatch(world, (bottomBlock, replacement) -> {
+            Claim claim = claims.getClaimAt(bottomBlock, true);
+            if (claim != null && claim != this && claim.parent != this) return;
+
+            removeColumnFluids(bottomBlock, replacement);
+        });
         for (int x = lesser.getBlockX(); x <= greater.getBlockX(); x++) {
             for (int z = lesser.getBlockZ(); z <= greater.getBlockZ(); z++) {
-                for (int y = seaLevel - 1; y <= lesser.getWorld().getMaxHeight(); y++) {
-                    //dodge the exclusion claim
-                    Block block = lesser.getWorld().getBlockAt(x, y, z);
-                    if (exclusionClaim != null && exclusionClaim.contains(block.getLocation(), true, false)) continue;
+                //dodge the exclusion claim
+                if (exclusionClaim != null && exclusionClaim.contains(new Location(world, x, 0, z), true, false)) continue;
 
-                    if (block.getType() == Material.LAVA || block.getType() == Material.WATER) {
-                        block.setType(Material.AIR);
-                    }
-                }
+                batch.add(x, seaLevel - 1, z, Material.AIR);
+            }
+        }
+
+        GriefPrevention.instance.blockMutationExecutor.submit(batch);
+    }
+
+    //replaces the water and lava in a column, from the given block up to the top of the world
+    private static void removeColumnFluids(Block bottomBlock, Material replacement) {
+        World world = bottomBlock.getWorld();
+        for (int y = bottomBlock.getY(); y < world.getMaxHeight(); y++) {
+            Block block = world.getBlockAt(bottomBlock.getX(), y, bottomBlock.getZ());
+            if (block.getType() == Material.LAVA || block.getType() == Material.WATER) {
+                block.setType(replacement);
             }
         }
     }
@@ -337,39 +368,17 @@ public class Claim {
     public boolean hasExplicitPermission(@NotNull UUID uuid, @NotNull ClaimPermission level) {
         if (uuid.equals(getOwnerID())) return true;
 
-        if (level == ClaimPermission.Manage) return managers.contains(uuid.toString());
+        if (level == ClaimPermission.Manage) return trust.isManager(uuid);
 
-        return level.isGrantedBy(playerIDToClaimPermissionMap.get(uuid.toString()));
+        return level.isGrantedBy(trust.getPermission(uuid));
     }
 
     public boolean hasExplicitPermission(@NotNull Player player, @NotNull ClaimPermission level) {
         // Check explicit ClaimPermission for UUID
         if (hasExplicitPermission(player.getUniqueId(), level)) return true;
 
-        // Special case managers - a separate list is used.
-        if (level == ClaimPermission.Manage) {
-            for (String node : managers) {
-                // Ensure valid permission format for permissions - [permission.node]
-                if (node.length() < 3 || node.charAt(0) != '[' || node.charAt(node.length() - 1) != ']') continue;
-                // Check if player has node
-                if (player.hasPermission(node.substring(1, node.length() - 1))) return true;
-            }
-            return false;
-        }
-
-        // Check permission-based ClaimPermission
-        for (Map.Entry<String, ClaimPermission> stringToPermission : playerIDToClaimPermissionMap.entrySet()) {
-            String node = stringToPermission.getKey();
-            // Ensure valid permission format for permissions - [permission.node]
-            if (node.length() < 3 || node.charAt(0) != '[' || node.charAt(node.length() - 1) != ']') continue;
-
-            // Check if level is high enough and player has node
-            if (level.isGrantedBy(stringToPermission.getValue())
-                    && player.hasPermission(node.substring(1, node.length() - 1)))
-                return true;
-        }
-
-        return false;
+        // Check permission-based ClaimPermission, managers included
+        return trust.isGrantedToGroup(level, player::hasPermission);
     }
 
     /**
@@ -402,7 +411,7 @@ public class Claim {
             @NotNull ClaimPermission permission,
             @Nullable Event event,
             @Nullable Supplier<String> denialOverride) {
-        return callPermissionCheck(new ClaimPermissionCheckEvent(player, this, permission, event), denialOverride);
+        return callPermissionCheck(player, player.getUniqueId(), permission, event, denialOverride);
     }
 
     /**
@@ -417,28 +426,38 @@ public class Claim {
             @NotNull UUID uuid,
             @NotNull ClaimPermission permission,
             @Nullable Event event) {
-        return callPermissionCheck(new ClaimPermissionCheckEvent(uuid, this, permission, event), null);
+        return callPermissionCheck(Bukkit.getPlayer(uuid), uuid, permission, event, null);
     }
 
     /**
      * Helper method for calling a ClaimPermissionCheckEvent.
      *
-     * @param event          the ClaimPermissionCheckEvent to call
-     * @param denialOverride a message overriding the default denial for clarity
+     * @param player          the Player being checked for permissions, null if offline
+     * @param uuid            the UUID being checked for permissions
+     * @param permission      the ClaimPermission level required
+     * @param triggeringEvent the Event triggering the permission check
+     * @param denialOverride  a message overriding the default denial for clarity
      * @return the denial reason or null if permission is granted
      */
     private @Nullable Supplier<String> callPermissionCheck(
-            @NotNull ClaimPermissionCheckEvent event,
+            @Nullable Player player,
+            @NotNull UUID uuid,
+            @NotNull ClaimPermission permission,
+            @Nullable Event triggeringEvent,
             @Nullable Supplier<String> denialOverride) {
         // Set denial message (if any) using default behavior.
-        Supplier<String> defaultDenial = getDefaultDenial(event.getCheckedPlayer(), event.getCheckedUUID(),
-                event.getRequiredPermission(), event.getTriggeringEvent()
-        );
+        Supplier<String> defaultDenial = getCachedDefaultDenial(player, uuid, permission, triggeringEvent);
         // If permission is denied and a clarifying override is provided, use override.
         if (defaultDenial != null && denialOverride != null) {
             defaultDenial = denialOverride;
         }
 
+        // Nobody could change the outcome, don't bother creating the event.
+        if (!hasPermissionCheckListeners(player)) return defaultDenial;
+
+        ClaimPermissionCheckEvent event = player != null
+                ? new ClaimPermissionCheckEvent(player, this, permission, triggeringEvent)
+                : new ClaimPermissionCheckEvent(uuid, this, permission, triggeringEvent);
         event.setDenialReason(defaultDenial);
 
         Bukkit.getPluginManager().callEvent(event);
@@ -446,6 +465,58 @@ public class Claim {
         return event.getDenialReason();
     }
 
+    /**
+     * Check whether a ClaimPermissionCheckEvent may change the outcome of a check. GriefPrevention's own siege rules
+     * only change it while a siege or open doors are involved.
+     *
+     * @param player the Player being checked for permissions, null if offline
+     * @return whether the event needs to be called
+     */
+    private boolean hasPermissionCheckListeners(@Nullable Player player) {
+        for (RegisteredListener listener : ClaimPermissionCheckEvent.getHandlerList().getRegisteredListeners()) {
+            if (listener.getPlugin() != GriefPrevention.instance) return true;
+        }
+
+        return ClaimPermissionCheckListener.appliesTo(player, this);
+    }
+
+    /**
+     * Get the default reason for denial of a ClaimPermission, remembering the decision for the next checks.
+     *
+     * @param player     the Player being checked for permissions
+     * @param uuid       the UUID being checked for permissions
+     * @param permission the ClaimPermission required
+     * @param event      the Event triggering the permission check
+     * @return the denial reason or null if permission is granted
+     */
+    private @Nullable Supplier<String> getCachedDefaultDenial(
+            @Nullable Player player,
+            @NotNull UUID uuid,
+            @NotNull ClaimPermission permission,
+            @Nullable Event event) {
+        if (!Bukkit.isPrimaryThread()) return getDefaultDenial(player, uuid, permission, event);
+
+        ClaimPermissionCache cache = GriefPrevention.instance.dataStore.getPermissionCache();
+        Supplier<String> decision = cache.get(this, uuid, permission);
+        if (decision == ClaimPermissionCache.GRANTED) return null;
+
+        // Building also depends on PvP combat and the triggering event, only remember whether the player is trusted.
+        if (permission == ClaimPermission.Build) {
+            if (decision == null) {
+                boolean trusted = isTrusted(player, uuid, permission);
+                cache.put(this, uuid, permission, trusted ? ClaimPermissionCache.GRANTED : ClaimPermissionCache.UNTRUSTED);
+                if (trusted) return null;
+            }
+            return getUntrustedDenial(player, uuid, permission, event);
+        }
+
+        if (decision != null) return decision;
+
+        Supplier<String> denial = getDefaultDenial(player, uuid, permission, event);
+        cache.put(this, uuid, permission, denial != null ? denial : ClaimPermissionCache.GRANTED);
+        return denial;
+    }
+
     /**
      * Get the default reason for denial of a ClaimPermission.
      *
@@ -460,34 +531,66 @@ public class Claim {
             @NotNull UUID uuid,
             @NotNull ClaimPermission permission,
             @Nullable Event event) {
+        if (isTrusted(player, uuid, permission)) return null;
+
+        return getUntrustedDenial(player, uuid, permission, event);
+    }
+
+    /**
+     * Check whether this claim itself grants a ClaimPermission, regardless of the situation of the check.
+     *
+     * @param player     the Player being checked for permissions
+     * @param uuid       the UUID being checked for permissions
+     * @param permission the ClaimPermission required
+     * @return whether the permission is granted
+     */
+    private boolean isTrusted(
+            @Nullable Player player,
+            @NotNull UUID uuid,
+            @NotNull ClaimPermission permission) {
         if (player != null) {
             // Admin claims need adminclaims permission only.
             if (isAdminClaim()) {
-                if (player.hasPermission("griefprevention.adminclaims")) return null;
+                if (hasNode(player, PlayerPermissions.Node.ADMIN_CLAIMS)) return true;
             }
 
             // Anyone with deleteclaims permission can edit non-admin claims at any time.
-            else if (permission == ClaimPermission.Edit && player.hasPermission("griefprevention.deleteclaims"))
-                return null;
+            else if (permission == ClaimPermission.Edit && hasNode(player, PlayerPermissions.Node.DELETE_CLAIMS))
+                return true;
         }
 
         // Claim owner and admins in ignoreclaims mode have access.
         if (uuid.equals(getOwnerID())
                 || GriefPrevention.instance.dataStore.getPlayerData(uuid).ignoreClaims
                 && hasBypassPermission(player, permission))
-            return null;
+            return true;
 
         // Look for explicit individual permission.
         if (player != null) {
-            if (hasExplicitPermission(player, permission)) return null;
+            if (hasExplicitPermission(player, permission)) return true;
         }
         else {
-            if (hasExplicitPermission(uuid, permission)) return null;
+            if (hasExplicitPermission(uuid, permission)) return true;
         }
 
         // Check for public permission.
-        if (permission.isGrantedBy(playerIDToClaimPermissionMap.get("public"))) return null;
+        return permission.isGrantedBy(trust.getPermission("public"));
+    }
 
+    /**
+     * Get the reason for denial of a ClaimPermission to a player who isn't trusted by this claim itself.
+     *
+     * @param player     the Player being checked for permissions
+     * @param uuid       the UUID being checked for permissions
+     * @param permission the ClaimPermission required
+     * @param event      the Event triggering the permission check
+     * @return the denial reason or null if permission is granted
+     */
+    private @Nullable Supplier<String> getUntrustedDenial(
+            @Nullable Player player,
+            @NotNull UUID uuid,
+            @NotNull ClaimPermission permission,
+            @Nullable Event event) {
         // Special building-only rules.
         if (permission == ClaimPermission.Build) {
             // No building while in PVP.
@@ -537,9 +640,13 @@ public class Claim {
     private boolean hasBypassPermission(@Nullable Player player, @NotNull ClaimPermission permission) {
         if (player == null) return false;
 
-        if (permission == ClaimPermission.Edit) return player.hasPermission("griefprevention.deleteclaims");
+        if (permission == ClaimPermission.Edit) return hasNode(player, PlayerPermissions.Node.DELETE_CLAIMS);
 
-        return player.hasPermission("griefprevention.ignoreclaims");
+        return hasNode(player, PlayerPermissions.Node.IGNORE_CLAIMS);
+    }
+
+    private static boolean hasNode(@NotNull Player player, @NotNull PlayerPermissions.Node node) {
+        return GriefPrevention.instance.playerPermissions.has(player, node);
     }
 
     /**
@@ -594,7 +701,12 @@ public class Claim {
     public @Nullable ClaimPermission getPermission(@Nullable String playerID) {
         if (playerID == null || playerID.isEmpty()) return null;
 
-        return playerIDToClaimPermissionMap.get(playerID.toLowerCase());
+        return trust.getPermission(playerID.toLowerCase());
+    }
+
+    //whether a player or group may grant permissions in this claim
+    public boolean isManager(@NotNull String playerID) {
+        return trust.isManager(playerID.toLowerCase());
     }
 
     //grants a permission for a player or the public
@@ -609,19 +721,17 @@ public class Claim {
             dropPermission(playerID);
         }
         else if (permissionLevel == ClaimPermission.Manage) {
-            if (managers.contains(playerID.toLowerCase())) return;
-            managers.add(playerID.toLowerCase());
+            trust.addManager(playerID.toLowerCase());
         }
         else {
-            playerIDToClaimPermissionMap.put(playerID.toLowerCase(), permissionLevel);
+            trust.setPermission(playerID.toLowerCase(), permissionLevel);
         }
     }
 
     //revokes a permission for a player or the public
     public void dropPermission(@NotNull String playerID) {
         playerID = playerID.toLowerCase();
-        playerIDToClaimPermissionMap.remove(playerID);
-        managers.remove(playerID);
+        trust.remove(playerID);
 
         for (Claim child : children) {
             child.dropPermission(playerID);
@@ -630,8 +740,7 @@ public class Claim {
 
     //clears all permissions (except owner of course)
     public void clearPermissions() {
-        playerIDToClaimPermissionMap.clear();
-        managers.clear();
+        trust.clear();
 
         for (Claim child : children) {
             child.clearPermissions();
@@ -641,22 +750,7 @@ public class Claim {
     //gets ALL permissions
     //useful for  making copies of permissions during a claim resize and listing all permissions in a claim
     public void getPermissions(ArrayList<String> builders, ArrayList<String> containers, ArrayList<String> accessors, ArrayList<String> managers) {
-        //loop through all the entries in the hash map
-        for (Map.Entry<String, ClaimPermission> entry : playerIDToClaimPermissionMap.entrySet()) {
-            //build up a list for each permission level
-            if (entry.getValue() == ClaimPermission.Build) {
-                builders.add(entry.getKey());
-            }
-            else if (entry.getValue() == ClaimPermission.Inventory) {
-                containers.add(entry.getKey());
-            }
-            else {
-                accessors.add(entry.getKey());
-            }
-        }
-
-        //managers are handled a little differently
-        managers.addAll(this.managers);
+        trust.getPermissions(builders, containers, accessors, managers);
     }
 
     //returns a copy of the location representing lower x, y, z limits
@@ -688,24 +782,57 @@ public class Claim {
         return ownerID;
     }
 
+    //discards the cached integer boundaries
+    //call after replacing or moving the boundary corners, the next containment check recomputes them
+    public void invalidateBounds() {
+        boundsValid = false;
+        entities = null;
+        activeBlockCount = -1;
+    }
+
+    //fills the cached integer boundaries from the boundary corners if they are stale
+    //the claim spans from the lesser corner's Y up to the world's build limit, like BoundingBox(Claim)
+    private void ensureBounds() {
+        if (boundsValid) return;
+
+        Location lesser = getLesserBoundaryCorner();
+        Location greater = getGreaterBoundaryCorner();
+        World world = Objects.requireNonNull(lesser.getWorld());
+
+        boundsWorld = world;
+        minX = lesser.getBlockX();
+        minY = lesser.getBlockY();
+        minZ = lesser.getBlockZ();
+        maxX = greater.getBlockX();
+        maxY = world.getMaxHeight();
+        maxZ = greater.getBlockZ();
+        boundsValid = true;
+    }
+
+    private boolean isInWorld(World world) {
+        return world == boundsWorld || Objects.equals(world, boundsWorld);
+    }
+
     //whether or not a location is in a claim
     //ignoreHeight = true means location UNDER the claim will return TRUE
     //excludeSubdivisions = true means that locations inside subdivisions of the claim will return FALSE
     public boolean contains(Location location, boolean ignoreHeight, boolean excludeSubdivisions) {
+        ensureBounds();
+
         //not in the same world implies false
-        if (!Objects.equals(location.getWorld(), lesserBoundaryCorner.getWorld())) return false;
+        if (!isInWorld(location.getWorld())) return false;
 
-        BoundingBox boundingBox = new BoundingBox(this);
         int x = location.getBlockX();
         int z = location.getBlockZ();
 
-        // If we're ignoring height, use 2D containment check.
-        if (ignoreHeight && !boundingBox.contains2d(x, z)) {
+        // 2D containment check first.
+        if (x < minX || x > maxX || z < minZ || z > maxZ) {
             return false;
         }
-        // Otherwise use full containment check.
-        else if (!ignoreHeight && !boundingBox.contains(x, location.getBlockY(), z)) {
-            return false;
+        // Unless we're ignoring height, check Y as well.
+        else if (!ignoreHeight) {
+            int y = location.getBlockY();
+            if (y < minY || y > maxY) return false;
         }
 
         //additional check for subdivisions
@@ -731,13 +858,32 @@ public class Claim {
         return true;
     }
 
+    //whether a block in this claim's world is inside this claim, without allocating a location
+    //like contains(location, ignoreHeight, false), subdivisions are part of their parent claim
+    public boolean contains(int x, int y, int z, boolean ignoreHeight) {
+        ensureBounds();
+
+        if (x < minX || x > maxX || z < minZ || z > maxZ) return false;
+        if (!ignoreHeight && (y < minY || y > maxY)) return false;
+
+        //you're only in a subdivision when you're also in its parent claim
+        if (parent != null) return parent.contains(x, y, z, ignoreHeight);
+
+        return true;
+    }
+
     //whether or not two claims overlap
     //used internally to prevent overlaps when creating claims
     public boolean overlaps(Claim otherClaim) {
-        if (!Objects.equals(lesserBoundaryCorner.getWorld(), otherClaim.getLesserBoundaryCorner().getWorld()))
+        ensureBounds();
+        otherClaim.ensureBounds();
+
+        if (!isInWorld(otherClaim.boundsWorld))
             return false;
 
-        return new BoundingBox(this).intersects(new BoundingBox(otherClaim));
+        return minX <= otherClaim.maxX && maxX >= otherClaim.minX
+               && minY <= otherClaim.maxY && maxY >= otherClaim.minY
+               && minZ <= otherClaim.maxZ && maxZ >= otherClaim.minZ;
     }
 
     //whether more entities may be added to a claim
@@ -757,25 +903,58 @@ public class Claim {
         int maxEntities = getArea() / 50;
         if (maxEntities == 0) return GriefPrevention.instance.dataStore.getMessage(Messages.ClaimTooSmallForEntities);
 
-        //count current entities (ignoring players)
-        int totalEntities = 0;
-        ArrayList<Chunk> chunks = getChunks();
-        for (Chunk chunk : chunks) {
-            Entity[] entities = chunk.getEntities();
-            for (Entity entity : entities) {
-                if (!(entity instanceof Player) && contains(entity.getLocation(), false, false)) {
-                    totalEntities++;
-                    if (remove && totalEntities > maxEntities) entity.remove();
+        //count current entities (ignoring players) once, they are tracked from then on
+        ClaimActivityTracker tracker = GriefPrevention.instance.claimActivityTracker;
+        if (entities == null) {
+            entities = new LinkedHashSet<>();
+            for (Chunk chunk : getChunks()) {
+                for (Entity entity : chunk.getEntities()) {
+                    if (!(entity instanceof Player) && contains(entity.getLocation(), false, false)) {
+                        tracker.track(entity, this);
+                    }
                 }
             }
         }
 
+        int totalEntities = entities.size();
+        if (remove && totalEntities > maxEntities) {
+            //remove the entities counted last beyond the limit
+            ArrayList<Entity> extras = new ArrayList<>(totalEntities - maxEntities);
+            Iterator<Entity> iterator = entities.iterator();
+            for (int kept = 0; kept < maxEntities; kept++) iterator.next();
+            while (iterator.hasNext()) extras.add(iterator.next());
+
+            for (Entity entity : extras) {
+                tracker.entityRemoved(entity);
+                entity.remove();
+            }
+        }
+
         if (totalEntities >= maxEntities)
             return GriefPrevention.instance.dataStore.getMessage(Messages.TooManyEntitiesInClaim);
 
         return null;
     }
 
+    /**
+     * Check the tracked entities for ones which wandered off or are gone, and have the active blocks counted again
+     * when they are needed next. This picks up changes made without any event, such as by other plugins.
+     */
+    public void recountActivity() {
+        if (parent != null) {
+            parent.recountActivity();
+            return;
+        }
+
+        activeBlockCount = -1;
+        if (entities == null) return;
+
+        ClaimActivityTracker tracker = GriefPrevention.instance.claimActivityTracker;
+        for (Entity entity : new ArrayList<>(entities)) {
+            if (!entity.isValid() || !contains(entity.getLocation(), false, false)) tracker.retrack(entity);
+        }
+    }
+
     public String allowMoreActiveBlocks() {
         if (parent != null) return parent.allowMoreActiveBlocks();
 
@@ -784,21 +963,24 @@ public class Claim {
         if (maxActives == 0)
             return GriefPrevention.instance.dataStore.getMessage(Messages.ClaimTooSmallForActiveBlocks);
 
-        //count current actives
-        int totalActives = 0;
-        ArrayList<Chunk> chunks = getChunks();
-        for (Chunk chunk : chunks) {
-            BlockState[] actives = chunk.getTileEntities();
-            for (BlockState active : actives) {
-                if (BlockPlaceListener.isActiveBlock(active)) {
-                    if (contains(active.getLocation(), false, false)) {
-                        totalActives++;
+        //count current actives once, they are tracked from then on
+        if (activeBlockCount < 0) {
+            int totalActives = 0;
+            ArrayList<Chunk> chunks = getChunks();
+            for (Chunk chunk : chunks) {
+                BlockState[] actives = chunk.getTileEntities();
+                for (BlockState active : actives) {
+                    if (BlockPlaceListener.isActiveBlock(active)) {
+                        if (contains(active.getLocation(), false, false)) {
+                            totalActives++;
+                        }
                     }
                 }
             }
+            activeBlockCount = totalActives;
         }
 
-        if (totalActives >= maxActives)
+        if (activeBlockCount >= maxActives)
             return GriefPrevention.instance.dataStore.getMessage(Messages.TooManyActiveBlocksInClaim);
 
         return null;
@@ -820,52 +1002,25 @@ public class Claim {
         return thisCorner.getWorld().getName().compareTo(otherCorner.getWorld().getName()) < 0;
     }
 
+    /**
+     * Score this claim by its player placed blocks, scanning its chunks on the calling thread.
+     *
+     * @return the investment score
+     * @deprecated scanning blocks the calling thread, use {@link #getPlayerInvestmentScoreAsync()}
+     */
+    @Deprecated
     public long getPlayerInvestmentScore() {
-        //decide which blocks will be considered player placed
-        Location lesserBoundaryCorner = getLesserBoundaryCorner();
-        Set<Material> playerBlocks = RestoreNatureProcessingTask.getPlayerBlocks(
-                lesserBoundaryCorner.getWorld().getEnvironment(),
-                lesserBoundaryCorner.getBlock().getBiome()
-        );
-
-        //scan the claim for player placed blocks
-        double score = 0;
-
-        boolean creativeMode = GriefPrevention.instance.creativeRulesApply(lesserBoundaryCorner);
-
-        for (int x = this.lesserBoundaryCorner.getBlockX(); x <= greaterBoundaryCorner.getBlockX(); x++) {
-            for (int z = this.lesserBoundaryCorner.getBlockZ(); z <= greaterBoundaryCorner.getBlockZ(); z++) {
-                int y = this.lesserBoundaryCorner.getBlockY();
-                for (; y < GriefPrevention.instance.getSeaLevel(this.lesserBoundaryCorner.getWorld()) - 5; y++) {
-                    Block block = this.lesserBoundaryCorner.getWorld().getBlockAt(x, y, z);
-                    if (playerBlocks.contains(block.getType())) {
-                        if (block.getType() == Material.CHEST && !creativeMode) {
-                            score += 10;
-                        }
-                        else {
-                            score += .5;
-                        }
-                    }
-                }
-
-                for (; y < this.lesserBoundaryCorner.getWorld().getMaxHeight(); y++) {
-                    Block block = this.lesserBoundaryCorner.getWorld().getBlockAt(x, y, z);
-                    if (playerBlocks.contains(block.getType())) {
-                        if (block.getType() == Material.CHEST && !creativeMode) {
-                            score += 10;
-                        }
-                        else if (creativeMode && (block.getType() == Material.LAVA)) {
-                            score -= 10;
-                        }
-                        else {
-                            score += 1;
-                        }
-                    }
-                }
-            }
-        }
+        return GriefPrevention.instance.investmentScorer.getScoreNow(this);
+    }
 
-        return (long) score;
+    /**
+     * Score this claim by its player placed blocks. Chunks are scanned off the main thread,
+     * and only if they changed since they were last scored.
+     *
+     * @return the investment score, completed on the main thread
+     */
+    public CompletableFuture<Long> getPlayerInvestmentScoreAsync() {
+        return GriefPrevention.instance.investmentScorer.getScore(this);
     }
 
     public ArrayList<Chunk> getChunks() {
@@ -884,6 +1039,10 @@ public class Claim {
         return chunks;
     }
 
+    /**
+     * @deprecated Boxes every hash. The claim index iterates chunk coordinates directly.
+     */
+    @Deprecated
     public ArrayList<Long> getChunkHashes() {
         return DataStore.getChunkHashes(this);
     }
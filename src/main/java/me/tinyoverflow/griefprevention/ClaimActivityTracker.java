@@ -0,0 +1,132 @@
+package me.tinyoverflow.griefprevention;
+
+import me.tinyoverflow.griefprevention.listeners.block.BlockPlaceListener;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the entity and active block counts of claims up to date, so the
+ * creative mode limits are checked without scanning the claims' chunks.
+ *
+ * <p>A claim is counted by a full scan the first time one of its limits is
+ * checked, and again after its boundaries change. From then on, entities are
+ * counted as they are added to and removed from the world, which includes
+ * chunks loading and unloading, and active blocks as they are placed, broken
+ * and blown up. Active blocks stay counted while their chunk is unloaded.
+ *
+ * <p>Entities belong to the claim they were added in. Entities wandering out
+ * of a claim are moved to the claim they are in when the entity cleanup task
+ * visits their claim.
+ *
+ * <p>This class is not thread-safe, it's used from the main thread only.
+ */
+public class ClaimActivityTracker
+{
+    //the claim each counted entity was counted in
+    private final Map<Entity, Claim> entityClaims = new HashMap<>();
+
+    /**
+     * Count an entity added to the world, if it's in a claim which is counted.
+     *
+     * @param entity the entity
+     */
+    public void entityAdded(Entity entity)
+    {
+        if (entity instanceof Player) return;
+
+        //the entity limit only applies in creative mode worlds
+        Location location = entity.getLocation();
+        if (!GriefPrevention.instance.creativeRulesApply(location)) return;
+
+        Claim claim = getCountedClaim(location);
+        if (claim != null && claim.entities != null) track(entity, claim);
+    }
+
+    /**
+     * Stop counting an entity removed from the world.
+     *
+     * @param entity the entity
+     */
+    public void entityRemoved(Entity entity)
+    {
+        Claim claim = entityClaims.remove(entity);
+        if (claim != null && claim.entities != null) claim.entities.remove(entity);
+    }
+
+    /**
+     * Count an entity in a claim, no matter which claim it was counted in before.
+     *
+     * @param entity the entity
+     * @param claim the top level claim
+     */
+    void track(Entity entity, Claim claim)
+    {
+        Claim previous = entityClaims.put(entity, claim);
+        if (previous != null && previous != claim && previous.entities != null)
+        {
+            previous.entities.remove(entity);
+        }
+        claim.entities.add(entity);
+    }
+
+    /**
+     * Count an entity in the claim it's in now, after it left the claim it was counted in.
+     *
+     * @param entity the entity
+     */
+    void retrack(Entity entity)
+    {
+        entityRemoved(entity);
+        if (entity.isValid()) entityAdded(entity);
+    }
+
+    /**
+     * Count a block placed in a claim, if it's an active block.
+     *
+     * @param location the location of the block
+     * @param type the type of the block
+     */
+    public void blockPlaced(Location location, Material type)
+    {
+        if (!BlockPlaceListener.isActiveBlock(type)) return;
+
+        Claim claim = getCountedClaim(location);
+        if (claim != null && claim.activeBlockCount >= 0) claim.activeBlockCount++;
+    }
+
+    /**
+     * Stop counting a block removed from a claim, if it's an active block.
+     *
+     * @param location the location of the block
+     * @param type the type of the block
+     */
+    public void blockRemoved(Location location, Material type)
+    {
+        if (!BlockPlaceListener.isActiveBlock(type)) return;
+
+        Claim claim = getCountedClaim(location);
+        if (claim != null && claim.activeBlockCount > 0) claim.activeBlockCount--;
+    }
+
+    /**
+     * @return the number of entities counted in claims
+     */
+    public int getTrackedEntities()
+    {
+        return entityClaims.size();
+    }
+
+    //counts belong to top level claims, subdivisions defer their limits to their parent
+    private @Nullable Claim getCountedClaim(Location location)
+    {
+        Claim claim = GriefPrevention.instance.dataStore.getClaimAt(location, false, null);
+        if (claim == null) return null;
+        return claim.parent != null ? claim.parent : claim;
+    }
+}
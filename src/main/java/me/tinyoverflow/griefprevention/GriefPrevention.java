@@ -24,25 +24,36 @@ import dev.jorel.commandapi.CommandTree;
 import dev.jorel.commandapi.arguments.IntegerArgument;
 import dev.jorel.commandapi.arguments.LiteralArgument;
 import dev.jorel.commandapi.arguments.MultiLiteralArgument;
+import dev.jorel.commandapi.arguments.OfflinePlayerArgument;
 import lombok.Getter;
+import me.tinyoverflow.griefprevention.commands.ActivityQueryCommand;
 import me.tinyoverflow.griefprevention.commands.AdminClaimListCommand;
 import me.tinyoverflow.griefprevention.commands.DeleteAllClaimsCommand;
 import me.tinyoverflow.griefprevention.commands.IgnoreClaimsCommand;
+import me.tinyoverflow.griefprevention.commands.MigrateClaimStorageCommand;
+import me.tinyoverflow.griefprevention.commands.StorageStatsCommand;
 import me.tinyoverflow.griefprevention.commands.ToolModeCommand;
 import me.tinyoverflow.griefprevention.commands.claim.ClaimCreateCommand;
+import me.tinyoverflow.griefprevention.configurations.ClaimRestorationConfiguration;
 import me.tinyoverflow.griefprevention.configurations.GriefPreventionConfiguration;
+import me.tinyoverflow.griefprevention.configurations.StorageConfiguration;
 import me.tinyoverflow.griefprevention.data.RepositoryContainer;
+import me.tinyoverflow.griefprevention.datastore.BinaryDataStore;
 import me.tinyoverflow.griefprevention.datastore.DataStore;
+import me.tinyoverflow.griefprevention.datastore.DatabaseDataStore;
 import me.tinyoverflow.griefprevention.datastore.FlatFileDataStore;
 import me.tinyoverflow.griefprevention.events.PreventBlockBreakEvent;
 import me.tinyoverflow.griefprevention.handlers.EconomyHandler;
 import me.tinyoverflow.griefprevention.listeners.block.*;
+import me.tinyoverflow.griefprevention.listeners.claim.ClaimPermissionCacheListener;
 import me.tinyoverflow.griefprevention.listeners.claim.ClaimPermissionCheckListener;
 import me.tinyoverflow.griefprevention.listeners.entity.*;
 import me.tinyoverflow.griefprevention.listeners.hanging.HangingBreakListener;
 import me.tinyoverflow.griefprevention.listeners.hanging.HangingPlaceListener;
 import me.tinyoverflow.griefprevention.listeners.inventory.InventoryPickupItemListener;
 import me.tinyoverflow.griefprevention.listeners.player.*;
+import me.tinyoverflow.griefprevention.listeners.world.ClaimActivityListener;
+import me.tinyoverflow.griefprevention.listeners.world.InvestmentScoreListener;
 import me.tinyoverflow.griefprevention.listeners.world.PortalCreateListener;
 import me.tinyoverflow.griefprevention.listeners.world.StructureGrowListener;
 import me.tinyoverflow.griefprevention.logger.ActivityLogger;
@@ -86,7 +97,20 @@ public class GriefPrevention extends JavaPlugin
     @Getter
     public DataStore dataStore;
     //this tracks item stacks expected to drop which will need protection
-    public ArrayList<PendingItemProtection> pendingItemWatchList = new ArrayList<>();
+    public final PendingItemWatchList pendingItemWatchList = new PendingItemWatchList();
+    //this applies large amounts of block changes across ticks
+    public BlockMutationExecutor blockMutationExecutor;
+    //this restores nature in chunks on worker threads
+    private RestoreNaturePipeline restoreNaturePipeline;
+    //this scores claims by their player placed blocks, caching scores per chunk
+    public final ClaimInvestmentScorer investmentScorer = new ClaimInvestmentScorer(this);
+    //this keeps the entity and active block counts of claims up to date
+    public final ClaimActivityTracker claimActivityTracker = new ClaimActivityTracker();
+    //this keeps snapshots of the permission nodes of online players
+    public final PlayerPermissions playerPermissions = new PlayerPermissions(
+            player -> dataStore.computeGroupBonusBlocks(player)
+    );
+
     //#region Deprecated Configuration Variables
     @Deprecated(forRemoval = true)
     public boolean config_lockDeathDropsInPvpWorlds;                 // whether players' dropped on death items are protected in pvp worlds
@@ -162,6 +186,7 @@ public class GriefPrevention extends JavaPlugin
     HashMap<World, Boolean> config_pvp_specifiedWorlds;                //list of worlds where pvp anti-grief rules apply, according to the config file
     //helper method to resolve a player by name
     ConcurrentHashMap<String, UUID> playerNameToIDMap = new ConcurrentHashMap<>();
+    @Getter
     private ActivityLogger activityLogger;
     @Getter
     private Tolker tolker;
@@ -174,7 +199,7 @@ public class GriefPrevention extends JavaPlugin
     }
 
     //adds a server log entry
-    public static synchronized void AddLogEntry(String entry, ActivityType activityType, boolean excludeFromServerLogs)
+    public static void AddLogEntry(String entry, ActivityType activityType, boolean excludeFromServerLogs)
     {
         if (activityType != null && GriefPrevention.instance.activityLogger != null)
         {
@@ -183,13 +208,22 @@ public class GriefPrevention extends JavaPlugin
         if (!excludeFromServerLogs) logger.info(entry);
     }
 
-    public static synchronized void AddLogEntry(String entry, ActivityType activityType)
+    //adds a server log entry, which can be looked up by player and location in the activity log
+    public static void AddLogEntry(String entry, ActivityType activityType, boolean excludeFromServerLogs, UUID playerID, Location location)
+    {
+        if (GriefPrevention.instance.activityLogger != null)
+        {
+            GriefPrevention.instance.activityLogger.log(activityType, entry, playerID, location);
+        }
+        if (!excludeFromServerLogs) logger.info(entry);
+    }
+
+    public static void AddLogEntry(String entry, ActivityType activityType)
     {
         AddLogEntry(entry, activityType, false);
-        Bukkit.getOfflinePlayer("test");
     }
 
-    public static synchronized void AddLogEntry(String entry)
+    public static void AddLogEntry(String entry)
     {
         AddLogEntry(entry, ActivityType.DEBUG);
     }
@@ -362,6 +396,7 @@ public class GriefPrevention extends JavaPlugin
                 new File(getDataFolder(), "logs"),
                 getPluginConfig().getLoggerConfiguration()
         );
+        activityLogger.start();
         activityLogger.registerTasks(this, getServer().getScheduler());
 
         AddLogEntry("Finished loading configuration.");
@@ -386,17 +421,30 @@ public class GriefPrevention extends JavaPlugin
             }
             try
             {
-                dataStore = new FlatFileDataStore(getDataFolder());
+                StorageConfiguration storageConfiguration = getPluginConfig().getStorageConfiguration();
+                if (storageConfiguration.getType() == StorageConfiguration.StorageType.Database)
+                {
+                    dataStore = new DatabaseDataStore(getDataFolder(), storageConfiguration.getDatabaseConnections());
+                }
+                else if (storageConfiguration.getType() == StorageConfiguration.StorageType.Binary)
+                {
+                    dataStore = new BinaryDataStore(getDataFolder());
+                }
+                else
+                {
+                    dataStore = new FlatFileDataStore(getDataFolder());
+                }
             }
             catch (Exception e)
             {
-                GriefPrevention.AddLogEntry("Unable to initialize the file system data store.  Details:");
+                GriefPrevention.AddLogEntry("Unable to initialize the data store.  Details:");
                 GriefPrevention.AddLogEntry(e.getMessage());
                 e.printStackTrace();
             }
         }
 
-        String dataMode = (dataStore instanceof FlatFileDataStore) ? "(File Mode)" : "(Database Mode)";
+        String dataMode = (dataStore instanceof BinaryDataStore) ? "(Binary Mode)"
+                : (dataStore instanceof FlatFileDataStore) ? "(File Mode)" : "(Database Mode)";
         AddLogEntry("Finished loading data " + dataMode + ".");
 
         //unless claim block accrual is disabled, start the recurring per 10-minute event to give claim blocks to online players
@@ -411,11 +459,31 @@ public class GriefPrevention extends JavaPlugin
         EntityCleanupTask task = new EntityCleanupTask(0);
         getServer().getScheduler().scheduleSyncDelayedTask(GriefPrevention.instance, task, 20L * 60 * 2);
 
-        //start recurring cleanup scan for unused claims belonging to inactive players
-        FindUnusedClaimsTask task2 = new FindUnusedClaimsTask();
+        //expire protections for dropped items which didn't spawn in time
         getServer().getScheduler().scheduleSyncRepeatingTask(
                 this,
-                task2,
+                () -> pendingItemWatchList.expire(System.currentTimeMillis()),
+                PendingItemWatchList.SLOT_MILLIS / 50,
+                PendingItemWatchList.SLOT_MILLIS / 50
+        );
+
+        //apply pending block changes every tick, within the configured time budget
+        ClaimRestorationConfiguration restorationConfiguration = getPluginConfig().getClaimConfiguration().getRestorationConfiguration();
+        blockMutationExecutor = new BlockMutationExecutor(restorationConfiguration.getTickBudgetMillis());
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, blockMutationExecutor, 1L, 1L);
+        restoreNaturePipeline = new RestoreNaturePipeline(
+                this,
+                restorationConfiguration.getWorkerThreads(),
+                restorationConfiguration.getMaxChunksInFlight()
+        );
+
+        //start recurring cleanup scan for unused claims belonging to inactive players
+        ClaimExpirationScheduler expirationScheduler = new ClaimExpirationScheduler(
+                getPluginConfig().getClaimConfiguration().getExpirationConfiguration()
+        );
+        getServer().getScheduler().runTaskTimerAsynchronously(
+                this,
+                expirationScheduler,
                 20L * 60,
                 20L * config_advanced_claim_expiration_check_rate
         );
@@ -494,6 +562,8 @@ public class GriefPrevention extends JavaPlugin
 
         // World Events
         registerEvents(
+                new ClaimActivityListener(claimActivityTracker),
+                new InvestmentScoreListener(investmentScorer),
                 new PortalCreateListener(dataStore),
                 new StructureGrowListener(dataStore)
         );
@@ -502,6 +572,14 @@ public class GriefPrevention extends JavaPlugin
         ClaimPermissionCheckListener siegeEventHandler = new ClaimPermissionCheckListener();
         pluginManager.registerEvents(siegeEventHandler, this);
 
+        //trust decisions depend on the players' permission nodes
+        pluginManager.registerEvents(new PlayerPermissionsListener(playerPermissions), this);
+        pluginManager.registerEvents(new ClaimPermissionCacheListener(dataStore.getPermissionCache()), this);
+        for (Player player : getServer().getOnlinePlayers())
+        {
+            playerPermissions.refresh(player);
+        }
+
         //vault-based economy integration
         economyHandler = new EconomyHandler(this);
         pluginManager.registerEvents(economyHandler, this);
@@ -536,6 +614,28 @@ public class GriefPrevention extends JavaPlugin
                                 .executesPlayer(new DeleteAllClaimsCommand(this))
                         )
                 )
+                .then(new LiteralArgument("migrate-storage")
+                        .withPermission(Permissions.Commands.ClaimAdmin.MIGRATE_STORAGE)
+                        .then(new MultiLiteralArgument("target", List.of("binary", "database"))
+                                .executes(new MigrateClaimStorageCommand(this))
+                        )
+                )
+                .then(new LiteralArgument("storage-stats")
+                        .withPermission(Permissions.Commands.ClaimAdmin.STORAGE_STATS)
+                        .executes(new StorageStatsCommand(this))
+                )
+                .then(new LiteralArgument("activity")
+                        .withPermission(Permissions.Commands.ClaimAdmin.ACTIVITY)
+                        .then(new OfflinePlayerArgument("target")
+                                .executes(new ActivityQueryCommand(this))
+                                .then(new IntegerArgument("hours", 1, 24 * 30)
+                                        .executes(new ActivityQueryCommand(this))
+                                        .then(new IntegerArgument("radius", 0, 256)
+                                                .executes(new ActivityQueryCommand(this))
+                                        )
+                                )
+                        )
+                )
                 .register();
 
         new CommandTree("toolmode")
@@ -874,13 +974,18 @@ public class GriefPrevention extends JavaPlugin
         {
             UUID playerID = player.getUniqueId();
             PlayerData playerData = dataStore.getPlayerData(playerID);
-            dataStore.savePlayerDataSync(playerID, playerData);
+            dataStore.savePlayerData(playerID, playerData);
         }
 
+        //chunks not restored yet are dropped, block changes still waiting for their tick are applied right away
+        restoreNaturePipeline.shutdown();
+        blockMutationExecutor.flush();
+
+        //writes everything still pending, including the player data above
         dataStore.close();
 
-        //dump any remaining unwritten log entries
-        activityLogger.flush();
+        //write any remaining log entries
+        activityLogger.close();
 
         AddLogEntry("GriefPrevention disabled.");
     }
@@ -1005,7 +1110,7 @@ public class GriefPrevention extends JavaPlugin
                     -1)
                 {
                     String reason = dataStore.getMessage(Messages.NoBuildOutsideClaims);
-                    if (player.hasPermission("griefprevention.ignoreclaims"))
+                    if (playerPermissions.has(player, PlayerPermissions.Node.IGNORE_CLAIMS))
                     {
                         reason += "  " + dataStore.getMessage(Messages.IgnoreClaimsAdvertisement);
                     }
@@ -1081,7 +1186,7 @@ public class GriefPrevention extends JavaPlugin
                 ClaimsMode.SurvivalRequiringClaims)
             {
                 String reason = dataStore.getMessage(Messages.NoBuildOutsideClaims);
-                if (player.hasPermission("griefprevention.ignoreclaims"))
+                if (playerPermissions.has(player, PlayerPermissions.Node.IGNORE_CLAIMS))
                 {
                     reason += "  " + dataStore.getMessage(Messages.IgnoreClaimsAdvertisement);
                 }
@@ -1140,50 +1245,19 @@ public class GriefPrevention extends JavaPlugin
     @Deprecated(forRemoval = true)
     public void restoreChunk(Chunk chunk, int miny, boolean aggressiveMode, long delayInTicks, Player playerReceivingVisualization)
     {
-        //build a snapshot of this chunk, including 1 block boundary outside the chunk all the way around
-        int maxHeight = chunk.getWorld().getMaxHeight();
-        BlockSnapshot[][][] snapshots = new BlockSnapshot[18][maxHeight][18];
-        Block startBlock = chunk.getBlock(0, 0, 0);
-        Location startLocation = new Location(chunk.getWorld(), startBlock.getX() - 1, 0, startBlock.getZ() - 1);
-        for (int x = 0; x < snapshots.length; x++)
+        //the chunk is captured once its turn comes, processed on a worker thread and applied across ticks
+        if (delayInTicks > 0)
         {
-            for (int z = 0; z < snapshots[0][0].length; z++)
-            {
-                for (int y = 0; y < snapshots[0].length; y++)
-                {
-                    Block block = chunk.getWorld().getBlockAt(
-                            startLocation.getBlockX() + x,
-                            startLocation.getBlockY() + y,
-                            startLocation.getBlockZ() + z
-                    );
-                    snapshots[x][y][z] = new BlockSnapshot(block.getLocation(), block.getType(), block.getBlockData());
-                }
-            }
+            getServer().getScheduler().runTaskLater(
+                    this,
+                    () -> restoreNaturePipeline.restore(chunk, miny, aggressiveMode, playerReceivingVisualization),
+                    delayInTicks
+            );
+        }
+        else
+        {
+            restoreNaturePipeline.restore(chunk, miny, aggressiveMode, playerReceivingVisualization);
         }
-
-        //create task to process those data in another thread
-        Location lesserBoundaryCorner = chunk.getBlock(0, 0, 0).getLocation();
-        Location greaterBoundaryCorner = chunk.getBlock(15, 0, 15).getLocation();
-
-        //create task
-        //when done processing, this task will create a main thread task to actually update the world with processing results
-        RestoreNatureProcessingTask task = new RestoreNatureProcessingTask(
-                snapshots,
-                miny,
-                chunk.getWorld().getEnvironment(),
-                lesserBoundaryCorner.getBlock().getBiome(),
-                lesserBoundaryCorner,
-                greaterBoundaryCorner,
-                getSeaLevel(chunk.getWorld()),
-                aggressiveMode,
-                GriefPrevention.instance.creativeRulesApply(lesserBoundaryCorner),
-                playerReceivingVisualization
-        );
-        GriefPrevention.instance.getServer().getScheduler().runTaskLaterAsynchronously(
-                GriefPrevention.instance,
-                task,
-                delayInTicks
-        );
     }
 
     @Deprecated(forRemoval = true)
@@ -0,0 +1,121 @@
+package me.tinyoverflow.griefprevention;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A customizable message, split once into literal text and {@code {n}} placeholders.
+ *
+ * <p>Rendering appends the literals and the arguments in a single pass into a
+ * builder reused by each thread, instead of searching the whole text once per
+ * argument. Arguments are inserted as they are, placeholders inside them are
+ * not replaced again. Placeholders without a matching argument stay in the
+ * message. Messages rendered without arguments are computed when compiling.
+ *
+ * <p>Templates are immutable and can be rendered from any thread.
+ */
+public final class MessageTemplate
+{
+    //builders which grew beyond this are not kept for the next message
+    private static final int MAX_CACHED_BUILDER_CAPACITY = 1024;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String text;
+    //literals[i] precedes slots[i], the last literal follows the last slot
+    private final String[] literals;
+    private final int[] slots;
+
+    private MessageTemplate(String text, String[] literals, int[] slots)
+    {
+        this.text = text;
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Split a message into literals and placeholders.
+     *
+     * @param text the message text
+     * @return the compiled template
+     */
+    public static MessageTemplate compile(String text)
+    {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int literalStart = 0;
+        int open = text.indexOf('{');
+        while (open >= 0)
+        {
+            int close = open + 1;
+            while (close < text.length() && text.charAt(close) >= '0' && text.charAt(close) <= '9') close++;
+
+            // Only "{n}" without leading zeros is a placeholder, anything else is part of the text.
+            boolean placeholder = close > open + 1 && close - open <= 10 &&
+                                  close < text.length() && text.charAt(close) == '}' &&
+                                  (text.charAt(open + 1) != '0' || close == open + 2);
+            if (placeholder)
+            {
+                literals.add(text.substring(literalStart, open));
+                slots.add(Integer.parseInt(text, open + 1, close, 10));
+                literalStart = close + 1;
+                open = text.indexOf('{', literalStart);
+            }
+            else
+            {
+                open = text.indexOf('{', open + 1);
+            }
+        }
+        literals.add(text.substring(literalStart));
+
+        return new MessageTemplate(
+                text,
+                literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    /**
+     * Fill the placeholders with arguments.
+     *
+     * @param args the arguments, the first one replaces {@code {0}}
+     * @return the message
+     */
+    public String render(String... args)
+    {
+        if (slots.length == 0 || args.length == 0) return text;
+
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++)
+        {
+            int slot = slots[i];
+            if (slot < args.length)
+            {
+                builder.append(args[slot]);
+            }
+            else
+            {
+                builder.append('{').append(slot).append('}');
+            }
+            builder.append(literals[i + 1]);
+        }
+
+        String message = builder.toString();
+        if (builder.capacity() > MAX_CACHED_BUILDER_CAPACITY)
+        {
+            BUILDER.set(new StringBuilder(256));
+        }
+        return message;
+    }
+
+    /**
+     * @return the message text as it was compiled
+     */
+    public String getText()
+    {
+        return text;
+    }
+}
@@ -0,0 +1,210 @@
+package me.tinyoverflow.griefprevention;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Item stacks expected to drop soon, which will need protection when they spawn.
+ *
+ * <p>Protections are indexed by world, chunk, material and amount, so a
+ * spawning item only looks at protections for the same kind of stack in the
+ * chunks its search area touches. Expired protections are removed by
+ * {@link #expire(long)} using a timing wheel: each slot holds the protections
+ * expiring within one period, so expiring only visits the slots that passed
+ * since the last call.
+ *
+ * <p>This class is not thread-safe, it's used from the main thread only.
+ */
+public class PendingItemWatchList
+{
+    //the period covered by one slot of the timing wheel, expire() is run once per period
+    public static final long SLOT_MILLIS = 500;
+    //how far from the expected location, horizontally, an item may spawn
+    private static final int HORIZONTAL_RANGE = 5;
+    //how far above and below the expected location an item may spawn
+    private static final int RANGE_ABOVE = 3;
+    private static final int RANGE_BELOW = 15;
+    //a power of two, protections expiring beyond one round stay in their slot until their round comes
+    private static final int SLOT_COUNT = 16;
+
+    private final Map<SpawnKey, ArrayDeque<PendingItemProtection>> protections = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private final List<Watch>[] wheel = new List[SLOT_COUNT];
+    //the first slot time which hasn't been expired yet
+    private long wheelTime;
+    private int size;
+
+    public PendingItemWatchList()
+    {
+        for (int i = 0; i < SLOT_COUNT; i++)
+        {
+            wheel[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Watch for an item stack to spawn near a location.
+     *
+     * @param protection the protection to apply to the item
+     */
+    public void add(PendingItemProtection protection)
+    {
+        // The key is kept for expiring, the item stack may still change until it spawns.
+        SpawnKey key = SpawnKey.of(protection.location, protection.itemStack);
+        protections.computeIfAbsent(key, k -> new ArrayDeque<>()).add(protection);
+
+        long slotTime = Math.max(protection.expirationTimestamp / SLOT_MILLIS, wheelTime);
+        wheel[(int) (slotTime & (SLOT_COUNT - 1))].add(new Watch(key, protection));
+        size++;
+    }
+
+    /**
+     * Find and remove the protection for an item which just spawned.
+     *
+     * @param location where the item spawned
+     * @param itemStack the spawned item stack
+     * @param now the current time in milliseconds
+     * @return the protection to apply, or null if the item isn't protected
+     */
+    public @Nullable PendingItemProtection claim(Location location, ItemStack itemStack, long now)
+    {
+        if (size == 0) return null;
+
+        World world = location.getWorld();
+        if (world == null) return null;
+
+        UUID worldID = world.getUID();
+        Material type = itemStack.getType();
+        int amount = itemStack.getAmount();
+        int minChunkX = Location.locToBlock(location.getX() - HORIZONTAL_RANGE) >> 4;
+        int maxChunkX = Location.locToBlock(location.getX() + HORIZONTAL_RANGE) >> 4;
+        int minChunkZ = Location.locToBlock(location.getZ() - HORIZONTAL_RANGE) >> 4;
+        int maxChunkZ = Location.locToBlock(location.getZ() + HORIZONTAL_RANGE) >> 4;
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+        {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+            {
+                SpawnKey key = new SpawnKey(worldID, chunkX, chunkZ, type, amount);
+                ArrayDeque<PendingItemProtection> candidates = protections.get(key);
+                if (candidates == null) continue;
+
+                for (Iterator<PendingItemProtection> iterator = candidates.iterator(); iterator.hasNext(); )
+                {
+                    PendingItemProtection protection = iterator.next();
+                    if (protection.expirationTimestamp < now || !isNear(location, protection.location)) continue;
+
+                    iterator.remove();
+                    if (candidates.isEmpty()) protections.remove(key);
+                    size--;
+                    return protection;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove the protections which expired before the current slot of the timing wheel.
+     *
+     * @param now the current time in milliseconds
+     * @return the number of removed protections
+     */
+    public int expire(long now)
+    {
+        long targetTime = now / SLOT_MILLIS;
+        int slots = (int) Math.min(targetTime - wheelTime, SLOT_COUNT);
+        int expired = 0;
+
+        for (int i = 0; i < slots && size > 0; i++)
+        {
+            List<Watch> slot = wheel[(int) ((wheelTime + i) & (SLOT_COUNT - 1))];
+            if (slot.isEmpty()) continue;
+
+            // Keep protections of a later round, which can only be protections not claimed yet.
+            int kept = 0;
+            for (Watch watch : slot)
+            {
+                if (watch.protection().expirationTimestamp >= now)
+                {
+                    slot.set(kept++, watch);
+                }
+                else if (remove(watch))
+                {
+                    expired++;
+                }
+            }
+            slot.subList(kept, slot.size()).clear();
+        }
+
+        // Claimed protections are still referenced by their slot, drop them once nothing is pending.
+        if (size == 0)
+        {
+            for (List<Watch> slot : wheel)
+            {
+                slot.clear();
+            }
+        }
+
+        wheelTime = Math.max(wheelTime, targetTime);
+        return expired;
+    }
+
+    /**
+     * @return the number of protections waiting for their item
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    private boolean remove(Watch watch)
+    {
+        ArrayDeque<PendingItemProtection> candidates = protections.get(watch.key());
+        if (candidates == null || !candidates.remove(watch.protection())) return false;
+
+        if (candidates.isEmpty()) protections.remove(watch.key());
+        size--;
+        return true;
+    }
+
+    private static boolean isNear(Location spawn, Location expected)
+    {
+        return spawn.getX() >= expected.getX() - HORIZONTAL_RANGE &&
+               spawn.getX() <= expected.getX() + HORIZONTAL_RANGE &&
+               spawn.getZ() >= expected.getZ() - HORIZONTAL_RANGE &&
+               spawn.getZ() <= expected.getZ() + HORIZONTAL_RANGE &&
+               spawn.getY() >= expected.getY() - RANGE_BELOW &&
+               spawn.getY() <= expected.getY() + RANGE_ABOVE;
+    }
+
+    private record Watch(SpawnKey key, PendingItemProtection protection)
+    {
+    }
+
+    private record SpawnKey(UUID world, int chunkX, int chunkZ, Material type, int amount)
+    {
+        static SpawnKey of(Location location, ItemStack itemStack)
+        {
+            return new SpawnKey(
+                    location.getWorld().getUID(),
+                    location.getBlockX() >> 4,
+                    location.getBlockZ() >> 4,
+                    itemStack.getType(),
+                    itemStack.getAmount()
+            );
+        }
+    }
+}
@@ -13,6 +13,9 @@ public class Permissions
             public static final String LIST = "griefprevention.command.claimadmin.list";
             public static final String IGNORE = "griefprevention.command.claimadmin.ignore";
             public static final String DELETE_ALL = "griefprevention.command.claimadmin.delete-all";
+            public static final String MIGRATE_STORAGE = "griefprevention.command.claimadmin.migrate-storage";
+            public static final String STORAGE_STATS = "griefprevention.command.claimadmin.storage-stats";
+            public static final String ACTIVITY = "griefprevention.command.claimadmin.activity";
         }
 
         public static class ToolMode
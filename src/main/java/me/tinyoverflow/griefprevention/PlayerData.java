@@ -109,6 +109,8 @@ public class PlayerData
     private transient @Nullable BoundaryVisualization visibleBoundaries = null;
     //for addons to set per-player claim limits. Any negative value will use config's value
     private int AccruedClaimBlocksLimit = -1;
+    //whether reading from secondary storage failed, the defaults used instead must never be saved over the stored data
+    private boolean storageReadFailed = false;
 
     //whether or not this player is "in" pvp combat
     public boolean inPvpCombat()
@@ -188,6 +190,7 @@ public class PlayerData
     {
         //reach out to secondary storage to get any data there
         PlayerData storageData = GriefPrevention.instance.dataStore.getPlayerDataFromStorage(playerID);
+        if (storageData.storageReadFailed) storageReadFailed = true;
 
         if (accruedClaimBlocks == null) {
             if (storageData.accruedClaimBlocks != null) {
@@ -229,16 +232,9 @@ public class PlayerData
             //find all the claims belonging to this player and note them for future reference
             DataStore dataStore = GriefPrevention.instance.dataStore;
             int totalClaimsArea = 0;
-            for (int i = 0; i < dataStore.claims.size(); i++) {
-                Claim claim = dataStore.claims.get(i);
-                if (!claim.inDataStore) {
-                    dataStore.claims.remove(i--);
-                    continue;
-                }
-                if (playerID.equals(claim.ownerID)) {
-                    claims.add(claim);
-                    totalClaimsArea += claim.getArea();
-                }
+            for (Claim claim : dataStore.getClaimsByOwner(playerID)) {
+                claims.add(claim);
+                totalClaimsArea += claim.getArea();
             }
 
             //ensure player has claim blocks for his claims, and at least the minimum accrued
@@ -348,6 +344,16 @@ public class PlayerData
         AccruedClaimBlocksLimit = limit;
     }
 
+    public boolean isStorageReadFailed()
+    {
+        return storageReadFailed;
+    }
+
+    public void setStorageReadFailed(boolean storageReadFailed)
+    {
+        this.storageReadFailed = storageReadFailed;
+    }
+
     public void accrueBlocks(int howMany)
     {
         newlyAccruedClaimBlocks += howMany;
@@ -0,0 +1,154 @@
+package me.tinyoverflow.griefprevention;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.Permissible;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Snapshots of the permission nodes GriefPrevention checks over and over,
+ * taken per online player, so claim checks test a bit instead of walking the
+ * player's permission attachments each time. A snapshot also holds the bonus
+ * claim blocks of the permission groups the player is in.
+ *
+ * <p>A snapshot is taken when the player joins and taken again when they
+ * change worlds or their command list is sent again, which permission
+ * plugins do after changing a player's permissions. Permissions may change
+ * without any of those, so a snapshot is also taken again when it is used
+ * after being a second old. Players without a snapshot, such as fake players
+ * of other plugins, are checked directly.
+ *
+ * <p>Snapshots are taken on the main thread, but may be read, and taken again
+ * once stale, from any thread.
+ */
+public class PlayerPermissions
+{
+    /**
+     * The permission nodes kept in snapshots.
+     */
+    public enum Node
+    {
+        ADMIN_CLAIMS("griefprevention.adminclaims"),
+        DELETE_CLAIMS("griefprevention.deleteclaims"),
+        IGNORE_CLAIMS("griefprevention.ignoreclaims");
+
+        private final String name;
+
+        Node(String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * @return the permission node
+         */
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    private static final Node[] NODES = Node.values();
+
+    //permission nodes changed without any event are picked up after this many ticks
+    static final int MAX_AGE_TICKS = 20;
+
+    private record Snapshot(long nodes, int groupBonusBlocks, int tick)
+    {
+    }
+
+    private final ToIntFunction<Permissible> groupBonusBlocks;
+    private final IntSupplier currentTick;
+    private final Map<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @param groupBonusBlocks sums the bonus claim blocks of the permission groups a player is in
+     */
+    public PlayerPermissions(@NotNull ToIntFunction<Permissible> groupBonusBlocks)
+    {
+        this(groupBonusBlocks, Bukkit::getCurrentTick);
+    }
+
+    PlayerPermissions(@NotNull ToIntFunction<Permissible> groupBonusBlocks, @NotNull IntSupplier currentTick)
+    {
+        this.groupBonusBlocks = groupBonusBlocks;
+        this.currentTick = currentTick;
+    }
+
+    /**
+     * Check whether a player has a permission node.
+     *
+     * @param player the player
+     * @param node   the node
+     * @return whether the player has the node
+     */
+    public boolean has(@NotNull Player player, @NotNull Node node)
+    {
+        Snapshot snapshot = getSnapshot(player);
+        if (snapshot == null) return player.hasPermission(node.getName());
+
+        return (snapshot.nodes() & (1L << node.ordinal())) != 0;
+    }
+
+    /**
+     * Get the bonus claim blocks of the permission groups a player is in.
+     *
+     * @param player the player
+     * @return the sum of the group bonus blocks
+     */
+    public int getGroupBonusBlocks(@NotNull Player player)
+    {
+        Snapshot snapshot = getSnapshot(player);
+        if (snapshot == null) return groupBonusBlocks.applyAsInt(player);
+
+        return snapshot.groupBonusBlocks();
+    }
+
+    /**
+     * Take a new snapshot of a player's permissions.
+     *
+     * @param player the online player
+     */
+    public void refresh(@NotNull Player player)
+    {
+        snapshots.put(player.getUniqueId(), createSnapshot(player));
+    }
+
+    /**
+     * Drop the snapshot of a player who left.
+     *
+     * @param player the player
+     */
+    public void remove(@NotNull Player player)
+    {
+        snapshots.remove(player.getUniqueId());
+    }
+
+    private Snapshot getSnapshot(Player player)
+    {
+        Snapshot snapshot = snapshots.get(player.getUniqueId());
+        if (snapshot == null || currentTick.getAsInt() - snapshot.tick() < MAX_AGE_TICKS) return snapshot;
+
+        //only replaces the stale snapshot, so a player who left meanwhile gets none
+        Snapshot fresh = createSnapshot(player);
+        snapshots.replace(player.getUniqueId(), snapshot, fresh);
+        return fresh;
+    }
+
+    private Snapshot createSnapshot(Player player)
+    {
+        long nodes = 0;
+        for (Node node : NODES)
+        {
+            if (player.hasPermission(node.getName())) nodes |= 1L << node.ordinal();
+        }
+
+        return new Snapshot(nodes, groupBonusBlocks.applyAsInt(player), currentTick.getAsInt());
+    }
+}
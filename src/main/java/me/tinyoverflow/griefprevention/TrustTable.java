@@ -0,0 +1,376 @@
+package me.tinyoverflow.griefprevention;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * The trust granted by a claim.
+ *
+ * <p>Players are kept in an open addressing table keyed by the two halves of
+ * their UUID, so checking a player neither converts the UUID to a string nor
+ * allocates. Each entry is a single byte holding the trust level and whether
+ * the player is a manager. The public and permission groups ({@code [node]})
+ * are kept in a separate map, which is only created when there are any.
+ *
+ * <p>IDs are lower case, like {@link UUID#toString()}. IDs which aren't
+ * UUIDs in that form are kept as they are, in the group map.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class TrustTable
+{
+    //entry bits, the level is the ordinal of its ClaimPermission plus one
+    private static final int LEVEL_MASK = 0x07;
+    private static final int MANAGER = 0x08;
+    private static final ClaimPermission[] LEVELS = ClaimPermission.values();
+
+    private static final int MIN_CAPACITY = 4;
+
+    //UUID halves of each slot, most significant at 2 * slot
+    private long[] ids;
+    //entry of each slot, 0 for empty slots
+    private byte[] entries;
+    private int size;
+
+    //the public and permission groups
+    private @Nullable Map<String, Byte> groups;
+
+    TrustTable()
+    {
+    }
+
+    TrustTable(@NotNull TrustTable other)
+    {
+        if (other.entries != null)
+        {
+            ids = other.ids.clone();
+            entries = other.entries.clone();
+            size = other.size;
+        }
+        if (other.groups != null) groups = new HashMap<>(other.groups);
+    }
+
+    /**
+     * @param uuid the player
+     * @return the trust level of the player, null if none
+     */
+    @Nullable ClaimPermission getPermission(@NotNull UUID uuid)
+    {
+        return decodeLevel(getEntry(uuid));
+    }
+
+    /**
+     * @param uuid the player
+     * @return whether the player is a manager
+     */
+    boolean isManager(@NotNull UUID uuid)
+    {
+        return (getEntry(uuid) & MANAGER) != 0;
+    }
+
+    /**
+     * @param id a lower case player, group or {@code public} ID
+     * @return the trust level, null if none
+     */
+    @Nullable ClaimPermission getPermission(@NotNull String id)
+    {
+        return decodeLevel(getEntry(id));
+    }
+
+    /**
+     * @param id a lower case player, group or {@code public} ID
+     * @return whether it's a manager
+     */
+    boolean isManager(@NotNull String id)
+    {
+        return (getEntry(id) & MANAGER) != 0;
+    }
+
+    /**
+     * Check whether a permission group grants a permission.
+     *
+     * @param permission the permission, {@link ClaimPermission#Manage} for managers
+     * @param hasNode    whether the player has a permission node
+     * @return whether a group the player is in grants the permission
+     */
+    boolean isGrantedToGroup(@NotNull ClaimPermission permission, @NotNull Predicate<String> hasNode)
+    {
+        if (groups == null) return false;
+
+        for (Map.Entry<String, Byte> group : groups.entrySet())
+        {
+            String id = group.getKey();
+            // Ensure valid permission format for permissions - [permission.node]
+            if (id.length() < 3 || id.charAt(0) != '[' || id.charAt(id.length() - 1) != ']') continue;
+
+            int entry = group.getValue();
+            boolean granted = permission == ClaimPermission.Manage
+                    ? (entry & MANAGER) != 0
+                    : permission.isGrantedBy(decodeLevel(entry));
+            if (granted && hasNode.test(id.substring(1, id.length() - 1))) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Set the trust level, keeping the manager state.
+     *
+     * @param id         a lower case player, group or {@code public} ID
+     * @param permission the level, not {@link ClaimPermission#Manage}
+     */
+    void setPermission(@NotNull String id, @NotNull ClaimPermission permission)
+    {
+        setEntry(id, (getEntry(id) & MANAGER) | (permission.ordinal() + 1));
+    }
+
+    /**
+     * Make a manager, keeping the trust level.
+     *
+     * @param id a lower case player or group ID
+     */
+    void addManager(@NotNull String id)
+    {
+        setEntry(id, getEntry(id) | MANAGER);
+    }
+
+    /**
+     * Remove the trust level and manager state.
+     *
+     * @param id a lower case player, group or {@code public} ID
+     */
+    void remove(@NotNull String id)
+    {
+        setEntry(id, 0);
+    }
+
+    void clear()
+    {
+        ids = null;
+        entries = null;
+        size = 0;
+        groups = null;
+    }
+
+    /**
+     * Add all IDs to lists by trust level.
+     */
+    void getPermissions(List<String> builders, List<String> containers, List<String> accessors, List<String> managers)
+    {
+        if (entries != null)
+        {
+            for (int slot = 0; slot < entries.length; slot++)
+            {
+                if (entries[slot] == 0) continue;
+
+                String id = new UUID(ids[2 * slot], ids[2 * slot + 1]).toString();
+                addTo(id, entries[slot], builders, containers, accessors, managers);
+            }
+        }
+
+        if (groups != null)
+        {
+            for (Map.Entry<String, Byte> group : groups.entrySet())
+            {
+                addTo(group.getKey(), group.getValue(), builders, containers, accessors, managers);
+            }
+        }
+    }
+
+    /**
+     * @return the number of players, groups and the public with any trust
+     */
+    int size()
+    {
+        return size + (groups != null ? groups.size() : 0);
+    }
+
+    private static void addTo(
+            String id,
+            int entry,
+            List<String> builders,
+            List<String> containers,
+            List<String> accessors,
+            List<String> managers)
+    {
+        ClaimPermission permission = decodeLevel(entry);
+        if (permission == ClaimPermission.Build) builders.add(id);
+        else if (permission == ClaimPermission.Inventory) containers.add(id);
+        else if (permission != null) accessors.add(id);
+
+        if ((entry & MANAGER) != 0) managers.add(id);
+    }
+
+    private static @Nullable ClaimPermission decodeLevel(int entry)
+    {
+        int level = entry & LEVEL_MASK;
+        return level == 0 ? null : LEVELS[level - 1];
+    }
+
+    private int getEntry(@NotNull UUID uuid)
+    {
+        if (entries == null) return 0;
+
+        int slot = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return slot >= 0 ? entries[slot] : 0;
+    }
+
+    private int getEntry(@NotNull String id)
+    {
+        UUID uuid = parseUUID(id);
+        if (uuid != null) return getEntry(uuid);
+
+        if (groups == null) return 0;
+        Byte entry = groups.get(id);
+        return entry != null ? entry : 0;
+    }
+
+    private void setEntry(@NotNull String id, int entry)
+    {
+        UUID uuid = parseUUID(id);
+        if (uuid != null)
+        {
+            if (entry == 0) removeSlot(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            else putSlot(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), (byte) entry);
+            return;
+        }
+
+        if (entry != 0)
+        {
+            if (groups == null) groups = new HashMap<>(4);
+            groups.put(id, (byte) entry);
+        }
+        else if (groups != null)
+        {
+            groups.remove(id);
+            if (groups.isEmpty()) groups = null;
+        }
+    }
+
+    //the slot of a player, or -1 if the player has no entry
+    private int find(long most, long least)
+    {
+        int mask = entries.length - 1;
+        for (int slot = hash(most, least) & mask; entries[slot] != 0; slot = (slot + 1) & mask)
+        {
+            if (ids[2 * slot] == most && ids[2 * slot + 1] == least) return slot;
+        }
+        return -1;
+    }
+
+    private void putSlot(long most, long least, byte entry)
+    {
+        if (entries == null)
+        {
+            ids = new long[2 * MIN_CAPACITY];
+            entries = new byte[MIN_CAPACITY];
+        }
+
+        int slot = find(most, least);
+        if (slot >= 0)
+        {
+            entries[slot] = entry;
+            return;
+        }
+
+        //keep the table at most three quarters full
+        if (4 * (size + 1) > 3 * entries.length) resize(2 * entries.length);
+
+        insert(most, least, entry);
+        size++;
+    }
+
+    private void removeSlot(long most, long least)
+    {
+        if (entries == null) return;
+
+        int slot = find(most, least);
+        if (slot < 0) return;
+
+        //shift the following entries of the run back, so lookups never stop early
+        int mask = entries.length - 1;
+        int next = slot;
+        while (true)
+        {
+            entries[slot] = 0;
+            while (true)
+            {
+                next = (next + 1) & mask;
+                if (entries[next] == 0)
+                {
+                    if (--size == 0) clearSlots();
+                    return;
+                }
+
+                int home = hash(ids[2 * next], ids[2 * next + 1]) & mask;
+                //the entry may fill the gap unless its home slot lies cyclically within (slot, next]
+                if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) break;
+            }
+
+            ids[2 * slot] = ids[2 * next];
+            ids[2 * slot + 1] = ids[2 * next + 1];
+            entries[slot] = entries[next];
+            slot = next;
+        }
+    }
+
+    private void clearSlots()
+    {
+        ids = null;
+        entries = null;
+    }
+
+    private void resize(int capacity)
+    {
+        long[] oldIds = ids;
+        byte[] oldEntries = entries;
+        ids = new long[2 * capacity];
+        entries = new byte[capacity];
+
+        for (int slot = 0; slot < oldEntries.length; slot++)
+        {
+            if (oldEntries[slot] != 0) insert(oldIds[2 * slot], oldIds[2 * slot + 1], oldEntries[slot]);
+        }
+    }
+
+    private void insert(long most, long least, byte entry)
+    {
+        int mask = entries.length - 1;
+        int slot = hash(most, least) & mask;
+        while (entries[slot] != 0) slot = (slot + 1) & mask;
+
+        ids[2 * slot] = most;
+        ids[2 * slot + 1] = least;
+        entries[slot] = entry;
+    }
+
+    private static int hash(long most, long least)
+    {
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    //parses IDs which are UUIDs in their canonical form, so they are written back unchanged
+    static @Nullable UUID parseUUID(@NotNull String id)
+    {
+        if (id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-'
+                || id.charAt(23) != '-')
+            return null;
+
+        try
+        {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package me.tinyoverflow.griefprevention.commands;
+
+import dev.jorel.commandapi.exceptions.WrapperCommandSyntaxException;
+import dev.jorel.commandapi.executors.CommandArguments;
+import dev.jorel.commandapi.executors.CommandExecutor;
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.TextMode;
+import me.tinyoverflow.griefprevention.logger.ActivityQuery;
+import me.tinyoverflow.griefprevention.logger.ActivityRecord;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ActivityQueryCommand implements CommandExecutor
+{
+    private static final int DEFAULT_HOURS = 48;
+    private static final int DEFAULT_RADIUS = 32;
+    private static final int MAX_RESULTS = 50;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+
+    private final GriefPrevention plugin;
+
+    public ActivityQueryCommand(GriefPrevention plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void run(CommandSender sender, CommandArguments arguments) throws WrapperCommandSyntaxException
+    {
+        OfflinePlayer target = (OfflinePlayer) arguments.get("target");
+        Integer hours = (Integer) arguments.get("hours");
+        if (hours == null) hours = DEFAULT_HOURS;
+        Integer radius = (Integer) arguments.get("radius");
+        if (radius == null) radius = DEFAULT_RADIUS;
+
+        long since = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
+        String scope;
+        ActivityQuery query;
+
+        //players look around where they stand, the console looks everywhere
+        if (sender instanceof Player player)
+        {
+            Location location = player.getLocation();
+            query = new ActivityQuery(
+                    target.getUniqueId(),
+                    player.getWorld().getName(),
+                    location.getBlockX(),
+                    location.getBlockZ(),
+                    radius,
+                    since,
+                    MAX_RESULTS
+            );
+            scope = " within " + radius + " blocks";
+        }
+        else
+        {
+            query = ActivityQuery.byPlayer(target.getUniqueId(), since, MAX_RESULTS);
+            scope = "";
+        }
+
+        //the lookup runs on the activity log's writer, answers go back to the main thread
+        String description = target.getName() + scope + " in the last " + hours + " hours";
+        plugin.getActivityLogger().query(query).whenComplete((records, error) ->
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (error != null)
+                    {
+                        sender.sendMessage(TextMode.ERROR + "Unable to read the activity log: " + error.getMessage());
+                    }
+                    else
+                    {
+                        sendResults(sender, description, records);
+                    }
+                })
+        );
+    }
+
+    private static void sendResults(CommandSender sender, String description, List<ActivityRecord> records)
+    {
+        if (records.isEmpty())
+        {
+            sender.sendMessage(TextMode.INFO + "No activity of " + description + ".");
+            return;
+        }
+
+        sender.sendMessage(TextMode.INFO + "Activity of " + description + ", newest first:");
+        for (ActivityRecord record : records)
+        {
+            String time = TIME_FORMAT.format(Instant.ofEpochMilli(record.time()).atZone(ZoneId.systemDefault()));
+            sender.sendMessage(TextMode.INFO + time + " " + record.type() + " " + record.message());
+        }
+        if (records.size() == MAX_RESULTS)
+        {
+            sender.sendMessage(TextMode.INFO + "Only the newest " + MAX_RESULTS + " entries are shown.");
+        }
+    }
+}
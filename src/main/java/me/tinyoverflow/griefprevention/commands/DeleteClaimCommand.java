@@ -60,7 +60,10 @@ public class DeleteClaimCommand extends BaseCommand implements PlayerCommandExec
                     GriefPrevention.AddLogEntry(
                             player.getName() + " deleted " + claim.getOwnerName() + "'s claim at " +
                             GriefPrevention.getFriendlyLocationString(claim.getLesserBoundaryCorner()),
-                            ActivityType.ADMIN
+                            ActivityType.ADMIN,
+                            false,
+                            player.getUniqueId(),
+                            claim.getLesserBoundaryCorner()
                     );
 
                     //revert any current visualization
@@ -23,6 +23,7 @@ public class IgnoreClaimsCommand implements PlayerCommandExecutor
     {
         PlayerData playerData = plugin.getDataStore().getPlayerData(player.getUniqueId());
         playerData.ignoreClaims = !playerData.ignoreClaims;
+        plugin.getDataStore().getPermissionCache().invalidate();
 
         GriefPrevention.sendMessage(
                 player,
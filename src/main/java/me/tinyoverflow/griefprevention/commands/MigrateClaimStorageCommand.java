@@ -0,0 +1,111 @@
+package me.tinyoverflow.griefprevention.commands;
+
+import dev.jorel.commandapi.exceptions.WrapperCommandSyntaxException;
+import dev.jorel.commandapi.executors.CommandArguments;
+import dev.jorel.commandapi.executors.CommandExecutor;
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.TextMode;
+import me.tinyoverflow.griefprevention.datastore.BinaryDataStore;
+import me.tinyoverflow.griefprevention.datastore.DatabaseDataStore;
+import me.tinyoverflow.griefprevention.datastore.FlatFileDataStore;
+import me.tinyoverflow.griefprevention.logger.ActivityType;
+import org.bukkit.command.CommandSender;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+public class MigrateClaimStorageCommand implements CommandExecutor
+{
+    private final GriefPrevention plugin;
+
+    public MigrateClaimStorageCommand(GriefPrevention plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void run(CommandSender sender, CommandArguments arguments) throws WrapperCommandSyntaxException
+    {
+        String target = (String) arguments.get("target");
+        if ("database".equals(target))
+        {
+            migrateToDatabase(sender);
+        }
+        else
+        {
+            migrateToBinary(sender);
+        }
+    }
+
+    private void migrateToBinary(CommandSender sender)
+    {
+        if (plugin.getDataStore() instanceof BinaryDataStore)
+        {
+            sender.sendMessage(TextMode.INFO + "Claims are already stored in " + BinaryDataStore.CLAIM_LOG_FILE_NAME + ".");
+            return;
+        }
+
+        //claims in the database are written now, and again when the server stops
+        if (plugin.getDataStore() instanceof DatabaseDataStore database)
+        {
+            try
+            {
+                int count = database.exportClaimsToBinary(plugin.getDataFolder());
+                reportSuccess(sender, count, BinaryDataStore.CLAIM_LOG_FILE_NAME, "Binary");
+            }
+            catch (IOException | SQLException e)
+            {
+                sender.sendMessage(TextMode.ERROR + "Unable to write " + BinaryDataStore.CLAIM_LOG_FILE_NAME + ": " + e.getMessage());
+            }
+            return;
+        }
+
+        //claim files are imported on the first start with binary storage, an old claim log would prevent that
+        try
+        {
+            BinaryDataStore.discardClaimLog(plugin.getDataFolder());
+        }
+        catch (IOException e)
+        {
+            sender.sendMessage(TextMode.ERROR + "Unable to move the old " + BinaryDataStore.CLAIM_LOG_FILE_NAME + " aside: " + e.getMessage());
+            return;
+        }
+
+        sender.sendMessage(TextMode.SUCCESS + "Set storage.type to Binary and restart the server. " +
+                           "The claim files are imported into " + BinaryDataStore.CLAIM_LOG_FILE_NAME + " on the first start.");
+        GriefPrevention.AddLogEntry(
+                sender.getName() + " prepared migrating claims to " + BinaryDataStore.CLAIM_LOG_FILE_NAME + ".",
+                ActivityType.ADMIN
+        );
+    }
+
+    private void migrateToDatabase(CommandSender sender)
+    {
+        if (!(plugin.getDataStore() instanceof FlatFileDataStore fileStore))
+        {
+            sender.sendMessage(TextMode.INFO + "Claims are already stored in the database.");
+            return;
+        }
+
+        //claims and player data are written now, and again when the server stops
+        try
+        {
+            int count = fileStore.exportToDatabase(plugin.getDataFolder());
+            reportSuccess(sender, count, "the database", "Database");
+        }
+        catch (IOException | SQLException e)
+        {
+            sender.sendMessage(TextMode.ERROR + "Unable to write the database: " + e.getMessage());
+        }
+    }
+
+    private void reportSuccess(CommandSender sender, int count, String destination, String storageType)
+    {
+        sender.sendMessage(TextMode.SUCCESS + "Wrote " + count + " claims to " + destination +
+                           ". Set storage.type to " + storageType + " and restart the server to use it.");
+        GriefPrevention.AddLogEntry(
+                sender.getName() + " migrated " + count + " claims to " + destination + ".",
+                ActivityType.ADMIN
+        );
+    }
+}
@@ -0,0 +1,49 @@
+package me.tinyoverflow.griefprevention.commands;
+
+import dev.jorel.commandapi.exceptions.WrapperCommandSyntaxException;
+import dev.jorel.commandapi.executors.CommandArguments;
+import dev.jorel.commandapi.executors.CommandExecutor;
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.TextMode;
+import me.tinyoverflow.griefprevention.datastore.WriteBehindQueue;
+import me.tinyoverflow.griefprevention.logger.ActivityLogger;
+import org.bukkit.command.CommandSender;
+
+import java.util.concurrent.TimeUnit;
+
+public class StorageStatsCommand implements CommandExecutor
+{
+    private final GriefPrevention plugin;
+
+    public StorageStatsCommand(GriefPrevention plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void run(CommandSender sender, CommandArguments arguments) throws WrapperCommandSyntaxException
+    {
+        WriteBehindQueue queue = plugin.getDataStore().getWriteQueue();
+
+        sender.sendMessage(TextMode.INFO + "Pending writes: " + queue.getQueueDepth());
+        sender.sendMessage(TextMode.INFO + "Submitted: " + queue.getSubmittedWrites() +
+                           ", coalesced: " + queue.getCoalescedWrites() +
+                           ", written: " + queue.getCompletedWrites() +
+                           ", failed: " + queue.getFailedWrites());
+        sender.sendMessage(TextMode.INFO + "Flushes: " + queue.getFlushes() +
+                           ", last batch: " + queue.getLastBatchSize() + " writes in " + toMillis(queue.getLastFlushNanos()) + " ms" +
+                           ", average: " + toMillis(queue.getAverageFlushNanos()) + " ms" +
+                           ", max: " + toMillis(queue.getMaxFlushNanos()) + " ms");
+
+        ActivityLogger activityLogger = plugin.getActivityLogger();
+        sender.sendMessage(TextMode.INFO + "Activity log: " + activityLogger.getQueuedEntries() + " pending" +
+                           ", enqueued: " + activityLogger.getEnqueuedEntries() +
+                           ", written: " + activityLogger.getWrittenEntries() +
+                           ", dropped: " + activityLogger.getDroppedEntries());
+    }
+
+    private static long toMillis(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
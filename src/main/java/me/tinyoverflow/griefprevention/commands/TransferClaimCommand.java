@@ -62,6 +62,7 @@ public class TransferClaimCommand extends BaseCommand implements PlayerCommandEx
         GriefPrevention.sendMessage(player, TextMode.SUCCESS, Messages.TransferSuccess);
         GriefPrevention.AddLogEntry(player.getName() + " transferred a claim at " +
                                     GriefPrevention.getFriendlyLocationString(claim.getLesserBoundaryCorner()) +
-                                    " to " + target.getName() + ".", ActivityType.ADMIN);
+                                    " to " + target.getName() + ".", ActivityType.ADMIN, false,
+                                    player.getUniqueId(), claim.getLesserBoundaryCorner());
     }
 }
@@ -80,7 +80,6 @@ public class UntrustCommand extends BaseCommand implements PlayerCommandExecutor
                 else
                 {
                     claim.dropPermission(idToDrop);
-                    claim.managers.remove(idToDrop);
                 }
 
                 //save changes
@@ -144,7 +143,7 @@ public class UntrustCommand extends BaseCommand implements PlayerCommandExecutor
             {
                 String idToDrop = otherPlayer.getUniqueId().toString();
 
-                boolean targetIsManager = claim.managers.contains(idToDrop);
+                boolean targetIsManager = claim.isManager(idToDrop);
                 if (targetIsManager && claim.checkPermission(player, ClaimPermission.Edit, null) !=
                                        null)  //only claim owners can untrust managers
                 {
@@ -19,6 +19,10 @@ public class ClaimExpirationConfiguration
     @Comment("The number of days before claims of an inactive user will be removed.")
     public int allClaimsDays = 60;
 
+    @Setting
+    @Comment("How many milliseconds each expiration check may spend checking owners whose claims are due to expire. Owners left over are checked on the next run.")
+    public double runBudgetMillis = 50;
+
     @Setting
     @Comment("Do not automatically remove claims if at least one of the exceptions apply.")
     public ClaimExpirationExceptionConfiguration exceptions = new ClaimExpirationExceptionConfiguration();
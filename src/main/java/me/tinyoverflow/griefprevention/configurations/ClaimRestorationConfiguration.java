@@ -12,4 +12,16 @@ public class ClaimRestorationConfiguration
     @Setting("enabled")
     @Comment("Whether to restore nature when a claim gets removed.")
     private final boolean enabled = false;
+
+    @Setting
+    @Comment("How many milliseconds per tick may be spent changing blocks for nature restoration, the fill tool and fluid cleanup. Larger changes continue on the next ticks.")
+    private final double tickBudgetMillis = 5;
+
+    @Setting
+    @Comment("How many threads restore nature in chunks in parallel.")
+    private final int workerThreads = 2;
+
+    @Setting
+    @Comment("How many chunks may be restored at once, from reading them until their changes are applied. Each takes about 2 MB of memory meanwhile.")
+    private final int maxChunksInFlight = 8;
 }
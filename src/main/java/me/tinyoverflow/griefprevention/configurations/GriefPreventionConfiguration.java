@@ -30,4 +30,8 @@ public class GriefPreventionConfiguration
     @Setting("logs")
     @Comment("Configure the logger for actions.")
     private final LoggerConfiguration loggerConfiguration = new LoggerConfiguration();
+
+    @Setting("storage")
+    @Comment("Configures how claims are persisted.")
+    private final StorageConfiguration storageConfiguration = new StorageConfiguration();
 }
@@ -29,6 +29,14 @@ public class LoggerConfiguration
     @Comment("Whether debug information should be logged. Exceptions will always be logged.")
     private final boolean debugEnabled = false;
 
+    @Setting
+    @Comment("The maximum number of log entries waiting to be written. Entries beyond that are handled by the overflow policy.")
+    private final int queueCapacity = 10000;
+
+    @Setting
+    @Comment("What happens to new log entries while the queue is full (Drop, Block). Drop discards and counts them. Block makes the logging thread wait for the writer, which can stall the server if the disk is slow.")
+    private final OverflowPolicy overflowPolicy = OverflowPolicy.Drop;
+
     /**
      * Determines whether the log pruning feature is enabled.
      *
@@ -39,4 +47,10 @@ public class LoggerConfiguration
         //noinspection ConstantValue
         return daysToKeep > 0;
     }
+
+    public enum OverflowPolicy
+    {
+        Drop,
+        Block
+    }
 }
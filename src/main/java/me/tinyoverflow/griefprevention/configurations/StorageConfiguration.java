@@ -0,0 +1,34 @@
+package me.tinyoverflow.griefprevention.configurations;
+
+import lombok.Data;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+import org.spongepowered.configurate.objectmapping.meta.Setting;
+
+@ConfigSerializable
+@Data
+public class StorageConfiguration
+{
+    @Setting
+    @Comment("Where claims are stored (File, Binary, Database). File keeps one YAML file per claim, Binary keeps all claims in a single claims.dat log. Existing claim files are imported when switching to Binary. Database keeps claims and player data in an embedded H2 database, use /claimadmin migrate-storage database to copy existing data into it.")
+    private final StorageType type = StorageType.File;
+
+    @Setting
+    @Comment("Longest time in milliseconds a changed claim or player is kept in memory before it's written to storage. Changes made in the meantime are written only once.")
+    private final long writeInterval = 1000;
+
+    @Setting
+    @Comment("Number of pending writes which are written right away instead of waiting for the write interval.")
+    private final int writeBatchSize = 500;
+
+    @Setting
+    @Comment("Maximum number of open connections to the embedded database, at least 2, only used by the Database storage type.")
+    private final int databaseConnections = 4;
+
+    public enum StorageType
+    {
+        File,
+        Binary,
+        Database
+    }
+}
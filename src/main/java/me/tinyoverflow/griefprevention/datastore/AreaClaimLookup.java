@@ -0,0 +1,139 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import me.tinyoverflow.griefprevention.utils.BoundingBox;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Resolves the claims of many blocks within an area of a world, such as the
+ * blocks of an explosion or a growing tree.
+ *
+ * <p>The top level claims overlapping the area are read from the claim index
+ * once, so each block is only tested against those few claims, starting with
+ * the claim of the previous block. Whenever claims change, they are read
+ * again on the next lookup, so a lookup may be kept while changes are applied
+ * over several ticks. Blocks outside the area are looked up in the index.
+ *
+ * <p>Like {@link DataStore#getClaimAt(Location, boolean, Claim)}, a
+ * subdivision is returned instead of its parent claim for blocks inside it.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class AreaClaimLookup
+{
+    private final DataStore dataStore;
+    private final ClaimIndex claimIndex;
+    private final World world;
+    private final int minX, minZ, maxX, maxZ;
+
+    //top level claims overlapping the area as of the index version
+    private Claim[] candidates;
+    private long version;
+    private int lastHit;
+
+    AreaClaimLookup(@NotNull DataStore dataStore, @NotNull ClaimIndex claimIndex, @NotNull World world, @NotNull BoundingBox area)
+    {
+        this.dataStore = dataStore;
+        this.claimIndex = claimIndex;
+        this.world = world;
+        this.minX = area.getMinX();
+        this.minZ = area.getMinZ();
+        this.maxX = area.getMaxX();
+        this.maxZ = area.getMaxZ();
+        readCandidates();
+    }
+
+    /**
+     * Gets the claim a block is in.
+     *
+     * @param x            the X coordinate of the block
+     * @param y            the Y coordinate of the block
+     * @param z            the Z coordinate of the block
+     * @param ignoreHeight whether blocks below a claim are in the claim
+     * @return the claim or subdivision, or null if the block isn't claimed
+     */
+    public @Nullable Claim getClaimAt(int x, int y, int z, boolean ignoreHeight)
+    {
+        if (x < minX || x > maxX || z < minZ || z > maxZ)
+        {
+            return dataStore.getClaimAt(new Location(world, x, y, z), ignoreHeight, null);
+        }
+
+        if (claimIndex.getVersion() != version) readCandidates();
+
+        Claim[] claims = candidates;
+        for (int i = 0; i < claims.length; i++)
+        {
+            int index = lastHit + i;
+            if (index >= claims.length) index -= claims.length;
+
+            Claim claim = claims[index];
+            if (!claim.inDataStore || !claim.contains(x, y, z, ignoreHeight)) continue;
+
+            lastHit = index;
+            for (Claim subdivision : claim.children)
+            {
+                if (subdivision.inDataStore && subdivision.contains(x, y, z, ignoreHeight)) return subdivision;
+            }
+            return claim;
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the claim a block is in.
+     *
+     * @param block        the block, in the world of this lookup
+     * @param ignoreHeight whether blocks below a claim are in the claim
+     * @return the claim or subdivision, or null if the block isn't claimed
+     */
+    public @Nullable Claim getClaimAt(@NotNull Block block, boolean ignoreHeight)
+    {
+        return getClaimAt(block.getX(), block.getY(), block.getZ(), ignoreHeight);
+    }
+
+    /**
+     * Gets the claim a location is in.
+     *
+     * @param location     the location
+     * @param ignoreHeight whether locations below a claim are in the claim
+     * @return the claim or subdivision, or null if the location isn't claimed
+     */
+    public @Nullable Claim getClaimAt(@NotNull Location location, boolean ignoreHeight)
+    {
+        if (location.getWorld() != world) return dataStore.getClaimAt(location, ignoreHeight, null);
+
+        return getClaimAt(location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight);
+    }
+
+    /**
+     * Gets the claims of several blocks in one pass.
+     *
+     * @param blocks       the blocks, in the world of this lookup
+     * @param ignoreHeight whether blocks below a claim are in the claim
+     * @return the claim or subdivision of each block, null for blocks which aren't claimed
+     */
+    public Claim[] getClaimsAt(@NotNull List<Block> blocks, boolean ignoreHeight)
+    {
+        Claim[] claims = new Claim[blocks.size()];
+        for (int i = 0; i < claims.length; i++)
+        {
+            claims[i] = getClaimAt(blocks.get(i), ignoreHeight);
+        }
+        return claims;
+    }
+
+    private void readCandidates()
+    {
+        version = claimIndex.getVersion();
+        candidates = dataStore.getClaimsInArea(world, minX, minZ, maxX, maxZ).toArray(new Claim[0]);
+        lastHit = 0;
+    }
+}
@@ -0,0 +1,188 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.logger.ActivityType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//manages claims stored in a single binary log, player data stays in the file system
+public class BinaryDataStore extends FlatFileDataStore
+{
+    public static final String CLAIM_LOG_FILE_NAME = "claims.dat";
+
+    //assigned while the super constructor loads claims, so this field must not have an initializer
+    private ClaimLog claimLog;
+
+    public BinaryDataStore(File dataFolder) throws Exception
+    {
+        super(dataFolder);
+    }
+
+    /**
+     * Writes claims to a new claim log, replacing any existing log.
+     *
+     * @param dataFolder the plugin's data folder
+     * @param records    the claims, including those in worlds which aren't loaded
+     * @throws IOException if the log can't be written
+     */
+    static void writeClaimLog(File dataFolder, List<ClaimRecord> records) throws IOException
+    {
+        ClaimLog.write(new File(dataFolder, CLAIM_LOG_FILE_NAME).toPath(), records);
+    }
+
+    /**
+     * Moves an existing claim log aside, so the claim files are imported on the next start of this data store.
+     *
+     * @param dataFolder the plugin's data folder
+     * @return whether there was a claim log
+     * @throws IOException if the log can't be moved
+     */
+    public static boolean discardClaimLog(File dataFolder) throws IOException
+    {
+        Path logPath = new File(dataFolder, CLAIM_LOG_FILE_NAME).toPath();
+        if (!Files.exists(logPath)) return false;
+
+        Files.move(logPath, logPath.resolveSibling(CLAIM_LOG_FILE_NAME + ".old"), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    @Override
+    void loadClaims(File claimDataFolder)
+    {
+        Path logPath = new File(claimDataFolder.getParentFile(), CLAIM_LOG_FILE_NAME).toPath();
+
+        try {
+            //import the per-claim files the first time this data store is used
+            //the files are imported as they are, so claims in worlds which aren't loaded yet are kept
+            File[] files = claimDataFolder.listFiles();
+            if (!Files.exists(logPath) && hasClaimFiles(claimDataFolder) && files != null) {
+                List<ClaimRecord> records = readClaimRecords(files);
+                writeClaimLog(claimDataFolder.getParentFile(), records);
+                GriefPrevention.AddLogEntry("Imported " + records.size() + " claims from " + claimDataFolder + " into " +
+                                            CLAIM_LOG_FILE_NAME + ". The claim files are kept as a backup.");
+            }
+
+            loadClaimLog(logPath);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to load claims from " + logPath + ".", e);
+        }
+    }
+
+    private void loadClaimLog(Path logPath) throws IOException
+    {
+        long phaseStart = System.nanoTime();
+        List<ClaimRecord> records = new ArrayList<>();
+        claimLog = ClaimLog.open(logPath, records);
+        long readNanos = System.nanoTime() - phaseStart;
+
+        if (claimLog.getDiscardedBytes() > 0) {
+            GriefPrevention.AddLogEntry("Discarded " + claimLog.getDiscardedBytes() +
+                                        " bytes of an incomplete record at the end of " + logPath + ".");
+        }
+
+        long indexNanos;
+        claimIndex.beginUpdate();
+        try {
+            phaseStart = System.nanoTime();
+            addClaimRecords(records);
+            indexNanos = System.nanoTime() - phaseStart;
+        }
+        finally {
+            claimIndex.endUpdate();
+        }
+
+        GriefPrevention.AddLogEntry(String.format(
+                "Loaded %d claims from %s (%d KB) in %d ms: read %d ms, index %d ms.",
+                records.size(),
+                CLAIM_LOG_FILE_NAME,
+                Files.size(logPath) / 1024,
+                TimeUnit.NANOSECONDS.toMillis(readNanos + indexNanos),
+                TimeUnit.NANOSECONDS.toMillis(readNanos),
+                TimeUnit.NANOSECONDS.toMillis(indexNanos)
+        ));
+
+        compactIfNeeded();
+    }
+
+    //the claim log is only touched by the storage writer once loading is done
+    @Override
+    void writeClaimToStorage(ClaimRecord claim)
+    {
+        try {
+            claimLog.append(claim);
+            compactIfNeeded();
+        }
+
+        //if any problem, log it
+        catch (Exception e) {
+            StringWriter errors = new StringWriter();
+            e.printStackTrace(new PrintWriter(errors));
+            GriefPrevention.AddLogEntry(claim.id() + " " + errors, ActivityType.EXCEPTION);
+        }
+    }
+
+    @Override
+    void deleteClaimFromSecondaryStorage(long claimID)
+    {
+        try {
+            claimLog.appendDelete(claimID);
+            compactIfNeeded();
+        }
+        catch (Exception e) {
+            StringWriter errors = new StringWriter();
+            e.printStackTrace(new PrintWriter(errors));
+            GriefPrevention.AddLogEntry(claimID + " " + errors, ActivityType.EXCEPTION);
+        }
+    }
+
+    //the claim log may be read while the storage writer appends to it, records still being written are left out
+    @Override
+    List<ClaimRecord> readStoredClaimRecords() throws IOException
+    {
+        return claimLog.readRecords();
+    }
+
+    @Override
+    public void close()
+    {
+        //writes pending changes to the claim log first
+        super.close();
+
+        try {
+            claimLog.close();
+        }
+        catch (IOException e) {
+            GriefPrevention.AddLogEntry("Unable to close the claim log: " + e.getMessage());
+        }
+    }
+
+    private void compactIfNeeded() throws IOException
+    {
+        if (!claimLog.needsCompaction()) return;
+
+        long start = System.nanoTime();
+        int count = claimLog.compact();
+
+        GriefPrevention.AddLogEntry(
+                "Compacted " + CLAIM_LOG_FILE_NAME + " to " + count + " claims in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.",
+                ActivityType.DEBUG
+        );
+    }
+
+    private static boolean hasClaimFiles(File claimDataFolder)
+    {
+        String[] names = claimDataFolder.list((dir, name) -> name.endsWith(".yml"));
+        return names != null && names.length > 0;
+    }
+}
@@ -0,0 +1,117 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of all top level claims, partitioned by world.
+ *
+ * <p>Claims are keyed by the {@link UUID} of the world they are in, so that
+ * lookups never have to skip over claims belonging to other worlds.
+ * Subdivisions are not indexed; they are found through their parent.
+ *
+ * <p>Lookups are lock-free and always see a consistent snapshot. Changes are
+ * published immediately, unless they are made between {@link #beginUpdate()}
+ * and {@link #endUpdate()}, in which case they become visible together.
+ */
+public class ClaimIndex
+{
+    private final ConcurrentHashMap<UUID, WorldClaimIndex> worlds = new ConcurrentHashMap<>();
+    private int updateDepth = 0;
+    //incremented whenever changes are published, so lookups holding on to claims know when to look again
+    private volatile long version = 0;
+
+    /**
+     * Registers a top level claim.
+     *
+     * @param claim the claim
+     */
+    synchronized void add(@NotNull Claim claim)
+    {
+        worlds.computeIfAbsent(getWorldId(claim), id -> new WorldClaimIndex()).add(claim);
+        publishIfIdle();
+    }
+
+    /**
+     * Removes a top level claim.
+     *
+     * @param claim the claim
+     */
+    synchronized void remove(@NotNull Claim claim)
+    {
+        WorldClaimIndex worldIndex = worlds.get(getWorldId(claim));
+        if (worldIndex == null) return;
+
+        worldIndex.remove(claim);
+        publishIfIdle();
+    }
+
+    /**
+     * Starts a batch of changes which are published together once the
+     * matching {@link #endUpdate()} is reached. Batches may be nested.
+     */
+    synchronized void beginUpdate()
+    {
+        updateDepth++;
+    }
+
+    /**
+     * Ends a batch of changes started with {@link #beginUpdate()}.
+     */
+    synchronized void endUpdate()
+    {
+        if (updateDepth == 0) throw new IllegalStateException("No update in progress.");
+
+        updateDepth--;
+        publishIfIdle();
+    }
+
+    /**
+     * Gets the index for a world.
+     *
+     * @param world the world
+     * @return the world's index or null if no claim was ever registered in it
+     */
+    public @Nullable WorldClaimIndex getWorld(@NotNull World world)
+    {
+        return worlds.get(world.getUID());
+    }
+
+    /**
+     * @return the indices of all worlds containing claims
+     */
+    public @NotNull Collection<WorldClaimIndex> getWorlds()
+    {
+        return worlds.values();
+    }
+
+    /**
+     * @return a number which changes whenever changes to the index are published
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    private void publishIfIdle()
+    {
+        if (updateDepth > 0) return;
+
+        for (WorldClaimIndex worldIndex : worlds.values())
+        {
+            worldIndex.publish();
+        }
+        version++;
+    }
+
+    private static @NotNull UUID getWorldId(@NotNull Claim claim)
+    {
+        return claim.lesserBoundaryCorner.getWorld().getUID();
+    }
+}
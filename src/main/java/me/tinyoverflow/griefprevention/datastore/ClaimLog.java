@@ -0,0 +1,554 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.utils.LongHashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Append-only binary log of claim records.
+ *
+ * <p>The file starts with a magic number and a format version, followed by
+ * records framed as a type byte and a payload length. Saving a claim appends
+ * its full state, deleting a claim appends a tombstone, and the latest record
+ * per claim ID wins when the log is read. Strings such as world names and
+ * trusted player IDs are written once per file and referenced by index.
+ *
+ * <p>Superseded records accumulate until {@link #compact()} rewrites the log
+ * with only the live claims. A record cut short by a crash is
+ * discarded the next time the log is opened. The file is only mapped while
+ * it's being read, so it can be replaced on systems which refuse to replace
+ * mapped files.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class ClaimLog implements Closeable
+{
+    private static final int MAGIC = 0x4750434C; // "GPCL"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final int FRAME_SIZE = 5;
+
+    private static final byte RECORD_STRING = 1;
+    private static final byte RECORD_CLAIM = 2;
+    private static final byte RECORD_DELETE = 3;
+
+    private static final byte FLAG_HAS_OWNER = 1;
+    private static final byte FLAG_INHERIT_NOTHING = 1 << 1;
+
+    //don't bother compacting small logs
+    private static final int MIN_COMPACTION_GARBAGE = 1024;
+    //releases a mapping right away instead of once it's garbage collected, null where that isn't supported
+    private static final MethodHandle UNMAP = findUnmap();
+
+    private final Path path;
+    private FileChannel channel;
+    //interned strings of the current file
+    private final HashMap<String, Integer> stringIds = new HashMap<>();
+    //IDs of the claims with a live record in the current file
+    private final LongHashMap<Boolean> liveIds = new LongHashMap<>();
+    //superseded claim records and tombstones in the current file
+    private int garbageRecords;
+    //the garbage a failed compaction left behind, retried once it has doubled
+    private int failedCompactionGarbage;
+    //bytes dropped from the end of the file while opening it
+    private long discardedBytes;
+
+    private ClaimLog(@NotNull Path path)
+    {
+        this.path = path;
+    }
+
+    /**
+     * Opens a log, creating it if it doesn't exist, and reads its live records.
+     *
+     * @param path          the log file
+     * @param loadedRecords receives the latest record of every claim in the log
+     * @return the log, positioned for appending
+     * @throws IOException if the file can't be read or isn't a claim log
+     */
+    static @NotNull ClaimLog open(@NotNull Path path, @NotNull List<ClaimRecord> loadedRecords) throws IOException
+    {
+        ClaimLog log = new ClaimLog(path);
+        log.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            if (log.channel.size() == 0) {
+                log.writeHeader();
+            }
+            else {
+                log.truncateTo(log.read(loadedRecords));
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            log.channel.close();
+            throw e;
+        }
+
+        return log;
+    }
+
+    /**
+     * Reads the live records of a log without changing the file, for example while it's open for appending.
+     *
+     * @param path the log file
+     * @return the latest record of every claim in the log, up to the last complete record
+     * @throws IOException if the file can't be read or isn't a claim log
+     */
+    static @NotNull List<ClaimRecord> readRecords(@NotNull Path path) throws IOException
+    {
+        ArrayList<ClaimRecord> records = new ArrayList<>();
+        ClaimLog log = new ClaimLog(path);
+        log.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try (log) {
+            log.read(records);
+        }
+
+        return records;
+    }
+
+    /**
+     * Reads the live records of this log without changing it, safe to call while another thread appends.
+     *
+     * @return the latest record of every claim in the log, up to the last complete record
+     * @throws IOException if the file can't be read
+     */
+    @NotNull List<ClaimRecord> readRecords() throws IOException
+    {
+        return readRecords(path);
+    }
+
+    /**
+     * Writes a new log containing exactly the given claims, replacing any existing file.
+     *
+     * @param path    the log file
+     * @param records the claims to write
+     * @throws IOException if the log can't be written
+     */
+    static void write(@NotNull Path path, @NotNull Collection<ClaimRecord> records) throws IOException
+    {
+        //write to a temporary file first, so a failure never leaves a partial log behind
+        replace(writeTemporary(path, records), path);
+    }
+
+    private static Path writeTemporary(Path path, Collection<ClaimRecord> records) throws IOException
+    {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        ClaimLog log = new ClaimLog(temporaryPath);
+        log.channel = FileChannel.open(
+                temporaryPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        );
+
+        try (log) {
+            log.writeHeader();
+            for (ClaimRecord record : records) {
+                log.append(record);
+            }
+        }
+
+        return temporaryPath;
+    }
+
+    private static void replace(Path source, Path target) throws IOException
+    {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends the current state of a claim.
+     *
+     * @param record the claim
+     * @throws IOException if the record can't be written
+     */
+    void append(@NotNull ClaimRecord record) throws IOException
+    {
+        int[] builders = internAll(record.builders());
+        int[] containers = internAll(record.containers());
+        int[] accessors = internAll(record.accessors());
+        int[] managers = internAll(record.managers());
+        int world = intern(record.worldName());
+
+        int size = 8 + 8 + 4 + 6 * 4 + 1 + 16 + 8
+                   + 4 * (4 + builders.length + containers.length + accessors.length + managers.length);
+        ByteBuffer buffer = frame(RECORD_CLAIM, size);
+        buffer.putLong(record.id());
+        buffer.putLong(record.parentID());
+        buffer.putInt(world);
+        buffer.putInt(record.lesserX()).putInt(record.lesserY()).putInt(record.lesserZ());
+        buffer.putInt(record.greaterX()).putInt(record.greaterY()).putInt(record.greaterZ());
+
+        UUID ownerID = record.ownerID();
+        byte flags = 0;
+        if (ownerID != null) flags |= FLAG_HAS_OWNER;
+        if (record.inheritNothing()) flags |= FLAG_INHERIT_NOTHING;
+        buffer.put(flags);
+        buffer.putLong(ownerID != null ? ownerID.getMostSignificantBits() : 0);
+        buffer.putLong(ownerID != null ? ownerID.getLeastSignificantBits() : 0);
+
+        buffer.putLong(record.modifiedDate());
+        putStringIds(buffer, builders);
+        putStringIds(buffer, containers);
+        putStringIds(buffer, accessors);
+        putStringIds(buffer, managers);
+        writeFully(buffer);
+
+        if (liveIds.put(record.id(), Boolean.TRUE) != null) {
+            garbageRecords++;
+        }
+    }
+
+    /**
+     * Appends a tombstone for a claim.
+     *
+     * @param id the claim ID
+     * @throws IOException if the record can't be written
+     */
+    void appendDelete(long id) throws IOException
+    {
+        if (liveIds.remove(id) == null) return;
+
+        ByteBuffer buffer = frame(RECORD_DELETE, 8);
+        buffer.putLong(id);
+        writeFully(buffer);
+
+        //both the claim's last record and the tombstone are garbage now
+        garbageRecords += 2;
+    }
+
+    /**
+     * @return whether superseded records outweigh live ones enough to warrant a compaction
+     */
+    boolean needsCompaction()
+    {
+        return garbageRecords >= Math.max(MIN_COMPACTION_GARBAGE, 2 * failedCompactionGarbage)
+               && garbageRecords > liveIds.size();
+    }
+
+    /**
+     * Rewrites the log with only the latest record of every live claim.
+     *
+     * @return the number of claims in the new log
+     * @throws IOException if the log can't be rewritten, in which case the old log stays in use
+     */
+    int compact() throws IOException
+    {
+        return compact(ClaimLog::replace);
+    }
+
+    //compacts with the given way of replacing the file, so tests can make the replacement fail
+    int compact(@NotNull FileReplacer replacer) throws IOException
+    {
+        //the file itself is the source of truth, so compaction never needs the claims in memory
+        channel.force(false);
+        List<ClaimRecord> records = readRecords();
+        Path temporaryPath = writeTemporary(path, records);
+
+        //Windows refuses to replace a file which is still open
+        channel.close();
+        boolean replaced = false;
+        try {
+            replacer.replace(temporaryPath, path);
+            replaced = true;
+        }
+        finally {
+            //reopen whichever file is in place, so the log stays writable even if it couldn't be replaced
+            reopen();
+            failedCompactionGarbage = replaced ? 0 : garbageRecords;
+            if (!replaced) Files.deleteIfExists(temporaryPath);
+        }
+
+        return records.size();
+    }
+
+    /**
+     * @return the number of claims with a live record
+     */
+    int size()
+    {
+        return liveIds.size();
+    }
+
+    /**
+     * @return the number of bytes of an incomplete or corrupt tail dropped while opening the log
+     */
+    long getDiscardedBytes()
+    {
+        return discardedBytes;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (!channel.isOpen()) return;
+
+        channel.force(false);
+        channel.close();
+    }
+
+    //re-reads the string table and claim IDs of the file in place
+    private void reopen() throws IOException
+    {
+        stringIds.clear();
+        liveIds.clear();
+        garbageRecords = 0;
+
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            truncateTo(read(new ArrayList<>()));
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //reads the records of the file and returns where the last complete record ends
+    private long read(List<ClaimRecord> loadedRecords) throws IOException
+    {
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Claim log " + path + " is too large to be mapped.");
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        try {
+            long validEnd = read(buffer, loadedRecords);
+            discardedBytes = fileSize - validEnd;
+            return validEnd;
+        }
+        finally {
+            unmap(buffer);
+        }
+    }
+
+    private long read(MappedByteBuffer buffer, List<ClaimRecord> loadedRecords) throws IOException
+    {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException(path + " is not a claim log.");
+        }
+
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported claim log version " + version + " in " + path + ".");
+        }
+
+        ArrayList<String> strings = new ArrayList<>();
+        LinkedHashMap<Long, ClaimRecord> records = new LinkedHashMap<>();
+        int validEnd = buffer.position();
+
+        while (buffer.remaining() >= FRAME_SIZE) {
+            byte type = buffer.get();
+            int size = buffer.getInt();
+            if (size < 0 || size > buffer.remaining()) break;
+
+            ByteBuffer payload = buffer.slice(buffer.position(), size);
+            buffer.position(buffer.position() + size);
+
+            try {
+                switch (type) {
+                    case RECORD_STRING -> {
+                        int id = payload.getInt();
+                        if (id != strings.size()) throw new IOException("String " + id + " out of order.");
+
+                        byte[] bytes = new byte[payload.remaining()];
+                        payload.get(bytes);
+                        String string = new String(bytes, StandardCharsets.UTF_8);
+                        strings.add(string);
+                        stringIds.put(string, id);
+                    }
+                    case RECORD_CLAIM -> {
+                        ClaimRecord record = readClaim(payload, strings);
+                        if (records.put(record.id(), record) != null) garbageRecords++;
+                        liveIds.put(record.id(), Boolean.TRUE);
+                    }
+                    case RECORD_DELETE -> {
+                        long id = payload.getLong();
+                        if (records.remove(id) != null) garbageRecords++;
+                        liveIds.remove(id);
+                        garbageRecords++;
+                    }
+                    default -> throw new IOException("Unknown record type " + type + ".");
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                //a damaged record can only be the result of an interrupted write, stop here
+                break;
+            }
+
+            validEnd = buffer.position();
+        }
+
+        loadedRecords.addAll(records.values());
+        return validEnd;
+    }
+
+    //drops anything after the last complete record, so new records are appended to a valid log
+    private void truncateTo(long validEnd) throws IOException
+    {
+        if (channel.size() > validEnd) {
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+    }
+
+    private static void unmap(MappedByteBuffer buffer)
+    {
+        if (UNMAP == null) return;
+
+        try {
+            UNMAP.invokeExact((ByteBuffer) buffer);
+        }
+        catch (Throwable e) {
+            //the mapping is released once the buffer is garbage collected instead
+        }
+    }
+
+    private static MethodHandle findUnmap()
+    {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ClaimRecord readClaim(ByteBuffer payload, List<String> strings)
+    {
+        long id = payload.getLong();
+        long parentID = payload.getLong();
+        String worldName = strings.get(payload.getInt());
+        int lesserX = payload.getInt();
+        int lesserY = payload.getInt();
+        int lesserZ = payload.getInt();
+        int greaterX = payload.getInt();
+        int greaterY = payload.getInt();
+        int greaterZ = payload.getInt();
+        byte flags = payload.get();
+        long ownerMost = payload.getLong();
+        long ownerLeast = payload.getLong();
+        long modifiedDate = payload.getLong();
+
+        return new ClaimRecord(
+                id,
+                parentID,
+                worldName,
+                lesserX,
+                lesserY,
+                lesserZ,
+                greaterX,
+                greaterY,
+                greaterZ,
+                (flags & FLAG_HAS_OWNER) != 0 ? new UUID(ownerMost, ownerLeast) : null,
+                (flags & FLAG_INHERIT_NOTHING) != 0,
+                modifiedDate,
+                getStrings(payload, strings),
+                getStrings(payload, strings),
+                getStrings(payload, strings),
+                getStrings(payload, strings)
+        );
+    }
+
+    private static List<String> getStrings(ByteBuffer payload, List<String> strings)
+    {
+        int count = payload.getInt();
+        ArrayList<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(strings.get(payload.getInt()));
+        }
+
+        return values;
+    }
+
+    private void writeHeader() throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        writeFully(buffer);
+    }
+
+    private int[] internAll(List<String> strings) throws IOException
+    {
+        int[] ids = new int[strings.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = intern(strings.get(i));
+        }
+
+        return ids;
+    }
+
+    //gets the index of a string, appending it to the string table if it's new
+    private int intern(String string) throws IOException
+    {
+        Integer id = stringIds.get(string);
+        if (id != null) return id;
+
+        id = stringIds.size();
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = frame(RECORD_STRING, 4 + bytes.length);
+        buffer.putInt(id);
+        buffer.put(bytes);
+        writeFully(buffer);
+
+        stringIds.put(string, id);
+        return id;
+    }
+
+    private static void putStringIds(ByteBuffer buffer, int[] ids)
+    {
+        buffer.putInt(ids.length);
+        for (int id : ids) {
+            buffer.putInt(id);
+        }
+    }
+
+    private static ByteBuffer frame(byte type, int size)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_SIZE + size);
+        buffer.put(type);
+        buffer.putInt(size);
+        return buffer;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @FunctionalInterface
+    interface FileReplacer
+    {
+        void replace(@NotNull Path source, @NotNull Path target) throws IOException;
+    }
+}
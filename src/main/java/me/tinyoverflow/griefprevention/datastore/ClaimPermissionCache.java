@@ -0,0 +1,121 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import me.tinyoverflow.griefprevention.ClaimPermission;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the default trust decisions of claims, so repeated permission
+ * checks of a player in a claim don't go through its trust lists and the
+ * player's permission nodes again.
+ *
+ * <p>All decisions are forgotten whenever anything they depend on may have
+ * changed: a claim is saved or deleted, a player toggles ignoreclaims, joins,
+ * quits or changes worlds. Permission nodes may change without any event, so
+ * decisions are also forgotten once they are a second old.
+ *
+ * <p>Decisions are remembered from the main thread only, while
+ * {@link #invalidate()} may be called from any thread.
+ */
+public class ClaimPermissionCache
+{
+    /**
+     * Remembered for a decision granting the permission.
+     */
+    public static final Supplier<String> GRANTED = () -> null;
+
+    /**
+     * Remembered for a player who isn't trusted by the claim itself, for
+     * permissions which also depend on the situation of the check.
+     */
+    public static final Supplier<String> UNTRUSTED = () -> null;
+
+    //permission nodes changed by permission plugins are picked up after this many ticks
+    static final int MAX_AGE_TICKS = 20;
+
+    private final AtomicLong epoch = new AtomicLong();
+    private final IntSupplier currentTick;
+
+    //decisions per claim and player, indexed by permission
+    private final Map<Claim, Map<UUID, Supplier<String>[]>> decisions = new HashMap<>();
+    private long decisionsEpoch = -1;
+    private int decisionsTick;
+
+    public ClaimPermissionCache()
+    {
+        this(Bukkit::getCurrentTick);
+    }
+
+    ClaimPermissionCache(@NotNull IntSupplier currentTick)
+    {
+        this.currentTick = currentTick;
+    }
+
+    /**
+     * Get a remembered decision.
+     *
+     * @param claim      the claim or subdivision
+     * @param uuid       the player
+     * @param permission the permission
+     * @return the remembered denial, {@link #GRANTED}, {@link #UNTRUSTED} or null if nothing is remembered
+     */
+    public @Nullable Supplier<String> get(@NotNull Claim claim, @NotNull UUID uuid, @NotNull ClaimPermission permission)
+    {
+        expireIfStale();
+
+        Map<UUID, Supplier<String>[]> claimDecisions = decisions.get(claim);
+        if (claimDecisions == null) return null;
+
+        Supplier<String>[] playerDecisions = claimDecisions.get(uuid);
+        return playerDecisions != null ? playerDecisions[permission.ordinal()] : null;
+    }
+
+    /**
+     * Remember a decision until the next invalidation.
+     *
+     * @param claim      the claim or subdivision
+     * @param uuid       the player
+     * @param permission the permission
+     * @param decision   the denial, {@link #GRANTED} or {@link #UNTRUSTED}
+     */
+    @SuppressWarnings("unchecked")
+    public void put(
+            @NotNull Claim claim,
+            @NotNull UUID uuid,
+            @NotNull ClaimPermission permission,
+            @NotNull Supplier<String> decision)
+    {
+        expireIfStale();
+
+        decisions.computeIfAbsent(claim, key -> new HashMap<>())
+                .computeIfAbsent(uuid, key -> new Supplier[ClaimPermission.values().length])[permission.ordinal()] = decision;
+    }
+
+    /**
+     * Forget all decisions, because trust, claims or players changed.
+     */
+    public void invalidate()
+    {
+        epoch.incrementAndGet();
+    }
+
+    private void expireIfStale()
+    {
+        long currentEpoch = epoch.get();
+        int tick = currentTick.getAsInt();
+        if (currentEpoch == decisionsEpoch && tick - decisionsTick < MAX_AGE_TICKS) return;
+
+        decisions.clear();
+        decisionsEpoch = currentEpoch;
+        decisionsTick = tick;
+    }
+}
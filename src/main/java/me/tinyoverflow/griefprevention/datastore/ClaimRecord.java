@@ -0,0 +1,114 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * The persisted state of a claim or subdivision, independent of any loaded world.
+ *
+ * @param id                the claim ID
+ * @param parentID          the ID of the parent claim or -1 for top level claims
+ * @param worldName         the name of the world the claim is in
+ * @param lesserX           the X coordinate of the lesser boundary corner
+ * @param lesserY           the Y coordinate of the lesser boundary corner
+ * @param lesserZ           the Z coordinate of the lesser boundary corner
+ * @param greaterX          the X coordinate of the greater boundary corner
+ * @param greaterY          the Y coordinate of the greater boundary corner
+ * @param greaterZ          the Z coordinate of the greater boundary corner
+ * @param ownerID           the owner or null for administrative claims and subdivisions
+ * @param inheritNothing    whether a subdivision inherits no permissions from its parent
+ * @param modifiedDate      the last modification time in milliseconds since the epoch
+ * @param builders          players and groups with build permission
+ * @param containers        players and groups with container permission
+ * @param accessors         players and groups with access permission
+ * @param managers          players and groups with permission to grant permissions
+ */
+record ClaimRecord(
+        long id,
+        long parentID,
+        @NotNull String worldName,
+        int lesserX,
+        int lesserY,
+        int lesserZ,
+        int greaterX,
+        int greaterY,
+        int greaterZ,
+        @Nullable UUID ownerID,
+        boolean inheritNothing,
+        long modifiedDate,
+        @NotNull List<String> builders,
+        @NotNull List<String> containers,
+        @NotNull List<String> accessors,
+        @NotNull List<String> managers
+)
+{
+    /**
+     * Captures the current state of a claim.
+     *
+     * @param claim the claim, which must have an ID
+     * @return the record
+     */
+    static @NotNull ClaimRecord of(@NotNull Claim claim)
+    {
+        ArrayList<String> builders = new ArrayList<>();
+        ArrayList<String> containers = new ArrayList<>();
+        ArrayList<String> accessors = new ArrayList<>();
+        ArrayList<String> managers = new ArrayList<>();
+        claim.getPermissions(builders, containers, accessors, managers);
+
+        Location lesser = claim.lesserBoundaryCorner;
+        Location greater = claim.greaterBoundaryCorner;
+
+        return new ClaimRecord(
+                claim.id,
+                claim.parent != null ? claim.parent.id : -1,
+                Objects.requireNonNull(lesser.getWorld()).getName(),
+                lesser.getBlockX(),
+                lesser.getBlockY(),
+                lesser.getBlockZ(),
+                greater.getBlockX(),
+                greater.getBlockY(),
+                greater.getBlockZ(),
+                claim.ownerID,
+                claim.parent != null && claim.getSubclaimRestrictions(),
+                claim.modifiedDate != null ? claim.modifiedDate.getTime() : System.currentTimeMillis(),
+                builders,
+                containers,
+                accessors,
+                managers
+        );
+    }
+
+    /**
+     * Instantiates the claim in a world. The claim is not linked to its parent.
+     *
+     * @param world the world named by this record
+     * @return the claim
+     */
+    @NotNull Claim toClaim(@NotNull World world)
+    {
+        Claim claim = new Claim(
+                new Location(world, lesserX, lesserY, lesserZ),
+                new Location(world, greaterX, greaterY, greaterZ),
+                ownerID,
+                builders,
+                containers,
+                accessors,
+                managers,
+                inheritNothing,
+                id
+        );
+        claim.modifiedDate = new Date(modifiedDate);
+
+        return claim;
+    }
+}
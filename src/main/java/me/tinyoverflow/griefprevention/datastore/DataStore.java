@@ -22,10 +22,13 @@ import com.google.common.io.Files;
 import com.griefprevention.visualization.BoundaryVisualization;
 import com.griefprevention.visualization.VisualizationType;
 import me.tinyoverflow.griefprevention.*;
+import me.tinyoverflow.griefprevention.configurations.StorageConfiguration;
 import me.tinyoverflow.griefprevention.events.*;
 import me.tinyoverflow.griefprevention.logger.ActivityType;
 import me.tinyoverflow.griefprevention.tasks.SecureClaimTask;
 import me.tinyoverflow.griefprevention.tasks.SiegeCheckupTask;
+import me.tinyoverflow.griefprevention.utils.BoundingBox;
+import me.tinyoverflow.griefprevention.utils.LongHashMap;
 import org.bukkit.*;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -35,6 +38,8 @@ import org.bukkit.entity.Player;
 import org.bukkit.entity.Tameable;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.permissions.Permissible;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -66,34 +71,51 @@ public abstract class DataStore
     private final HashMap<String, Long> siegeCooldownRemaining = new HashMap<>();
     //in-memory cache for claim data
     public ArrayList<Claim> claims = new ArrayList<>();
-    public ConcurrentHashMap<Long, ArrayList<Claim>> chunksToClaimsMap = new ConcurrentHashMap<>();
+    //spatial index of top level claims, partitioned by world
+    protected final ClaimIndex claimIndex = new ClaimIndex();
+    //trust decisions of claims, forgotten whenever a claim is saved or deleted
+    private final ClaimPermissionCache permissionCache = new ClaimPermissionCache();
+    //claims and subdivisions in the data store by ID, guarded by this data store's monitor
+    private final LongHashMap<Claim> claimsById = new LongHashMap<>();
+    //top level claims by owner, null for administrative claims, guarded by this data store's monitor
+    private final HashMap<UUID, ArrayList<Claim>> claimsByOwner = new HashMap<>();
     //in-memory cache for player data
     protected ConcurrentHashMap<UUID, PlayerData> playerNameToPlayerDataMap = new ConcurrentHashMap<>();
     //in-memory cache for group (permission-based) data
     protected ConcurrentHashMap<String, Integer> permissionToBonusBlocksMap = new ConcurrentHashMap<>();
     //next claim ID
     Long nextClaimID = (long) 0;
-    //in-memory cache for messages
-    private String[] messages;
+    //pending writes to secondary storage, coalesced per claim and player
+    protected final WriteBehindQueue writeQueue = new WriteBehindQueue("GriefPrevention Storage Writer");
+    //in-memory cache for messages, compiled into templates and replaced as a whole on reload
+    private volatile MessageTemplate[] messages = new MessageTemplate[0];
 
     //#region Chunk Hashes
     //gets an almost-unique, persistent identifier for a chunk
-    public static Long getChunkHash(long chunkx, long chunkz)
+    public static long getChunkHash(long chunkx, long chunkz)
     {
         return (chunkz ^ (chunkx << 32));
     }
 
     //gets an almost-unique, persistent identifier for a chunk
-    public static Long getChunkHash(Location location)
+    public static long getChunkHash(Location location)
     {
         return getChunkHash(location.getBlockX() >> 4, location.getBlockZ() >> 4);
     }
 
+    /**
+     * @deprecated Boxes every hash. The claim index iterates chunk coordinates directly.
+     */
+    @Deprecated
     public static ArrayList<Long> getChunkHashes(Claim claim)
     {
         return getChunkHashes(claim.getLesserBoundaryCorner(), claim.getGreaterBoundaryCorner());
     }
 
+    /**
+     * @deprecated Boxes every hash. The claim index iterates chunk coordinates directly.
+     */
+    @Deprecated
     public static ArrayList<Long> getChunkHashes(Location min, Location max)
     {
         ArrayList<Long> hashes = new ArrayList<>();
@@ -141,6 +163,10 @@ public abstract class DataStore
         //load up all the messages from messages.yml
         loadMessages();
         GriefPrevention.AddLogEntry("Customizable messages loaded.");
+
+        //from now on, changes are written in the background
+        StorageConfiguration storageConfiguration = GriefPrevention.instance.getPluginConfig().getStorageConfiguration();
+        writeQueue.start(storageConfiguration.getWriteInterval(), storageConfiguration.getWriteBatchSize());
     }
 
     //removes cached player data from memory
@@ -158,6 +184,12 @@ public abstract class DataStore
 
         if (player == null) return 0;
 
+        return GriefPrevention.instance.playerPermissions.getGroupBonusBlocks(player);
+    }
+
+    //sums the bonus blocks of all groups a player has the permission node of
+    public int computeGroupBonusBlocks(Permissible player)
+    {
         int bonusBlocks = 0;
 
         for (Map.Entry<String, Integer> groupEntry : permissionToBonusBlocksMap.entrySet()) {
@@ -199,7 +231,9 @@ public abstract class DataStore
         }
 
         //transfer
+        removeFromOwnerMap(claim);
         claim.ownerID = event.getNewOwner();
+        addToOwnerMap(claim);
         saveClaim(claim);
 
         //adjust blocks and other records
@@ -215,12 +249,18 @@ public abstract class DataStore
     //adds a claim to the datastore, making it an effective claim
     synchronized void addClaim(Claim newClaim, boolean writeToStorage)
     {
+        //claims which are about to be saved get their ID now, so they can be indexed by it
+        if (writeToStorage) {
+            assignClaimID(newClaim);
+        }
+
         //subdivisions are added under their parent, not directly to the hash map for direct search
         if (newClaim.parent != null) {
             if (!newClaim.parent.children.contains(newClaim)) {
                 newClaim.parent.children.add(newClaim);
             }
             newClaim.inDataStore = true;
+            addToClaimIdMap(newClaim);
             if (writeToStorage) {
                 saveClaim(newClaim);
             }
@@ -229,14 +269,18 @@ public abstract class DataStore
 
         //add it and mark it as added
         claims.add(newClaim);
-        addToChunkClaimMap(newClaim);
-
         newClaim.inDataStore = true;
+        addToClaimIdMap(newClaim);
+        addToOwnerMap(newClaim);
+        addToChunkClaimMap(newClaim);
 
         //except for administrative claims (which have no owner), update the owner's playerData with the new claim
+        //player data loaded just now already picked the claim up from the owner map
         if (!newClaim.isAdminClaim() && writeToStorage) {
             PlayerData ownerData = getPlayerData(newClaim.ownerID);
-            ownerData.getClaims().add(newClaim);
+            if (!ownerData.getClaims().contains(newClaim)) {
+                ownerData.getClaims().add(newClaim);
+            }
         }
 
         //make sure the claim is saved to disk
@@ -245,54 +289,120 @@ public abstract class DataStore
         }
     }
 
+    //links loaded subdivisions to their parents, parents are looked up through the claim ID index
+    //returns the subdivisions whose parent wasn't loaded
+    List<Claim> linkSubdivisions(Map<Claim, Long> orphans)
+    {
+        ArrayList<Claim> unlinked = new ArrayList<>();
+        for (Map.Entry<Claim, Long> orphan : orphans.entrySet()) {
+            Claim child = orphan.getKey();
+            Claim parent = getClaim(orphan.getValue());
+            if (parent != null) {
+                child.parent = parent;
+                addClaim(child, false);
+            }
+            else {
+                unlinked.add(child);
+            }
+        }
+
+        return unlinked;
+    }
+
+    //adds loaded claims to the data store, binding worlds by name like locationFromString does
+    //the caller publishes the claim index
+    void addClaimRecords(Collection<ClaimRecord> records)
+    {
+        HashMap<String, World> worlds = new HashMap<>();
+        for (World world : Bukkit.getServer().getWorlds()) {
+            worlds.putIfAbsent(world.getName().toLowerCase(Locale.ROOT), world);
+        }
+
+        LinkedHashMap<Claim, Long> orphans = new LinkedHashMap<>();
+        for (ClaimRecord record : records) {
+            World world = worlds.get(record.worldName().toLowerCase(Locale.ROOT));
+            if (world == null) {
+                GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + record.id() +
+                                            ") because its world isn't loaded (yet?).  If this is not expected, delete this claim.");
+                continue;
+            }
+
+            Claim claim = record.toClaim(world);
+            if (record.parentID() == -1) {
+                addClaim(claim, false);
+            }
+            else {
+                orphans.put(claim, record.parentID());
+            }
+        }
+
+        linkSubdivisions(orphans);
+    }
+
     private void addToChunkClaimMap(Claim claim)
     {
         // Subclaims should not be added to chunk claim map.
         if (claim.parent != null) return;
 
-        ArrayList<Long> chunkHashes = claim.getChunkHashes();
-        for (Long chunkHash : chunkHashes) {
-            ArrayList<Claim> claimsInChunk = chunksToClaimsMap.get(chunkHash);
-            if (claimsInChunk == null) {
-                chunksToClaimsMap.put(chunkHash, claimsInChunk = new ArrayList<>());
-            }
+        claimIndex.add(claim);
+    }
+
+    private void removeFromChunkClaimMap(Claim claim)
+    {
+        claimIndex.remove(claim);
+    }
 
-            claimsInChunk.add(claim);
+    private void addToClaimIdMap(Claim claim)
+    {
+        // Claims only receive an ID once they are saved, see assignClaimID.
+        if (claim.id == null || claim.id == -1) return;
+
+        claimsById.put(claim.id, claim);
+    }
+
+    private void addToOwnerMap(Claim claim)
+    {
+        claimsByOwner.computeIfAbsent(claim.ownerID, ownerID -> new ArrayList<>()).add(claim);
+    }
+
+    private void removeFromOwnerMap(Claim claim)
+    {
+        ArrayList<Claim> ownerClaims = claimsByOwner.get(claim.ownerID);
+        if (ownerClaims == null) return;
+
+        ownerClaims.removeIf(ownerClaim -> ownerClaim == claim);
+        if (ownerClaims.isEmpty()) {
+            claimsByOwner.remove(claim.ownerID);
         }
     }
 
-    private void removeFromChunkClaimMap(Claim claim)
+    private void removeFromClaimIdMap(Claim claim)
     {
-        ArrayList<Long> chunkHashes = claim.getChunkHashes();
-        for (Long chunkHash : chunkHashes) {
-            ArrayList<Claim> claimsInChunk = chunksToClaimsMap.get(chunkHash);
-            if (claimsInChunk != null) {
-                for (Iterator<Claim> it = claimsInChunk.iterator(); it.hasNext(); ) {
-                    Claim c = it.next();
-                    if (c.id.equals(claim.id)) {
-                        it.remove();
-                        break;
-                    }
-                }
-                if (claimsInChunk.isEmpty()) { // if nothing's left, remove this chunk's cache
-                    chunksToClaimsMap.remove(chunkHash);
-                }
-            }
+        if (claim.id == null) return;
+
+        // Only drop the mapping if it belongs to this very claim instance.
+        if (claimsById.get(claim.id) == claim) {
+            claimsById.remove(claim.id);
         }
     }
 
     String locationToString(Location location)
     {
-        return location.getWorld().getName() + locationStringDelimiter +
-               location.getBlockX() +
+        return locationToString(location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    String locationToString(String worldName, int x, int y, int z)
+    {
+        return worldName + locationStringDelimiter +
+               x +
                locationStringDelimiter +
-               location.getBlockY() +
+               y +
                locationStringDelimiter +
-               location.getBlockZ();
+               z;
     }
 
-    //turns a location string back into a location
-    Location locationFromString(String string, List<World> validWorlds) throws Exception
+    //splits a location string into the world name, X, Y, and Z, without looking up the world
+    String[] splitLocationString(String string) throws Exception
     {
         //split the input string on the space
         String[] elements = string.split(locationStringDelimiter);
@@ -302,6 +412,14 @@ public abstract class DataStore
             throw new Exception("Expected four distinct parts to the location string: \"" + string + "\"");
         }
 
+        return elements;
+    }
+
+    //turns a location string back into a location
+    Location locationFromString(String string, List<World> validWorlds) throws Exception
+    {
+        String[] elements = splitLocationString(string);
+
         String worldName = elements[0];
         String xString = elements[1];
         String yString = elements[2];
@@ -333,7 +451,12 @@ public abstract class DataStore
     {
         assignClaimID(claim);
 
-        writeClaimToStorage(claim);
+        //trust, ownership or boundaries may have changed
+        permissionCache.invalidate();
+
+        //capture the claim now, the write happens later on the storage writer
+        ClaimRecord record = ClaimRecord.of(claim);
+        writeQueue.submit(new ClaimKey(record.id()), () -> writeClaimToStorage(record));
     }
 
     private void assignClaimID(Claim claim)
@@ -342,10 +465,16 @@ public abstract class DataStore
         if (claim.id == null || claim.id == -1) {
             claim.id = nextClaimID;
             incrementNextClaimID();
+
+            //claims already in the data store become reachable by their new ID
+            if (claim.inDataStore) {
+                addToClaimIdMap(claim);
+            }
         }
     }
 
-    abstract void writeClaimToStorage(Claim claim);
+    //writes a claim to secondary storage, called on the storage writer
+    abstract void writeClaimToStorage(ClaimRecord claim);
 
     //increments the claim ID and updates secondary storage to be sure it's saved
     abstract void incrementNextClaimID();
@@ -371,6 +500,7 @@ public abstract class DataStore
 
         //mark as deleted so any references elsewhere can be ignored
         claim.inDataStore = false;
+        permissionCache.invalidate();
 
         //remove from memory
         for (int i = 0; i < claims.size(); i++) {
@@ -381,9 +511,14 @@ public abstract class DataStore
         }
 
         removeFromChunkClaimMap(claim);
+        removeFromClaimIdMap(claim);
+        if (claim.parent == null) {
+            removeFromOwnerMap(claim);
+        }
 
-        //remove from secondary storage
-        deleteClaimFromSecondaryStorage(claim);
+        //remove from secondary storage, replacing any pending save of the claim
+        long claimID = claim.id;
+        writeQueue.submit(new ClaimKey(claimID), () -> deleteClaimFromSecondaryStorage(claimID));
 
         //update player data
         if (claim.ownerID != null) {
@@ -427,12 +562,14 @@ public abstract class DataStore
         }
     }
 
-    abstract void deleteClaimFromSecondaryStorage(Claim claim);
+    //deletes a claim from secondary storage, called on the storage writer
+    abstract void deleteClaimFromSecondaryStorage(long claimID);
 
     //gets the claim at a specific location
     //ignoreHeight = TRUE means that a location UNDER an existing claim will return the claim
     //cachedClaim can be NULL, but will help performance if you have a reasonable guess about which claim the location is in
-    synchronized public Claim getClaimAt(Location location, boolean ignoreHeight, Claim cachedClaim)
+    //safe to call from any thread, lookups are served from the claim index without locking
+    public Claim getClaimAt(Location location, boolean ignoreHeight, Claim cachedClaim)
     {
         return getClaimAt(location, ignoreHeight, false, cachedClaim);
     }
@@ -443,13 +580,15 @@ public abstract class DataStore
      * <p>The cached claim may be null, but will increase performance if you have a reasonable idea
      * of which claim is correct.
      *
+     * <p>This does not lock the data store and may be called from any thread.
+     *
      * @param location        the location
      * @param ignoreHeight    whether to check containment vertically
      * @param ignoreSubclaims whether subclaims should be returned over claims
      * @param cachedClaim     the cached claim, if any
      * @return the claim containing the location or null if no claim exists there
      */
-    synchronized public Claim getClaimAt(Location location, boolean ignoreHeight, boolean ignoreSubclaims, Claim cachedClaim)
+    public Claim getClaimAt(Location location, boolean ignoreHeight, boolean ignoreSubclaims, Claim cachedClaim)
     {
         //check cachedClaim guess first.  if it's in the datastore and the location is inside it, we're done
         if (cachedClaim != null && cachedClaim.inDataStore &&
@@ -458,20 +597,20 @@ public abstract class DataStore
             return cachedClaim;
         }
 
-        //find a top level claim
-        Long chunkID = getChunkHash(location);
-        ArrayList<Claim> claimsInChunk = chunksToClaimsMap.get(chunkID);
-        if (claimsInChunk == null) return null;
+        //find a top level claim, only considering claims in the location's world
+        WorldClaimIndex worldIndex = claimIndex.getWorld(location.getWorld());
+        if (worldIndex == null) return null;
 
-        for (Claim claim : claimsInChunk) {
+        List<Claim> claimsInChunk = worldIndex.getClaims(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        for (int i = 0; i < claimsInChunk.size(); i++) {
+            Claim claim = claimsInChunk.get(i);
             if (claim.inDataStore && claim.contains(location, ignoreHeight, false)) {
                 // If ignoring subclaims, claim is a match.
                 if (ignoreSubclaims) return claim;
 
                 //when we find a top level claim, if the location is in one of its subdivisions,
                 //return the SUBDIVISION, not the top level claim
-                for (int j = 0; j < claim.children.size(); j++) {
-                    Claim subdivision = claim.children.get(j);
+                for (Claim subdivision : claim.children) {
                     if (subdivision.inDataStore && subdivision.contains(location, ignoreHeight, false)) {
                         return subdivision;
                     }
@@ -485,23 +624,42 @@ public abstract class DataStore
         return null;
     }
 
-    //finds a claim by ID
+    //finds a claim or subdivision by ID
     public synchronized Claim getClaim(long id)
     {
-        for (Claim claim : claims) {
-            if (claim.inDataStore) {
-                if (claim.getID() == id) {
-                    return claim;
-                }
-                for (Claim subClaim : claim.children) {
-                    if (subClaim.getID() == id) {
-                        return subClaim;
-                    }
-                }
-            }
-        }
+        Claim claim = claimsById.get(id);
+        if (claim == null || !claim.inDataStore) return null;
 
-        return null;
+        //subdivisions are only reachable while their parent claim is in the data store
+        if (claim.parent != null && !claim.parent.inDataStore) return null;
+
+        return claim;
+    }
+
+    /**
+     * Get the top level claims owned by a player.
+     *
+     * @param ownerID the owner's UUID, or null for administrative claims
+     * @return a copy of the owner's claims in the order they were added
+     */
+    public synchronized List<Claim> getClaimsByOwner(@Nullable UUID ownerID)
+    {
+        ArrayList<Claim> ownerClaims = claimsByOwner.get(ownerID);
+        if (ownerClaims == null) return new ArrayList<>();
+
+        return new ArrayList<>(ownerClaims);
+    }
+
+    /**
+     * Get the players owning at least one claim.
+     *
+     * @return a copy of the owners' UUIDs, never including administrative claims
+     */
+    public synchronized Set<UUID> getClaimOwners()
+    {
+        HashSet<UUID> owners = new HashSet<>(claimsByOwner.keySet());
+        owners.remove(null);
+        return owners;
     }
 
     //returns a read-only access point for the list of all land claims
@@ -512,10 +670,49 @@ public abstract class DataStore
         return Collections.unmodifiableCollection(claims);
     }
 
+    /**
+     * Get the top level claims touching a chunk in any world.
+     *
+     * @param chunkx the chunk X coordinate
+     * @param chunkz the chunk Z coordinate
+     * @return the claims touching the chunk
+     * @deprecated Chunk coordinates are ambiguous across worlds, use {@link #getClaims(World, int, int)}.
+     */
+    @Deprecated
     public Collection<Claim> getClaims(int chunkx, int chunkz)
     {
-        ArrayList<Claim> chunkClaims = chunksToClaimsMap.get(getChunkHash(chunkx, chunkz));
-        return Collections.unmodifiableCollection(Objects.requireNonNullElseGet(chunkClaims, ArrayList::new));
+        List<Claim> chunkClaims = List.of();
+        for (WorldClaimIndex worldIndex : claimIndex.getWorlds()) {
+            List<Claim> worldClaims = worldIndex.getClaims(chunkx, chunkz);
+            if (worldClaims.isEmpty()) continue;
+
+            //only combine lists if claims of several worlds share the coordinates
+            if (chunkClaims.isEmpty()) {
+                chunkClaims = worldClaims;
+            }
+            else {
+                ArrayList<Claim> combined = new ArrayList<>(chunkClaims);
+                combined.addAll(worldClaims);
+                chunkClaims = Collections.unmodifiableList(combined);
+            }
+        }
+        return chunkClaims;
+    }
+
+    /**
+     * Get the top level claims touching a chunk.
+     *
+     * @param world  the world
+     * @param chunkx the chunk X coordinate
+     * @param chunkz the chunk Z coordinate
+     * @return an immutable list of the claims touching the chunk
+     */
+    public List<Claim> getClaims(World world, int chunkx, int chunkz)
+    {
+        WorldClaimIndex worldIndex = claimIndex.getWorld(world);
+        if (worldIndex == null) return List.of();
+
+        return worldIndex.getClaims(chunkx, chunkz);
     }
 
     /*
@@ -624,7 +821,7 @@ public abstract class DataStore
         newClaim.parent = parent;
 
         //ensure this new claim won't overlap any existing claims
-        ArrayList<Claim> claimsToCheck;
+        List<Claim> claimsToCheck;
         if (newClaim.parent != null) {
             claimsToCheck = newClaim.parent.children;
         }
@@ -708,13 +905,22 @@ public abstract class DataStore
     //saves changes to player data to secondary storage.  MUST be called after you're done making changes, otherwise a reload will lose them
     public void savePlayerData(UUID playerID, PlayerData playerData)
     {
-        new SavePlayerDataThread(playerID, playerData).start();
+        //read what isn't loaded yet now, the storage writer may hold the only free database connection
+        playerData.getAccruedClaimBlocks();
+        playerData.getClaims();
+
+        writeQueue.submit(new PlayerKey(playerID), () -> savePlayerDataSync(playerID, playerData));
     }
 
     public void asyncSavePlayerData(UUID playerID, PlayerData playerData)
     {
-        //save everything except the ignore list
-        overrideSavePlayerData(playerID, playerData);
+        //save everything except the ignore list, unless it couldn't be read and holds defaults
+        if (playerData.isStorageReadFailed()) {
+            GriefPrevention.AddLogEntry("Not saving claim blocks of player \"" + playerID + "\", they couldn't be read from storage.");
+        }
+        else {
+            overrideSavePlayerData(playerID, playerData);
+        }
 
         //save the ignore list
         if (playerData.ignoreListChanged) {
@@ -818,6 +1024,7 @@ public abstract class DataStore
         {
             localClaim.lesserBoundaryCorner.setY(depth);
             localClaim.greaterBoundaryCorner.setY(Math.max(localClaim.greaterBoundaryCorner.getBlockY(), depth));
+            localClaim.invalidateBounds();
             saveClaim(localClaim);
         });
     }
@@ -1031,12 +1238,7 @@ public abstract class DataStore
     synchronized public void deleteClaimsForPlayer(UUID playerID, boolean releasePets)
     {
         //make a list of the player's claims
-        ArrayList<Claim> claimsToDelete = new ArrayList<>();
-        for (Claim claim : claims) {
-            if ((Objects.equals(playerID, claim.ownerID))) {
-                claimsToDelete.add(claim);
-            }
-        }
+        List<Claim> claimsToDelete = getClaimsByOwner(playerID);
 
         //delete them one by one
         for (Claim claim : claimsToDelete) {
@@ -1073,15 +1275,23 @@ public abstract class DataStore
 
         //if succeeded
         if (result.succeeded) {
-            removeFromChunkClaimMap(claim); // remove the old boundary from the chunk cache
-            // copy the boundary from the claim created in the dry run of createClaim() to our existing claim
-            claim.lesserBoundaryCorner = result.claim.lesserBoundaryCorner;
-            claim.greaterBoundaryCorner = result.claim.greaterBoundaryCorner;
-            // Sanitize claim depth, expanding parent down to the lowest subdivision and subdivisions down to parent.
-            // Also saves affected claims.
-            setNewDepth(claim, claim.getLesserBoundaryCorner().getBlockY());
-            result.claim = claim;
-            addToChunkClaimMap(claim); // add the new boundary to the chunk cache
+            // publish the old and new boundary to the chunk cache at once
+            claimIndex.beginUpdate();
+            try {
+                removeFromChunkClaimMap(claim); // remove the old boundary from the chunk cache
+                // copy the boundary from the claim created in the dry run of createClaim() to our existing claim
+                claim.lesserBoundaryCorner = result.claim.lesserBoundaryCorner;
+                claim.greaterBoundaryCorner = result.claim.greaterBoundaryCorner;
+                claim.invalidateBounds();
+                // Sanitize claim depth, expanding parent down to the lowest subdivision and subdivisions down to parent.
+                // Also saves affected claims.
+                setNewDepth(claim, claim.getLesserBoundaryCorner().getBlockY());
+                result.claim = claim;
+                addToChunkClaimMap(claim); // add the new boundary to the chunk cache
+            }
+            finally {
+                claimIndex.endUpdate();
+            }
         }
 
         return result;
@@ -1164,6 +1374,7 @@ public abstract class DataStore
         World world = newClaim.getLesserBoundaryCorner().getWorld();
         newClaim.lesserBoundaryCorner = new Location(world, newx1, newy1, newz1);
         newClaim.greaterBoundaryCorner = new Location(world, newx2, newy2, newz2);
+        newClaim.invalidateBounds();
 
         //call event here to check if it has been cancelled
         ClaimResizeEvent event = new ClaimModifiedEvent(
@@ -1302,7 +1513,7 @@ public abstract class DataStore
     public void loadMessages()
     {
         Messages[] messageIDs = Messages.values();
-        messages = new String[Messages.values().length];
+        String[] messages = new String[messageIDs.length];
 
         HashMap<String, CustomizableMessage> defaults = new HashMap<>();
 
@@ -2221,6 +2432,12 @@ public abstract class DataStore
                     "Unable to write to the configuration file at \"" + DataStore.messagesFilePath + "\"");
         }
 
+        MessageTemplate[] templates = new MessageTemplate[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            templates[i] = MessageTemplate.compile(messages[i]);
+        }
+        this.messages = templates;
+
         defaults.clear();
         System.gc();
     }
@@ -2232,60 +2449,105 @@ public abstract class DataStore
         defaults.put(id.name(), message);
     }
 
-    synchronized public String getMessage(Messages messageID, String... args)
+    public String getMessage(Messages messageID, String... args)
     {
-        String message = messages[messageID.ordinal()];
+        return messages[messageID.ordinal()].render(args);
+    }
+    //#endregion
 
-        for (int i = 0; i < args.length; i++) {
-            String param = args[i];
-            message = message.replace("{" + i + "}", param);
-        }
+    /**
+     * @return the queue of pending writes to secondary storage, for its metrics
+     */
+    public WriteBehindQueue getWriteQueue()
+    {
+        return writeQueue;
+    }
 
-        return message;
+    /**
+     * @return the remembered trust decisions of claims
+     */
+    public ClaimPermissionCache getPermissionCache()
+    {
+        return permissionCache;
     }
-    //#endregion
 
-    public abstract void close();
+    //writes all pending changes, must not be called while holding this data store's monitor because the writes may need it
+    public void close()
+    {
+        writeQueue.close();
+    }
 
     //gets all the claims "near" a location
     public Set<Claim> getNearbyClaims(Location location)
+    {
+        return getClaimsInArea(
+                location.getWorld(),
+                location.getBlockX() - 150,
+                location.getBlockZ() - 150,
+                location.getBlockX() + 150,
+                location.getBlockZ() + 150
+        );
+    }
+
+    /**
+     * Get the top level claims overlapping a rectangular area, at any height.
+     *
+     * <p>Only the claim index is read, so no chunk is loaded or generated.
+     * This does not lock the data store and may be called from any thread.
+     *
+     * @param world the world
+     * @param x1    the X block coordinate of a corner of the area
+     * @param z1    the Z block coordinate of a corner of the area
+     * @param x2    the X block coordinate of the opposite corner, inclusive
+     * @param z2    the Z block coordinate of the opposite corner, inclusive
+     * @return a new set of the claims in the area
+     */
+    public Set<Claim> getClaimsInArea(World world, int x1, int z1, int x2, int z2)
     {
         Set<Claim> claims = new HashSet<>();
 
-        Chunk lesserChunk = location.getWorld().getChunkAt(location.subtract(150, 0, 150));
-        Chunk greaterChunk = location.getWorld().getChunkAt(location.add(300, 0, 300));
-
-        for (int chunk_x = lesserChunk.getX(); chunk_x <= greaterChunk.getX(); chunk_x++) {
-            for (int chunk_z = lesserChunk.getZ(); chunk_z <= greaterChunk.getZ(); chunk_z++) {
-                Chunk chunk = location.getWorld().getChunkAt(chunk_x, chunk_z);
-                Long chunkID = getChunkHash(chunk.getBlock(0, 0, 0).getLocation());
-                ArrayList<Claim> claimsInChunk = chunksToClaimsMap.get(chunkID);
-                if (claimsInChunk != null) {
-                    for (Claim claim : claimsInChunk) {
-                        if (claim.inDataStore &&
-                            claim.getLesserBoundaryCorner().getWorld().equals(location.getWorld()))
-                        {
-                            claims.add(claim);
-                        }
-                    }
-                }
-            }
-        }
+        WorldClaimIndex worldIndex = claimIndex.getWorld(world);
+        if (worldIndex == null) return claims;
+
+        worldIndex.collectClaimsInArea(Math.min(x1, x2), Math.min(z1, z2), Math.max(x1, x2), Math.max(z1, z2), claims);
+        claims.removeIf(claim -> !claim.inDataStore);
 
         return claims;
     }
 
+    /**
+     * Get a lookup resolving the claims of many blocks in an area, such as the
+     * blocks affected by an explosion, without searching the claim index for
+     * each of them.
+     *
+     * <p>The lookup is not thread-safe and must be used from the main thread.
+     *
+     * @param world the world
+     * @param area  the area, only its horizontal extent is used
+     * @return a new lookup
+     */
+    public AreaClaimLookup getClaimLookup(World world, BoundingBox area)
+    {
+        return new AreaClaimLookup(this, claimIndex, world, area);
+    }
+
     //deletes all the land claims in a specified world
-    public void deleteClaimsInWorld(World world, boolean deleteAdminClaims)
+    public synchronized void deleteClaimsInWorld(World world, boolean deleteAdminClaims)
     {
-        for (int i = 0; i < claims.size(); i++) {
-            Claim claim = claims.get(i);
-            if (claim.getLesserBoundaryCorner().getWorld().equals(world)) {
-                if (!deleteAdminClaims && claim.isAdminClaim()) continue;
-                deleteClaim(claim, false, false);
-                i--;
+        claimIndex.beginUpdate();
+        try {
+            for (int i = 0; i < claims.size(); i++) {
+                Claim claim = claims.get(i);
+                if (claim.getLesserBoundaryCorner().getWorld().equals(world)) {
+                    if (!deleteAdminClaims && claim.isAdminClaim()) continue;
+                    deleteClaim(claim, false, false);
+                    i--;
+                }
             }
         }
+        finally {
+            claimIndex.endUpdate();
+        }
     }
 
     //#region Exceptions
@@ -2300,25 +2562,15 @@ public abstract class DataStore
     }
     //#endregion
 
-    //#region Tasks
-    private class SavePlayerDataThread extends Thread
+    //#region Write Keys
+    //identifies the pending write of a claim or subdivision
+    private record ClaimKey(long claimID)
     {
-        private final UUID playerID;
-        private final PlayerData playerData;
-
-        SavePlayerDataThread(UUID playerID, PlayerData playerData)
-        {
-            this.playerID = playerID;
-            this.playerData = playerData;
-        }
+    }
 
-        public void run()
-        {
-            //ensure player data is already read from file before trying to save
-            playerData.getAccruedClaimBlocks();
-            playerData.getClaims();
-            asyncSavePlayerData(playerID, playerData);
-        }
+    //identifies the pending write of a player's data
+    private record PlayerKey(@Nullable UUID playerID)
+    {
     }
     //#endregion
 }
@@ -0,0 +1,696 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.PlayerData;
+import me.tinyoverflow.griefprevention.logger.ActivityType;
+import me.tinyoverflow.griefprevention.utils.LongHashMap;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//manages data stored in an embedded H2 database, only ignore lists stay in the file system
+public class DatabaseDataStore extends DataStore
+{
+    //the database files are named after this, with an extension added by H2
+    public static final String DATABASE_NAME = "griefprevention";
+
+    //permission levels in the claim_permissions table
+    private static final byte LEVEL_MANAGER = 0;
+    private static final byte LEVEL_BUILD = 1;
+    private static final byte LEVEL_CONTAINER = 2;
+    private static final byte LEVEL_ACCESS = 3;
+
+    //the storage writer holds a connection for a whole batch, reads need at least one more
+    private static final int MIN_CONNECTIONS = 2;
+    //rows sent to the database at once during bulk operations
+    private static final int BULK_BATCH_SIZE = 1000;
+    //identifies the pending write of the next claim ID
+    private static final Object NEXT_CLAIM_ID_KEY = new Object();
+    private static final String NEXT_CLAIM_ID = "next_claim_id";
+
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS claims (
+                id BIGINT PRIMARY KEY,
+                parent_id BIGINT,
+                owner_id UUID,
+                world VARCHAR(255) NOT NULL,
+                lesser_x INT NOT NULL,
+                lesser_y INT NOT NULL,
+                lesser_z INT NOT NULL,
+                greater_x INT NOT NULL,
+                greater_y INT NOT NULL,
+                greater_z INT NOT NULL,
+                min_chunk_x INT NOT NULL,
+                min_chunk_z INT NOT NULL,
+                max_chunk_x INT NOT NULL,
+                max_chunk_z INT NOT NULL,
+                inherit_nothing BOOLEAN NOT NULL,
+                modified BIGINT NOT NULL
+            )""",
+            "CREATE INDEX IF NOT EXISTS claims_owner ON claims (owner_id)",
+            "CREATE INDEX IF NOT EXISTS claims_parent ON claims (parent_id)",
+            "CREATE INDEX IF NOT EXISTS claims_chunks ON claims (world, min_chunk_x, max_chunk_x, min_chunk_z, max_chunk_z)",
+            """
+            CREATE TABLE IF NOT EXISTS claim_permissions (
+                claim_id BIGINT NOT NULL REFERENCES claims (id) ON DELETE CASCADE,
+                subject VARCHAR(255) NOT NULL,
+                level TINYINT NOT NULL,
+                PRIMARY KEY (claim_id, subject, level)
+            )""",
+            "CREATE INDEX IF NOT EXISTS claim_permissions_subject ON claim_permissions (subject)",
+            """
+            CREATE TABLE IF NOT EXISTS players (
+                id UUID PRIMARY KEY,
+                accrued_blocks INT NOT NULL,
+                accrued_limit INT NOT NULL,
+                bonus_blocks INT NOT NULL
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS group_bonus_blocks (
+                name VARCHAR(255) PRIMARY KEY,
+                bonus_blocks INT NOT NULL
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS metadata (
+                name VARCHAR(64) PRIMARY KEY,
+                number BIGINT NOT NULL
+            )"""
+    };
+
+    private final JdbcConnectionPool pool;
+    //the data folder claims are exported to again on close, after a migration to the binary claim log
+    private volatile File binaryExportFolder;
+    //the transaction of the batch being written, only touched by the storage writer
+    private SqlBatch batch;
+
+    public DatabaseDataStore(File dataFolder, int maxConnections) throws Exception
+    {
+        playerDataFolderPath = Paths.get(dataFolder.toString(), "players").toString();
+
+        pool = createPool(dataFolder, maxConnections);
+        writeQueue.setBatchListener(new TransactionPerBatch());
+
+        try {
+            initialize();
+        }
+        catch (Exception e) {
+            pool.dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies claims, and the player and group data in the file system, into the database, replacing its
+     * contents. The database must not be in use.
+     *
+     * @param records     the claims, including those in worlds which aren't loaded
+     * @param nextClaimID the ID the next new claim gets
+     * @param dataFolder  the plugin's data folder
+     * @return the number of claims written
+     * @throws SQLException if the database can't be written
+     * @throws IOException  if the player data can't be read
+     */
+    static int exportData(List<ClaimRecord> records, long nextClaimID, File dataFolder) throws SQLException, IOException
+    {
+        JdbcConnectionPool pool = createPool(dataFolder, MIN_CONNECTIONS);
+        try (Connection connection = pool.getConnection()) {
+            createSchema(connection);
+            connection.setAutoCommit(false);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM claim_permissions");
+                statement.executeUpdate("DELETE FROM claims");
+                statement.executeUpdate("DELETE FROM players");
+                statement.executeUpdate("DELETE FROM group_bonus_blocks");
+                statement.executeUpdate("DELETE FROM metadata");
+            }
+
+            try (SqlBatch bulk = new SqlBatch(connection)) {
+                for (ClaimRecord record : records) {
+                    bulk.writeClaim(record);
+                    bulk.executeIfFull();
+                }
+
+                File[] playerFiles = new File(dataFolder, "players").listFiles();
+                if (playerFiles != null) {
+                    for (File file : playerFiles) {
+                        exportPlayerFile(bulk, file);
+                        bulk.executeIfFull();
+                    }
+                }
+
+                bulk.writeMetadata(NEXT_CLAIM_ID, nextClaimID);
+                bulk.commit();
+            }
+        }
+        finally {
+            pool.dispose();
+        }
+
+        return records.size();
+    }
+
+    private static void exportPlayerFile(SqlBatch bulk, File file) throws IOException, SQLException
+    {
+        String name = file.getName();
+        if (!file.isFile()) return;
+
+        //group data files start with a dollar sign and contain only the bonus blocks
+        if (name.startsWith("$")) {
+            String groupName = name.substring(1);
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            if (groupName.isEmpty() || lines.isEmpty()) return;
+
+            try {
+                bulk.writeGroupBonusBlocks(groupName, Integer.parseInt(lines.get(0).trim()));
+            }
+            catch (NumberFormatException e) {
+                GriefPrevention.AddLogEntry("Skipped group data file " + name + " with an invalid number.");
+            }
+            return;
+        }
+
+        if (!name.endsWith(".yml")) return;
+
+        UUID playerID;
+        try {
+            playerID = UUID.fromString(name.substring(0, name.length() - ".yml".length()));
+        }
+        catch (IllegalArgumentException e) {
+            return;
+        }
+
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        bulk.writePlayer(playerID, yaml.getInt("accrued.blocks"), yaml.getInt("accrued.limit"), yaml.getInt("bonus.blocks"));
+    }
+
+    private static JdbcConnectionPool createPool(File dataFolder, int maxConnections)
+    {
+        String url = "jdbc:h2:file:" + new File(dataFolder, DATABASE_NAME).getAbsolutePath();
+        JdbcConnectionPool pool = JdbcConnectionPool.create(url, "", "");
+        pool.setMaxConnections(Math.max(MIN_CONNECTIONS, maxConnections));
+        return pool;
+    }
+
+    static void createSchema(Connection connection) throws SQLException
+    {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    @Override
+    void initialize() throws Exception
+    {
+        try (Connection connection = pool.getConnection()) {
+            createSchema(connection);
+            nextClaimID = readMetadata(connection, NEXT_CLAIM_ID, 0);
+            readGroupBonusBlocks(connection);
+
+            long phaseStart = System.nanoTime();
+            List<ClaimRecord> records = readClaimRecords(connection);
+            long readNanos = System.nanoTime() - phaseStart;
+
+            long indexNanos;
+            claimIndex.beginUpdate();
+            try {
+                phaseStart = System.nanoTime();
+                addClaimRecords(records);
+                indexNanos = System.nanoTime() - phaseStart;
+            }
+            finally {
+                claimIndex.endUpdate();
+            }
+
+            GriefPrevention.AddLogEntry(String.format(
+                    "Loaded %d claims from the database in %d ms: read %d ms, index %d ms.",
+                    records.size(),
+                    TimeUnit.NANOSECONDS.toMillis(readNanos + indexNanos),
+                    TimeUnit.NANOSECONDS.toMillis(readNanos),
+                    TimeUnit.NANOSECONDS.toMillis(indexNanos)
+            ));
+        }
+
+        super.initialize();
+    }
+
+    private void readGroupBonusBlocks(Connection connection) throws SQLException
+    {
+        try (Statement statement = connection.createStatement();
+             ResultSet results = statement.executeQuery("SELECT name, bonus_blocks FROM group_bonus_blocks"))
+        {
+            while (results.next()) {
+                permissionToBonusBlocksMap.put(results.getString(1), results.getInt(2));
+            }
+        }
+    }
+
+    static long readMetadata(Connection connection, String name, long defaultValue) throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT number FROM metadata WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet results = statement.executeQuery()) {
+                return results.next() ? results.getLong(1) : defaultValue;
+            }
+        }
+    }
+
+    //reads all claims and subdivisions with their permissions
+    static List<ClaimRecord> readClaimRecords(Connection connection) throws SQLException
+    {
+        LongHashMap<PermissionLists> permissions = new LongHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet results = statement.executeQuery(
+                     "SELECT claim_id, subject, level FROM claim_permissions ORDER BY claim_id, level, subject"))
+        {
+            while (results.next()) {
+                long claimID = results.getLong(1);
+                PermissionLists lists = permissions.get(claimID);
+                if (lists == null) {
+                    lists = new PermissionLists();
+                    permissions.put(claimID, lists);
+                }
+                lists.get(results.getByte(3)).add(results.getString(2));
+            }
+        }
+
+        ArrayList<ClaimRecord> records = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet results = statement.executeQuery(
+                     "SELECT id, parent_id, world, lesser_x, lesser_y, lesser_z, greater_x, greater_y, greater_z, " +
+                     "owner_id, inherit_nothing, modified FROM claims ORDER BY id"))
+        {
+            while (results.next()) {
+                long id = results.getLong(1);
+                long parentID = results.getLong(2);
+                if (results.wasNull()) parentID = -1;
+
+                PermissionLists lists = permissions.get(id);
+                if (lists == null) lists = new PermissionLists();
+
+                records.add(new ClaimRecord(
+                        id,
+                        parentID,
+                        results.getString(3),
+                        results.getInt(4),
+                        results.getInt(5),
+                        results.getInt(6),
+                        results.getInt(7),
+                        results.getInt(8),
+                        results.getInt(9),
+                        results.getObject(10, UUID.class),
+                        results.getBoolean(11),
+                        results.getLong(12),
+                        lists.builders,
+                        lists.containers,
+                        lists.accessors,
+                        lists.managers
+                ));
+            }
+        }
+
+        return records;
+    }
+
+    @Override
+    void writeClaimToStorage(ClaimRecord claim)
+    {
+        write("claim " + claim.id(), sql -> sql.writeClaim(claim));
+    }
+
+    @Override
+    void deleteClaimFromSecondaryStorage(long claimID)
+    {
+        write("claim " + claimID, sql -> sql.deleteClaim(claimID));
+    }
+
+    @Override
+    synchronized void incrementNextClaimID()
+    {
+        nextClaimID++;
+
+        //only the latest value needs to reach the database
+        long claimID = nextClaimID;
+        writeQueue.submit(NEXT_CLAIM_ID_KEY, () -> write("next claim ID", sql -> sql.writeMetadata(NEXT_CLAIM_ID, claimID)));
+    }
+
+    @Override
+    public PlayerData getPlayerDataFromStorage(UUID playerID)
+    {
+        PlayerData playerData = new PlayerData();
+        playerData.playerID = playerID;
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT accrued_blocks, accrued_limit, bonus_blocks FROM players WHERE id = ?"))
+        {
+            statement.setObject(1, playerID);
+            try (ResultSet results = statement.executeQuery()) {
+                if (results.next()) {
+                    playerData.setAccruedClaimBlocks(results.getInt(1));
+                    playerData.setAccruedClaimBlocksLimit(results.getInt(2));
+                    playerData.setBonusClaimBlocks(results.getInt(3));
+                }
+            }
+        }
+        catch (SQLException e) {
+            GriefPrevention.AddLogEntry("Unable to read data for player \"" + playerID + "\": " + e.getMessage());
+            playerData.setStorageReadFailed(true);
+        }
+
+        return playerData;
+    }
+
+    @Override
+    void overrideSavePlayerData(UUID playerID, PlayerData playerData)
+    {
+        //never save data for the "administrative" account.  null for claim owner ID indicates administrative account
+        if (playerID == null) return;
+
+        int accruedBlocks = playerData.getAccruedClaimBlocks();
+        int accruedLimit = playerData.getAccruedClaimBlocksLimit();
+        int bonusBlocks = playerData.getBonusClaimBlocks();
+        write("player " + playerID, sql -> sql.writePlayer(playerID, accruedBlocks, accruedLimit, bonusBlocks));
+    }
+
+    /**
+     * Writes all claims in the database, including those in worlds which aren't loaded, to a new binary claim
+     * log. The log is written again when this data store is closed, so changes made until the server switches
+     * over are kept.
+     *
+     * @param dataFolder the plugin's data folder
+     * @return the number of claims written
+     * @throws SQLException if the database can't be read
+     * @throws IOException  if the log can't be written
+     */
+    public int exportClaimsToBinary(File dataFolder) throws SQLException, IOException
+    {
+        int count = writeBinaryExport(dataFolder);
+        binaryExportFolder = dataFolder;
+        return count;
+    }
+
+    private int writeBinaryExport(File dataFolder) throws SQLException, IOException
+    {
+        //claims are read from the database, so pending saves have to reach it first
+        writeQueue.flush();
+        List<ClaimRecord> records;
+        try (Connection connection = pool.getConnection()) {
+            records = readClaimRecords(connection);
+        }
+
+        BinaryDataStore.writeClaimLog(dataFolder, records);
+        return records.size();
+    }
+
+    @Override
+    public void close()
+    {
+        //writes pending changes to the database first
+        super.close();
+
+        if (binaryExportFolder != null) {
+            try {
+                int count = writeBinaryExport(binaryExportFolder);
+                GriefPrevention.AddLogEntry("Exported " + count + " claims to " + BinaryDataStore.CLAIM_LOG_FILE_NAME + " again.");
+            }
+            catch (SQLException | IOException e) {
+                GriefPrevention.AddLogEntry("Unable to export claims to " + BinaryDataStore.CLAIM_LOG_FILE_NAME + ": " + e.getMessage(),
+                        ActivityType.EXCEPTION);
+            }
+        }
+
+        pool.dispose();
+    }
+
+    //adds a write to the batch being written, or writes it in a transaction of its own outside of batches
+    private void write(String subject, SqlWrite write)
+    {
+        try {
+            if (batch != null) {
+                write.addTo(batch);
+                return;
+            }
+
+            try (Connection connection = pool.getConnection(); SqlBatch single = new SqlBatch(connection)) {
+                connection.setAutoCommit(false);
+                write.addTo(single);
+                single.commit();
+            }
+        }
+        catch (SQLException e) {
+            StringWriter errors = new StringWriter();
+            e.printStackTrace(new PrintWriter(errors));
+            GriefPrevention.AddLogEntry("Unable to write " + subject + ": " + errors, ActivityType.EXCEPTION);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWrite
+    {
+        void addTo(SqlBatch batch) throws SQLException;
+    }
+
+    //writes every batch of the storage writer in a single transaction
+    private final class TransactionPerBatch implements WriteBehindQueue.BatchListener
+    {
+        private Connection connection;
+
+        @Override
+        public void beforeBatch()
+        {
+            try {
+                connection = pool.getConnection();
+                connection.setAutoCommit(false);
+                batch = new SqlBatch(connection);
+            }
+            catch (SQLException e) {
+                //the writes of this batch fall back to one transaction each
+                GriefPrevention.AddLogEntry("Unable to start a database transaction: " + e.getMessage());
+                release();
+            }
+        }
+
+        @Override
+        public void afterBatch()
+        {
+            if (batch == null) return;
+
+            try {
+                batch.commit();
+            }
+            catch (SQLException e) {
+                StringWriter errors = new StringWriter();
+                e.printStackTrace(new PrintWriter(errors));
+                GriefPrevention.AddLogEntry("Unable to write a batch of changes to the database: " + errors, ActivityType.EXCEPTION);
+            }
+            finally {
+                release();
+            }
+        }
+
+        private void release()
+        {
+            try {
+                if (batch != null) batch.close();
+                if (connection != null) connection.close();
+            }
+            catch (SQLException e) {
+                GriefPrevention.AddLogEntry("Unable to release a database connection: " + e.getMessage());
+            }
+
+            batch = null;
+            connection = null;
+        }
+    }
+
+    //the prepared statements of one transaction, executed in an order which keeps foreign keys intact
+    static final class SqlBatch implements AutoCloseable
+    {
+        private final Connection connection;
+        private final PreparedStatement upsertClaim;
+        private final PreparedStatement deletePermissions;
+        private final PreparedStatement insertPermission;
+        private final PreparedStatement deleteClaim;
+        private final PreparedStatement upsertPlayer;
+        private final PreparedStatement upsertGroup;
+        private final PreparedStatement upsertMetadata;
+        private int pendingRows;
+
+        SqlBatch(Connection connection) throws SQLException
+        {
+            this.connection = connection;
+            this.upsertClaim = connection.prepareStatement(
+                    "MERGE INTO claims (id, parent_id, owner_id, world, lesser_x, lesser_y, lesser_z, " +
+                    "greater_x, greater_y, greater_z, min_chunk_x, min_chunk_z, max_chunk_x, max_chunk_z, " +
+                    "inherit_nothing, modified) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            this.deletePermissions = connection.prepareStatement("DELETE FROM claim_permissions WHERE claim_id = ?");
+            this.insertPermission = connection.prepareStatement(
+                    "MERGE INTO claim_permissions (claim_id, subject, level) KEY (claim_id, subject, level) VALUES (?, ?, ?)");
+            this.deleteClaim = connection.prepareStatement("DELETE FROM claims WHERE id = ?");
+            this.upsertPlayer = connection.prepareStatement(
+                    "MERGE INTO players (id, accrued_blocks, accrued_limit, bonus_blocks) KEY (id) VALUES (?, ?, ?, ?)");
+            this.upsertGroup = connection.prepareStatement(
+                    "MERGE INTO group_bonus_blocks (name, bonus_blocks) KEY (name) VALUES (?, ?)");
+            this.upsertMetadata = connection.prepareStatement(
+                    "MERGE INTO metadata (name, number) KEY (name) VALUES (?, ?)");
+        }
+
+        void writeClaim(ClaimRecord claim) throws SQLException
+        {
+            upsertClaim.setLong(1, claim.id());
+            if (claim.parentID() != -1) upsertClaim.setLong(2, claim.parentID());
+            else upsertClaim.setNull(2, Types.BIGINT);
+            upsertClaim.setObject(3, claim.ownerID());
+            upsertClaim.setString(4, claim.worldName());
+            upsertClaim.setInt(5, claim.lesserX());
+            upsertClaim.setInt(6, claim.lesserY());
+            upsertClaim.setInt(7, claim.lesserZ());
+            upsertClaim.setInt(8, claim.greaterX());
+            upsertClaim.setInt(9, claim.greaterY());
+            upsertClaim.setInt(10, claim.greaterZ());
+            upsertClaim.setInt(11, claim.lesserX() >> 4);
+            upsertClaim.setInt(12, claim.lesserZ() >> 4);
+            upsertClaim.setInt(13, claim.greaterX() >> 4);
+            upsertClaim.setInt(14, claim.greaterZ() >> 4);
+            upsertClaim.setBoolean(15, claim.inheritNothing());
+            upsertClaim.setLong(16, claim.modifiedDate());
+            upsertClaim.addBatch();
+
+            //permissions are replaced as a whole
+            deletePermissions.setLong(1, claim.id());
+            deletePermissions.addBatch();
+            addPermissions(claim.id(), claim.managers(), LEVEL_MANAGER);
+            addPermissions(claim.id(), claim.builders(), LEVEL_BUILD);
+            addPermissions(claim.id(), claim.containers(), LEVEL_CONTAINER);
+            addPermissions(claim.id(), claim.accessors(), LEVEL_ACCESS);
+            pendingRows++;
+        }
+
+        private void addPermissions(long claimID, List<String> subjects, byte level) throws SQLException
+        {
+            for (String subject : subjects) {
+                insertPermission.setLong(1, claimID);
+                insertPermission.setString(2, subject);
+                insertPermission.setByte(3, level);
+                insertPermission.addBatch();
+                pendingRows++;
+            }
+        }
+
+        void deleteClaim(long claimID) throws SQLException
+        {
+            deleteClaim.setLong(1, claimID);
+            deleteClaim.addBatch();
+            pendingRows++;
+        }
+
+        void writePlayer(UUID playerID, int accruedBlocks, int accruedLimit, int bonusBlocks) throws SQLException
+        {
+            upsertPlayer.setObject(1, playerID);
+            upsertPlayer.setInt(2, accruedBlocks);
+            upsertPlayer.setInt(3, accruedLimit);
+            upsertPlayer.setInt(4, bonusBlocks);
+            upsertPlayer.addBatch();
+            pendingRows++;
+        }
+
+        void writeGroupBonusBlocks(String groupName, int bonusBlocks) throws SQLException
+        {
+            upsertGroup.setString(1, groupName);
+            upsertGroup.setInt(2, bonusBlocks);
+            upsertGroup.addBatch();
+            pendingRows++;
+        }
+
+        void writeMetadata(String name, long value) throws SQLException
+        {
+            upsertMetadata.setString(1, name);
+            upsertMetadata.setLong(2, value);
+            upsertMetadata.addBatch();
+            pendingRows++;
+        }
+
+        //sends the pending rows once enough have been collected, for bulk operations
+        void executeIfFull() throws SQLException
+        {
+            if (pendingRows >= BULK_BATCH_SIZE) execute();
+        }
+
+        void commit() throws SQLException
+        {
+            try {
+                execute();
+                connection.commit();
+            }
+            catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+
+        private void execute() throws SQLException
+        {
+            //claims before their permissions, a claim is never saved and deleted in the same batch
+            upsertClaim.executeBatch();
+            deletePermissions.executeBatch();
+            insertPermission.executeBatch();
+            deleteClaim.executeBatch();
+            upsertPlayer.executeBatch();
+            upsertGroup.executeBatch();
+            upsertMetadata.executeBatch();
+            pendingRows = 0;
+        }
+
+        @Override
+        public void close() throws SQLException
+        {
+            upsertClaim.close();
+            deletePermissions.close();
+            insertPermission.close();
+            deleteClaim.close();
+            upsertPlayer.close();
+            upsertGroup.close();
+            upsertMetadata.close();
+        }
+    }
+
+    //the trusted players and groups of a claim while reading it
+    private static final class PermissionLists
+    {
+        private final ArrayList<String> builders = new ArrayList<>();
+        private final ArrayList<String> containers = new ArrayList<>();
+        private final ArrayList<String> accessors = new ArrayList<>();
+        private final ArrayList<String> managers = new ArrayList<>();
+
+        private List<String> get(byte level)
+        {
+            return switch (level) {
+                case LEVEL_MANAGER -> managers;
+                case LEVEL_BUILD -> builders;
+                case LEVEL_CONTAINER -> containers;
+                default -> accessors;
+            };
+        }
+    }
+}
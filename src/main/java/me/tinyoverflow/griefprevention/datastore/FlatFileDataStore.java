@@ -7,24 +7,34 @@ import me.tinyoverflow.griefprevention.GriefPrevention;
 import me.tinyoverflow.griefprevention.PlayerData;
 import me.tinyoverflow.griefprevention.logger.ActivityType;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 //manages data stored in the file system
 public class FlatFileDataStore extends DataStore
 {
     private static String claimDataFolderPath = dataLayerFolderPath + File.separator + "ClaimData";
     private final static String nextClaimIdFilePath = claimDataFolderPath + File.separator + "_nextClaimID";
+    //upper bound for the worker threads reading claim files during startup
+    private static final int MAX_LOADER_THREADS = 8;
+    //identifies the pending write of the next claim ID
+    private static final Object NEXT_CLAIM_ID_KEY = new Object();
+
+    //the data folder all data is exported to again on close, after a migration to the database
+    private volatile File databaseExportFolder;
 
     //initialization!
     public FlatFileDataStore(File dataFolder) throws Exception
@@ -111,18 +121,135 @@ public class FlatFileDataStore extends DataStore
         }
 
         //load claims data into memory
+        loadClaims(claimDataFolder);
+
+        super.initialize();
+    }
+
+    //loads all claims into memory, the claim data folder holds one YAML file per claim
+    void loadClaims(File claimDataFolder)
+    {
         //get a list of all the files in the claims data folder
-        files = claimDataFolder.listFiles();
+        File[] files = claimDataFolder.listFiles();
         if (files != null) {
             loadClaimData(files);
         }
-
-        super.initialize();
     }
 
     void loadClaimData(File[] files)
     {
-        ConcurrentHashMap<Claim, Long> orphans = new ConcurrentHashMap<>();
+        long phaseStart = System.nanoTime();
+        List<ClaimFile> claimFiles = listClaimFiles(files);
+        long listNanos = System.nanoTime() - phaseStart;
+
+        LongAdder readNanos = new LongAdder();
+        LongAdder parseNanos = new LongAdder();
+        int threads = getLoaderThreads();
+        phaseStart = System.nanoTime();
+        List<ParsedClaim> parsedClaims = parseClaimFiles(claimFiles, readNanos, parseNanos);
+        long loadNanos = System.nanoTime() - phaseStart;
+
+        //bind worlds and fill the indexes on this thread, publishing all loaded claims to the claim index at once
+        List<World> validWorlds = Bukkit.getServer().getWorlds();
+        long indexNanos;
+        long linkNanos;
+        claimIndex.beginUpdate();
+        try {
+            phaseStart = System.nanoTime();
+            LinkedHashMap<Claim, Long> orphans = new LinkedHashMap<>();
+            for (ParsedClaim parsedClaim : parsedClaims) {
+                try {
+                    Claim claim = parsedClaim.toClaim(this, validWorlds);
+                    if (parsedClaim.parentID() == -1) {
+                        addClaim(claim, false);
+                    }
+                    else {
+                        orphans.put(claim, parsedClaim.parentID());
+                    }
+                }
+
+                //if there's any problem with the file's content, log an error message and skip it
+                catch (Exception e) {
+                    logClaimLoadFailure(parsedClaim.file(), parsedClaim.claimID(), e);
+                }
+            }
+            indexNanos = System.nanoTime() - phaseStart;
+
+            phaseStart = System.nanoTime();
+            linkSubdivisions(orphans);
+            linkNanos = System.nanoTime() - phaseStart;
+        }
+        finally {
+            claimIndex.endUpdate();
+        }
+
+        GriefPrevention.AddLogEntry(String.format(
+                "Loaded %d claim files in %d ms: list %d ms, read %d ms and parse %d ms (%d ms on %d threads), index %d ms, link %d ms.",
+                claimFiles.size(),
+                TimeUnit.NANOSECONDS.toMillis(listNanos + loadNanos + indexNanos + linkNanos),
+                TimeUnit.NANOSECONDS.toMillis(listNanos),
+                TimeUnit.NANOSECONDS.toMillis(readNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(parseNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(loadNanos),
+                threads,
+                TimeUnit.NANOSECONDS.toMillis(indexNanos),
+                TimeUnit.NANOSECONDS.toMillis(linkNanos)
+        ));
+    }
+
+    private static int getLoaderThreads()
+    {
+        return Math.max(1, Math.min(MAX_LOADER_THREADS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    //reads and parses on a bounded worker pool, which touches neither the server nor the data store
+    static List<ParsedClaim> parseClaimFiles(List<ClaimFile> claimFiles, LongAdder readNanos, LongAdder parseNanos)
+    {
+        ForkJoinPool loaderPool = new ForkJoinPool(getLoaderThreads());
+        try {
+            return loaderPool.submit(() -> claimFiles.parallelStream()
+                    .map(claimFile -> parseClaimFile(claimFile, readNanos, parseNanos))
+                    .toList()
+            ).join();
+        }
+        finally {
+            loaderPool.shutdown();
+        }
+    }
+
+    //reads claim files without binding worlds, so claims in worlds which aren't loaded are kept
+    List<ClaimRecord> readClaimRecords(File[] files)
+    {
+        List<ParsedClaim> parsedClaims = parseClaimFiles(listClaimFiles(files), new LongAdder(), new LongAdder());
+
+        ArrayList<ClaimRecord> records = new ArrayList<>(parsedClaims.size());
+        for (ParsedClaim parsedClaim : parsedClaims) {
+            try {
+                records.add(parsedClaim.toRecord(this));
+            }
+
+            //if there's any problem with the file's content, log an error message and skip it
+            catch (Exception e) {
+                logClaimLoadFailure(parsedClaim.file(), parsedClaim.claimID(), e);
+            }
+        }
+
+        return records;
+    }
+
+    //reads the claims as they are stored, including those in worlds which aren't loaded
+    List<ClaimRecord> readStoredClaimRecords() throws IOException
+    {
+        File[] files = new File(claimDataFolderPath).listFiles();
+        if (files == null) throw new IOException("Unable to list the claim files in " + claimDataFolderPath + ".");
+
+        return readClaimRecords(files);
+    }
+
+    //picks the claim files from a directory listing and determines their claim IDs
+    List<ClaimFile> listClaimFiles(File[] files)
+    {
+        ArrayList<ClaimFile> claimFiles = new ArrayList<>(files.length);
         for (int i = 0; i < files.length; i++) {
             if (files[i].isFile())  //avoids folders
             {
@@ -152,58 +279,36 @@ public class FlatFileDataStore extends DataStore
                     files[i] = newFile;
                 }
 
-                try {
-                    ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
-                    Claim claim = loadClaim(files[i], out_parentID, claimID);
-                    if (out_parentID.isEmpty() || out_parentID.get(0) == -1) {
-                        addClaim(claim, false);
-                    }
-                    else {
-                        orphans.put(claim, out_parentID.get(0));
-                    }
-                }
-
-                //if there's any problem with the file's content, log an error message and skip it
-                catch (Exception e) {
-                    if (e.getMessage() != null && e.getMessage().contains("World not found")) {
-                        GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + claimID +
-                                                    ") because its world isn't loaded (yet?).  If this is not expected, delete this claim.");
-                    }
-                    else {
-                        StringWriter errors = new StringWriter();
-                        e.printStackTrace(new PrintWriter(errors));
-                        GriefPrevention.AddLogEntry(files[i].getName() + " " + errors, ActivityType.EXCEPTION);
-                    }
-                }
+                claimFiles.add(new ClaimFile(files[i], claimID));
             }
         }
 
-        //link children to parents
-        for (Claim child : orphans.keySet()) {
-            Claim parent = getClaim(orphans.get(child));
-            if (parent != null) {
-                child.parent = parent;
-                addClaim(child, false);
-            }
-        }
+        return claimFiles;
     }
 
-    Claim loadClaim(File file, ArrayList<Long> out_parentID, long claimID) throws Exception
+    //reads and parses a claim file, safe to call from any thread
+    static ParsedClaim parseClaimFile(ClaimFile claimFile, LongAdder readNanos, LongAdder parseNanos)
     {
-        List<String> lines = Files.readLines(file, StandardCharsets.UTF_8);
-        StringBuilder builder = new StringBuilder();
-        for (String line : lines) {
-            builder.append(line).append('\n');
+        try {
+            long start = System.nanoTime();
+            String contents = Files.asCharSource(claimFile.file(), StandardCharsets.UTF_8).read();
+            long lastModifiedDate = claimFile.file().lastModified();
+            long read = System.nanoTime();
+            readNanos.add(read - start);
+
+            ParsedClaim parsedClaim = parseClaim(claimFile, contents, lastModifiedDate);
+            parseNanos.add(System.nanoTime() - read);
+            return parsedClaim;
+        }
+        catch (Exception e) {
+            return ParsedClaim.failed(claimFile, e);
         }
+    }
 
-        long lastModifiedDate = file.lastModified();
-        List<World> validWorlds = Bukkit.getServer().getWorlds();
+    private static ParsedClaim parseClaim(ClaimFile claimFile, String contents, long lastModifiedDate) throws Exception
+    {
         YamlConfiguration yaml = new YamlConfiguration();
-        yaml.loadFromString(builder.toString());
-
-        //boundaries
-        Location lesserBoundaryCorner = locationFromString(yaml.getString("boundaries.lesser"), validWorlds);
-        Location greaterBoundaryCorner = locationFromString(yaml.getString("boundaries.greater"), validWorlds);
+        yaml.loadFromString(contents);
 
         //owner
         String ownerIdentifier = yaml.getString("owner");
@@ -211,68 +316,66 @@ public class FlatFileDataStore extends DataStore
                 ? null
                 : UUID.fromString(ownerIdentifier);
 
-        out_parentID.add(yaml.getLong("parent.claim-id", -1L));
-        boolean inheritNothing = yaml.getBoolean("parent.inherit-nothing");
-
-        List<String> builders = yaml.getStringList("permissions.builders");
-        List<String> containers = yaml.getStringList("permissions.containers");
-        List<String> accessors = yaml.getStringList("permissions.accessors");
-        List<String> managers = yaml.getStringList("permissions.managers");
-
-        //instantiate
-        Claim claim = new Claim(
-                lesserBoundaryCorner,
-                greaterBoundaryCorner,
+        return new ParsedClaim(
+                claimFile.file(),
+                claimFile.claimID(),
+                lastModifiedDate,
+                yaml.getString("boundaries.lesser"),
+                yaml.getString("boundaries.greater"),
                 ownerID,
-                builders,
-                containers,
-                accessors,
-                managers,
-                inheritNothing,
-                claimID
+                yaml.getLong("parent.claim-id", -1L),
+                yaml.getBoolean("parent.inherit-nothing"),
+                yaml.getStringList("permissions.builders"),
+                yaml.getStringList("permissions.containers"),
+                yaml.getStringList("permissions.accessors"),
+                yaml.getStringList("permissions.managers"),
+                null
         );
-        claim.modifiedDate = new Date(lastModifiedDate);
-        claim.id = claimID;
+    }
 
-        return claim;
+    static void logClaimLoadFailure(File file, long claimID, Exception e)
+    {
+        if (e.getMessage() != null && e.getMessage().contains("World not found")) {
+            GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + claimID +
+                                        ") because its world isn't loaded (yet?).  If this is not expected, delete this claim.");
+        }
+        else {
+            StringWriter errors = new StringWriter();
+            e.printStackTrace(new PrintWriter(errors));
+            GriefPrevention.AddLogEntry(file.getName() + " " + errors, ActivityType.EXCEPTION);
+        }
     }
 
-    String getYamlForClaim(Claim claim)
+    String getYamlForClaim(ClaimRecord claim)
     {
         YamlConfiguration yaml = new YamlConfiguration();
 
         //owner
-        yaml.set("owner", claim.ownerID != null ? claim.ownerID.toString() : null);
+        yaml.set("owner", claim.ownerID() != null ? claim.ownerID().toString() : null);
 
         //boundaries
-        yaml.set("boundaries.lesser", locationToString(claim.lesserBoundaryCorner));
-        yaml.set("boundaries.greater", locationToString(claim.greaterBoundaryCorner));
+        yaml.set("boundaries.lesser", locationToString(claim.worldName(), claim.lesserX(), claim.lesserY(), claim.lesserZ()));
+        yaml.set("boundaries.greater", locationToString(claim.worldName(), claim.greaterX(), claim.greaterY(), claim.greaterZ()));
 
         // parent claim
-        if (claim.parent != null) {
-            yaml.set("parent.claim-id", claim.parent.id);
-            yaml.set("parent.inherit-nothing", claim.getSubclaimRestrictions());
+        if (claim.parentID() != -1) {
+            yaml.set("parent.claim-id", claim.parentID());
+            yaml.set("parent.inherit-nothing", claim.inheritNothing());
         }
 
         // access permissions
-        ArrayList<String> builders = new ArrayList<>();
-        ArrayList<String> containers = new ArrayList<>();
-        ArrayList<String> accessors = new ArrayList<>();
-        ArrayList<String> managers = new ArrayList<>();
-        claim.getPermissions(builders, containers, accessors, managers);
-
-        yaml.set("permissions.builders", builders);
-        yaml.set("permissions.containers", containers);
-        yaml.set("permissions.accessors", accessors);
-        yaml.set("permissions.managers", managers);
+        yaml.set("permissions.builders", claim.builders());
+        yaml.set("permissions.containers", claim.containers());
+        yaml.set("permissions.accessors", claim.accessors());
+        yaml.set("permissions.managers", claim.managers());
 
         return yaml.saveToString();
     }
 
     @Override
-    synchronized void writeClaimToStorage(Claim claim)
+    void writeClaimToStorage(ClaimRecord claim)
     {
-        String claimID = String.valueOf(claim.id);
+        String claimID = String.valueOf(claim.id());
 
         String yaml = getYamlForClaim(claim);
 
@@ -293,10 +396,8 @@ public class FlatFileDataStore extends DataStore
 
     //deletes a claim from the file system
     @Override
-    synchronized void deleteClaimFromSecondaryStorage(Claim claim)
+    void deleteClaimFromSecondaryStorage(long claimID)
     {
-        String claimID = String.valueOf(claim.id);
-
         //remove from disk
         File claimFile = new File(claimDataFolderPath + File.separator + claimID + ".yml");
         if (claimFile.exists() && !claimFile.delete()) {
@@ -363,6 +464,13 @@ public class FlatFileDataStore extends DataStore
         //increment in memory
         nextClaimID++;
 
+        //only the latest value needs to reach the file
+        long claimID = nextClaimID;
+        writeQueue.submit(NEXT_CLAIM_ID_KEY, () -> writeNextClaimID(claimID));
+    }
+
+    private void writeNextClaimID(long claimID)
+    {
         BufferedWriter outStream = null;
 
         try {
@@ -371,7 +479,7 @@ public class FlatFileDataStore extends DataStore
             nextClaimIdFile.createNewFile();
             outStream = new BufferedWriter(new FileWriter(nextClaimIdFile));
 
-            outStream.write(String.valueOf(nextClaimID));
+            outStream.write(String.valueOf(claimID));
         }
 
         //if any problem, log it
@@ -388,8 +496,128 @@ public class FlatFileDataStore extends DataStore
         }
     }
 
+    /**
+     * Copies all claims as they are stored, including those in worlds which aren't loaded, and the player and
+     * group data into the database, replacing its contents. The copy is made again when this data store is
+     * closed, so changes made until the server switches over are kept.
+     *
+     * @param dataFolder the plugin's data folder
+     * @return the number of claims written
+     * @throws SQLException if the database can't be written
+     * @throws IOException  if the claims or the player data can't be read
+     */
+    public int exportToDatabase(File dataFolder) throws SQLException, IOException
+    {
+        int count = writeDatabaseExport(dataFolder);
+        databaseExportFolder = dataFolder;
+        return count;
+    }
+
+    private int writeDatabaseExport(File dataFolder) throws SQLException, IOException
+    {
+        //claims and player data are read from storage, so pending saves have to reach it first
+        writeQueue.flush();
+        long claimID;
+        synchronized (this) {
+            claimID = nextClaimID;
+        }
+
+        return DatabaseDataStore.exportData(readStoredClaimRecords(), claimID, dataFolder);
+    }
+
     @Override
-    public synchronized void close()
+    public void close()
+    {
+        //writes pending changes to storage first
+        super.close();
+
+        if (databaseExportFolder != null) {
+            try {
+                int count = writeDatabaseExport(databaseExportFolder);
+                GriefPrevention.AddLogEntry("Exported " + count + " claims to the database again.");
+            }
+            catch (SQLException | IOException e) {
+                GriefPrevention.AddLogEntry("Unable to export claims to the database: " + e.getMessage(), ActivityType.EXCEPTION);
+            }
+        }
+    }
+
+    //a claim file found while listing the claim data folder
+    record ClaimFile(File file, long claimID)
+    {
+    }
+
+    //the contents of a claim file, parsed but not yet bound to a world
+    record ParsedClaim(
+            File file,
+            long claimID,
+            long lastModifiedDate,
+            String lesserBoundaryCorner,
+            String greaterBoundaryCorner,
+            UUID ownerID,
+            long parentID,
+            boolean inheritNothing,
+            List<String> builders,
+            List<String> containers,
+            List<String> accessors,
+            List<String> managers,
+            Exception error
+    )
     {
+        static ParsedClaim failed(ClaimFile claimFile, Exception error)
+        {
+            return new ParsedClaim(claimFile.file(), claimFile.claimID(), 0, null, null, null, -1, false,
+                    null, null, null, null, error
+            );
+        }
+
+        //resolves the worlds and instantiates the claim, must run on the main thread
+        Claim toClaim(DataStore dataStore, List<World> validWorlds) throws Exception
+        {
+            if (error != null) throw error;
+
+            Claim claim = new Claim(
+                    dataStore.locationFromString(lesserBoundaryCorner, validWorlds),
+                    dataStore.locationFromString(greaterBoundaryCorner, validWorlds),
+                    ownerID,
+                    builders,
+                    containers,
+                    accessors,
+                    managers,
+                    inheritNothing,
+                    claimID
+            );
+            claim.modifiedDate = new Date(lastModifiedDate);
+
+            return claim;
+        }
+
+        //keeps the world name as it is, so this works for worlds which aren't loaded
+        ClaimRecord toRecord(DataStore dataStore) throws Exception
+        {
+            if (error != null) throw error;
+
+            String[] lesser = dataStore.splitLocationString(lesserBoundaryCorner);
+            String[] greater = dataStore.splitLocationString(greaterBoundaryCorner);
+
+            return new ClaimRecord(
+                    claimID,
+                    parentID,
+                    lesser[0],
+                    Integer.parseInt(lesser[1]),
+                    Integer.parseInt(lesser[2]),
+                    Integer.parseInt(lesser[3]),
+                    Integer.parseInt(greater[1]),
+                    Integer.parseInt(greater[2]),
+                    Integer.parseInt(greater[3]),
+                    ownerID,
+                    inheritNothing,
+                    lastModifiedDate,
+                    builders,
+                    containers,
+                    accessors,
+                    managers
+            );
+        }
     }
 }
@@ -0,0 +1,296 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import me.tinyoverflow.griefprevention.utils.LongHashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Chunk-based lookup table for the top level claims of a single world.
+ *
+ * <p>Every claim is registered in each chunk its boundaries touch, so a
+ * lookup only has to consider the handful of claims sharing a chunk with
+ * the queried position, all of which are guaranteed to be in this world.
+ *
+ * <p>Readers never lock: they work on an immutable snapshot which is
+ * replaced atomically by {@link #publish()}. Writers are serialized by the
+ * owning {@link ClaimIndex} and modify a private copy of the snapshot.
+ * Chunks are grouped into regions of 32x32 chunks, and only the regions
+ * touched by a change are copied, so publishing stays cheap even for worlds
+ * with a large number of claims.
+ *
+ * <p>Regions are kept in a primitive {@link LongHashMap} and each chunk holds
+ * an immutable list, so a lookup neither boxes its key nor allocates.
+ */
+public class WorldClaimIndex
+{
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+
+    //the latest published state, safe to read from any thread
+    private volatile Snapshot snapshot = new Snapshot(new LongHashMap<>());
+    //the state being modified by the writer, null while there are no unpublished changes
+    private LongHashMap<Region> pendingRegions = null;
+    //regions created with the current edit version belong to the pending state and may be modified in place
+    private long editVersion = 0;
+
+    /**
+     * Registers a top level claim in every chunk it touches.
+     * The change becomes visible to readers on the next {@link #publish()}.
+     *
+     * @param claim the claim
+     */
+    void add(@NotNull Claim claim)
+    {
+        int largeX = claim.greaterBoundaryCorner.getBlockX() >> 4;
+        int largeZ = claim.greaterBoundaryCorner.getBlockZ() >> 4;
+
+        for (int chunkX = claim.lesserBoundaryCorner.getBlockX() >> 4; chunkX <= largeX; chunkX++)
+        {
+            for (int chunkZ = claim.lesserBoundaryCorner.getBlockZ() >> 4; chunkZ <= largeZ; chunkZ++)
+            {
+                Region region = editRegion(chunkX, chunkZ);
+                int slot = getSlot(chunkX, chunkZ);
+                List<Claim> claimsInChunk = region.get(slot);
+
+                if (claimsInChunk.isEmpty())
+                {
+                    region.chunks[slot] = List.of(claim);
+                    region.size++;
+                }
+                else
+                {
+                    Claim[] newClaims = claimsInChunk.toArray(new Claim[claimsInChunk.size() + 1]);
+                    newClaims[claimsInChunk.size()] = claim;
+                    region.chunks[slot] = List.of(newClaims);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a top level claim from every chunk it touches.
+     * The change becomes visible to readers on the next {@link #publish()}.
+     *
+     * @param claim the claim
+     */
+    void remove(@NotNull Claim claim)
+    {
+        int largeX = claim.greaterBoundaryCorner.getBlockX() >> 4;
+        int largeZ = claim.greaterBoundaryCorner.getBlockZ() >> 4;
+
+        for (int chunkX = claim.lesserBoundaryCorner.getBlockX() >> 4; chunkX <= largeX; chunkX++)
+        {
+            for (int chunkZ = claim.lesserBoundaryCorner.getBlockZ() >> 4; chunkZ <= largeZ; chunkZ++)
+            {
+                List<Claim> claimsInChunk = getClaims(currentRegions(), chunkX, chunkZ);
+                int index = indexOf(claimsInChunk, claim);
+                if (index < 0) continue;
+
+                Region region = editRegion(chunkX, chunkZ);
+                int slot = getSlot(chunkX, chunkZ);
+
+                // if nothing's left, remove this chunk's cache
+                if (claimsInChunk.size() == 1)
+                {
+                    region.chunks[slot] = null;
+                    if (--region.size == 0)
+                    {
+                        pendingRegions.remove(getRegionKey(chunkX, chunkZ));
+                    }
+                    continue;
+                }
+
+                Claim[] newClaims = new Claim[claimsInChunk.size() - 1];
+                for (int i = 0, j = 0; i < claimsInChunk.size(); i++)
+                {
+                    if (i != index) newClaims[j++] = claimsInChunk.get(i);
+                }
+                region.chunks[slot] = List.of(newClaims);
+            }
+        }
+    }
+
+    /**
+     * Makes all changes since the last call visible to readers at once.
+     */
+    void publish()
+    {
+        if (pendingRegions == null) return;
+
+        snapshot = new Snapshot(pendingRegions);
+        pendingRegions = null;
+        editVersion++;
+    }
+
+    /**
+     * Gets the top level claims touching a chunk.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return an immutable list of the claims in the chunk as of the latest snapshot, possibly empty
+     */
+    public @NotNull List<Claim> getClaims(int chunkX, int chunkZ)
+    {
+        return getClaims(snapshot.regions, chunkX, chunkZ);
+    }
+
+    /**
+     * Collects the top level claims touching any chunk of a rectangular chunk area.
+     * Regions without claims are skipped as a whole.
+     *
+     * @param minChunkX the lesser chunk X coordinate
+     * @param minChunkZ the lesser chunk Z coordinate
+     * @param maxChunkX the greater chunk X coordinate
+     * @param maxChunkZ the greater chunk Z coordinate
+     * @param out       the set to add claims to
+     */
+    public void collectClaims(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, @NotNull Set<Claim> out)
+    {
+        LongHashMap<Region> regions = snapshot.regions;
+        for (int regionX = minChunkX >> REGION_SHIFT; regionX <= maxChunkX >> REGION_SHIFT; regionX++)
+        {
+            for (int regionZ = minChunkZ >> REGION_SHIFT; regionZ <= maxChunkZ >> REGION_SHIFT; regionZ++)
+            {
+                Region region = regions.get(DataStore.getChunkHash(regionX, regionZ));
+                if (region == null) continue;
+
+                //the part of the area within this region
+                int fromX = Math.max(minChunkX, regionX << REGION_SHIFT);
+                int toX = Math.min(maxChunkX, (regionX << REGION_SHIFT) | REGION_MASK);
+                int fromZ = Math.max(minChunkZ, regionZ << REGION_SHIFT);
+                int toZ = Math.min(maxChunkZ, (regionZ << REGION_SHIFT) | REGION_MASK);
+                for (int chunkX = fromX; chunkX <= toX; chunkX++)
+                {
+                    for (int chunkZ = fromZ; chunkZ <= toZ; chunkZ++)
+                    {
+                        out.addAll(region.get(getSlot(chunkX, chunkZ)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the top level claims overlapping a rectangular area of blocks, at any height.
+     *
+     * @param minX the lesser X block coordinate
+     * @param minZ the lesser Z block coordinate
+     * @param maxX the greater X block coordinate
+     * @param maxZ the greater Z block coordinate
+     * @param out  the set to add claims to
+     */
+    public void collectClaimsInArea(int minX, int minZ, int maxX, int maxZ, @NotNull Set<Claim> out)
+    {
+        Set<Claim> touchingChunks = new HashSet<>();
+        collectClaims(minX >> 4, minZ >> 4, maxX >> 4, maxZ >> 4, touchingChunks);
+
+        for (Claim claim : touchingChunks)
+        {
+            if (claim.lesserBoundaryCorner.getBlockX() <= maxX && claim.greaterBoundaryCorner.getBlockX() >= minX
+                && claim.lesserBoundaryCorner.getBlockZ() <= maxZ && claim.greaterBoundaryCorner.getBlockZ() >= minZ)
+            {
+                out.add(claim);
+            }
+        }
+    }
+
+    /**
+     * @return whether no claim is registered in this world
+     */
+    public boolean isEmpty()
+    {
+        return snapshot.regions.isEmpty();
+    }
+
+    private @NotNull LongHashMap<Region> currentRegions()
+    {
+        return pendingRegions != null ? pendingRegions : snapshot.regions;
+    }
+
+    private @NotNull Region editRegion(int chunkX, int chunkZ)
+    {
+        if (pendingRegions == null)
+        {
+            pendingRegions = new LongHashMap<>(snapshot.regions);
+        }
+
+        long regionKey = getRegionKey(chunkX, chunkZ);
+        Region region = pendingRegions.get(regionKey);
+
+        if (region == null)
+        {
+            region = new Region(new List<?>[1 << (REGION_SHIFT * 2)], 0, editVersion);
+            pendingRegions.put(regionKey, region);
+        }
+        else if (region.version != editVersion)
+        {
+            // region is part of a published snapshot, copy it before modifying
+            region = new Region(region.chunks.clone(), region.size, editVersion);
+            pendingRegions.put(regionKey, region);
+        }
+
+        return region;
+    }
+
+    private static @NotNull List<Claim> getClaims(@NotNull LongHashMap<Region> regions, int chunkX, int chunkZ)
+    {
+        Region region = regions.get(getRegionKey(chunkX, chunkZ));
+        if (region == null) return List.of();
+
+        return region.get(getSlot(chunkX, chunkZ));
+    }
+
+    private static int indexOf(@NotNull List<Claim> claims, @NotNull Claim claim)
+    {
+        for (int i = 0; i < claims.size(); i++)
+        {
+            Claim other = claims.get(i);
+            if (other == claim || Objects.equals(other.id, claim.id)) return i;
+        }
+
+        return -1;
+    }
+
+    private static long getRegionKey(int chunkX, int chunkZ)
+    {
+        return DataStore.getChunkHash(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+    }
+
+    private static int getSlot(int chunkX, int chunkZ)
+    {
+        return (chunkX & REGION_MASK) << REGION_SHIFT | (chunkZ & REGION_MASK);
+    }
+
+    //immutable once published
+    private record Snapshot(LongHashMap<Region> regions)
+    {
+    }
+
+    //claims of a 32x32 chunk area, indexed by slot
+    private static final class Region
+    {
+        //immutable lists of claims, null for chunks without claims
+        private final List<?>[] chunks;
+        private final long version;
+        private int size;
+
+        private Region(List<?>[] chunks, int size, long version)
+        {
+            this.chunks = chunks;
+            this.size = size;
+            this.version = version;
+        }
+
+        @SuppressWarnings("unchecked")
+        private @NotNull List<Claim> get(int slot)
+        {
+            List<?> claimsInChunk = chunks[slot];
+            return claimsInChunk != null ? (List<Claim>) claimsInChunk : List.of();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.logger.ActivityType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalescing write-behind queue for secondary storage.
+ *
+ * <p>Writes are submitted under a key identifying the record they persist. A
+ * write replaces any pending write with the same key, so a record changed many
+ * times between two flushes is only written once. A single background thread
+ * writes pending records in batches, either once the oldest pending write has
+ * waited for the flush interval or as soon as the flush threshold is reached.
+ *
+ * <p>Before {@link #start(long, int)} and after {@link #close()}, writes run
+ * immediately on the submitting thread. Should the background thread ever
+ * die, its pending writes are written by the next caller and all later writes
+ * run on the submitting thread, too.
+ */
+public class WriteBehindQueue
+{
+    private final String name;
+    private final Object lock = new Object();
+
+    //guarded by lock
+    private LinkedHashMap<Object, Runnable> pending = new LinkedHashMap<>();
+    private long pendingSince;
+    private long submitSequence;
+    private long writtenSequence;
+    private boolean flushRequested;
+    private boolean closing;
+    private Thread writer;
+    private long flushIntervalNanos;
+    private int flushThreshold;
+    private BatchListener batchListener;
+
+    //metrics
+    private final AtomicLong submittedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong completedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile int lastBatchSize;
+
+    /**
+     * Construct a new write-behind queue which writes on the caller's thread until started.
+     *
+     * @param name the name of the writer thread
+     */
+    public WriteBehindQueue(@NotNull String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Sets the listener notified around every batch. Must be called before {@link #start(long, int)}.
+     *
+     * @param batchListener the listener or null for none
+     */
+    public void setBatchListener(@Nullable BatchListener batchListener)
+    {
+        synchronized (lock) {
+            this.batchListener = batchListener;
+        }
+    }
+
+    /**
+     * Starts the background writer.
+     *
+     * @param flushIntervalMillis the longest time a write may stay pending
+     * @param flushThreshold      the number of pending writes which trigger a flush right away
+     */
+    public void start(long flushIntervalMillis, int flushThreshold)
+    {
+        synchronized (lock) {
+            if (writer != null) throw new IllegalStateException(name + " has already been started.");
+
+            this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMillis));
+            this.flushThreshold = Math.max(1, flushThreshold);
+
+            writer = new Thread(this::run, name);
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Schedules a write, replacing any pending write with the same key.
+     *
+     * @param key   identifies the record being written
+     * @param write performs the write, must not depend on state which may change before it runs
+     */
+    public void submit(@NotNull Object key, @NotNull Runnable write)
+    {
+        submittedWrites.incrementAndGet();
+        writeOrphanedWrites();
+
+        synchronized (lock) {
+            if (writer != null && !closing) {
+                if (pending.put(key, write) != null) {
+                    coalescedWrites.incrementAndGet();
+                }
+                else if (pending.size() == 1) {
+                    pendingSince = System.nanoTime();
+                }
+                submitSequence++;
+
+                //the writer only needs waking when it's idle or the batch is full
+                if (pending.size() == 1 || pending.size() >= flushThreshold) {
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+
+        runWrite(write);
+    }
+
+    /**
+     * Writes all pending writes and waits until they're done.
+     * Must not be called while holding a lock which pending writes need.
+     */
+    public void flush()
+    {
+        writeOrphanedWrites();
+
+        synchronized (lock) {
+            if (writer == null || Thread.currentThread() == writer) return;
+
+            long target = submitSequence;
+            flushRequested = true;
+            lock.notifyAll();
+
+            boolean interrupted = false;
+            while (writtenSequence < target && writer.isAlive()) {
+                try {
+                    lock.wait();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all pending writes and stops the background writer.
+     * Must not be called while holding a lock which pending writes need.
+     */
+    public void close()
+    {
+        Thread writerToJoin;
+        synchronized (lock) {
+            closing = true;
+            lock.notifyAll();
+            writerToJoin = writer;
+        }
+
+        if (writerToJoin == null || writerToJoin == Thread.currentThread()) return;
+
+        boolean interrupted = false;
+        while (writerToJoin.isAlive()) {
+            try {
+                writerToJoin.join();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) Thread.currentThread().interrupt();
+
+        //anything left behind by a writer which died
+        writeOrphanedWrites();
+    }
+
+    //if the background writer died, writes what it left pending and makes all later writes run inline
+    private void writeOrphanedWrites()
+    {
+        LinkedHashMap<Object, Runnable> orphaned;
+        synchronized (lock) {
+            if (writer == null || writer.isAlive() || writer == Thread.currentThread()) return;
+            if (pending.isEmpty() && closing) return;
+
+            orphaned = pending;
+            pending = new LinkedHashMap<>();
+            closing = true;
+            writtenSequence = submitSequence;
+            lock.notifyAll();
+        }
+
+        GriefPrevention.AddLogEntry(
+                name + " died, writing " + orphaned.size() + " pending writes on " + Thread.currentThread().getName() +
+                ". All further writes run on the thread saving them.",
+                ActivityType.EXCEPTION,
+                false
+        );
+        for (Runnable write : orphaned.values()) {
+            runWrite(write);
+        }
+    }
+
+    /**
+     * @return the number of writes waiting to be written
+     */
+    public int getQueueDepth()
+    {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return the number of writes submitted since startup
+     */
+    public long getSubmittedWrites()
+    {
+        return submittedWrites.get();
+    }
+
+    /**
+     * @return the number of writes which were replaced by a later write with the same key before being written
+     */
+    public long getCoalescedWrites()
+    {
+        return coalescedWrites.get();
+    }
+
+    /**
+     * @return the number of writes performed since startup, including failed ones
+     */
+    public long getCompletedWrites()
+    {
+        return completedWrites.get();
+    }
+
+    /**
+     * @return the number of writes which threw an exception
+     */
+    public long getFailedWrites()
+    {
+        return failedWrites.get();
+    }
+
+    /**
+     * @return the number of batches written by the background writer
+     */
+    public long getFlushes()
+    {
+        return flushes.get();
+    }
+
+    /**
+     * @return the number of writes in the latest batch
+     */
+    public int getLastBatchSize()
+    {
+        return lastBatchSize;
+    }
+
+    /**
+     * @return how long the latest batch took to write, in nanoseconds
+     */
+    public long getLastFlushNanos()
+    {
+        return lastFlushNanos;
+    }
+
+    /**
+     * @return how long the slowest batch took to write, in nanoseconds
+     */
+    public long getMaxFlushNanos()
+    {
+        return maxFlushNanos;
+    }
+
+    /**
+     * @return the average time to write a batch, in nanoseconds
+     */
+    public long getAverageFlushNanos()
+    {
+        long count = flushes.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / count;
+    }
+
+    private void run()
+    {
+        while (true) {
+            LinkedHashMap<Object, Runnable> batch;
+            long sequence;
+            BatchListener listener;
+
+            synchronized (lock) {
+                try {
+                    while (pending.isEmpty() && !closing) {
+                        lock.wait();
+                    }
+
+                    //give more writes a chance to coalesce, unless the batch must be written now
+                    long remaining;
+                    while (!closing && !flushRequested && pending.size() < flushThreshold
+                           && (remaining = pendingSince + flushIntervalNanos - System.nanoTime()) > 0)
+                    {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                }
+                catch (InterruptedException e) {
+                    //only close() may stop the writer, anything pending would be lost otherwise
+                    continue;
+                }
+
+                if (pending.isEmpty()) {
+                    if (closing) return;
+                    flushRequested = false;
+                    writtenSequence = submitSequence;
+                    lock.notifyAll();
+                    continue;
+                }
+
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                sequence = submitSequence;
+                flushRequested = false;
+                listener = batchListener;
+            }
+
+            long start = System.nanoTime();
+            if (listener != null) runListener(listener::beforeBatch);
+            for (Runnable write : batch.values()) {
+                runWrite(write);
+            }
+            if (listener != null) runListener(listener::afterBatch);
+            recordFlush(batch.size(), System.nanoTime() - start);
+
+            synchronized (lock) {
+                writtenSequence = sequence;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Notified by the background writer around every batch, so storage can group the writes of a batch.
+     * Writes outside of batches, before the queue is started or after it's closed, aren't announced.
+     */
+    public interface BatchListener
+    {
+        /**
+         * Called before the first write of a batch.
+         */
+        void beforeBatch();
+
+        /**
+         * Called after the last write of a batch, even if some writes failed.
+         */
+        void afterBatch();
+    }
+
+    private void runWrite(Runnable write)
+    {
+        try {
+            write.run();
+        }
+
+        //a single failed write must never stop the writer, everything pending after it would be lost
+        catch (Throwable e) {
+            failedWrites.incrementAndGet();
+            StringWriter errors = new StringWriter();
+            e.printStackTrace(new PrintWriter(errors));
+            GriefPrevention.AddLogEntry(name + " failed to write: " + errors, ActivityType.EXCEPTION);
+        }
+        finally {
+            completedWrites.incrementAndGet();
+        }
+    }
+
+    private void runListener(Runnable callback)
+    {
+        try {
+            callback.run();
+        }
+        catch (Throwable e) {
+            StringWriter errors = new StringWriter();
+            e.printStackTrace(new PrintWriter(errors));
+            GriefPrevention.AddLogEntry(name + " batch listener failed: " + errors, ActivityType.EXCEPTION);
+        }
+    }
+
+    private void recordFlush(int batchSize, long nanos)
+    {
+        flushes.incrementAndGet();
+        totalFlushNanos.addAndGet(nanos);
+        lastFlushNanos = nanos;
+        lastBatchSize = batchSize;
+        if (nanos > maxFlushNanos) maxFlushNanos = nanos;
+    }
+}
@@ -20,14 +20,17 @@ package me.tinyoverflow.griefprevention.handlers;
 
 import me.tinyoverflow.griefprevention.GriefPrevention;
 import me.tinyoverflow.griefprevention.logger.ActivityType;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 
 public class PlayerEventHandler implements Listener
 {
     static int longestNameLength = 10;
 
-    public static void makeSocialLogEntry(String name, String message)
+    public static void makeSocialLogEntry(Player player, Location location, String message)
     {
+        String name = player.getName();
         StringBuilder entryBuilder = new StringBuilder(name);
         for (int i = name.length(); i < longestNameLength; i++)
         {
@@ -36,6 +39,6 @@ public class PlayerEventHandler implements Listener
         entryBuilder.append(": ").append(message);
 
         longestNameLength = Math.max(longestNameLength, name.length());
-        GriefPrevention.AddLogEntry(entryBuilder.toString(), ActivityType.SOCIAL, true);
+        GriefPrevention.AddLogEntry(entryBuilder.toString(), ActivityType.SOCIAL, true, player.getUniqueId(), location);
     }
 }
@@ -132,13 +132,12 @@ public class BlockPistonListener implements Listener
         {
             for (int chunkZ = movedBlocks.getMinZ() >> 4; chunkZ <= chunkZMax; ++chunkZ)
             {
-                ArrayList<Claim> chunkClaims = dataStore.chunksToClaimsMap.get(DataStore.getChunkHash(chunkX, chunkZ));
-                if (chunkClaims == null) continue;
-
-                for (Claim claim : chunkClaims)
+                List<Claim> chunkClaims = dataStore.getClaims(pistonBlock.getWorld(), chunkX, chunkZ);
+                for (int i = 0; i < chunkClaims.size(); i++)
                 {
-                    // Ensure claim is not piston claim and is in same world.
-                    if (pistonClaim != claim && pistonBlock.getWorld().equals(claim.getLesserBoundaryCorner().getWorld()))
+                    Claim claim = chunkClaims.get(i);
+                    // Ensure claim is not piston claim.
+                    if (pistonClaim != claim)
                         intersectable.add(claim);
                 }
             }
@@ -53,7 +53,11 @@ public class BlockPlaceListener implements Listener
 
     public static boolean isActiveBlock(@NotNull BlockState blockState)
     {
-        Material type = blockState.getType();
+        return isActiveBlock(blockState.getType());
+    }
+
+    public static boolean isActiveBlock(@NotNull Material type)
+    {
         return type == Material.HOPPER || type == Material.BEACON || type == Material.SPAWNER;
     }
 
@@ -64,7 +64,7 @@ public class SignChangeListener implements Listener
         if (notEmpty)
         {
             GriefPrevention.AddLogEntry(player.getName() + lines.toString().replace("\n  ", ";"), null);
-            PlayerEventHandler.makeSocialLogEntry(player.getName(), signMessage);
+            PlayerEventHandler.makeSocialLogEntry(player, sign.getLocation(), signMessage);
             //playerData.lastSignMessage = signMessage;
 
             if (!player.hasPermission("griefprevention.eavesdropsigns"))
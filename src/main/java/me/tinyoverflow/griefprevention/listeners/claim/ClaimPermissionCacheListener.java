@@ -0,0 +1,50 @@
+package me.tinyoverflow.griefprevention.listeners.claim;
+
+import me.tinyoverflow.griefprevention.datastore.ClaimPermissionCache;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Forgets the remembered trust decisions when players come, go or change
+ * worlds, or their permissions are recalculated, because their permission
+ * nodes may change with it.
+ */
+public class ClaimPermissionCacheListener implements Listener
+{
+    private final ClaimPermissionCache cache;
+
+    public ClaimPermissionCacheListener(ClaimPermissionCache cache)
+    {
+        this.cache = cache;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event)
+    {
+        cache.invalidate();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event)
+    {
+        cache.invalidate();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event)
+    {
+        cache.invalidate();
+    }
+
+    //the command list is sent again whenever permission plugins recalculate a player's permissions
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerCommandSend(PlayerCommandSendEvent event)
+    {
+        cache.invalidate();
+    }
+}
@@ -13,9 +13,27 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class ClaimPermissionCheckListener implements Listener
 {
+    /**
+     * Check whether the siege rules may change the outcome of a permission check in a claim.
+     *
+     * @param player the player being checked, null if offline
+     * @param claim the claim
+     * @return false if checks in the claim can skip the siege rules
+     */
+    public static boolean appliesTo(@Nullable Player player, @NotNull Claim claim)
+    {
+        if (player == null || claim.isAdminClaim()) return false;
+
+        if (claim.siegeData != null || claim.doorsOpen) return true;
+
+        // Players under siege extend the siege to the claims they use.
+        return GriefPrevention.instance.dataStore.getPlayerData(player.getUniqueId()).siegeData != null;
+    }
 
     @EventHandler(priority = EventPriority.LOWEST)
     public void onClaimPermissionCheck(ClaimPermissionCheckEvent event)
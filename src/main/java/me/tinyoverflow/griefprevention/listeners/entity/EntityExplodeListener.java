@@ -2,7 +2,9 @@ package me.tinyoverflow.griefprevention.listeners.entity;
 
 import me.tinyoverflow.griefprevention.Claim;
 import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.datastore.AreaClaimLookup;
 import me.tinyoverflow.griefprevention.datastore.DataStore;
+import me.tinyoverflow.griefprevention.utils.BoundingBox;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -46,18 +48,17 @@ public class EntityExplodeListener implements Listener
             return;
         }
 
+        if (blocks.isEmpty()) return;
+
         //make a list of blocks which were allowed to explode
         List<Block> explodedBlocks = new ArrayList<>();
-        Claim cachedClaim = null;
+        AreaClaimLookup claims = dataStore.getClaimLookup(world, BoundingBox.ofBlocks(blocks));
         for (Block block : blocks) {
             //always ignore air blocks
             if (block.getType() == Material.AIR) continue;
 
             //is it in a land claim?
-            Claim claim = dataStore.getClaimAt(block.getLocation(), false, cachedClaim);
-            if (claim != null) {
-                cachedClaim = claim;
-            }
+            Claim claim = claims.getClaimAt(block, false);
 
             //if yes, apply claim exemptions if they should apply
             if (claim != null && (claim.areExplosivesAllowed || !plugin.config_blockClaimExplosions)) {
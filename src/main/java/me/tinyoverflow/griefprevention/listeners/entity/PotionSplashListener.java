@@ -1,7 +1,9 @@
 package me.tinyoverflow.griefprevention.listeners.entity;
 
 import me.tinyoverflow.griefprevention.*;
+import me.tinyoverflow.griefprevention.datastore.AreaClaimLookup;
 import me.tinyoverflow.griefprevention.datastore.DataStore;
+import me.tinyoverflow.griefprevention.utils.BoundingBox;
 import org.bukkit.entity.*;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -88,7 +90,14 @@ public class PotionSplashListener implements Listener
             // Griefers could use potions to kill entities or steal them over fences.
             if (GRIEF_EFFECTS.contains(effectType))
             {
-                Claim cachedClaim = null;
+                //resolve the claims of all affected entities together
+                BoundingBox area = new BoundingBox(potion.getLocation(), potion.getLocation());
+                for (LivingEntity affected : event.getAffectedEntities())
+                {
+                    area.union(affected.getLocation());
+                }
+                AreaClaimLookup claims = dataStore.getClaimLookup(potion.getWorld(), area);
+
                 for (LivingEntity affected : event.getAffectedEntities())
                 {
                     // Always impact the thrower.
@@ -96,11 +105,9 @@ public class PotionSplashListener implements Listener
 
                     if (affected.getType() == EntityType.VILLAGER || affected instanceof Animals)
                     {
-                        Claim claim = dataStore.getClaimAt(affected.getLocation(), false, cachedClaim);
+                        Claim claim = claims.getClaimAt(affected.getLocation(), false);
                         if (claim != null)
                         {
-                            cachedClaim = claim;
-
                             if (thrower == null)
                             {
                                 // Non-player source: Witches, dispensers, etc.
@@ -133,7 +133,8 @@ public class PlayerBucketEmptyListener implements Listener
                 GriefPrevention.AddLogEntry(
                         player.getName() + " placed suspicious " + bucketEvent.getBucket().name() + " @ " +
                         GriefPrevention.getFriendlyLocationString(
-                                block.getLocation()), ActivityType.SUSPICIOUS, true);
+                                block.getLocation()), ActivityType.SUSPICIOUS, true,
+                        player.getUniqueId(), block.getLocation());
             }
         }
     }
@@ -3,9 +3,11 @@ package me.tinyoverflow.griefprevention.listeners.player;
 import com.griefprevention.visualization.BoundaryVisualization;
 import com.griefprevention.visualization.VisualizationType;
 import me.tinyoverflow.griefprevention.*;
+import me.tinyoverflow.griefprevention.datastore.AreaClaimLookup;
 import me.tinyoverflow.griefprevention.datastore.DataStore;
 import me.tinyoverflow.griefprevention.events.ClaimInspectionEvent;
 import me.tinyoverflow.griefprevention.tasks.AutoExtendClaimTask;
+import me.tinyoverflow.griefprevention.tasks.BlockMutationBatch;
 import me.tinyoverflow.griefprevention.utils.BoundingBox;
 import org.bukkit.*;
 import org.bukkit.block.Block;
@@ -643,86 +645,53 @@ public class PlayerInteractListener implements Listener
                 int minHeight = maxHeight - 10;
                 minHeight = Math.max(minHeight, clickedBlock.getWorld().getMinHeight());
 
-                Claim cachedClaim = null;
+                //default fill block is initially the first from the allowed fill blocks list above
+                Material defaultFiller = allowedFillBlocks.get(0);
+
+                //prefer to use the block the player clicked on, if it's an acceptable fill block
+                if (allowedFillBlocks.contains(centerBlock.getType())) {
+                    defaultFiller = centerBlock.getType();
+                }
+
+                //if the player clicks on water, try to sink through the water to find something underneath that's useful for a filler
+                else if (centerBlock.getType() == Material.WATER) {
+                    Block block = centerBlock.getWorld().getBlockAt(centerBlock.getLocation());
+                    while (!allowedFillBlocks.contains(block.getType()) &&
+                           block.getY() > centerBlock.getY() - 10) {
+                        block = block.getRelative(BlockFace.DOWN);
+                    }
+                    if (allowedFillBlocks.contains(block.getType())) {
+                        defaultFiller = block.getType();
+                    }
+                }
+
+                //the blocks are filled across ticks, bottom to top in each column
+                AreaClaimLookup claims = dataStore.getClaimLookup(
+                        centerBlock.getWorld(),
+                        new BoundingBox(minx, minHeight, minz, maxx, maxHeight, maxz)
+                );
+                BlockMutationBatch batch = new BlockMutationBatch(
+                        centerBlock.getWorld(),
+                        new FillMutation(claims, allowedFillBlocks, maxHeight)
+                );
                 for (int x = minx; x <= maxx; x++) {
                     for (int z = minz; z <= maxz; z++) {
                         //circular brush
                         Location location = new Location(centerBlock.getWorld(), x, centerBlock.getY(), z);
                         if (location.distance(centerBlock.getLocation()) > playerData.fillRadius) continue;
 
-                        //default fill block is initially the first from the allowed fill blocks list above
-                        Material defaultFiller = allowedFillBlocks.get(0);
-
-                        //prefer to use the block the player clicked on, if it's an acceptable fill block
-                        if (allowedFillBlocks.contains(centerBlock.getType())) {
-                            defaultFiller = centerBlock.getType();
-                        }
-
-                        //if the player clicks on water, try to sink through the water to find something underneath that's useful for a filler
-                        else if (centerBlock.getType() == Material.WATER) {
-                            Block block = centerBlock.getWorld().getBlockAt(centerBlock.getLocation());
-                            while (!allowedFillBlocks.contains(block.getType()) &&
-                                   block.getY() > centerBlock.getY() - 10) {
-                                block = block.getRelative(BlockFace.DOWN);
-                            }
-                            if (allowedFillBlocks.contains(block.getType())) {
-                                defaultFiller = block.getType();
-                            }
-                        }
-
-                        //fill bottom to top
                         for (int y = minHeight; y <= maxHeight; y++) {
-                            Block block = centerBlock.getWorld().getBlockAt(x, y, z);
-
-                            //respect claims
-                            Claim claim = dataStore.getClaimAt(block.getLocation(), false, cachedClaim);
-                            if (claim != null) {
-                                cachedClaim = claim;
-                                break;
-                            }
-
-                            //only replace air, spilling water, snow, long grass
-                            if (block.getType() == Material.AIR || block.getType() == Material.SNOW ||
-                                (block.getType() == Material.WATER &&
-                                 ((Levelled) block.getBlockData()).getLevel() != 0) ||
-                                block.getType() == Material.GRASS)
-                            {
-                                //if the top level, always use the default filler picked above
-                                if (y == maxHeight) {
-                                    block.setType(defaultFiller);
-                                }
-
-                                //otherwise look to neighbors for an appropriate fill block
-                                else {
-                                    Block eastBlock = block.getRelative(BlockFace.EAST);
-                                    Block westBlock = block.getRelative(BlockFace.WEST);
-                                    Block northBlock = block.getRelative(BlockFace.NORTH);
-                                    Block southBlock = block.getRelative(BlockFace.SOUTH);
-
-                                    //first, check lateral neighbors (ideally, want to keep natural layers)
-                                    if (allowedFillBlocks.contains(eastBlock.getType())) {
-                                        block.setType(eastBlock.getType());
-                                    }
-                                    else if (allowedFillBlocks.contains(westBlock.getType())) {
-                                        block.setType(westBlock.getType());
-                                    }
-                                    else if (allowedFillBlocks.contains(northBlock.getType())) {
-                                        block.setType(northBlock.getType());
-                                    }
-                                    else if (allowedFillBlocks.contains(southBlock.getType())) {
-                                        block.setType(southBlock.getType());
-                                    }
-
-                                    //if all else fails, use the default filler selected above
-                                    else {
-                                        block.setType(defaultFiller);
-                                    }
-                                }
-                            }
+                            batch.add(x, y, z, defaultFiller);
                         }
                     }
                 }
 
+                World world = centerBlock.getWorld();
+                plugin.blockMutationExecutor.submit(batch).thenRun(() -> plugin.investmentScorer.invalidate(
+                        new Location(world, minx, 0, minz),
+                        new Location(world, maxx, 0, maxz)
+                ));
+
                 return;
             }
 
@@ -1117,4 +1086,65 @@ public class PlayerInteractListener implements Listener
 
         return result;
     }
+
+    //fills a block for the restore nature fill tool, once its turn comes
+    private static class FillMutation implements BlockMutationBatch.Mutation
+    {
+        private final AreaClaimLookup claims;
+        private final List<Material> allowedFillBlocks;
+        private final int maxHeight;
+
+        FillMutation(AreaClaimLookup claims, List<Material> allowedFillBlocks, int maxHeight)
+        {
+            this.claims = claims;
+            this.allowedFillBlocks = allowedFillBlocks;
+            this.maxHeight = maxHeight;
+        }
+
+        @Override
+        public void apply(Block block, Material defaultFiller)
+        {
+            //respect claims
+            if (claims.getClaimAt(block, false) != null) return;
+
+            //only replace air, spilling water, snow, long grass
+            if (block.getType() == Material.AIR || block.getType() == Material.SNOW ||
+                (block.getType() == Material.WATER &&
+                 ((Levelled) block.getBlockData()).getLevel() != 0) ||
+                block.getType() == Material.GRASS)
+            {
+                //if the top level, always use the default filler picked above
+                if (block.getY() == maxHeight) {
+                    block.setType(defaultFiller);
+                }
+
+                //otherwise look to neighbors for an appropriate fill block
+                else {
+                    Block eastBlock = block.getRelative(BlockFace.EAST);
+                    Block westBlock = block.getRelative(BlockFace.WEST);
+                    Block northBlock = block.getRelative(BlockFace.NORTH);
+                    Block southBlock = block.getRelative(BlockFace.SOUTH);
+
+                    //first, check lateral neighbors (ideally, want to keep natural layers)
+                    if (allowedFillBlocks.contains(eastBlock.getType())) {
+                        block.setType(eastBlock.getType());
+                    }
+                    else if (allowedFillBlocks.contains(westBlock.getType())) {
+                        block.setType(westBlock.getType());
+                    }
+                    else if (allowedFillBlocks.contains(northBlock.getType())) {
+                        block.setType(northBlock.getType());
+                    }
+                    else if (allowedFillBlocks.contains(southBlock.getType())) {
+                        block.setType(southBlock.getType());
+                    }
+
+                    //if all else fails, use the default filler selected above
+                    else {
+                        block.setType(defaultFiller);
+                    }
+                }
+            }
+        }
+    }
 }
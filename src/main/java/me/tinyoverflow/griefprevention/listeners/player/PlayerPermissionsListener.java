@@ -0,0 +1,51 @@
+package me.tinyoverflow.griefprevention.listeners.player;
+
+import me.tinyoverflow.griefprevention.PlayerPermissions;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Keeps the {@link PlayerPermissions} snapshots of online players up to date.
+ */
+public class PlayerPermissionsListener implements Listener
+{
+    private final PlayerPermissions playerPermissions;
+
+    public PlayerPermissionsListener(PlayerPermissions playerPermissions)
+    {
+        this.playerPermissions = playerPermissions;
+    }
+
+    //before any other join handling checks the player's permissions
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event)
+    {
+        playerPermissions.refresh(event.getPlayer());
+    }
+
+    //permissions may be granted per world
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event)
+    {
+        playerPermissions.refresh(event.getPlayer());
+    }
+
+    //the command list is sent again whenever permission plugins recalculate a player's permissions
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerCommandSend(PlayerCommandSendEvent event)
+    {
+        playerPermissions.refresh(event.getPlayer());
+    }
+
+    //after any other quit handling
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event)
+    {
+        playerPermissions.remove(event.getPlayer());
+    }
+}
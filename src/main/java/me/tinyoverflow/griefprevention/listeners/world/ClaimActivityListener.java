@@ -0,0 +1,76 @@
+package me.tinyoverflow.griefprevention.listeners.world;
+
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import me.tinyoverflow.griefprevention.ClaimActivityTracker;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+import java.util.List;
+
+/**
+ * Feeds entity and block changes to the {@link ClaimActivityTracker}.
+ */
+public class ClaimActivityListener implements Listener
+{
+    private final ClaimActivityTracker tracker;
+
+    public ClaimActivityListener(ClaimActivityTracker tracker)
+    {
+        this.tracker = tracker;
+    }
+
+    //fired for spawned entities as well as entities in loading chunks
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityAddToWorld(EntityAddToWorldEvent event)
+    {
+        tracker.entityAdded(event.getEntity());
+    }
+
+    //fired for removed entities as well as entities in unloading chunks
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemoveFromWorld(EntityRemoveFromWorldEvent event)
+    {
+        tracker.entityRemoved(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event)
+    {
+        Block block = event.getBlock();
+        tracker.blockPlaced(block.getLocation(), block.getType());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event)
+    {
+        Block block = event.getBlock();
+        tracker.blockRemoved(block.getLocation(), block.getType());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event)
+    {
+        removeAll(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event)
+    {
+        removeAll(event.blockList());
+    }
+
+    private void removeAll(List<Block> blocks)
+    {
+        for (Block block : blocks)
+        {
+            tracker.blockRemoved(block.getLocation(), block.getType());
+        }
+    }
+}
@@ -2,7 +2,9 @@ package me.tinyoverflow.griefprevention.listeners.world;
 
 import me.tinyoverflow.griefprevention.Claim;
 import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.datastore.AreaClaimLookup;
 import me.tinyoverflow.griefprevention.datastore.DataStore;
+import me.tinyoverflow.griefprevention.utils.BoundingBox;
 import org.bukkit.Location;
 import org.bukkit.block.BlockState;
 import org.bukkit.event.EventHandler;
@@ -24,8 +26,15 @@ public class StructureGrowListener implements Listener {
         //don't track in worlds where claims are not enabled
         if (!GriefPrevention.instance.claimsEnabledForWorld(growEvent.getWorld())) return;
 
+        //resolve the claims of the root and all growing blocks together
         Location rootLocation = growEvent.getLocation();
-        Claim rootClaim = dataStore.getClaimAt(rootLocation, false, null);
+        BoundingBox area = new BoundingBox(rootLocation, rootLocation);
+        for (BlockState block : growEvent.getBlocks()) {
+            area.union(block.getX(), block.getY(), block.getZ());
+        }
+        AreaClaimLookup claims = dataStore.getClaimLookup(growEvent.getWorld(), area);
+
+        Claim rootClaim = claims.getClaimAt(rootLocation, false);
         String rootOwnerName = null;
 
         //who owns the spreading block, if anyone?
@@ -43,7 +52,7 @@ public class StructureGrowListener implements Listener {
         //for each block growing
         for (int i = 0; i < growEvent.getBlocks().size(); i++) {
             BlockState block = growEvent.getBlocks().get(i);
-            Claim blockClaim = dataStore.getClaimAt(block.getLocation(), false, rootClaim);
+            Claim blockClaim = claims.getClaimAt(block.getX(), block.getY(), block.getZ(), false);
 
             //if it's growing into a claim
             if (blockClaim != null) {
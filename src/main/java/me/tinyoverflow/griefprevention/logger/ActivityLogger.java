@@ -3,94 +3,469 @@ package me.tinyoverflow.griefprevention.logger;
 import me.tinyoverflow.griefprevention.GriefPrevention;
 import me.tinyoverflow.griefprevention.configurations.LoggerConfiguration;
 import me.tinyoverflow.griefprevention.tasks.PruneLogsTask;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.scheduler.BukkitScheduler;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 
+/**
+ * Writes activity log entries to one file per day.
+ *
+ * <p>Logging threads only append entries to a lock-free queue, a single writer
+ * thread formats them and writes them to a file channel which stays open until
+ * the day changes. The queue holds at most the configured number of entries,
+ * further entries are dropped or make the logging thread wait, depending on
+ * the overflow policy.
+ *
+ * <p>Entries logged with a player and a location are also stored as
+ * {@link ActivityRecord}s in an {@link ActivityStore} next to the text logs,
+ * which {@link #query(ActivityQuery)} looks them up in by player and chunk.
+ * Queries run on the writer thread after all entries logged before them have
+ * been written.
+ */
 public class ActivityLogger
 {
-    private final SimpleDateFormat timestampFormat = new SimpleDateFormat("HH:mm");
-    private final SimpleDateFormat filenameFormat = new SimpleDateFormat("yyyy-MM-dd");
-    private final StringBuffer messageBuffer = new StringBuffer();
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter FILENAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    //how long the writer sleeps when there's nothing to write
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    //how long a blocked logging thread waits before checking for space again
+    private static final long BLOCKED_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
     private final java.util.logging.Logger serverLogger;
     private final File logDirectory;
     private final LoggerConfiguration configuration;
+    private final Clock clock;
+    private final int capacity;
+    private final LoggerConfiguration.OverflowPolicy overflowPolicy;
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Runnable> queries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedEntries = new AtomicInteger();
+    private final LongAdder enqueuedEntries = new LongAdder();
+    private final LongAdder droppedEntries = new LongAdder();
+    private final LongAdder writtenEntries = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closing;
+
+    //only used by the writer
+    private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final ActivityStore store;
+    private int bufferedEntries;
+    private FileChannel channel;
+    private LocalDate channelDate;
+    private long currentMinute = Long.MIN_VALUE;
+    private LocalDate currentDate;
+    private String currentTimestamp;
 
     public ActivityLogger(java.util.logging.Logger serverLogger, File logDirectory, LoggerConfiguration configuration)
+    {
+        this(serverLogger, logDirectory, configuration, Clock.systemDefaultZone());
+    }
+
+    ActivityLogger(java.util.logging.Logger serverLogger, File logDirectory, LoggerConfiguration configuration, Clock clock)
     {
         this.serverLogger = serverLogger;
         this.logDirectory = logDirectory;
         this.configuration = configuration;
+        this.clock = clock;
+        this.capacity = Math.max(1, configuration.getQueueCapacity());
+        this.overflowPolicy = configuration.getOverflowPolicy();
 
         if (!this.logDirectory.exists() && !this.logDirectory.mkdirs()) {
             serverLogger.log(Level.SEVERE, "Could not create logging directory: " + this.logDirectory.getPath());
         }
+
+        store = new ActivityStore(logDirectory, clock.getZone());
+        writer = new Thread(this::run, "GriefPrevention Activity Logger");
+        writer.setDaemon(true);
     }
 
     public void log(ActivityType type, String message)
     {
-        // Skip if the given log type is not enabled.
-        if (!switch (type) {
+        if (!isEnabled(type)) return;
+
+        enqueue(new Entry(clock.millis(), message, null));
+    }
+
+    /**
+     * Log an entry which can be queried by player and location later.
+     *
+     * @param type     the type of the activity
+     * @param message  the message written to the text log
+     * @param player   the player who caused the activity
+     * @param location where the activity happened
+     */
+    public void log(ActivityType type, String message, UUID player, Location location)
+    {
+        if (!isEnabled(type)) return;
+
+        long time = clock.millis();
+        World world = location.getWorld();
+        ActivityRecord record = world == null ? null : new ActivityRecord(
+                time,
+                type,
+                player,
+                world.getName(),
+                location.getBlockX(),
+                location.getBlockY(),
+                location.getBlockZ(),
+                message
+        );
+        enqueue(new Entry(time, message, record));
+    }
+
+    /**
+     * Look up structured entries. The query sees all entries logged before it.
+     *
+     * @param query the query
+     * @return the matching records, newest first, completed by the writer thread
+     */
+    public CompletableFuture<List<ActivityRecord>> query(ActivityQuery query)
+    {
+        CompletableFuture<List<ActivityRecord>> result = new CompletableFuture<>();
+        queries.offer(() -> {
+            try {
+                result.complete(store.query(query, LocalDate.now(clock)));
+            }
+            catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        // Without a running writer, the query runs right away.
+        if (writer.isAlive()) {
+            LockSupport.unpark(writer);
+        }
+        else {
+            synchronized (this) {
+                runQueries();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts the writer thread. Entries logged before are kept in the queue.
+     */
+    public void start()
+    {
+        writer.start();
+    }
+
+    /**
+     * Writes all queued entries and stops the writer thread.
+     */
+    public void close()
+    {
+        closing = true;
+        if (writer.isAlive()) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        // Entries and queries which arrived while the writer was stopping.
+        synchronized (this) {
+            drain();
+            runQueries();
+            closeStore();
+            closeChannel();
+        }
+    }
+
+    /**
+     * @return the number of entries accepted into the queue since startup
+     */
+    public long getEnqueuedEntries()
+    {
+        return enqueuedEntries.sum();
+    }
+
+    /**
+     * @return the number of entries written to a log file since startup
+     */
+    public long getWrittenEntries()
+    {
+        return writtenEntries.sum();
+    }
+
+    /**
+     * @return the number of entries discarded because the queue was full or the log file couldn't be written
+     */
+    public long getDroppedEntries()
+    {
+        return droppedEntries.sum();
+    }
+
+    /**
+     * @return the number of entries waiting to be written
+     */
+    public int getQueuedEntries()
+    {
+        return queuedEntries.get();
+    }
+
+    public void registerTasks(GriefPrevention plugin, BukkitScheduler scheduler)
+    {
+        // Prune old logs once a day, if enabled.
+        if (configuration.isLogPruningEnabled()) {
+            scheduler.scheduleSyncRepeatingTask(
+                    plugin,
+                    new PruneLogsTask(serverLogger, logDirectory, configuration),
+                    0,
+                    24 * 60 * 60 * 20
+            );
+        }
+    }
+
+    private boolean isEnabled(ActivityType type)
+    {
+        return switch (type) {
             case SOCIAL -> configuration.isSocialEnabled();
             case SUSPICIOUS -> configuration.isSuspiciousEnabled();
             case ADMIN -> configuration.isAdminEnabled();
             case DEBUG -> configuration.isDebugEnabled();
             default -> true;
-        })
-        {
+        };
+    }
+
+    private void enqueue(Entry entry)
+    {
+        // Reserve a place in the queue, the writer formats the entry later.
+        if (!reserve()) {
+            droppedEntries.increment();
             return;
         }
 
-        // Write message to the memory buffer.
-        String timestamp = timestampFormat.format(new Date());
-        messageBuffer.append(timestamp).append(' ').append(message).append('\n');
+        queue.offer(entry);
+        enqueuedEntries.increment();
     }
 
-    public void flush()
+    private boolean reserve()
     {
-        // Skip if nothing is inside the buffer.
-        if (messageBuffer.isEmpty()) return;
+        while (true) {
+            if (queuedEntries.incrementAndGet() <= capacity) return true;
+            queuedEntries.decrementAndGet();
 
-        // Determine filename based on the current date.
-        String fileName = filenameFormat.format(new Date()) + ".log";
-        File logFile = Path.of(logDirectory.toString(), fileName).toFile();
+            if (overflowPolicy != LoggerConfiguration.OverflowPolicy.Block || closing || !writer.isAlive()) {
+                return false;
+            }
+            LockSupport.parkNanos(this, BLOCKED_NANOS);
+        }
+    }
 
-        try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(
-                logFile,
-                StandardCharsets.UTF_8,
-                true
-        )))
-        {
-            bufferedWriter.write(messageBuffer.toString());
-            messageBuffer.setLength(0);
+    private void run()
+    {
+        while (!closing) {
+            boolean wrote = drain();
+            if (!runQueries() && !wrote) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+
+        drain();
+        runQueries();
+    }
+
+    //writes all queued entries, returns whether there were any
+    private boolean drain()
+    {
+        Entry entry = queue.poll();
+        if (entry == null) return false;
+
+        do {
+            queuedEntries.decrementAndGet();
+            append(entry);
+        }
+        while ((entry = queue.poll()) != null);
+
+        writeBuffer();
+        flushStore();
+        return true;
+    }
+
+    //runs all pending queries, returns whether there were any
+    private boolean runQueries()
+    {
+        Runnable query = queries.poll();
+        if (query == null) return false;
+
+        do {
+            // Entries logged before the query was submitted are in the queue by now.
+            drain();
+            query.run();
+        }
+        while ((query = queries.poll()) != null);
+
+        return true;
+    }
+
+    private void append(Entry entry)
+    {
+        // Timestamps only change once a minute, so format them once per minute.
+        long minute = entry.time() / 60_000;
+        if (minute != currentMinute) {
+            ZonedDateTime time = Instant.ofEpochMilli(entry.time()).atZone(clock.getZone());
+            currentMinute = minute;
+            currentDate = time.toLocalDate();
+            currentTimestamp = TIMESTAMP_FORMAT.format(time);
+        }
+
+        // Entries go to the file of the day they were logged on.
+        if (!currentDate.equals(channelDate)) {
+            writeBuffer();
+            openChannel(currentDate);
+        }
+
+        byte[] line = (currentTimestamp + ' ' + entry.message() + '\n').getBytes(StandardCharsets.UTF_8);
+        if (line.length > buffer.remaining()) {
+            writeBuffer();
+        }
+
+        if (line.length > buffer.capacity()) {
+            write(ByteBuffer.wrap(line), 1);
+        }
+        else {
+            buffer.put(line);
+            bufferedEntries++;
+        }
+
+        if (entry.record() != null) {
+            appendRecord(entry.record());
+        }
+    }
+
+    private void appendRecord(ActivityRecord record)
+    {
+        try {
+            store.append(record);
         }
         catch (IOException e) {
-            serverLogger.severe("Could not write to log file " + logFile + ": " + e.getMessage());
+            serverLogger.severe("Could not write to activity segment: " + e.getMessage());
+            // The segment is indexed again from what made it to the disk when it's opened next.
+            closeStore();
         }
     }
 
-    public void registerTasks(GriefPrevention plugin, BukkitScheduler scheduler)
+    private void flushStore()
     {
-        // Flush messages every 60 seconds.
-        scheduler.scheduleSyncRepeatingTask(plugin, this::flush, 0, 60 * 20);
+        try {
+            store.flush();
+        }
+        catch (IOException e) {
+            serverLogger.severe("Could not write to activity segment: " + e.getMessage());
+            closeStore();
+        }
+    }
 
-        // Prune old logs once a day, if enabled.
-        if (configuration.isLogPruningEnabled()) {
-            scheduler.scheduleSyncRepeatingTask(
-                    plugin,
-                    new PruneLogsTask(serverLogger, logDirectory, configuration),
-                    0,
-                    24 * 60 * 60 * 20
+    private void closeStore()
+    {
+        try {
+            store.close();
+        }
+        catch (IOException e) {
+            serverLogger.severe("Could not seal activity segment: " + e.getMessage());
+        }
+    }
+
+    private void writeBuffer()
+    {
+        if (bufferedEntries == 0) return;
+
+        buffer.flip();
+        write(buffer, bufferedEntries);
+        buffer.clear();
+        bufferedEntries = 0;
+    }
+
+    private void write(ByteBuffer bytes, int entries)
+    {
+        // Try again if the file couldn't be opened before.
+        if (channel == null) openChannel(channelDate);
+        if (channel == null) {
+            droppedEntries.add(entries);
+            return;
+        }
+
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            writtenEntries.add(entries);
+        }
+        catch (IOException e) {
+            droppedEntries.add(entries);
+            serverLogger.severe("Could not write to log file " + getLogFile(channelDate) + ": " + e.getMessage());
+        }
+    }
+
+    private void openChannel(LocalDate date)
+    {
+        closeChannel();
+        channelDate = date;
+
+        File logFile = getLogFile(date);
+        try {
+            channel = FileChannel.open(
+                    logFile.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND
             );
         }
+        catch (IOException e) {
+            serverLogger.severe("Could not open log file " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    private void closeChannel()
+    {
+        if (channel == null) return;
+
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            serverLogger.severe("Could not close log file " + getLogFile(channelDate) + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private File getLogFile(LocalDate date)
+    {
+        return new File(logDirectory, FILENAME_FORMAT.format(date) + ".log");
+    }
+
+    private record Entry(long time, String message, @Nullable ActivityRecord record)
+    {
     }
 }
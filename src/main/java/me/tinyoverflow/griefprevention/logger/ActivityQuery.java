@@ -0,0 +1,53 @@
+package me.tinyoverflow.griefprevention.logger;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Selects structured activity records by player, by location or by both.
+ *
+ * <p>The location is a square around the given block coordinates, which
+ * matches the chunk index the records are looked up in.
+ *
+ * @param player the player to look for or null for all players
+ * @param world  the name of the world to look in or null for all locations
+ * @param x      the block x coordinate of the center
+ * @param z      the block z coordinate of the center
+ * @param radius the maximum distance along either axis
+ * @param since  the earliest time to include, in epoch milliseconds
+ * @param limit  the maximum number of records to return, newest first
+ */
+public record ActivityQuery(@Nullable UUID player, @Nullable String world, int x, int z, int radius, long since, int limit)
+{
+    public ActivityQuery
+    {
+        if (player == null && world == null)
+        {
+            throw new IllegalArgumentException("An activity query needs a player, a location or both.");
+        }
+        if (radius < 0)
+        {
+            throw new IllegalArgumentException("The radius must not be negative.");
+        }
+    }
+
+    /**
+     * Create a query for everything a player did anywhere.
+     */
+    public static ActivityQuery byPlayer(UUID player, long since, int limit)
+    {
+        return new ActivityQuery(player, null, 0, 0, 0, since, limit);
+    }
+
+    boolean matches(ActivityRecord record)
+    {
+        if (record.time() < since) return false;
+        if (player != null && !player.equals(record.player())) return false;
+
+        return world == null ||
+               (world.equals(record.world()) &&
+                Math.abs(record.x() - x) <= radius &&
+                Math.abs(record.z() - z) <= radius);
+    }
+}
@@ -0,0 +1,19 @@
+package me.tinyoverflow.griefprevention.logger;
+
+import java.util.UUID;
+
+/**
+ * A structured activity log entry, which can be looked up by player and location.
+ *
+ * @param time    when the activity happened, in epoch milliseconds
+ * @param type    the type of the activity
+ * @param player  the player who caused the activity
+ * @param world   the name of the world the activity happened in
+ * @param x       the block x coordinate
+ * @param y       the block y coordinate
+ * @param z       the block z coordinate
+ * @param message the log message, shortened to 256 characters when stored
+ */
+public record ActivityRecord(long time, ActivityType type, UUID player, String world, int x, int y, int z, String message)
+{
+}
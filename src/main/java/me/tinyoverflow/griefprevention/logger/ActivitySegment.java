@@ -0,0 +1,656 @@
+package me.tinyoverflow.griefprevention.logger;
+
+import me.tinyoverflow.griefprevention.utils.LongHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * One day of structured activity records, kept in a data file and an index file.
+ *
+ * <p>The data file holds world definitions and records in the order they were
+ * written. Records refer to their world by the position of its definition, so
+ * each world name is only stored once per day. The index file is written when
+ * the segment is sealed. It holds a table of players and a table of chunks,
+ * both sorted, which point to the offsets of the matching records in the data
+ * file. Queries binary search these tables and only read the records they
+ * point to.
+ *
+ * <p>While a segment is open for appending its index is kept in memory. A
+ * segment without an up-to-date index file, for example after a crash, is
+ * indexed again from its data file the next time it's opened or queried.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class ActivitySegment
+{
+    private static final int DATA_MAGIC = 0x47504131;
+    private static final int INDEX_MAGIC = 0x47504931;
+    private static final int DATA_HEADER_SIZE = 4;
+    private static final byte WORLD_ENTRY = 0;
+    private static final byte RECORD_ENTRY = 1;
+    //entry type, time, activity type, player, world, x, y, z, message length
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 1 + 16 + 2 + 4 + 4 + 4 + 2;
+    private static final int MAX_MESSAGE_CHARS = 256;
+    private static final int MAX_RECORD_SIZE = RECORD_HEADER_SIZE + MAX_MESSAGE_CHARS * 3;
+    //player, first posting, posting count
+    private static final int PLAYER_KEY_SIZE = 16 + 4 + 4;
+    //chunk key, first posting, posting count
+    private static final int CHUNK_KEY_SIZE = 8 + 4 + 4;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int[] NO_OFFSETS = new int[0];
+    //stored by ordinal, new activity types must be added at the end
+    private static final ActivityType[] TYPES = ActivityType.values();
+    private static final Comparator<UUID> PLAYER_ORDER = Comparator
+            .comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits);
+
+    private final File dataFile;
+    private final File indexFile;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    //bytes in the data file, and in the data file and the buffer
+    private long writtenSize;
+    private long size;
+
+    private final List<String> worlds = new ArrayList<>();
+    private final Map<String, Integer> worldIds = new HashMap<>();
+    private final Map<UUID, Postings> players = new HashMap<>();
+    private final LongHashMap<Postings> chunks = new LongHashMap<>();
+    private long[] chunkKeys = new long[64];
+    private int chunkCount;
+    private long maxTime = Long.MIN_VALUE;
+
+    private ActivitySegment(File dataFile, File indexFile, FileChannel channel)
+    {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.channel = channel;
+    }
+
+    /**
+     * Open a segment for appending, creating its data file if it doesn't exist yet.
+     *
+     * @param dataFile  the data file
+     * @param indexFile the index file, which is removed until the segment is sealed
+     * @return the open segment
+     * @throws IOException if the data file can't be read or isn't a segment
+     */
+    static ActivitySegment open(File dataFile, File indexFile) throws IOException
+    {
+        FileChannel channel = FileChannel.open(
+                dataFile.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+
+        try {
+            ActivitySegment segment = new ActivitySegment(dataFile, indexFile, channel);
+            segment.load();
+            return segment;
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Find records in a sealed segment. Segments without an up-to-date index
+     * file are indexed first.
+     *
+     * @param dataFile  the data file
+     * @param indexFile the index file
+     * @param query     the query
+     * @param results   the list to add matching records to, newest first, up to the query's limit
+     * @throws IOException if the segment can't be read
+     */
+    static void find(File dataFile, File indexFile, ActivityQuery query, List<ActivityRecord> results) throws IOException
+    {
+        if (!dataFile.exists()) return;
+
+        IndexFile current = IndexFile.openIfCurrent(indexFile, dataFile.length());
+        if (current == null) {
+            open(dataFile, indexFile).seal();
+            current = IndexFile.openIfCurrent(indexFile, dataFile.length());
+            if (current == null) throw new IOException("Could not index activity segment " + dataFile);
+        }
+
+        try (IndexFile index = current; FileChannel data = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+            if (index.maxTime < query.since()) return;
+            readRecords(data, index.worlds, candidates(query, index), query, results);
+        }
+    }
+
+    /**
+     * Append a record. The record is buffered until the segment is flushed.
+     *
+     * @param record the record
+     * @throws IOException if the buffer had to be flushed and that failed, or the segment is full
+     */
+    void append(ActivityRecord record) throws IOException
+    {
+        // Offsets are stored as ints, a day with more than 2 GB of records starts dropping them.
+        if (size > Integer.MAX_VALUE - MAX_RECORD_SIZE - 3 - 0xFFFF) {
+            throw new IOException("Activity segment " + dataFile + " is full.");
+        }
+
+        Integer world = worldIds.get(record.world());
+        if (world == null) {
+            byte[] name = record.world().getBytes(UTF_8);
+            reserve(3 + name.length);
+            buffer.put(WORLD_ENTRY).putShort((short) name.length).put(name);
+            size += 3 + name.length;
+            world = addWorld(record.world());
+        }
+
+        String message = record.message();
+        if (message.length() > MAX_MESSAGE_CHARS) message = message.substring(0, MAX_MESSAGE_CHARS);
+        byte[] messageBytes = message.getBytes(UTF_8);
+
+        reserve(RECORD_HEADER_SIZE + messageBytes.length);
+        int offset = (int) size;
+        buffer.put(RECORD_ENTRY)
+                .putLong(record.time())
+                .put((byte) record.type().ordinal())
+                .putLong(record.player().getMostSignificantBits())
+                .putLong(record.player().getLeastSignificantBits())
+                .putShort((short) (int) world)
+                .putInt(record.x())
+                .putInt(record.y())
+                .putInt(record.z())
+                .putShort((short) messageBytes.length)
+                .put(messageBytes);
+        size += RECORD_HEADER_SIZE + messageBytes.length;
+
+        index(offset, record.time(), record.player(), world, record.x(), record.z());
+    }
+
+    /**
+     * Write buffered records to the data file.
+     *
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException
+    {
+        if (buffer.position() == 0) return;
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            writtenSize += channel.write(buffer, writtenSize);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Find records in this open segment, using the index in memory.
+     *
+     * @param query   the query
+     * @param results the list to add matching records to, newest first, up to the query's limit
+     * @throws IOException if the segment can't be read
+     */
+    void find(ActivityQuery query, List<ActivityRecord> results) throws IOException
+    {
+        if (maxTime < query.since()) return;
+
+        flush();
+        int[] offsets = candidates(query, new PostingsSource()
+        {
+            @Override
+            public int getWorldId(String world)
+            {
+                Integer id = worldIds.get(world);
+                return id == null ? -1 : id;
+            }
+
+            @Override
+            public int[] getPlayerPostings(UUID player)
+            {
+                Postings postings = players.get(player);
+                return postings == null ? NO_OFFSETS : postings.toArray();
+            }
+
+            @Override
+            public int[] getChunkPostings(long chunkKey)
+            {
+                Postings postings = chunks.get(chunkKey);
+                return postings == null ? NO_OFFSETS : postings.toArray();
+            }
+        });
+        readRecords(channel, worlds, offsets, query, results);
+    }
+
+    /**
+     * Write all buffered records and the index file, then close the data file.
+     *
+     * @throws IOException if writing fails
+     */
+    void seal() throws IOException
+    {
+        try {
+            flush();
+            writeIndex();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    static long getChunkKey(int world, int chunkX, int chunkZ)
+    {
+        // 24 bits per coordinate cover chunks far beyond the world border.
+        return ((long) world << 48) | ((chunkX & 0xFFFFFFL) << 24) | (chunkZ & 0xFFFFFFL);
+    }
+
+    private void load() throws IOException
+    {
+        // Appending makes the index outdated, it's written again when the segment is sealed.
+        Files.deleteIfExists(indexFile.toPath());
+
+        long fileSize = channel.size();
+        if (fileSize < DATA_HEADER_SIZE) {
+            channel.truncate(0);
+            buffer.putInt(DATA_MAGIC);
+            size = DATA_HEADER_SIZE;
+            return;
+        }
+
+        long position = DATA_HEADER_SIZE;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(dataFile.toPath())))) {
+            if (input.readInt() != DATA_MAGIC) {
+                throw new IOException(dataFile + " is not an activity segment.");
+            }
+
+            while (position < fileSize) {
+                byte entryType = input.readByte();
+                if (entryType == WORLD_ENTRY) {
+                    byte[] name = new byte[input.readUnsignedShort()];
+                    input.readFully(name);
+                    addWorld(new String(name, UTF_8));
+                    position += 3 + name.length;
+                }
+                else if (entryType == RECORD_ENTRY) {
+                    long time = input.readLong();
+                    input.readByte();
+                    UUID player = new UUID(input.readLong(), input.readLong());
+                    int world = input.readUnsignedShort();
+                    int x = input.readInt();
+                    input.readInt();
+                    int z = input.readInt();
+                    int messageLength = input.readUnsignedShort();
+                    input.skipNBytes(messageLength);
+                    index((int) position, time, player, world, x, z);
+                    position += RECORD_HEADER_SIZE + messageLength;
+                }
+                else {
+                    break;
+                }
+            }
+        }
+        catch (EOFException e) {
+            // The last entry wasn't written completely, it's cut off below.
+        }
+
+        if (position < fileSize) channel.truncate(position);
+        writtenSize = size = position;
+    }
+
+    private int addWorld(String world)
+    {
+        int id = worlds.size();
+        worlds.add(world);
+        worldIds.put(world, id);
+        return id;
+    }
+
+    private void index(int offset, long time, UUID player, int world, int x, int z)
+    {
+        players.computeIfAbsent(player, id -> new Postings()).add(offset);
+
+        long chunkKey = getChunkKey(world, x >> 4, z >> 4);
+        Postings postings = chunks.get(chunkKey);
+        if (postings == null) {
+            postings = new Postings();
+            chunks.put(chunkKey, postings);
+            if (chunkCount == chunkKeys.length) chunkKeys = Arrays.copyOf(chunkKeys, chunkCount * 2);
+            chunkKeys[chunkCount++] = chunkKey;
+        }
+        postings.add(offset);
+
+        maxTime = Math.max(maxTime, time);
+    }
+
+    private void reserve(int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes) flush();
+    }
+
+    private void writeIndex() throws IOException
+    {
+        UUID[] playerKeys = players.keySet().toArray(new UUID[0]);
+        Arrays.sort(playerKeys, PLAYER_ORDER);
+        long[] sortedChunkKeys = Arrays.copyOf(chunkKeys, chunkCount);
+        Arrays.sort(sortedChunkKeys);
+
+        // Write to a temporary file first, a half written index must never look current.
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile.toPath())))) {
+            output.writeInt(INDEX_MAGIC);
+            output.writeLong(size);
+            output.writeLong(maxTime);
+            output.writeShort(worlds.size());
+            for (String world : worlds) {
+                byte[] name = world.getBytes(UTF_8);
+                output.writeShort(name.length);
+                output.write(name);
+            }
+            output.writeInt(playerKeys.length);
+            output.writeInt(sortedChunkKeys.length);
+
+            int firstPosting = 0;
+            for (UUID player : playerKeys) {
+                Postings postings = players.get(player);
+                output.writeLong(player.getMostSignificantBits());
+                output.writeLong(player.getLeastSignificantBits());
+                output.writeInt(firstPosting);
+                output.writeInt(postings.size);
+                firstPosting += postings.size;
+            }
+            for (long chunkKey : sortedChunkKeys) {
+                Postings postings = chunks.get(chunkKey);
+                output.writeLong(chunkKey);
+                output.writeInt(firstPosting);
+                output.writeInt(postings.size);
+                firstPosting += postings.size;
+            }
+
+            for (UUID player : playerKeys) {
+                players.get(player).writeTo(output);
+            }
+            for (long chunkKey : sortedChunkKeys) {
+                chunks.get(chunkKey).writeTo(output);
+            }
+        }
+
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    //offsets of the records matching the query's player and location, in the order they were written
+    private static int[] candidates(ActivityQuery query, PostingsSource index) throws IOException
+    {
+        int[] byPlayer = query.player() == null ? null : index.getPlayerPostings(query.player());
+        if (query.world() == null || (byPlayer != null && byPlayer.length == 0)) return byPlayer;
+
+        int world = index.getWorldId(query.world());
+        if (world < 0) return NO_OFFSETS;
+
+        // Records of different chunks never overlap, so collecting all lists and sorting them is enough.
+        int[] byChunk = NO_OFFSETS;
+        int count = 0;
+        for (int chunkX = (query.x() - query.radius()) >> 4; chunkX <= (query.x() + query.radius()) >> 4; chunkX++) {
+            for (int chunkZ = (query.z() - query.radius()) >> 4; chunkZ <= (query.z() + query.radius()) >> 4; chunkZ++) {
+                int[] offsets = index.getChunkPostings(getChunkKey(world, chunkX, chunkZ));
+                if (offsets.length == 0) continue;
+
+                if (count + offsets.length > byChunk.length) {
+                    byChunk = Arrays.copyOf(byChunk, Math.max(count + offsets.length, byChunk.length * 2));
+                }
+                System.arraycopy(offsets, 0, byChunk, count, offsets.length);
+                count += offsets.length;
+            }
+        }
+        Arrays.sort(byChunk, 0, count);
+
+        return byPlayer == null ? Arrays.copyOf(byChunk, count) : intersect(byPlayer, byChunk, count);
+    }
+
+    private static int[] intersect(int[] first, int[] second, int secondLength)
+    {
+        int[] result = new int[Math.min(first.length, secondLength)];
+        int count = 0;
+        for (int i = 0, j = 0; i < first.length && j < secondLength; ) {
+            if (first[i] < second[j]) i++;
+            else if (first[i] > second[j]) j++;
+            else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    private static void readRecords(FileChannel data, List<String> worlds, int[] offsets, ActivityQuery query, List<ActivityRecord> results) throws IOException
+    {
+        ByteBuffer entry = ByteBuffer.allocate(MAX_RECORD_SIZE);
+
+        // Newer records are further back in the file.
+        for (int i = offsets.length - 1; i >= 0 && results.size() < query.limit(); i--) {
+            entry.clear();
+            while (entry.hasRemaining()) {
+                if (data.read(entry, offsets[i] + entry.position()) < 0) break;
+            }
+            entry.flip();
+
+            ActivityRecord record = readRecord(entry, worlds);
+            if (query.matches(record)) results.add(record);
+        }
+    }
+
+    private static ActivityRecord readRecord(ByteBuffer entry, List<String> worlds) throws IOException
+    {
+        if (entry.remaining() < RECORD_HEADER_SIZE || entry.get() != RECORD_ENTRY) {
+            throw new IOException("The activity index points to an invalid record.");
+        }
+
+        long time = entry.getLong();
+        int type = entry.get();
+        UUID player = new UUID(entry.getLong(), entry.getLong());
+        int world = entry.getShort() & 0xFFFF;
+        int x = entry.getInt();
+        int y = entry.getInt();
+        int z = entry.getInt();
+        byte[] message = new byte[Math.min(entry.getShort() & 0xFFFF, entry.remaining())];
+        entry.get(message);
+
+        if (type < 0 || type >= TYPES.length || world >= worlds.size()) {
+            throw new IOException("The activity index points to an invalid record.");
+        }
+
+        return new ActivityRecord(time, TYPES[type], player, worlds.get(world), x, y, z, new String(message, UTF_8));
+    }
+
+    private interface PostingsSource
+    {
+        //the id of the world within the segment, or -1 if it doesn't appear
+        int getWorldId(String world);
+
+        int[] getPlayerPostings(UUID player) throws IOException;
+
+        int[] getChunkPostings(long chunkKey) throws IOException;
+    }
+
+    private static final class Postings
+    {
+        private int[] offsets = new int[4];
+        private int size;
+
+        void add(int offset)
+        {
+            if (size == offsets.length) offsets = Arrays.copyOf(offsets, size * 2);
+            offsets[size++] = offset;
+        }
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(offsets, size);
+        }
+
+        void writeTo(DataOutputStream output) throws IOException
+        {
+            for (int i = 0; i < size; i++) {
+                output.writeInt(offsets[i]);
+            }
+        }
+    }
+
+    /**
+     * The index file of a sealed segment, its tables are searched with positional reads.
+     */
+    private static final class IndexFile implements PostingsSource, Closeable
+    {
+        private final FileChannel channel;
+        private final List<String> worlds;
+        private final long maxTime;
+        private final int playerCount;
+        private final int chunkCount;
+        private final long playerTable;
+        private final long chunkTable;
+        private final long postingsStart;
+        private final ByteBuffer keyBuffer = ByteBuffer.allocate(Math.max(PLAYER_KEY_SIZE, CHUNK_KEY_SIZE));
+
+        private IndexFile(FileChannel channel, List<String> worlds, long maxTime, int playerCount, int chunkCount, long playerTable)
+        {
+            this.channel = channel;
+            this.worlds = worlds;
+            this.maxTime = maxTime;
+            this.playerCount = playerCount;
+            this.chunkCount = chunkCount;
+            this.playerTable = playerTable;
+            this.chunkTable = playerTable + (long) playerCount * PLAYER_KEY_SIZE;
+            this.postingsStart = chunkTable + (long) chunkCount * CHUNK_KEY_SIZE;
+        }
+
+        //opens the index file if it was written for the data file in its current length
+        static @Nullable IndexFile openIfCurrent(File indexFile, long dataLength) throws IOException
+        {
+            if (!indexFile.exists()) return null;
+
+            List<String> worlds;
+            long maxTime;
+            int playerCount;
+            int chunkCount;
+            long headerSize = 4 + 8 + 8 + 2 + 4 + 4;
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+                if (input.readInt() != INDEX_MAGIC || input.readLong() != dataLength) return null;
+
+                maxTime = input.readLong();
+                int worldCount = input.readUnsignedShort();
+                worlds = new ArrayList<>(worldCount);
+                for (int i = 0; i < worldCount; i++) {
+                    byte[] name = new byte[input.readUnsignedShort()];
+                    input.readFully(name);
+                    worlds.add(new String(name, UTF_8));
+                    headerSize += 2 + name.length;
+                }
+                playerCount = input.readInt();
+                chunkCount = input.readInt();
+            }
+            catch (EOFException e) {
+                return null;
+            }
+
+            FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+            return new IndexFile(channel, worlds, maxTime, playerCount, chunkCount, headerSize);
+        }
+
+        @Override
+        public int getWorldId(String world)
+        {
+            return worlds.indexOf(world);
+        }
+
+        @Override
+        public int[] getPlayerPostings(UUID player) throws IOException
+        {
+            int low = 0;
+            int high = playerCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                ByteBuffer key = read(playerTable + (long) middle * PLAYER_KEY_SIZE, PLAYER_KEY_SIZE);
+                int comparison = Long.compare(key.getLong(), player.getMostSignificantBits());
+                if (comparison == 0) comparison = Long.compare(key.getLong(), player.getLeastSignificantBits());
+
+                if (comparison < 0) low = middle + 1;
+                else if (comparison > 0) high = middle - 1;
+                else return readPostings(key.getInt(), key.getInt());
+            }
+
+            return NO_OFFSETS;
+        }
+
+        @Override
+        public int[] getChunkPostings(long chunkKey) throws IOException
+        {
+            int low = 0;
+            int high = chunkCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                ByteBuffer key = read(chunkTable + (long) middle * CHUNK_KEY_SIZE, CHUNK_KEY_SIZE);
+                int comparison = Long.compare(key.getLong(), chunkKey);
+
+                if (comparison < 0) low = middle + 1;
+                else if (comparison > 0) high = middle - 1;
+                else return readPostings(key.getInt(), key.getInt());
+            }
+
+            return NO_OFFSETS;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+
+        private int[] readPostings(int first, int count) throws IOException
+        {
+            ByteBuffer postings = ByteBuffer.allocate(count * 4);
+            readFully(postings, postingsStart + first * 4L);
+
+            int[] offsets = new int[count];
+            postings.asIntBuffer().get(offsets);
+            return offsets;
+        }
+
+        private ByteBuffer read(long position, int length) throws IOException
+        {
+            keyBuffer.clear().limit(length);
+            readFully(keyBuffer, position);
+            return keyBuffer;
+        }
+
+        private void readFully(ByteBuffer target, long position) throws IOException
+        {
+            while (target.hasRemaining()) {
+                if (channel.read(target, position + target.position()) < 0) {
+                    throw new EOFException("The activity index is shorter than its tables.");
+                }
+            }
+            target.flip();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package me.tinyoverflow.griefprevention.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores structured activity records in one {@link ActivitySegment} per day.
+ *
+ * <p>Only the segment of the day records are currently written to is open,
+ * the segments of earlier days are sealed and only read by queries. Segments
+ * are named after their day just like the text logs, so pruning removes whole
+ * segments together with the text log of the same day.
+ *
+ * <p>This class is not thread-safe, the activity logger only uses it from its
+ * writer thread.
+ */
+class ActivityStore
+{
+    private static final String DATA_EXTENSION = ".seg";
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final DateTimeFormatter FILENAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final File directory;
+    private final ZoneId zone;
+    private ActivitySegment segment;
+    private LocalDate segmentDate;
+
+    ActivityStore(File directory, ZoneId zone)
+    {
+        this.directory = directory;
+        this.zone = zone;
+    }
+
+    void append(ActivityRecord record) throws IOException
+    {
+        // Records go to the segment of the day they happened on.
+        LocalDate date = toDate(record.time());
+        if (segment == null || !date.equals(segmentDate)) {
+            close();
+            segment = ActivitySegment.open(getDataFile(date), getIndexFile(date));
+            segmentDate = date;
+        }
+
+        segment.append(record);
+    }
+
+    void flush() throws IOException
+    {
+        if (segment != null) segment.flush();
+    }
+
+    /**
+     * Seal the open segment. The next record opens it again.
+     *
+     * @throws IOException if the segment couldn't be sealed, it's indexed again when opened next time
+     */
+    void close() throws IOException
+    {
+        if (segment == null) return;
+
+        try {
+            segment.seal();
+        }
+        finally {
+            segment = null;
+            segmentDate = null;
+        }
+    }
+
+    /**
+     * Find the newest records matching a query, going back one segment per day.
+     *
+     * @param query the query
+     * @param today the newest day to look at
+     * @return the matching records, newest first
+     * @throws IOException if a segment couldn't be read
+     */
+    List<ActivityRecord> query(ActivityQuery query, LocalDate today) throws IOException
+    {
+        List<ActivityRecord> results = new ArrayList<>();
+        LocalDate firstDay = toDate(query.since());
+
+        for (LocalDate date = today; !date.isBefore(firstDay) && results.size() < query.limit(); date = date.minusDays(1)) {
+            if (segment != null && date.equals(segmentDate)) {
+                segment.find(query, results);
+            }
+            else {
+                ActivitySegment.find(getDataFile(date), getIndexFile(date), query, results);
+            }
+        }
+
+        return results;
+    }
+
+    private LocalDate toDate(long time)
+    {
+        return Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+    }
+
+    private File getDataFile(LocalDate date)
+    {
+        return new File(directory, FILENAME_FORMAT.format(date) + DATA_EXTENSION);
+    }
+
+    private File getIndexFile(LocalDate date)
+    {
+        return new File(directory, FILENAME_FORMAT.format(date) + INDEX_EXTENSION);
+    }
+}
@@ -0,0 +1,169 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Block changes in one world, to be applied over several ticks by the
+ * {@link BlockMutationExecutor}.
+ *
+ * <p>Each change is a block position and a material, handed to the batch's
+ * {@link Mutation} once its turn comes. The mutation decides what actually
+ * happens, since the world may have changed since the batch was built.
+ * Positions are packed into longs. Once submitted, changes are applied chunk
+ * by chunk, in the order they were added within a chunk.
+ */
+public final class BlockMutationBatch
+{
+    //positions beyond this index wouldn't fit the sort key
+    public static final int MAX_SIZE = 1 << 20;
+
+    private final World world;
+    private final Mutation mutation;
+
+    private long[] positions = new long[64];
+    private Material[] types = new Material[64];
+    private int size;
+    private int applied;
+
+    /**
+     * @param world the world of the blocks
+     * @param mutation what to do with each block
+     */
+    public BlockMutationBatch(World world, Mutation mutation)
+    {
+        this.world = world;
+        this.mutation = mutation;
+    }
+
+    /**
+     * Queue a change.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @param type the material handed to the mutation, may be null if the mutation decides on its own
+     */
+    public void add(int x, int y, int z, @Nullable Material type)
+    {
+        if (size == MAX_SIZE)
+        {
+            throw new IllegalStateException("A batch can't hold more than " + MAX_SIZE + " changes.");
+        }
+
+        if (size == positions.length)
+        {
+            positions = Arrays.copyOf(positions, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+        }
+
+        positions[size] = pack(x, y, z);
+        types[size] = type;
+        size++;
+    }
+
+    //groups the changes by chunk, keeping their order within a chunk
+    void sortByChunk()
+    {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++)
+        {
+            long position = positions[i];
+            long chunkX = unpackX(position) >> 4;
+            long chunkZ = unpackZ(position) >> 4;
+            keys[i] = (chunkX << 42) | ((chunkZ & 0x3FFFFF) << 20) | i;
+        }
+        Arrays.sort(keys);
+
+        long[] sortedPositions = new long[size];
+        Material[] sortedTypes = new Material[size];
+        for (int i = 0; i < size; i++)
+        {
+            int index = (int) (keys[i] & (MAX_SIZE - 1));
+            sortedPositions[i] = positions[index];
+            sortedTypes[i] = types[index];
+        }
+        positions = sortedPositions;
+        types = sortedTypes;
+    }
+
+    //applies the next change, returns false once all changes are applied
+    boolean applyNext()
+    {
+        if (applied == size) return false;
+
+        long position = positions[applied];
+        Material type = types[applied];
+        types[applied] = null;
+        applied++;
+
+        mutation.apply(world.getBlockAt(unpackX(position), unpackY(position), unpackZ(position)), type);
+        return true;
+    }
+
+    static long pack(int x, int y, int z)
+    {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static int unpackX(long position)
+    {
+        return (int) (position >> 38);
+    }
+
+    static int unpackY(long position)
+    {
+        return (int) (position << 52 >> 52);
+    }
+
+    static int unpackZ(long position)
+    {
+        return (int) (position << 26 >> 38);
+    }
+
+    public World getWorld()
+    {
+        return world;
+    }
+
+    /**
+     * @return the number of changes in this batch
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the number of changes already applied
+     */
+    public int getApplied()
+    {
+        return applied;
+    }
+
+    /**
+     * @return the number of changes still to apply
+     */
+    public int getRemaining()
+    {
+        return size - applied;
+    }
+
+    /**
+     * What happens to a block of the batch, run on the main thread.
+     */
+    @FunctionalInterface
+    public interface Mutation
+    {
+        /**
+         * @param block the block to change
+         * @param type the material the change was added with
+         */
+        void apply(Block block, @Nullable Material type);
+    }
+}
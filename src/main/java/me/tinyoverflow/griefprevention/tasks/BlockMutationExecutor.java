@@ -0,0 +1,157 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.logger.ActivityType;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies batches of block changes on the main thread, spread over as many
+ * ticks as needed to stay within a time budget per tick.
+ *
+ * <p>Batches are applied one after the other, in the order they were
+ * submitted. At least one change is applied per tick, so work always
+ * progresses however small the budget is. While changes are pending, the
+ * backlog is written to the debug log every {@value #REPORT_INTERVAL_TICKS}
+ * ticks.
+ *
+ * <p>This class is not thread-safe, it must only be used from the main thread.
+ */
+public class BlockMutationExecutor implements Runnable
+{
+    private static final int REPORT_INTERVAL_TICKS = 20 * 30;
+
+    private final Queue<PendingBatch> queue = new ArrayDeque<>();
+    private final long budgetNanos;
+
+    private long backlog;
+    private long appliedSinceIdle;
+    private int ticksSinceIdle;
+
+    /**
+     * @param budgetMillis how long changes may be applied per tick, in milliseconds
+     */
+    public BlockMutationExecutor(double budgetMillis)
+    {
+        this.budgetNanos = (long) (budgetMillis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Queue a batch of changes.
+     *
+     * @param batch the changes, not to be modified anymore
+     * @return completed on the main thread once every change of the batch is applied
+     */
+    public CompletableFuture<BlockMutationBatch> submit(BlockMutationBatch batch)
+    {
+        CompletableFuture<BlockMutationBatch> future = new CompletableFuture<>();
+        batch.sortByChunk();
+        queue.add(new PendingBatch(batch, future));
+        backlog += batch.getRemaining();
+        return future;
+    }
+
+    @Override
+    public void run()
+    {
+        if (queue.isEmpty()) return;
+
+        long start = System.nanoTime();
+        ticksSinceIdle++;
+        do
+        {
+            PendingBatch pending = queue.peek();
+            if (applyNext(pending.batch()))
+            {
+                appliedSinceIdle++;
+                continue;
+            }
+
+            queue.poll();
+            pending.future().complete(pending.batch());
+        }
+        while (!queue.isEmpty() && System.nanoTime() - start < budgetNanos);
+
+        // Batches may become complete right on the last change of the tick.
+        while (!queue.isEmpty() && queue.peek().batch().getRemaining() == 0)
+        {
+            PendingBatch pending = queue.poll();
+            pending.future().complete(pending.batch());
+        }
+
+        if (queue.isEmpty())
+        {
+            GriefPrevention.AddLogEntry(
+                    "Applied " + appliedSinceIdle + " block changes in " + ticksSinceIdle + " ticks.",
+                    ActivityType.DEBUG,
+                    true
+            );
+            appliedSinceIdle = 0;
+            ticksSinceIdle = 0;
+        }
+        else if (ticksSinceIdle % REPORT_INTERVAL_TICKS == 0)
+        {
+            GriefPrevention.AddLogEntry(
+                    "Applied " + appliedSinceIdle + " block changes in " + ticksSinceIdle + " ticks, " +
+                    backlog + " changes in " + queue.size() + " batches are pending.",
+                    ActivityType.DEBUG,
+                    true
+            );
+        }
+    }
+
+    /**
+     * Apply every pending change right away, such as when the plugin is disabled.
+     */
+    public void flush()
+    {
+        PendingBatch pending;
+        while ((pending = queue.poll()) != null)
+        {
+            while (applyNext(pending.batch()))
+            {
+                appliedSinceIdle++;
+            }
+            pending.future().complete(pending.batch());
+        }
+    }
+
+    //a failing change is logged and skipped, so it can't hold up the changes after it
+    private boolean applyNext(BlockMutationBatch batch)
+    {
+        try
+        {
+            if (!batch.applyNext()) return false;
+        }
+        catch (RuntimeException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to apply a block change: " + e, ActivityType.EXCEPTION);
+        }
+
+        backlog--;
+        return true;
+    }
+
+    /**
+     * @return the number of changes not applied yet
+     */
+    public long getBacklog()
+    {
+        return backlog;
+    }
+
+    /**
+     * @return the number of batches not completely applied yet
+     */
+    public int getPendingBatches()
+    {
+        return queue.size();
+    }
+
+    private record PendingBatch(BlockMutationBatch batch, CompletableFuture<BlockMutationBatch> future)
+    {
+    }
+}
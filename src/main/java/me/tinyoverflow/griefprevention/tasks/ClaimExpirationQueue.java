@@ -0,0 +1,95 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The claim owners to check for expiration, ordered by the time their claims
+ * become eligible for expiry.
+ *
+ * <p>Owners are added by {@link #update(Set, long)} when they first own a
+ * claim, due at once, since their last login is only known once they are
+ * checked. Owners who no longer own any claims are dropped when they come due.
+ *
+ * <p>This class is not thread-safe.
+ */
+class ClaimExpirationQueue
+{
+    private record ScheduledOwner(UUID ownerID, long dueTime)
+    {
+    }
+
+    private final PriorityQueue<ScheduledOwner> queue = new PriorityQueue<>(
+            Comparator.comparingLong(ScheduledOwner::dueTime)
+    );
+    private final Set<UUID> scheduled = new HashSet<>();
+    private Set<UUID> owners = Set.of();
+
+    /**
+     * Take the current claim owners.
+     *
+     * @param owners the players owning at least one claim
+     * @param now    the current time, in milliseconds since the epoch
+     */
+    void update(Set<UUID> owners, long now)
+    {
+        this.owners = owners;
+        for (UUID owner : owners)
+        {
+            if (scheduled.add(owner)) queue.add(new ScheduledOwner(owner, now));
+        }
+    }
+
+    /**
+     * Take the next owner who is due. The owner needs to be {@link #schedule scheduled} again afterwards.
+     *
+     * @param now the current time, in milliseconds since the epoch
+     * @return the owner, or null if no owner is due
+     */
+    UUID pollDue(long now)
+    {
+        while (!queue.isEmpty() && queue.peek().dueTime() <= now)
+        {
+            UUID owner = queue.poll().ownerID();
+            if (owners.contains(owner)) return owner;
+
+            scheduled.remove(owner);
+        }
+
+        return null;
+    }
+
+    /**
+     * @param ownerID the owner taken by {@link #pollDue(long)}
+     * @param dueTime when to check the owner again, in milliseconds since the epoch
+     */
+    void schedule(UUID ownerID, long dueTime)
+    {
+        queue.add(new ScheduledOwner(ownerID, dueTime));
+    }
+
+    /**
+     * @param now the current time, in milliseconds since the epoch
+     * @return the number of owners who are due
+     */
+    int countDue(long now)
+    {
+        int due = 0;
+        for (ScheduledOwner owner : queue)
+        {
+            if (owner.dueTime() <= now) due++;
+        }
+        return due;
+    }
+
+    /**
+     * @return the number of scheduled owners
+     */
+    int size()
+    {
+        return queue.size();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.tinyoverflow.griefprevention.tasks;
+
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.configurations.ClaimExpirationConfiguration;
+import me.tinyoverflow.griefprevention.logger.ActivityType;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+//FEATURE: automatically remove claims owned by inactive players which:
+//...aren't protecting much OR
+//...are a free new player claim (and the player has no other claims) OR
+//...because the player has been gone a REALLY long time, and that expiration has been configured in config.yml
+
+/**
+ * Checks the claim owners whose claims became eligible for expiry.
+ *
+ * <p>Owners are kept in a {@link ClaimExpirationQueue} ordered by their last
+ * login plus the shortest configured expiration period. Each run checks all
+ * owners who are due, until the time budget is used up, and schedules them
+ * again for the next expiration period they haven't reached yet. Owners
+ * who have been gone longer than every period are checked again after the
+ * longest one. After each run with any owners due, the numbers of owners
+ * due, processed and expired are written to the debug log.
+ *
+ * <p>Runs off the main thread, since checking an owner loads their data from
+ * storage. Claims are expired on the main thread.
+ */
+public class ClaimExpirationScheduler implements Runnable
+{
+    private final ClaimExpirationQueue queue = new ClaimExpirationQueue();
+    private final ClaimExpirationConfiguration configuration;
+    private final long budgetNanos;
+
+    /**
+     * @param configuration the expiration settings
+     */
+    public ClaimExpirationScheduler(ClaimExpirationConfiguration configuration)
+    {
+        this.configuration = configuration;
+        this.budgetNanos = (long) (configuration.runBudgetMillis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Override
+    public synchronized void run()
+    {
+        //don't do anything when no claims expire
+        long[] periods = getExpirationPeriods(configuration);
+        if (periods.length == 0) return;
+
+        long now = System.currentTimeMillis();
+        queue.update(GriefPrevention.instance.dataStore.getClaimOwners(), now);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        UUID ownerID;
+        while (System.nanoTime() - start < budgetNanos && (ownerID = queue.pollDue(now)) != null)
+        {
+            results.add(check(ownerID, now, periods));
+        }
+
+        int due = results.size() + queue.countDue(now);
+        if (due == 0) return;
+
+        int scheduled = queue.size();
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).handle((ignored, error) -> {
+            long expired = results.stream().filter(result -> result.getNow(false)).count();
+            GriefPrevention.AddLogEntry(
+                    "Claim expiration: " + due + " owners due, " + results.size() + " processed, " + expired +
+                    " expired, " + scheduled + " scheduled.",
+                    ActivityType.DEBUG,
+                    true
+            );
+            return null;
+        });
+    }
+
+    private CompletableFuture<Boolean> check(UUID ownerID, long now, long[] periods)
+    {
+        CompletableFuture<Boolean> expired = new CompletableFuture<>();
+        OfflinePlayer ownerInfo = Bukkit.getServer().getOfflinePlayer(ownerID);
+
+        //online, new and unknown players count as just seen
+        long lastPlayed = ownerInfo.isOnline() ? now : ownerInfo.getLastPlayed();
+        if (lastPlayed <= 0) lastPlayed = now;
+        queue.schedule(ownerID, getNextDueTime(lastPlayed, now, periods));
+
+        //the owner played again since they were scheduled
+        if (lastPlayed + periods[0] > now)
+        {
+            expired.complete(false);
+            return expired;
+        }
+
+        try
+        {
+            new CleanupUnusedClaimPreTask(ownerID, ownerInfo, expired).run();
+        }
+        catch (RuntimeException e)
+        {
+            GriefPrevention.AddLogEntry(
+                    "Unable to check " + ownerID + " for expired claims: " + e,
+                    ActivityType.EXCEPTION
+            );
+            expired.complete(false);
+        }
+
+        return expired;
+    }
+
+    /**
+     * Get the configured expiration periods.
+     *
+     * @param configuration the expiration settings
+     * @return the enabled periods in milliseconds, shortest first
+     */
+    static long[] getExpirationPeriods(ClaimExpirationConfiguration configuration)
+    {
+        return Arrays.stream(new int[] {
+                        configuration.chestClaimDays,
+                        configuration.unusedClaimDays,
+                        configuration.allClaimsDays
+                })
+                .filter(days -> days > 0)
+                .mapToLong(TimeUnit.DAYS::toMillis)
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Get when to check an owner next.
+     *
+     * @param lastPlayed the owner's last login, in milliseconds since the epoch
+     * @param now        the current time, in milliseconds since the epoch
+     * @param periods    the expiration periods, shortest first
+     * @return the end of the first period the owner hasn't been gone for yet, or the longest
+     *         period from now if the owner has been gone longer than every period
+     */
+    static long getNextDueTime(long lastPlayed, long now, long[] periods)
+    {
+        for (long period : periods)
+        {
+            if (lastPlayed + period > now) return lastPlayed + period;
+        }
+
+        return now + periods[periods.length - 1];
+    }
+}
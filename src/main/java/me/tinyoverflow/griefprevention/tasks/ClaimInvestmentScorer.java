@@ -0,0 +1,330 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import me.tinyoverflow.griefprevention.Claim;
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.utils.LongHashMap;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Scores how much players invested into claims by counting player placed
+ * blocks, to tell which unused claims are worth keeping.
+ *
+ * <p>Every chunk a claim touches is scored separately: snapshots are taken on
+ * the main thread and scanned by an async task. The partial score of a chunk
+ * is cached until a block in that chunk changes, so scoring a claim again only
+ * scans the chunks which changed since. Only block changes which fire Bukkit
+ * events invalidate cached scores, so decisions which can't be undone, such
+ * as expiring a claim, use {@link #getFreshScore(Claim)}. Chunks which aren't
+ * loaded are loaded asynchronously first.
+ *
+ * <p>This class is not thread-safe, it must only be used from the main thread.
+ * The futures it returns are completed on the main thread.
+ */
+public class ClaimInvestmentScorer
+{
+    private final GriefPrevention plugin;
+    private final Executor async;
+    private final Executor sync;
+
+    //partial scores in half points, by world, chunk and the part of the chunk scored
+    private final Map<UUID, LongHashMap<Map<Scope, Long>>> scores = new HashMap<>();
+    private final Map<RulesKey, Set<Material>> playerBlocks = new HashMap<>();
+
+    public ClaimInvestmentScorer(GriefPrevention plugin)
+    {
+        this.plugin = plugin;
+        this.async = task -> plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+        this.sync = task -> plugin.getServer().getScheduler().runTask(plugin, task);
+    }
+
+    /**
+     * Score a claim, scanning only the chunks which changed since they were last scored.
+     *
+     * @param claim the claim
+     * @return the investment score, completed on the main thread
+     */
+    public CompletableFuture<Long> getScore(Claim claim)
+    {
+        return getScore(claim, false);
+    }
+
+    /**
+     * Score a claim from new snapshots of all its chunks, ignoring cached scores.
+     *
+     * @param claim the claim
+     * @return the investment score, completed on the main thread
+     */
+    public CompletableFuture<Long> getFreshScore(Claim claim)
+    {
+        return getScore(claim, true);
+    }
+
+    private CompletableFuture<Long> getScore(Claim claim, boolean fresh)
+    {
+        Location lesserCorner = claim.getLesserBoundaryCorner();
+        Location greaterCorner = claim.getGreaterBoundaryCorner();
+        World world = lesserCorner.getWorld();
+
+        //the rules depend on the biome at the lesser corner, so its chunk is loaded first
+        return world.getChunkAtAsync(lesserCorner.getBlockX() >> 4, lesserCorner.getBlockZ() >> 4).thenCompose(lesserChunk -> {
+            Biome biome = lesserCorner.getBlock().getBiome();
+            boolean creativeMode = plugin.creativeRulesApply(lesserCorner);
+
+            List<CompletableFuture<Long>> parts = new ArrayList<>();
+            for (int chunkX = lesserCorner.getBlockX() >> 4; chunkX <= greaterCorner.getBlockX() >> 4; chunkX++)
+            {
+                for (int chunkZ = lesserCorner.getBlockZ() >> 4; chunkZ <= greaterCorner.getBlockZ() >> 4; chunkZ++)
+                {
+                    Scope scope = Scope.of(lesserCorner, greaterCorner, chunkX, chunkZ, biome, creativeMode);
+                    parts.add(world.getChunkAtAsync(chunkX, chunkZ).thenCompose(chunk -> getScore(chunk, scope, fresh)));
+                }
+            }
+
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+                long halfPoints = 0;
+                for (CompletableFuture<Long> part : parts)
+                {
+                    halfPoints += part.join();
+                }
+                return halfPoints / 2;
+            });
+        });
+    }
+
+    private CompletableFuture<Long> getScore(Chunk chunk, Scope scope, boolean fresh)
+    {
+        World world = chunk.getWorld();
+        long chunkKey = chunk.getChunkKey();
+        Map<Scope, Long> chunkScores = getChunkScores(world, chunkKey);
+        Long cached = fresh ? null : chunkScores.get(scope);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        Set<Material> blocks = getPlayerBlocks(world.getEnvironment(), scope.biome());
+        int seaLevel = plugin.getSeaLevel(world);
+        int maxY = world.getMaxHeight();
+
+        return CompletableFuture.supplyAsync(() -> scan(snapshot, scope, seaLevel, maxY, blocks), async)
+                .thenApplyAsync(halfPoints -> {
+                    //only cache the score if the chunk didn't change while it was scanned
+                    LongHashMap<Map<Scope, Long>> worldScores = scores.get(world.getUID());
+                    if (worldScores != null && worldScores.get(chunkKey) == chunkScores)
+                    {
+                        chunkScores.put(scope, halfPoints);
+                    }
+                    return halfPoints;
+                }, sync);
+    }
+
+    /**
+     * Score a claim right away, loading its chunks and scanning the chunks
+     * which changed since they were last scored on the calling thread.
+     *
+     * @param claim the claim
+     * @return the investment score
+     */
+    public long getScoreNow(Claim claim)
+    {
+        Location lesserCorner = claim.getLesserBoundaryCorner();
+        Location greaterCorner = claim.getGreaterBoundaryCorner();
+        World world = lesserCorner.getWorld();
+        Biome biome = lesserCorner.getBlock().getBiome();
+        boolean creativeMode = plugin.creativeRulesApply(lesserCorner);
+        Set<Material> blocks = getPlayerBlocks(world.getEnvironment(), biome);
+
+        long halfPoints = 0;
+        for (int chunkX = lesserCorner.getBlockX() >> 4; chunkX <= greaterCorner.getBlockX() >> 4; chunkX++)
+        {
+            for (int chunkZ = lesserCorner.getBlockZ() >> 4; chunkZ <= greaterCorner.getBlockZ() >> 4; chunkZ++)
+            {
+                Scope scope = Scope.of(lesserCorner, greaterCorner, chunkX, chunkZ, biome, creativeMode);
+                Map<Scope, Long> chunkScores = getChunkScores(world, Chunk.getChunkKey(chunkX, chunkZ));
+                Long cached = chunkScores.get(scope);
+                if (cached == null)
+                {
+                    ChunkSnapshot snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+                    cached = scan(snapshot, scope, plugin.getSeaLevel(world), world.getMaxHeight(), blocks);
+                    chunkScores.put(scope, cached);
+                }
+                halfPoints += cached;
+            }
+        }
+
+        return halfPoints / 2;
+    }
+
+    private Map<Scope, Long> getChunkScores(World world, long chunkKey)
+    {
+        LongHashMap<Map<Scope, Long>> worldScores = scores.computeIfAbsent(world.getUID(), uid -> new LongHashMap<>());
+        Map<Scope, Long> chunkScores = worldScores.get(chunkKey);
+        if (chunkScores == null)
+        {
+            chunkScores = new HashMap<>();
+            worldScores.put(chunkKey, chunkScores);
+        }
+        return chunkScores;
+    }
+
+    private Set<Material> getPlayerBlocks(Environment environment, Biome biome)
+    {
+        return playerBlocks.computeIfAbsent(
+                new RulesKey(environment, biome),
+                key -> RestoreNatureProcessingTask.getPlayerBlocks(key.environment(), key.biome())
+        );
+    }
+
+    /**
+     * Forget the scores of the chunk a changed block is in.
+     *
+     * @param block the changed block
+     */
+    public void invalidate(Block block)
+    {
+        invalidate(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    /**
+     * Forget the scores of a chunk.
+     *
+     * @param world the world of the chunk
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     */
+    public void invalidate(World world, int chunkX, int chunkZ)
+    {
+        LongHashMap<Map<Scope, Long>> worldScores = scores.get(world.getUID());
+        if (worldScores != null) worldScores.remove(Chunk.getChunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Forget the scores of every chunk an area touches.
+     *
+     * @param lesserCorner the lesser corner of the area
+     * @param greaterCorner the greater corner of the area
+     */
+    public void invalidate(Location lesserCorner, Location greaterCorner)
+    {
+        for (int chunkX = lesserCorner.getBlockX() >> 4; chunkX <= greaterCorner.getBlockX() >> 4; chunkX++)
+        {
+            for (int chunkZ = lesserCorner.getBlockZ() >> 4; chunkZ <= greaterCorner.getBlockZ() >> 4; chunkZ++)
+            {
+                invalidate(lesserCorner.getWorld(), chunkX, chunkZ);
+            }
+        }
+    }
+
+    /**
+     * Forget the scores of every chunk of a world, such as when it's unloaded.
+     *
+     * @param world the world
+     */
+    public void invalidate(World world)
+    {
+        scores.remove(world.getUID());
+    }
+
+    /**
+     * @return the number of chunks with cached scores
+     */
+    public int getCachedChunks()
+    {
+        int count = 0;
+        for (LongHashMap<Map<Scope, Long>> worldScores : scores.values())
+        {
+            count += worldScores.size();
+        }
+        return count;
+    }
+
+    /**
+     * Count the player placed blocks in a part of a chunk. Player blocks below
+     * 5 blocks under sea level count half as much, chests count 10 points
+     * unless creative rules apply, and in creative mode lava above that costs
+     * 10 points.
+     *
+     * @param snapshot the chunk
+     * @param scope the part of the chunk to scan
+     * @param seaLevel the sea level of the world
+     * @param maxY the height limit of the world, exclusive
+     * @param playerBlocks the blocks considered player placed
+     * @return the score in half points
+     */
+    static long scan(ChunkSnapshot snapshot, Scope scope, int seaLevel, int maxY, Set<Material> playerBlocks)
+    {
+        long halfPoints = 0;
+        for (int x = scope.fromX(); x <= scope.toX(); x++)
+        {
+            for (int z = scope.fromZ(); z <= scope.toZ(); z++)
+            {
+                int y = scope.fromY();
+                for (; y < seaLevel - 5; y++)
+                {
+                    Material type = snapshot.getBlockType(x, y, z);
+                    if (!playerBlocks.contains(type)) continue;
+
+                    halfPoints += type == Material.CHEST && !scope.creativeMode() ? 20 : 1;
+                }
+
+                for (; y < maxY; y++)
+                {
+                    Material type = snapshot.getBlockType(x, y, z);
+                    if (!playerBlocks.contains(type)) continue;
+
+                    if (type == Material.CHEST && !scope.creativeMode())
+                    {
+                        halfPoints += 20;
+                    }
+                    else if (scope.creativeMode() && type == Material.LAVA)
+                    {
+                        halfPoints -= 20;
+                    }
+                    else
+                    {
+                        halfPoints += 2;
+                    }
+                }
+            }
+        }
+
+        return halfPoints;
+    }
+
+    /**
+     * The part of a chunk a claim covers, in chunk coordinates, and the rules it's scored by.
+     */
+    record Scope(int fromX, int toX, int fromZ, int toZ, int fromY, Biome biome, boolean creativeMode)
+    {
+        static Scope of(Location lesserCorner, Location greaterCorner, int chunkX, int chunkZ, Biome biome, boolean creativeMode)
+        {
+            return new Scope(
+                    Math.max(lesserCorner.getBlockX() - (chunkX << 4), 0),
+                    Math.min(greaterCorner.getBlockX() - (chunkX << 4), 15),
+                    Math.max(lesserCorner.getBlockZ() - (chunkZ << 4), 0),
+                    Math.min(greaterCorner.getBlockZ() - (chunkZ << 4), 15),
+                    lesserCorner.getBlockY(),
+                    biome,
+                    creativeMode
+            );
+        }
+    }
+
+    private record RulesKey(Environment environment, Biome biome)
+    {
+    }
+}
@@ -25,18 +25,25 @@ import me.tinyoverflow.griefprevention.logger.ActivityType;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 //asynchronously loads player data without caching it in the datastore, then
 //passes those data to a claim cleanup task which might decide to delete a claim for inactivity
+//the result is completed with whether a claim expired
 
 class CleanupUnusedClaimPreTask implements Runnable
 {
-    private UUID ownerID = null;
+    private final UUID ownerID;
+    private final OfflinePlayer ownerInfo;
+    private final CompletableFuture<Boolean> expired;
 
-    CleanupUnusedClaimPreTask(UUID uuid)
+    CleanupUnusedClaimPreTask(UUID uuid, OfflinePlayer ownerInfo, CompletableFuture<Boolean> expired)
     {
-        ownerID = uuid;
+        this.ownerID = uuid;
+        this.ownerInfo = ownerInfo;
+        this.expired = expired;
     }
 
     @Override
@@ -44,7 +51,6 @@ class CleanupUnusedClaimPreTask implements Runnable
     {
         //get the data
         PlayerData ownerData = GriefPrevention.instance.dataStore.getPlayerDataFromStorage(ownerID);
-        OfflinePlayer ownerInfo = Bukkit.getServer().getOfflinePlayer(ownerID);
 
         GriefPrevention.AddLogEntry(
                 "Looking for expired claims.  Checking data for " + ownerID.toString(),
@@ -57,6 +63,7 @@ class CleanupUnusedClaimPreTask implements Runnable
         if (ownerInfo.isOnline())
         {
             GriefPrevention.AddLogEntry("Player is online. Ignoring.", ActivityType.DEBUG, true);
+            expired.complete(false);
             return;
         }
         if (ownerInfo.getLastPlayed() <= 0)
@@ -67,6 +74,7 @@ class CleanupUnusedClaimPreTask implements Runnable
                     ActivityType.DEBUG,
                     true
             );
+            expired.complete(false);
             return;
         }
 
@@ -82,34 +90,27 @@ class CleanupUnusedClaimPreTask implements Runnable
                     ActivityType.DEBUG,
                     true
             );
+            expired.complete(false);
             return;
         }
 
-        Claim claimToExpire = null;
+        List<Claim> ownerClaims = GriefPrevention.instance.dataStore.getClaimsByOwner(ownerID);
 
-        for (Claim claim : GriefPrevention.instance.dataStore.getClaims())
-        {
-            if (ownerID.equals(claim.ownerID))
-            {
-                claimToExpire = claim;
-                break;
-            }
-        }
-
-        if (claimToExpire == null)
+        if (ownerClaims.isEmpty())
         {
             GriefPrevention.AddLogEntry(
                     "Unable to find a claim to expire for " + ownerID.toString(),
                     ActivityType.DEBUG,
                     false
             );
+            expired.complete(false);
             return;
         }
 
         //pass it back to the main server thread, where it's safe to delete a claim if needed
         Bukkit.getScheduler().scheduleSyncDelayedTask(
                 GriefPrevention.instance,
-                new CleanupUnusedClaimTask(claimToExpire, ownerData, ownerInfo),
+                new CleanupUnusedClaimTask(ownerClaims.get(0), ownerData, ownerInfo, expired),
                 1L
         );
     }
@@ -29,18 +29,22 @@ import org.bukkit.OfflinePlayer;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 class CleanupUnusedClaimTask implements Runnable
 {
     Claim claim;
     PlayerData ownerData;
     OfflinePlayer ownerInfo;
+    //completed with whether a claim expired
+    CompletableFuture<Boolean> expired;
 
-    CleanupUnusedClaimTask(Claim claim, PlayerData ownerData, OfflinePlayer ownerInfo)
+    CleanupUnusedClaimTask(Claim claim, PlayerData ownerData, OfflinePlayer ownerInfo, CompletableFuture<Boolean> expired)
     {
         this.claim = claim;
         this.ownerData = ownerData;
         this.ownerInfo = ownerInfo;
+        this.expired = expired;
     }
 
     @Override
@@ -74,6 +78,7 @@ class CleanupUnusedClaimTask implements Runnable
             {
                 if (expireEventCanceled())
                 {
+                    expired.complete(false);
                     return;
                 }
                 claim.removeSurfaceFluids(null);
@@ -90,6 +95,7 @@ class CleanupUnusedClaimTask implements Runnable
                         " " + claim.getOwnerName() + "'s new player claim expired.",
                         ActivityType.ADMIN
                 );
+                expired.complete(true);
             }
         }
 
@@ -108,6 +114,7 @@ class CleanupUnusedClaimTask implements Runnable
             {
                 if (expireEventCanceled())
                 {
+                    expired.complete(false);
                     return;
                 }
                 //make a copy of this player's claim list
@@ -139,6 +146,7 @@ class CleanupUnusedClaimTask implements Runnable
                         GriefPrevention.instance.restoreClaim(claim, 0);
                     }
                 }
+                expired.complete(true);
             }
         }
         else if (
@@ -146,40 +154,65 @@ class CleanupUnusedClaimTask implements Runnable
                 0 && GriefPrevention.instance.creativeRulesApply(claim.getLesserBoundaryCorner()))
         {
             //avoid scanning large claims and administrative claims
-            if (claim.isAdminClaim() || claim.getWidth() > 25 || claim.getHeight() > 25) return;
+            if (claim.isAdminClaim() || claim.getWidth() > 25 || claim.getHeight() > 25)
+            {
+                expired.complete(false);
+                return;
+            }
 
-            //otherwise scan the claim content
-            int minInvestment = 400;
+            //if the owner has been gone long enough, scan the claim content
+            Calendar sevenDaysAgo = Calendar.getInstance();
+            sevenDaysAgo.add(
+                    Calendar.DATE,
+                    -GriefPrevention.instance.getPluginConfig().getClaimConfiguration().getExpirationConfiguration().unusedClaimDays
+            );
+            boolean claimExpired = sevenDaysAgo.getTime().after(new Date(ownerInfo.getLastPlayed()));
+            if (!claimExpired)
+            {
+                expired.complete(false);
+                return;
+            }
 
-            long investmentScore = claim.getPlayerInvestmentScore();
+            //the scan runs off the main thread, and the claim is removed back on the main thread if it's unused
+            //cached scores may miss changes made without block events, so all chunks are scanned again
+            GriefPrevention.instance.investmentScorer.getFreshScore(claim).thenAccept(investmentScore -> {
+                int minInvestment = 400;
 
-            if (investmentScore < minInvestment)
-            {
-                //if the owner has been gone at least a week, and if he has ONLY the new player claim, it will be removed
-                Calendar sevenDaysAgo = Calendar.getInstance();
-                sevenDaysAgo.add(
-                        Calendar.DATE,
-                        -GriefPrevention.instance.getPluginConfig().getClaimConfiguration().getExpirationConfiguration().unusedClaimDays
-                );
-                boolean claimExpired = sevenDaysAgo.getTime().after(new Date(ownerInfo.getLastPlayed()));
-                if (claimExpired)
+                //the claim may have been deleted while it was scanned
+                if (investmentScore >= minInvestment || !claim.inDataStore)
                 {
-                    if (expireEventCanceled())
-                    {
-                        return;
-                    }
-                    GriefPrevention.instance.dataStore.deleteClaim(claim, true, true);
-                    GriefPrevention.AddLogEntry(
-                            "Removed " + claim.getOwnerName() + "'s unused claim @ " +
-                            GriefPrevention.getFriendlyLocationString(claim.getLesserBoundaryCorner()),
-                            ActivityType.ADMIN
-                    );
-
-                    //restore the claim area to natural state
-                    GriefPrevention.instance.restoreClaim(claim, 0);
+                    expired.complete(false);
+                    return;
                 }
-            }
+
+                if (expireEventCanceled())
+                {
+                    expired.complete(false);
+                    return;
+                }
+                GriefPrevention.instance.dataStore.deleteClaim(claim, true, true);
+                GriefPrevention.AddLogEntry(
+                        "Removed " + claim.getOwnerName() + "'s unused claim @ " +
+                        GriefPrevention.getFriendlyLocationString(claim.getLesserBoundaryCorner()),
+                        ActivityType.ADMIN
+                );
+
+                //restore the claim area to natural state
+                GriefPrevention.instance.restoreClaim(claim, 0);
+                expired.complete(true);
+            }).exceptionally(error -> {
+                GriefPrevention.AddLogEntry(
+                        "Unable to score " + claim.getOwnerName() + "'s claim @ " +
+                        GriefPrevention.getFriendlyLocationString(claim.getLesserBoundaryCorner()) + ": " + error,
+                        ActivityType.EXCEPTION
+                );
+                expired.complete(false);
+                return null;
+            });
+            return;
         }
+
+        expired.complete(false);
     }
 
     public boolean expireEventCanceled()
@@ -142,6 +142,7 @@ public class EntityCleanupTask implements Runnable
             if (GriefPrevention.instance.creativeRulesApply(claim.getLesserBoundaryCorner()))
             {
                 //check its entity count and remove any extras
+                claim.recountActivity();
                 claim.allowMoreEntities(true);
             }
         }
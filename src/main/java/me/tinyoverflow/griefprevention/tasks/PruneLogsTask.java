@@ -5,15 +5,16 @@ import me.tinyoverflow.griefprevention.configurations.LoggerConfiguration;
 import java.io.File;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.Calendar;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 public class PruneLogsTask implements Runnable
 {
+    // Text logs and the data and index files of activity segments, all named after their day.
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("(?<date>\\d{4}-\\d{2}-\\d{2})\\.(log|seg|idx)");
+
     private final Logger serverLogger;
     private final File logDirectory;
     private final LoggerConfiguration loggerConfiguration;
@@ -36,11 +37,7 @@ public class PruneLogsTask implements Runnable
         }
 
         // Calculate the deadline for file deletion.
-        Calendar deadline = Calendar.getInstance();
-        deadline.add(
-                Calendar.DATE,
-                Math.negateExact(loggerConfiguration.getDaysToKeep())
-        );
+        LocalDate deadline = LocalDate.now().minusDays(loggerConfiguration.getDaysToKeep());
 
         // Go through each file inside the folder and handle it.
         for (File file : files)
@@ -53,23 +50,18 @@ public class PruneLogsTask implements Runnable
             try
             {
                 // Get date string from filename using regex.
-                Pattern fileNamePattern = Pattern.compile("(?<date>\\d{4}-\\d{2}-\\d{2}).log");
-                Matcher fileNameMatcher = fileNamePattern.matcher(file.getName());
+                Matcher fileNameMatcher = FILE_NAME_PATTERN.matcher(file.getName());
 
                 // If the pattern doesn't match, it's not a file we want to care about.
                 if (!fileNameMatcher.matches())
-                    return;
+                    continue;
 
                 LocalDate fileDate = LocalDate.parse(fileNameMatcher.group("date"));
-                if (deadline.before(fileDate) && !file.delete())
+                if (fileDate.isBefore(deadline) && !file.delete())
                 {
                     serverLogger.log(Level.WARNING, "Could not delete log file: " + file.getPath());
                 }
             }
-            catch (PatternSyntaxException pse)
-            {
-                serverLogger.log(Level.SEVERE, "Could not compile log file pattern. Please report this error.");
-            }
             catch (DateTimeParseException dtpe)
             {
                 serverLogger.log(Level.WARNING, "Log file with invalid date found in directory: " + logDirectory.getPath());
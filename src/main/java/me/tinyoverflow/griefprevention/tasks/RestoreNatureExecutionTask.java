@@ -20,9 +20,8 @@ package me.tinyoverflow.griefprevention.tasks;
 
 import com.griefprevention.visualization.BoundaryVisualization;
 import com.griefprevention.visualization.VisualizationType;
-import me.tinyoverflow.griefprevention.BlockSnapshot;
-import me.tinyoverflow.griefprevention.Claim;
 import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.datastore.AreaClaimLookup;
 import me.tinyoverflow.griefprevention.utils.BoundingBox;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
@@ -34,13 +33,15 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.Hanging;
 import org.bukkit.entity.Player;
 
+import java.util.concurrent.CompletableFuture;
+
 //this main thread task takes the output from the RestoreNatureProcessingTask\
 //and updates the world accordingly
 class RestoreNatureExecutionTask implements Runnable
 {
     //results from processing thread
-    //will be applied to the world
-    private final BlockSnapshot[][][] snapshots;
+    //will be applied to the world, and released once the changes are queued
+    private RestoreNatureVolume volume;
 
     //boundaries for changes
     private final int miny;
@@ -50,54 +51,85 @@ class RestoreNatureExecutionTask implements Runnable
     //player who should be notified about the result (will see a visualization when the restoration is complete)
     private final Player player;
 
-    public RestoreNatureExecutionTask(BlockSnapshot[][][] snapshots, int miny, Location lesserCorner, Location greaterCorner, Player player)
+    public RestoreNatureExecutionTask(RestoreNatureVolume volume, int miny, Location lesserCorner, Location greaterCorner, Player player)
     {
-        this.snapshots = snapshots;
+        this.volume = volume;
         this.miny = miny;
         this.lesserCorner = lesserCorner;
         this.greaterCorner = greaterCorner;
         this.player = player;
     }
 
+    //resolves the claims of the restored area while applying changes
+    private AreaClaimLookup claims;
 
     @Override
     public void run()
+    {
+        this.apply();
+    }
+
+    /**
+     * Queue the changes of the processed volume.
+     *
+     * @return completed once the changes are applied, entities are cleaned up and the player was notified
+     */
+    CompletableFuture<Void> apply()
     {
         //apply changes to the world, but ONLY to unclaimed blocks
         //note that the edge of the results is not applied (the 1-block-wide band around the outside of the chunk)
         //those data were sent to the processing thread for referernce purposes, but aren't part of the area selected for restoration
-        Claim cachedClaim = null;
-        for (int x = 1; x < this.snapshots.length - 1; x++)
+        //only blocks changed by the processing are queued, they're applied over as many ticks as the block change budget needs
+        this.claims = GriefPrevention.instance.dataStore.getClaimLookup(
+                this.lesserCorner.getWorld(),
+                new BoundingBox(this.lesserCorner, this.greaterCorner)
+        );
+        BlockMutationBatch batch = new BlockMutationBatch(this.lesserCorner.getWorld(), this::restoreBlock);
+        for (int x = 1; x < RestoreNatureVolume.SIZE - 1; x++)
         {
-            for (int z = 1; z < this.snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < RestoreNatureVolume.SIZE - 1; z++)
             {
-                for (int y = this.miny; y < this.snapshots[0].length; y++)
+                for (int y = this.miny; y < this.volume.getMaxY(); y++)
                 {
-                    BlockSnapshot blockUpdate = this.snapshots[x][y][z];
-                    Block currentBlock = blockUpdate.location.getBlock();
-                    if (blockUpdate.typeId != currentBlock.getType() || !blockUpdate.data.equals(currentBlock.getBlockData()))
-                    {
-                        Claim claim = GriefPrevention.instance.dataStore.getClaimAt(blockUpdate.location, false, cachedClaim);
-                        if (claim != null)
-                        {
-                            cachedClaim = claim;
-                            break;
-                        }
-
-                        try
-                        {
-                            currentBlock.setType(blockUpdate.typeId, false);
-                            // currentBlock.setBlockData(blockUpdate.data, false);
-                        }
-                        catch (IllegalArgumentException e)
-                        {
-                            //just don't update this block and continue trying to update other blocks
-                        }
-                    }
+                    if (!this.volume.isChanged(x, y, z)) continue;
+
+                    batch.add(
+                            this.volume.getOriginX() + x,
+                            y,
+                            this.volume.getOriginZ() + z,
+                            this.volume.getMaterial(this.volume.get(x, y, z))
+                    );
                 }
             }
         }
 
+        this.volume = null;
+
+        return GriefPrevention.instance.blockMutationExecutor.submit(batch).thenRun(this::finish);
+    }
+
+    private void restoreBlock(Block currentBlock, Material typeId)
+    {
+        if (typeId == currentBlock.getType()) return;
+
+        //claims may have been made since the restoration started
+        if (this.claims.getClaimAt(currentBlock, false) != null) return;
+
+        try
+        {
+            currentBlock.setType(typeId, false);
+        }
+        catch (IllegalArgumentException e)
+        {
+            //just don't update this block and continue trying to update other blocks
+        }
+    }
+
+    private void finish()
+    {
+        //the restored blocks change the investment scores of the area
+        GriefPrevention.instance.investmentScorer.invalidate(this.lesserCorner, this.greaterCorner);
+
         //clean up any entities in the chunk, ensure no players are suffocated
         Chunk chunk = this.lesserCorner.getChunk();
         Entity[] entities = chunk.getEntities();
@@ -123,7 +155,7 @@ class RestoreNatureExecutionTask implements Runnable
         }
 
         //show visualization to player who started the restoration
-        if (player != null)
+        if (player != null && player.isOnline())
         {
             BoundaryVisualization.visualizeArea(
                     player,
@@ -0,0 +1,171 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import me.tinyoverflow.griefprevention.GriefPrevention;
+import me.tinyoverflow.griefprevention.logger.ActivityType;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Restores nature in chunks using a fixed number of worker threads.
+ *
+ * <p>Chunks are captured on the main thread and processed by the workers in
+ * parallel. Idle workers also help with the passes of a chunk which can be
+ * split by column ranges. Processed chunks are handed back to the main thread
+ * in the order they were requested, and their changes are queued on the
+ * {@link BlockMutationExecutor}.
+ *
+ * <p>At most a configured number of chunks are in flight, from their capture
+ * until their changes are applied. Further requests wait, so the snapshots
+ * and volumes in memory and the block change backlog stay bounded.
+ *
+ * <p>This class is not thread-safe, requests must come from the main thread.
+ */
+public class RestoreNaturePipeline
+{
+    private final GriefPrevention plugin;
+    private final ForkJoinPool workers;
+    private final int maxChunksInFlight;
+
+    private final Queue<Request> waiting = new ArrayDeque<>();
+    //processed chunks waiting for the chunks requested before them, by sequence number
+    private final Map<Long, Result> processed = new HashMap<>();
+    private long nextSequence;
+    private long nextHandOff;
+    private int inFlight;
+
+    /**
+     * @param plugin the plugin, to schedule hand-offs to the main thread
+     * @param workerThreads the number of worker threads
+     * @param maxChunksInFlight the number of chunks captured but not applied yet, at most
+     */
+    public RestoreNaturePipeline(GriefPrevention plugin, int workerThreads, int maxChunksInFlight)
+    {
+        this.plugin = plugin;
+        this.maxChunksInFlight = Math.max(1, maxChunksInFlight);
+        this.workers = new ForkJoinPool(Math.max(1, workerThreads), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("GriefPrevention Restore Nature Worker " + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Request nature to be restored in a chunk.
+     *
+     * @param chunk the chunk
+     * @param miny the lowest y coordinate to restore
+     * @param aggressiveMode whether to also remove natural blocks griefers like to use
+     * @param player the player to show the restored area to once done, if any
+     */
+    public void restore(Chunk chunk, int miny, boolean aggressiveMode, @Nullable Player player)
+    {
+        waiting.add(new Request(chunk, miny, aggressiveMode, player));
+        startWaiting();
+    }
+
+    //captures waiting chunks as long as there is room in flight
+    private void startWaiting()
+    {
+        Request request;
+        while (inFlight < maxChunksInFlight && (request = waiting.poll()) != null)
+        {
+            RestoreNatureProcessingTask task = request.createTask(plugin);
+            long sequence = nextSequence++;
+            inFlight++;
+
+            CompletableFuture.supplyAsync(task::process, workers).whenComplete((volume, error) ->
+                    plugin.getServer().getScheduler().runTask(plugin, () -> handOff(sequence, new Result(task, error)))
+            );
+        }
+    }
+
+    //applies processed chunks in the order they were requested
+    private void handOff(long sequence, Result result)
+    {
+        processed.put(sequence, result);
+
+        Result next;
+        while ((next = processed.remove(nextHandOff)) != null)
+        {
+            nextHandOff++;
+            if (next.error() != null)
+            {
+                GriefPrevention.AddLogEntry("Unable to restore nature in a chunk: " + next.error(), ActivityType.EXCEPTION);
+                inFlight--;
+                continue;
+            }
+
+            next.task().createExecutionTask().apply().whenComplete((ignored, error) -> {
+                inFlight--;
+                startWaiting();
+            });
+        }
+
+        startWaiting();
+    }
+
+    /**
+     * @return the number of chunks waiting to be captured
+     */
+    public int getWaiting()
+    {
+        return waiting.size();
+    }
+
+    /**
+     * @return the number of chunks captured but not applied yet
+     */
+    public int getInFlight()
+    {
+        return inFlight;
+    }
+
+    /**
+     * Drop waiting chunks and stop the workers. Chunks being processed are not applied anymore.
+     */
+    public void shutdown()
+    {
+        waiting.clear();
+        workers.shutdownNow();
+    }
+
+    private record Request(Chunk chunk, int miny, boolean aggressiveMode, @Nullable Player player)
+    {
+        RestoreNatureProcessingTask createTask(GriefPrevention plugin)
+        {
+            Location lesserBoundaryCorner = chunk.getBlock(0, 0, 0).getLocation();
+            Location greaterBoundaryCorner = chunk.getBlock(15, 0, 15).getLocation();
+
+            //snapshot this chunk and its neighbours, which provide the 1 block boundary outside the chunk all the way around
+            //unpacking the snapshots into a volume is left to the workers
+            return new RestoreNatureProcessingTask(
+                    RestoreNatureVolume.capture(chunk),
+                    miny,
+                    RestoreNatureRules.create(
+                            chunk.getWorld().getEnvironment(),
+                            lesserBoundaryCorner.getBlock().getBiome(),
+                            aggressiveMode,
+                            plugin.creativeRulesApply(lesserBoundaryCorner)
+                    ),
+                    lesserBoundaryCorner,
+                    greaterBoundaryCorner,
+                    plugin.getSeaLevel(chunk.getWorld()),
+                    player
+            );
+        }
+    }
+
+    private record Result(RestoreNatureProcessingTask task, @Nullable Throwable error)
+    {
+    }
+}
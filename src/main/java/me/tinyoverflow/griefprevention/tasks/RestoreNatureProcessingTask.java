@@ -18,147 +18,109 @@
 
 package me.tinyoverflow.griefprevention.tasks;
 
-import me.tinyoverflow.griefprevention.BlockSnapshot;
 import me.tinyoverflow.griefprevention.GriefPrevention;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.Tag;
 import org.bukkit.World.Environment;
 import org.bukkit.block.Biome;
-import org.bukkit.block.data.Levelled;
-import org.bukkit.block.data.type.Leaves;
 import org.bukkit.entity.Player;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static me.tinyoverflow.griefprevention.tasks.RestoreNatureVolume.AIR;
+import static me.tinyoverflow.griefprevention.tasks.RestoreNatureVolume.SIZE;
 
 //non-main-thread task which processes world data to repair the unnatural
 //after processing is complete, creates a main thread task to make the necessary changes to the world
 public class RestoreNatureProcessingTask implements Runnable
 {
-
-    // Definitions of biomes with particularly dense log distribution. These biomes will not have logs reduced.
-    private static final Set<NamespacedKey> DENSE_LOG_BIOMES = Set.of(
-            NamespacedKey.minecraft("jungle"),
-            NamespacedKey.minecraft("bamboo_jungle"),
-            // Variants for versions < 1.18
-            NamespacedKey.minecraft("modified_jungle"),
-            NamespacedKey.minecraft("jungle_hills"),
-            NamespacedKey.minecraft("bamboo_jungle_hills")
-    );
-
-    // Definitions of biomes where sand covers surfaces instead of grass.
-    private static final Set<NamespacedKey> SAND_SOIL_BIOMES = Set.of(
-            NamespacedKey.minecraft("snowy_beach"),
-            NamespacedKey.minecraft("beach"),
-            NamespacedKey.minecraft("desert"),
-            // Variants for versions < 1.18
-            NamespacedKey.minecraft("desert_hills"),
-            NamespacedKey.minecraft("desert_lakes")
-    );
+    //column ranges narrower than this aren't split any further among workers
+    private static final int MIN_COLUMN_RANGE = 4;
 
     //world information captured from the main thread
+    private final RestoreNatureVolume.Capture capture;
+
+    //unpacked from the capture on this thread
     //will be updated and sent back to main thread to be applied to the world
-    private final BlockSnapshot[][][] snapshots;
+    private RestoreNatureVolume volume;
 
     //other information collected from the main thread.
     //not to be updated, only to be passed back to main thread to provide some context about the operation
     private int miny;
-    private final Environment environment;
     private final Location lesserBoundaryCorner;
     private final Location greaterBoundaryCorner;
     private final Player player;            //absolutely must not be accessed.  not thread safe.
-    private final Biome biome;
-    private final boolean creativeMode;
     private final int seaLevel;
-    private final boolean aggressiveMode;
+    private final RestoreNatureRules rules;
 
-    //two lists of materials
-    private final Set<Material> notAllowedToHang;    //natural blocks which don't naturally hang in their air
-    private final Set<Material> playerBlocks;        //a "complete" list of player-placed blocks.  MUST BE MAINTAINED as patches introduce more
+    //the materials of the rules as flags by palette id, set up once the volume is unpacked
+    private boolean[] notAllowedToHangIds;
+    private boolean[] playerBlockIds;
+    private boolean[] leafIds;
+    private boolean[] logIds;
 
 
-    public RestoreNatureProcessingTask(BlockSnapshot[][][] snapshots, int miny, Environment environment, Biome biome, Location lesserBoundaryCorner, Location greaterBoundaryCorner, int seaLevel, boolean aggressiveMode, boolean creativeMode, Player player)
+    public RestoreNatureProcessingTask(RestoreNatureVolume.Capture capture, int miny, Environment environment, Biome biome, Location lesserBoundaryCorner, Location greaterBoundaryCorner, int seaLevel, boolean aggressiveMode, boolean creativeMode, Player player)
     {
-        this.snapshots = snapshots;
+        this(capture, miny, RestoreNatureRules.create(environment, biome, aggressiveMode, creativeMode), lesserBoundaryCorner, greaterBoundaryCorner, seaLevel, player);
+    }
+
+    public RestoreNatureProcessingTask(RestoreNatureVolume.Capture capture, int miny, RestoreNatureRules rules, Location lesserBoundaryCorner, Location greaterBoundaryCorner, int seaLevel, Player player)
+    {
+        this.capture = capture;
         this.miny = miny;
-        if (this.miny < 0) this.miny = 0;
-        this.environment = environment;
+        this.rules = rules;
         this.lesserBoundaryCorner = lesserBoundaryCorner;
         this.greaterBoundaryCorner = greaterBoundaryCorner;
-        this.biome = biome;
         this.seaLevel = seaLevel;
-        this.aggressiveMode = aggressiveMode;
         this.player = player;
-        this.creativeMode = creativeMode;
-
-        this.notAllowedToHang = EnumSet.noneOf(Material.class);
-        this.notAllowedToHang.add(Material.DIRT);
-        this.notAllowedToHang.add(Material.GRASS);
-        this.notAllowedToHang.add(Material.SNOW);
-        this.notAllowedToHang.add(Material.OAK_LOG);
-        this.notAllowedToHang.add(Material.SPRUCE_LOG);
-        this.notAllowedToHang.add(Material.BIRCH_LOG);
-        this.notAllowedToHang.add(Material.JUNGLE_LOG);
-        this.notAllowedToHang.add(Material.ACACIA_LOG);
-        this.notAllowedToHang.add(Material.DARK_OAK_LOG);
-
-        if (this.aggressiveMode)
-        {
-            this.notAllowedToHang.add(Material.GRASS);
-            this.notAllowedToHang.add(Material.STONE);
-        }
+    }
 
-        this.playerBlocks = EnumSet.noneOf(Material.class);
-        this.playerBlocks.addAll(RestoreNatureProcessingTask.getPlayerBlocks(this.environment, this.biome));
+    @Override
+    public void run()
+    {
+        this.process();
 
-        //in aggressive or creative world mode, also treat these blocks as user placed, to be removed
-        //this is helpful in the few cases where griefers intentionally use natural blocks to grief,
-        //like a single-block tower of iron ore or a giant penis constructed with melons
-        if (this.aggressiveMode || this.creativeMode)
-        {
-            this.playerBlocks.add(Material.IRON_ORE);
-            this.playerBlocks.add(Material.GOLD_ORE);
-            this.playerBlocks.add(Material.DIAMOND_ORE);
-            this.playerBlocks.add(Material.MELON);
-            this.playerBlocks.add(Material.MELON_STEM);
-            this.playerBlocks.add(Material.BEDROCK);
-            this.playerBlocks.add(Material.COAL_ORE);
-            this.playerBlocks.add(Material.PUMPKIN);
-            this.playerBlocks.add(Material.PUMPKIN_STEM);
-        }
+        //schedule main thread task to apply the result to the world
+        GriefPrevention.instance.getServer().getScheduler().scheduleSyncDelayedTask(GriefPrevention.instance, this.createExecutionTask());
+    }
 
-        if (this.aggressiveMode)
-        {
-            this.playerBlocks.add(Material.OAK_LEAVES);
-            this.playerBlocks.add(Material.SPRUCE_LEAVES);
-            this.playerBlocks.add(Material.BIRCH_LEAVES);
-            this.playerBlocks.add(Material.JUNGLE_LEAVES);
-            this.playerBlocks.add(Material.ACACIA_LEAVES);
-            this.playerBlocks.add(Material.DARK_OAK_LEAVES);
-            this.playerBlocks.add(Material.OAK_LOG);
-            this.playerBlocks.add(Material.SPRUCE_LOG);
-            this.playerBlocks.add(Material.BIRCH_LOG);
-            this.playerBlocks.add(Material.JUNGLE_LOG);
-            this.playerBlocks.add(Material.ACACIA_LOG);
-            this.playerBlocks.add(Material.DARK_OAK_LOG);
-            this.playerBlocks.add(Material.VINE);
-        }
+    /**
+     * Unpack the captured chunk and repair the unnatural in it. When run by a
+     * worker of a fork/join pool, passes which stay within each column are
+     * split by column ranges, so idle workers can help.
+     *
+     * @return the processed volume
+     */
+    public RestoreNatureVolume process()
+    {
+        return this.process(this.capture.unpack());
     }
 
-    @Override
-    public void run()
+    RestoreNatureVolume process(RestoreNatureVolume volume)
     {
+        this.volume = volume;
+        if (this.miny < this.volume.getMinY()) this.miny = this.volume.getMinY();
+
+        //every material a pass may place must be in the palette before the flags are computed
+        this.volume.addId(Material.SAND);
+        this.volume.addId(Material.GRASS_BLOCK);
+        this.notAllowedToHangIds = this.volume.mask(this.rules.notAllowedToHang::contains);
+        this.playerBlockIds = this.volume.mask(this.rules.playerBlocks::contains);
+        this.leafIds = this.volume.mask(this.rules.leaves::contains);
+        this.logIds = this.volume.mask(this.rules.logs::contains);
+
         //order is important!
 
         //remove sandstone which appears to be unnatural
         this.removeSandstone();
 
         //remove any blocks which are definitely player placed
-        this.removePlayerBlocks();
+        this.forEachColumnRange(this::removePlayerBlocks);
 
         //reduce large outcroppings of stone, sandstone
         this.reduceStone();
@@ -167,7 +129,7 @@ public class RestoreNatureProcessingTask implements Runnable
         this.reduceLogs();
 
         //remove natural blocks which are unnaturally hanging in the air
-        this.removeHanging();
+        this.forEachColumnRange(this::removeHanging);
 
         //remove natural blocks which are unnaturally stacked high
         this.removeWallsAndTowers();
@@ -175,41 +137,72 @@ public class RestoreNatureProcessingTask implements Runnable
         //fill unnatural thin trenches and single-block potholes
         this.fillHolesAndTrenches();
 
-        //fill water depressions and fix unnatural surface ripples
-        //this.fixWater();
-
         //remove water/lava above sea level
-        this.removeDumpedFluids();
-
         //cover surface stone and gravel with sand or grass, as the biome requires
-        this.coverSurfaceStone();
+        boolean[] bareBlocks = this.volume.mask(material -> material == Material.STONE ||
+                material == Material.GRAVEL ||
+                material == Material.FARMLAND ||
+                material == Material.DIRT ||
+                material == Material.SANDSTONE);
+        this.forEachColumnRange((fromX, toX) -> {
+            this.removeDumpedFluids(fromX, toX);
+            this.coverSurfaceStone(fromX, toX, bareBlocks);
+        });
+
+        return this.volume;
+    }
 
-        //remove any player-placed leaves
-        ///this.removePlayerLeaves();
+    /**
+     * @return a main thread task applying the processed volume to the world
+     */
+    RestoreNatureExecutionTask createExecutionTask()
+    {
+        return new RestoreNatureExecutionTask(this.volume, this.miny, this.lesserBoundaryCorner, this.greaterBoundaryCorner, this.player);
+    }
 
-        //schedule main thread task to apply the result to the world
-        RestoreNatureExecutionTask task = new RestoreNatureExecutionTask(this.snapshots, this.miny, this.lesserBoundaryCorner, this.greaterBoundaryCorner, this.player);
-        GriefPrevention.instance.getServer().getScheduler().scheduleSyncDelayedTask(GriefPrevention.instance, task);
+    //runs a pass which only reads and writes blocks of the column it's working on, x from fromX until toX
+    private void forEachColumnRange(ColumnPass pass)
+    {
+        if (ForkJoinTask.inForkJoinPool())
+        {
+            new ColumnRangeAction(pass, 1, SIZE - 1).invoke();
+        }
+        else
+        {
+            pass.apply(1, SIZE - 1);
+        }
     }
 
+    @FunctionalInterface
+    private interface ColumnPass
+    {
+        void apply(int fromX, int toX);
+    }
 
-    private void removePlayerLeaves()
+    private static class ColumnRangeAction extends RecursiveAction
     {
-        if (this.seaLevel < 1) return;
+        private final ColumnPass pass;
+        private final int fromX;
+        private final int toX;
+
+        ColumnRangeAction(ColumnPass pass, int fromX, int toX)
+        {
+            this.pass = pass;
+            this.fromX = fromX;
+            this.toX = toX;
+        }
 
-        for (int x = 1; x < snapshots.length - 1; x++)
+        @Override
+        protected void compute()
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            if (this.toX - this.fromX <= MIN_COLUMN_RANGE)
             {
-                for (int y = this.seaLevel - 1; y < snapshots[0].length; y++)
-                {
-                    BlockSnapshot block = snapshots[x][y][z];
-                    if (Tag.LEAVES.isTagged(block.typeId) && ((Leaves) block.data).isPersistent())
-                    {
-                        block.typeId = Material.AIR;
-                    }
-                }
+                this.pass.apply(this.fromX, this.toX);
+                return;
             }
+
+            int middleX = (this.fromX + this.toX) >>> 1;
+            invokeAll(new ColumnRangeAction(this.pass, this.fromX, middleX), new ColumnRangeAction(this.pass, middleX, this.toX));
         }
     }
 
@@ -217,37 +210,41 @@ public class RestoreNatureProcessingTask implements Runnable
 
     private void removeSandstone()
     {
-        for (int x = 1; x < snapshots.length - 1; x++)
+        int sandstone = this.volume.getId(Material.SANDSTONE);
+        int sand = this.volume.getId(Material.SAND);
+        if (sandstone < 0) return;
+
+        for (int x = 1; x < SIZE - 1; x++)
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < SIZE - 1; z++)
             {
-                for (int y = snapshots[0].length - 2; y > miny; y--)
+                for (int y = this.volume.getMaxY() - 2; y > miny; y--)
                 {
-                    if (snapshots[x][y][z].typeId != Material.SANDSTONE) continue;
+                    if (this.volume.get(x, y, z) != sandstone) continue;
 
-                    BlockSnapshot leftBlock = this.snapshots[x + 1][y][z];
-                    BlockSnapshot rightBlock = this.snapshots[x - 1][y][z];
-                    BlockSnapshot upBlock = this.snapshots[x][y][z + 1];
-                    BlockSnapshot downBlock = this.snapshots[x][y][z - 1];
-                    BlockSnapshot underBlock = this.snapshots[x][y - 1][z];
-                    BlockSnapshot aboveBlock = this.snapshots[x][y + 1][z];
+                    int leftBlock = this.volume.get(x + 1, y, z);
+                    int rightBlock = this.volume.get(x - 1, y, z);
+                    int upBlock = this.volume.get(x, y, z + 1);
+                    int downBlock = this.volume.get(x, y, z - 1);
+                    int underBlock = this.volume.get(x, y - 1, z);
+                    int aboveBlock = this.volume.get(x, y + 1, z);
 
                     //skip blocks which may cause a cave-in
-                    if (aboveBlock.typeId == Material.SAND && underBlock.typeId == Material.AIR) continue;
+                    if (aboveBlock == sand && underBlock == AIR) continue;
 
                     //count adjacent non-air/non-leaf blocks
-                    if (leftBlock.typeId == Material.SAND ||
-                            rightBlock.typeId == Material.SAND ||
-                            upBlock.typeId == Material.SAND ||
-                            downBlock.typeId == Material.SAND ||
-                            aboveBlock.typeId == Material.SAND ||
-                            underBlock.typeId == Material.SAND)
+                    if (leftBlock == sand ||
+                            rightBlock == sand ||
+                            upBlock == sand ||
+                            downBlock == sand ||
+                            aboveBlock == sand ||
+                            underBlock == sand)
                     {
-                        snapshots[x][y][z].typeId = Material.SAND;
+                        this.volume.set(x, y, z, sand);
                     }
                     else
                     {
-                        snapshots[x][y][z].typeId = Material.AIR;
+                        this.volume.set(x, y, z, AIR);
                     }
                 }
             }
@@ -259,41 +256,45 @@ public class RestoreNatureProcessingTask implements Runnable
     {
         if (this.seaLevel < 1) return;
 
-        for (int x = 1; x < snapshots.length - 1; x++)
+        int stone = this.volume.getId(Material.STONE);
+        int sandstone = this.volume.getId(Material.SANDSTONE);
+        int vine = this.volume.getId(Material.VINE);
+
+        for (int x = 1; x < SIZE - 1; x++)
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < SIZE - 1; z++)
             {
                 int thisy = this.highestY(x, z, true);
 
-                while (thisy > this.seaLevel - 1 && (this.snapshots[x][thisy][z].typeId == Material.STONE || this.snapshots[x][thisy][z].typeId == Material.SANDSTONE))
+                while (thisy > this.seaLevel - 1 && (this.volume.get(x, thisy, z) == stone || this.volume.get(x, thisy, z) == sandstone))
                 {
-                    BlockSnapshot leftBlock = this.snapshots[x + 1][thisy][z];
-                    BlockSnapshot rightBlock = this.snapshots[x - 1][thisy][z];
-                    BlockSnapshot upBlock = this.snapshots[x][thisy][z + 1];
-                    BlockSnapshot downBlock = this.snapshots[x][thisy][z - 1];
+                    int leftBlock = this.volume.get(x + 1, thisy, z);
+                    int rightBlock = this.volume.get(x - 1, thisy, z);
+                    int upBlock = this.volume.get(x, thisy, z + 1);
+                    int downBlock = this.volume.get(x, thisy, z - 1);
 
                     //count adjacent non-air/non-leaf blocks
                     byte adjacentBlockCount = 0;
-                    if (leftBlock.typeId != Material.AIR && !Tag.LEAVES.isTagged(leftBlock.typeId) && leftBlock.typeId != Material.VINE)
+                    if (leftBlock != AIR && !this.leafIds[leftBlock] && leftBlock != vine)
                     {
                         adjacentBlockCount++;
                     }
-                    if (rightBlock.typeId != Material.AIR && !Tag.LEAVES.isTagged(rightBlock.typeId) && rightBlock.typeId != Material.VINE)
+                    if (rightBlock != AIR && !this.leafIds[rightBlock] && rightBlock != vine)
                     {
                         adjacentBlockCount++;
                     }
-                    if (downBlock.typeId != Material.AIR && !Tag.LEAVES.isTagged(downBlock.typeId) && downBlock.typeId != Material.VINE)
+                    if (downBlock != AIR && !this.leafIds[downBlock] && downBlock != vine)
                     {
                         adjacentBlockCount++;
                     }
-                    if (upBlock.typeId != Material.AIR && !Tag.LEAVES.isTagged(upBlock.typeId) && upBlock.typeId != Material.VINE)
+                    if (upBlock != AIR && !this.leafIds[upBlock] && upBlock != vine)
                     {
                         adjacentBlockCount++;
                     }
 
                     if (adjacentBlockCount < 3)
                     {
-                        this.snapshots[x][thisy][z].typeId = Material.AIR;
+                        this.volume.set(x, thisy, z, AIR);
                     }
 
                     thisy--;
@@ -307,33 +308,34 @@ public class RestoreNatureProcessingTask implements Runnable
     {
         if (this.seaLevel < 1) return;
 
-        boolean jungleBiome = DENSE_LOG_BIOMES.contains(this.biome.getKey());
+        boolean jungleBiome = this.rules.denseLogBiome;
+        int jungleLog = this.volume.getId(Material.JUNGLE_LOG);
 
         //scan all blocks above sea level
-        for (int x = 1; x < snapshots.length - 1; x++)
+        for (int x = 1; x < SIZE - 1; x++)
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < SIZE - 1; z++)
             {
-                for (int y = this.seaLevel - 1; y < snapshots[0].length; y++)
+                for (int y = Math.max(this.seaLevel - 1, this.volume.getMinY()); y < this.volume.getMaxY(); y++)
                 {
-                    BlockSnapshot block = snapshots[x][y][z];
+                    int block = this.volume.get(x, y, z);
 
                     //skip non-logs
-                    if (!Tag.LOGS.isTagged(block.typeId)) continue;
+                    if (!this.logIds[block]) continue;
 
                     //if in jungle biome, skip jungle logs
-                    if (jungleBiome && block.typeId == Material.JUNGLE_LOG) continue;
+                    if (jungleBiome && block == jungleLog) continue;
 
                     //examine adjacent blocks for logs
-                    BlockSnapshot leftBlock = this.snapshots[x + 1][y][z];
-                    BlockSnapshot rightBlock = this.snapshots[x - 1][y][z];
-                    BlockSnapshot upBlock = this.snapshots[x][y][z + 1];
-                    BlockSnapshot downBlock = this.snapshots[x][y][z - 1];
+                    int leftBlock = this.volume.get(x + 1, y, z);
+                    int rightBlock = this.volume.get(x - 1, y, z);
+                    int upBlock = this.volume.get(x, y, z + 1);
+                    int downBlock = this.volume.get(x, y, z - 1);
 
                     //if any, remove the log
-                    if (Tag.LOGS.isTagged(leftBlock.typeId) || Tag.LOGS.isTagged(rightBlock.typeId) || Tag.LOGS.isTagged(upBlock.typeId) || Tag.LOGS.isTagged(downBlock.typeId))
+                    if (this.logIds[leftBlock] || this.logIds[rightBlock] || this.logIds[upBlock] || this.logIds[downBlock])
                     {
-                        this.snapshots[x][y][z].typeId = Material.AIR;
+                        this.volume.set(x, y, z, AIR);
                     }
                 }
             }
@@ -341,23 +343,20 @@ public class RestoreNatureProcessingTask implements Runnable
     }
 
 
-    private void removePlayerBlocks()
+    private void removePlayerBlocks(int fromX, int toX)
     {
-        int miny = this.miny;
-        if (miny < 1) miny = 1;
+        int miny = Math.max(this.miny, this.volume.getMinY() + 1);
 
         //remove all player blocks
-        for (int x = 1; x < snapshots.length - 1; x++)
+        for (int x = fromX; x < toX; x++)
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < SIZE - 1; z++)
             {
-                for (int y = miny; y < snapshots[0].length - 1; y++)
+                for (int y = miny; y < this.volume.getMaxY() - 1; y++)
                 {
-                    BlockSnapshot block = snapshots[x][y][z];
-
-                    if (this.playerBlocks.contains(block.typeId))
+                    if (this.playerBlockIds[this.volume.get(x, y, z)])
                     {
-                        block.typeId = Material.AIR;
+                        this.volume.set(x, y, z, AIR);
                     }
                 }
             }
@@ -365,25 +364,24 @@ public class RestoreNatureProcessingTask implements Runnable
     }
 
 
-    private void removeHanging()
+    private void removeHanging(int fromX, int toX)
     {
-        int miny = this.miny;
-        if (miny < 1) miny = 1;
+        int miny = Math.max(this.miny, this.volume.getMinY() + 1);
+        int water = this.volume.getId(Material.WATER);
 
-        for (int x = 1; x < snapshots.length - 1; x++)
+        for (int x = fromX; x < toX; x++)
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < SIZE - 1; z++)
             {
-                for (int y = miny; y < snapshots[0].length - 1; y++)
+                for (int y = miny; y < this.volume.getMaxY() - 1; y++)
                 {
-                    BlockSnapshot block = snapshots[x][y][z];
-                    BlockSnapshot underBlock = snapshots[x][y - 1][z];
+                    int underBlock = this.volume.get(x, y - 1, z);
 
-                    if (underBlock.typeId == Material.AIR || underBlock.typeId == Material.WATER || Tag.LEAVES.isTagged(underBlock.typeId))
+                    if (underBlock == AIR || underBlock == water || this.leafIds[underBlock])
                     {
-                        if (this.notAllowedToHang.contains(block.typeId))
+                        if (this.notAllowedToHangIds[this.volume.get(x, y, z)])
                         {
-                            block.typeId = Material.AIR;
+                            this.volume.set(x, y, z, AIR);
                         }
                     }
                 }
@@ -394,50 +392,24 @@ public class RestoreNatureProcessingTask implements Runnable
 
     private void removeWallsAndTowers()
     {
-        Material[] excludedBlocksArray = new Material[]
-                {
-                        Material.CACTUS,
-                        Material.GRASS,
-                        Material.RED_MUSHROOM,
-                        Material.BROWN_MUSHROOM,
-                        Material.DEAD_BUSH,
-                        Material.DANDELION,
-                        Material.POPPY,
-                        Material.ALLIUM,
-                        Material.BLUE_ORCHID,
-                        Material.AZURE_BLUET,
-                        Material.RED_TULIP,
-                        Material.ORANGE_TULIP,
-                        Material.WHITE_TULIP,
-                        Material.PINK_TULIP,
-                        Material.OXEYE_DAISY,
-                        Material.SUGAR_CANE,
-                        Material.VINE,
-                        Material.PUMPKIN,
-                        Material.LILY_PAD
-                };
-
-        ArrayList<Material> excludedBlocks = new ArrayList<>(Arrays.asList(excludedBlocksArray));
-
-        excludedBlocks.addAll(Tag.SAPLINGS.getValues());
-        excludedBlocks.addAll(Tag.LEAVES.getValues());
+        boolean[] excludedBlocks = this.volume.mask(this.rules.wallExclusions::contains);
 
         boolean changed;
         do
         {
             changed = false;
-            for (int x = 1; x < snapshots.length - 1; x++)
+            for (int x = 1; x < SIZE - 1; x++)
             {
-                for (int z = 1; z < snapshots[0][0].length - 1; z++)
+                for (int z = 1; z < SIZE - 1; z++)
                 {
                     int thisy = this.highestY(x, z, false);
-                    if (excludedBlocks.contains(this.snapshots[x][thisy][z].typeId)) continue;
+                    if (excludedBlocks[this.volume.get(x, thisy, z)]) continue;
 
                     int righty = this.highestY(x + 1, z, false);
                     int lefty = this.highestY(x - 1, z, false);
                     while (lefty < thisy && righty < thisy)
                     {
-                        this.snapshots[x][thisy--][z].typeId = Material.AIR;
+                        this.volume.set(x, thisy--, z, AIR);
                         changed = true;
                     }
 
@@ -445,7 +417,7 @@ public class RestoreNatureProcessingTask implements Runnable
                     int downy = this.highestY(x, z - 1, false);
                     while (upy < thisy && downy < thisy)
                     {
-                        this.snapshots[x][thisy--][z].typeId = Material.AIR;
+                        this.volume.set(x, thisy--, z, AIR);
                         changed = true;
                     }
                 }
@@ -454,25 +426,21 @@ public class RestoreNatureProcessingTask implements Runnable
     }
 
 
-    private void coverSurfaceStone()
+    private void coverSurfaceStone(int fromX, int toX, boolean[] bareBlocks)
     {
-        for (int x = 1; x < snapshots.length - 1; x++)
+        int cover = this.rules.sandSoilBiome
+                ? this.volume.getId(Material.SAND)
+                : this.volume.getId(Material.GRASS_BLOCK);
+
+        for (int x = fromX; x < toX; x++)
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < SIZE - 1; z++)
             {
                 int y = this.highestY(x, z, true);
-                BlockSnapshot block = snapshots[x][y][z];
 
-                if (block.typeId == Material.STONE || block.typeId == Material.GRAVEL || block.typeId == Material.FARMLAND || block.typeId == Material.DIRT || block.typeId == Material.SANDSTONE)
+                if (bareBlocks[this.volume.get(x, y, z)])
                 {
-                    if (SAND_SOIL_BIOMES.contains(this.biome.getKey()))
-                    {
-                        this.snapshots[x][y][z].typeId = Material.SAND;
-                    }
-                    else
-                    {
-                        this.snapshots[x][y][z].typeId = Material.GRASS_BLOCK;
-                    }
+                    this.volume.set(x, y, z, cover);
                 }
             }
         }
@@ -481,52 +449,49 @@ public class RestoreNatureProcessingTask implements Runnable
 
     private void fillHolesAndTrenches()
     {
-        ArrayList<Material> fillableBlocks = new ArrayList<>();
-        fillableBlocks.add(Material.AIR);
-        fillableBlocks.add(Material.WATER);
-        fillableBlocks.add(Material.LAVA);
-        fillableBlocks.add(Material.GRASS);
-
-        ArrayList<Material> notSuitableForFillBlocks = new ArrayList<>();
-        notSuitableForFillBlocks.add(Material.GRASS);
-        notSuitableForFillBlocks.add(Material.CACTUS);
-        notSuitableForFillBlocks.add(Material.WATER);
-        notSuitableForFillBlocks.add(Material.LAVA);
-        notSuitableForFillBlocks.addAll(Tag.LOGS.getValues());
+        boolean[] fillableBlocks = this.volume.mask(material -> material == Material.AIR ||
+                material == Material.WATER ||
+                material == Material.LAVA ||
+                material == Material.GRASS);
+
+        boolean[] notSuitableForFillBlocks = this.volume.mask(material -> material == Material.GRASS ||
+                material == Material.CACTUS ||
+                material == Material.WATER ||
+                material == Material.LAVA ||
+                this.rules.logs.contains(material));
 
         boolean changed;
         do
         {
             changed = false;
-            for (int x = 1; x < snapshots.length - 1; x++)
+            for (int x = 1; x < SIZE - 1; x++)
             {
-                for (int z = 1; z < snapshots[0][0].length - 1; z++)
+                for (int z = 1; z < SIZE - 1; z++)
                 {
-                    for (int y = 0; y < snapshots[0].length - 1; y++)
+                    for (int y = this.volume.getMinY(); y < this.volume.getMaxY() - 1; y++)
                     {
-                        BlockSnapshot block = this.snapshots[x][y][z];
-                        if (!fillableBlocks.contains(block.typeId)) continue;
+                        if (!fillableBlocks[this.volume.get(x, y, z)]) continue;
 
-                        BlockSnapshot leftBlock = this.snapshots[x + 1][y][z];
-                        BlockSnapshot rightBlock = this.snapshots[x - 1][y][z];
+                        int leftBlock = this.volume.get(x + 1, y, z);
+                        int rightBlock = this.volume.get(x - 1, y, z);
 
-                        if (!fillableBlocks.contains(leftBlock.typeId) && !fillableBlocks.contains(rightBlock.typeId))
+                        if (!fillableBlocks[leftBlock] && !fillableBlocks[rightBlock])
                         {
-                            if (!notSuitableForFillBlocks.contains(rightBlock.typeId))
+                            if (!notSuitableForFillBlocks[rightBlock])
                             {
-                                block.typeId = rightBlock.typeId;
+                                this.volume.set(x, y, z, rightBlock);
                                 changed = true;
                             }
                         }
 
-                        BlockSnapshot upBlock = this.snapshots[x][y][z + 1];
-                        BlockSnapshot downBlock = this.snapshots[x][y][z - 1];
+                        int upBlock = this.volume.get(x, y, z + 1);
+                        int downBlock = this.volume.get(x, y, z - 1);
 
-                        if (!fillableBlocks.contains(upBlock.typeId) && !fillableBlocks.contains(downBlock.typeId))
+                        if (!fillableBlocks[upBlock] && !fillableBlocks[downBlock])
                         {
-                            if (!notSuitableForFillBlocks.contains(downBlock.typeId))
+                            if (!notSuitableForFillBlocks[downBlock])
                             {
-                                block.typeId = downBlock.typeId;
+                                this.volume.set(x, y, z, downBlock);
                                 changed = true;
                             }
                         }
@@ -537,110 +502,28 @@ public class RestoreNatureProcessingTask implements Runnable
     }
 
 
-    private void fixWater()
-    {
-        int miny = this.miny;
-        if (miny < 1) miny = 1;
-
-        boolean changed;
-
-        //remove hanging water or lava
-        for (int x = 1; x < snapshots.length - 1; x++)
-        {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
-            {
-                for (int y = miny; y < snapshots[0].length - 1; y++)
-                {
-                    BlockSnapshot block = this.snapshots[x][y][z];
-                    BlockSnapshot underBlock = this.snapshots[x][y--][z];
-                    if (block.typeId == Material.WATER || block.typeId == Material.LAVA)
-                    {
-                        // check if block below is air or is a non-source fluid block (level 1-7 = flowing, 8 = falling)
-                        if (underBlock.typeId == Material.AIR || (underBlock.typeId == Material.WATER && (((Levelled) underBlock.data).getLevel() != 0)))
-                        {
-                            block.typeId = Material.AIR;
-                        }
-                    }
-                }
-            }
-        }
-
-        //fill water depressions
-        do
-        {
-            changed = false;
-            for (int y = Math.max(this.seaLevel - 10, 0); y <= this.seaLevel; y++)
-            {
-                for (int x = 1; x < snapshots.length - 1; x++)
-                {
-                    for (int z = 1; z < snapshots[0][0].length - 1; z++)
-                    {
-                        BlockSnapshot block = snapshots[x][y][z];
-
-                        //only consider air blocks and flowing water blocks for upgrade to water source blocks
-                        if (block.typeId == Material.AIR || (block.typeId == Material.WATER && ((Levelled) block.data).getLevel() != 0))
-                        {
-                            BlockSnapshot leftBlock = this.snapshots[x + 1][y][z];
-                            BlockSnapshot rightBlock = this.snapshots[x - 1][y][z];
-                            BlockSnapshot upBlock = this.snapshots[x][y][z + 1];
-                            BlockSnapshot downBlock = this.snapshots[x][y][z - 1];
-                            BlockSnapshot underBlock = this.snapshots[x][y - 1][z];
-
-                            //block underneath MUST be source water
-                            if (!(underBlock.typeId == Material.WATER && ((Levelled) underBlock.data).getLevel() == 0))
-                                continue;
-
-                            //count adjacent source water blocks
-                            byte adjacentSourceWaterCount = 0;
-                            if (leftBlock.typeId == Material.WATER && ((Levelled) leftBlock.data).getLevel() == 0)
-                            {
-                                adjacentSourceWaterCount++;
-                            }
-                            if (rightBlock.typeId == Material.WATER && ((Levelled) rightBlock.data).getLevel() == 0)
-                            {
-                                adjacentSourceWaterCount++;
-                            }
-                            if (upBlock.typeId == Material.WATER && ((Levelled) upBlock.data).getLevel() == 0)
-                            {
-                                adjacentSourceWaterCount++;
-                            }
-                            if (downBlock.typeId == Material.WATER && ((Levelled) downBlock.data).getLevel() == 0)
-                            {
-                                adjacentSourceWaterCount++;
-                            }
-
-                            //at least two adjacent blocks must be source water
-                            if (adjacentSourceWaterCount >= 2)
-                            {
-                                block.typeId = Material.WATER;
-                                ((Levelled) downBlock.data).setLevel(0);
-                                changed = true;
-                            }
-                        }
-                    }
-                }
-            }
-        } while (changed);
-    }
-
-
-    private void removeDumpedFluids()
+    private void removeDumpedFluids(int fromX, int toX)
     {
         if (this.seaLevel < 1) return;
 
         //remove any surface water or lava above sea level, presumed to be placed by players
         //sometimes, this is naturally generated.  but replacing it is very easy with a bucket, so overall this is a good plan
-        if (this.environment == Environment.NETHER) return;
-        for (int x = 1; x < snapshots.length - 1; x++)
+        if (this.rules.environment == Environment.NETHER) return;
+
+        int water = this.volume.getId(Material.WATER);
+        int lava = this.volume.getId(Material.LAVA);
+        if (water < 0 && lava < 0) return;
+
+        for (int x = fromX; x < toX; x++)
         {
-            for (int z = 1; z < snapshots[0][0].length - 1; z++)
+            for (int z = 1; z < SIZE - 1; z++)
             {
-                for (int y = this.seaLevel; y < snapshots[0].length - 1; y++)
+                for (int y = Math.max(this.seaLevel, this.volume.getMinY()); y < this.volume.getMaxY() - 1; y++)
                 {
-                    BlockSnapshot block = snapshots[x][y][z];
-                    if (block.typeId == Material.WATER || block.typeId == Material.LAVA)
+                    int block = this.volume.get(x, y, z);
+                    if (block == water || block == lava)
                     {
-                        block.typeId = Material.AIR;
+                        this.volume.set(x, y, z, AIR);
                     }
                 }
             }
@@ -650,15 +533,19 @@ public class RestoreNatureProcessingTask implements Runnable
 
     private int highestY(int x, int z, boolean ignoreLeaves)
     {
+        int snow = this.volume.getId(Material.SNOW);
+        int water = this.volume.getId(Material.WATER);
+        int lava = this.volume.getId(Material.LAVA);
+
         int y;
-        for (y = snapshots[0].length - 1; y > 0; y--)
+        for (y = this.volume.getMaxY() - 1; y > this.volume.getMinY(); y--)
         {
-            BlockSnapshot block = this.snapshots[x][y][z];
-            if (block.typeId != Material.AIR &&
-                    !(ignoreLeaves && block.typeId == Material.SNOW) &&
-                    !(ignoreLeaves && Tag.LEAVES.isTagged(block.typeId)) &&
-                    !(block.typeId == Material.WATER) &&
-                    !(block.typeId == Material.LAVA))
+            int block = this.volume.get(x, y, z);
+            if (block != AIR &&
+                    !(ignoreLeaves && block == snow) &&
+                    !(ignoreLeaves && this.leafIds[block]) &&
+                    !(block == water) &&
+                    !(block == lava))
             {
                 return y;
             }
@@ -872,7 +759,7 @@ public class RestoreNatureProcessingTask implements Runnable
         }
 
         //these are unnatural in sandy biomes, but not elsewhere
-        if (SAND_SOIL_BIOMES.contains(biome.getKey()) || environment != Environment.NORMAL)
+        if (RestoreNatureRules.SAND_SOIL_BIOMES.contains(biome.getKey()) || environment != Environment.NORMAL)
         {
             playerBlocks.addAll(Tag.LEAVES.getValues());
         }
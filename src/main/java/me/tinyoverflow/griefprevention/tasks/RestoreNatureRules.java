@@ -0,0 +1,168 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.World.Environment;
+import org.bukkit.block.Biome;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The materials and biome facts the nature restoration of a chunk works with.
+ *
+ * <p>Rules are looked up from material tags once per chunk, on the main
+ * thread, and are only read while processing.
+ */
+public final class RestoreNatureRules
+{
+    // Definitions of biomes with particularly dense log distribution. These biomes will not have logs reduced.
+    private static final Set<NamespacedKey> DENSE_LOG_BIOMES = Set.of(
+            NamespacedKey.minecraft("jungle"),
+            NamespacedKey.minecraft("bamboo_jungle"),
+            // Variants for versions < 1.18
+            NamespacedKey.minecraft("modified_jungle"),
+            NamespacedKey.minecraft("jungle_hills"),
+            NamespacedKey.minecraft("bamboo_jungle_hills")
+    );
+
+    // Definitions of biomes where sand covers surfaces instead of grass.
+    static final Set<NamespacedKey> SAND_SOIL_BIOMES = Set.of(
+            NamespacedKey.minecraft("snowy_beach"),
+            NamespacedKey.minecraft("beach"),
+            NamespacedKey.minecraft("desert"),
+            // Variants for versions < 1.18
+            NamespacedKey.minecraft("desert_hills"),
+            NamespacedKey.minecraft("desert_lakes")
+    );
+
+    final Environment environment;
+    final Set<Material> notAllowedToHang;    //natural blocks which don't naturally hang in their air
+    final Set<Material> playerBlocks;        //a "complete" list of player-placed blocks.  MUST BE MAINTAINED as patches introduce more
+    final Set<Material> leaves;
+    final Set<Material> logs;
+    final Set<Material> wallExclusions;      //blocks which may naturally stand higher than their neighbours
+    final boolean denseLogBiome;
+    final boolean sandSoilBiome;
+
+    RestoreNatureRules(
+            Environment environment,
+            Set<Material> notAllowedToHang,
+            Set<Material> playerBlocks,
+            Set<Material> leaves,
+            Set<Material> logs,
+            Set<Material> wallExclusions,
+            boolean denseLogBiome,
+            boolean sandSoilBiome)
+    {
+        this.environment = environment;
+        this.notAllowedToHang = notAllowedToHang;
+        this.playerBlocks = playerBlocks;
+        this.leaves = leaves;
+        this.logs = logs;
+        this.wallExclusions = wallExclusions;
+        this.denseLogBiome = denseLogBiome;
+        this.sandSoilBiome = sandSoilBiome;
+    }
+
+    /**
+     * Look up the rules for a chunk.
+     *
+     * @param environment the environment of the chunk's world
+     * @param biome the biome of the chunk
+     * @param aggressiveMode whether to also remove natural blocks griefers like to use
+     * @param creativeMode whether creative rules apply to the chunk
+     * @return the rules
+     */
+    public static RestoreNatureRules create(Environment environment, Biome biome, boolean aggressiveMode, boolean creativeMode)
+    {
+        Set<Material> notAllowedToHang = EnumSet.noneOf(Material.class);
+        notAllowedToHang.add(Material.DIRT);
+        notAllowedToHang.add(Material.GRASS);
+        notAllowedToHang.add(Material.SNOW);
+        notAllowedToHang.add(Material.OAK_LOG);
+        notAllowedToHang.add(Material.SPRUCE_LOG);
+        notAllowedToHang.add(Material.BIRCH_LOG);
+        notAllowedToHang.add(Material.JUNGLE_LOG);
+        notAllowedToHang.add(Material.ACACIA_LOG);
+        notAllowedToHang.add(Material.DARK_OAK_LOG);
+
+        if (aggressiveMode)
+        {
+            notAllowedToHang.add(Material.GRASS);
+            notAllowedToHang.add(Material.STONE);
+        }
+
+        Set<Material> playerBlocks = EnumSet.noneOf(Material.class);
+        playerBlocks.addAll(RestoreNatureProcessingTask.getPlayerBlocks(environment, biome));
+
+        //in aggressive or creative world mode, also treat these blocks as user placed, to be removed
+        //this is helpful in the few cases where griefers intentionally use natural blocks to grief,
+        //like a single-block tower of iron ore or a giant penis constructed with melons
+        if (aggressiveMode || creativeMode)
+        {
+            playerBlocks.add(Material.IRON_ORE);
+            playerBlocks.add(Material.GOLD_ORE);
+            playerBlocks.add(Material.DIAMOND_ORE);
+            playerBlocks.add(Material.MELON);
+            playerBlocks.add(Material.MELON_STEM);
+            playerBlocks.add(Material.BEDROCK);
+            playerBlocks.add(Material.COAL_ORE);
+            playerBlocks.add(Material.PUMPKIN);
+            playerBlocks.add(Material.PUMPKIN_STEM);
+        }
+
+        if (aggressiveMode)
+        {
+            playerBlocks.add(Material.OAK_LEAVES);
+            playerBlocks.add(Material.SPRUCE_LEAVES);
+            playerBlocks.add(Material.BIRCH_LEAVES);
+            playerBlocks.add(Material.JUNGLE_LEAVES);
+            playerBlocks.add(Material.ACACIA_LEAVES);
+            playerBlocks.add(Material.DARK_OAK_LEAVES);
+            playerBlocks.add(Material.OAK_LOG);
+            playerBlocks.add(Material.SPRUCE_LOG);
+            playerBlocks.add(Material.BIRCH_LOG);
+            playerBlocks.add(Material.JUNGLE_LOG);
+            playerBlocks.add(Material.ACACIA_LOG);
+            playerBlocks.add(Material.DARK_OAK_LOG);
+            playerBlocks.add(Material.VINE);
+        }
+
+        Set<Material> wallExclusions = EnumSet.of(
+                Material.CACTUS,
+                Material.GRASS,
+                Material.RED_MUSHROOM,
+                Material.BROWN_MUSHROOM,
+                Material.DEAD_BUSH,
+                Material.DANDELION,
+                Material.POPPY,
+                Material.ALLIUM,
+                Material.BLUE_ORCHID,
+                Material.AZURE_BLUET,
+                Material.RED_TULIP,
+                Material.ORANGE_TULIP,
+                Material.WHITE_TULIP,
+                Material.PINK_TULIP,
+                Material.OXEYE_DAISY,
+                Material.SUGAR_CANE,
+                Material.VINE,
+                Material.PUMPKIN,
+                Material.LILY_PAD
+        );
+        wallExclusions.addAll(Tag.SAPLINGS.getValues());
+        wallExclusions.addAll(Tag.LEAVES.getValues());
+
+        return new RestoreNatureRules(
+                environment,
+                notAllowedToHang,
+                playerBlocks,
+                EnumSet.copyOf(Tag.LEAVES.getValues()),
+                EnumSet.copyOf(Tag.LOGS.getValues()),
+                wallExclusions,
+                DENSE_LOG_BIOMES.contains(biome.getKey()),
+                SAND_SOIL_BIOMES.contains(biome.getKey())
+        );
+    }
+}
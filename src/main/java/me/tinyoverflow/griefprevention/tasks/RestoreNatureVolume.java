@@ -0,0 +1,289 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * The blocks of a chunk and a one block wide band around it, as worked on by
+ * the nature restoration.
+ *
+ * <p>Blocks are stored as palette ids in a flat int array, column by column, so
+ * a volume is a few arrays instead of an object per block. The band comes from
+ * the neighbouring chunks and is only read for reference. Its corners are never
+ * read and stay air. The blocks as captured are kept, so only blocks changed by
+ * the processing are applied to the world.
+ *
+ * <p>Volumes are not thread-safe, they're handed from the processing thread to
+ * the main thread once processing is done.
+ */
+public final class RestoreNatureVolume
+{
+    //the width and length of a volume, a chunk plus its band
+    public static final int SIZE = 18;
+    //the palette id of air, which every volume starts with
+    public static final int AIR = 0;
+
+    private static final int MATERIAL_COUNT = Material.values().length;
+
+    //world coordinates of the block at x = 0, z = 0
+    private final int originX;
+    private final int originZ;
+    private final int minY;
+    private final int maxY;
+    private final int[] blocks;
+    private int[] capturedBlocks;
+
+    private Material[] palette;
+    private int paletteSize;
+    //palette ids by material ordinal, -1 for materials not in the palette
+    private final int[] ids;
+
+    RestoreNatureVolume(int originX, int originZ, int minY, int maxY)
+    {
+        this.originX = originX;
+        this.originZ = originZ;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.blocks = new int[SIZE * SIZE * (maxY - minY)];
+        this.capturedBlocks = this.blocks;
+        this.palette = new Material[32];
+        this.ids = new int[MATERIAL_COUNT];
+
+        Arrays.fill(ids, -1);
+        addId(Material.AIR);
+    }
+
+    private RestoreNatureVolume(RestoreNatureVolume volume)
+    {
+        this.originX = volume.originX;
+        this.originZ = volume.originZ;
+        this.minY = volume.minY;
+        this.maxY = volume.maxY;
+        this.blocks = volume.blocks.clone();
+        this.capturedBlocks = volume.capturedBlocks == volume.blocks ? this.blocks : volume.capturedBlocks.clone();
+        this.palette = volume.palette.clone();
+        this.paletteSize = volume.paletteSize;
+        this.ids = volume.ids.clone();
+    }
+
+    /**
+     * Take snapshots of a chunk and its four neighbours. Must be called from
+     * the main thread, the snapshots can be unpacked on any thread.
+     *
+     * @param chunk the chunk to restore
+     * @return the snapshots, covering the heights nature is restored in
+     */
+    public static Capture capture(Chunk chunk)
+    {
+        World world = chunk.getWorld();
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+
+        //nature is only restored above y 0
+        return new Capture(
+                chunk.getChunkSnapshot(false, false, false),
+                world.getChunkAt(chunkX - 1, chunkZ).getChunkSnapshot(false, false, false),
+                world.getChunkAt(chunkX + 1, chunkZ).getChunkSnapshot(false, false, false),
+                world.getChunkAt(chunkX, chunkZ - 1).getChunkSnapshot(false, false, false),
+                world.getChunkAt(chunkX, chunkZ + 1).getChunkSnapshot(false, false, false),
+                Math.max(world.getMinHeight(), 0),
+                world.getMaxHeight()
+        );
+    }
+
+    /**
+     * Chunk snapshots taken on the main thread, to be unpacked into a volume.
+     */
+    public record Capture(
+            ChunkSnapshot center,
+            ChunkSnapshot west,
+            ChunkSnapshot east,
+            ChunkSnapshot north,
+            ChunkSnapshot south,
+            int minY,
+            int maxY)
+    {
+        /**
+         * @return a volume holding the captured blocks
+         */
+        public RestoreNatureVolume unpack()
+        {
+            RestoreNatureVolume volume = new RestoreNatureVolume(
+                    (center.getX() << 4) - 1,
+                    (center.getZ() << 4) - 1,
+                    minY,
+                    maxY
+            );
+
+            volume.copy(center, 0, 0, 16, 16, 1, 1);
+            volume.copy(west, 15, 0, 1, 16, 0, 1);
+            volume.copy(east, 0, 0, 1, 16, SIZE - 1, 1);
+            volume.copy(north, 0, 15, 16, 1, 1, 0);
+            volume.copy(south, 0, 0, 16, 1, 1, SIZE - 1);
+            volume.markCaptured();
+
+            return volume;
+        }
+    }
+
+    //copies the columns of a snapshot area to the volume, starting at volume coordinates toX, toZ
+    private void copy(ChunkSnapshot snapshot, int fromX, int fromZ, int width, int length, int toX, int toZ)
+    {
+        Material lastType = null;
+        int lastId = AIR;
+
+        for (int x = 0; x < width; x++)
+        {
+            for (int z = 0; z < length; z++)
+            {
+                int index = index(toX + x, minY, toZ + z);
+                for (int y = minY; y < maxY; y++)
+                {
+                    //neighbouring blocks are mostly the same, skip the palette lookup for those
+                    Material type = snapshot.getBlockType(fromX + x, y, fromZ + z);
+                    if (type != lastType)
+                    {
+                        lastType = type;
+                        lastId = addId(type);
+                    }
+                    blocks[index++] = lastId;
+                }
+            }
+        }
+    }
+
+    //an independent copy of this volume
+    RestoreNatureVolume copy()
+    {
+        return new RestoreNatureVolume(this);
+    }
+
+    //blocks set until now are the captured ones
+    void markCaptured()
+    {
+        capturedBlocks = blocks.clone();
+    }
+
+    private int index(int x, int y, int z)
+    {
+        return (x * SIZE + z) * (maxY - minY) + (y - minY);
+    }
+
+    /**
+     * @param x the x coordinate within the volume, from 0 to {@link #SIZE} - 1
+     * @param y the world y coordinate
+     * @param z the z coordinate within the volume, from 0 to {@link #SIZE} - 1
+     * @return the palette id of the block
+     */
+    public int get(int x, int y, int z)
+    {
+        return blocks[index(x, y, z)];
+    }
+
+    /**
+     * @param x the x coordinate within the volume
+     * @param y the world y coordinate
+     * @param z the z coordinate within the volume
+     * @param id the palette id of the new block
+     */
+    public void set(int x, int y, int z, int id)
+    {
+        blocks[index(x, y, z)] = id;
+    }
+
+    /**
+     * @param x the x coordinate within the volume
+     * @param y the world y coordinate
+     * @param z the z coordinate within the volume
+     * @return whether the block differs from the captured one
+     */
+    public boolean isChanged(int x, int y, int z)
+    {
+        int index = index(x, y, z);
+        return blocks[index] != capturedBlocks[index];
+    }
+
+    /**
+     * @param material a material
+     * @return the palette id of the material, or -1 if it isn't in the palette
+     */
+    public int getId(Material material)
+    {
+        return ids[material.ordinal()];
+    }
+
+    /**
+     * @param material a material
+     * @return the palette id of the material, added to the palette if needed
+     */
+    public int addId(Material material)
+    {
+        int id = ids[material.ordinal()];
+        if (id >= 0) return id;
+
+        if (paletteSize == palette.length)
+        {
+            palette = Arrays.copyOf(palette, paletteSize * 2);
+        }
+        palette[paletteSize] = material;
+        ids[material.ordinal()] = paletteSize;
+        return paletteSize++;
+    }
+
+    /**
+     * @param id a palette id
+     * @return the material of the palette id
+     */
+    public Material getMaterial(int id)
+    {
+        return palette[id];
+    }
+
+    /**
+     * Flag the palette ids of matching materials, so passes test blocks with an
+     * array lookup. Ids added later are not covered.
+     *
+     * @param filter the materials to flag
+     * @return flags indexed by palette id
+     */
+    public boolean[] mask(Predicate<Material> filter)
+    {
+        boolean[] mask = new boolean[paletteSize];
+        for (int id = 0; id < paletteSize; id++)
+        {
+            mask[id] = filter.test(palette[id]);
+        }
+        return mask;
+    }
+
+    public int getOriginX()
+    {
+        return originX;
+    }
+
+    public int getOriginZ()
+    {
+        return originZ;
+    }
+
+    /**
+     * @return the lowest world y coordinate of the volume
+     */
+    public int getMinY()
+    {
+        return minY;
+    }
+
+    /**
+     * @return the world y coordinate above the volume
+     */
+    public int getMaxY()
+    {
+        return maxY;
+    }
+}
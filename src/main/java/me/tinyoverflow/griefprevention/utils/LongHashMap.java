@@ -0,0 +1,245 @@
+package me.tinyoverflow.griefprevention.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * An open-addressing hash map from primitive {@code long} keys to objects.
+ *
+ * <p>Unlike a {@code HashMap<Long, V>}, neither lookups nor insertions box
+ * their keys, and entries are stored in two flat arrays instead of one node
+ * object per entry. Collisions are resolved with linear probing and removals
+ * shift entries back instead of leaving tombstones. {@code null} values are
+ * not supported.
+ *
+ * <p>This class is not thread-safe. Copies made with
+ * {@link #LongHashMap(LongHashMap)} share no state with the original, so a
+ * copy may be published to other threads once it is no longer modified.
+ *
+ * @param <V> the value type
+ */
+public class LongHashMap<V>
+{
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Construct a new empty map.
+     */
+    public LongHashMap()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Construct a new empty map sized for the given number of entries.
+     *
+     * @param expectedSize the number of entries the map should hold without resizing
+     */
+    public LongHashMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Construct a new map containing the same entries as another map.
+     *
+     * @param other the map to copy
+     */
+    public LongHashMap(@NotNull LongHashMap<V> other)
+    {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        mask = other.mask;
+        size = other.size;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return whether the map contains no entries
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Get the value mapped to a key.
+     *
+     * @param key the key
+     * @return the value or null if the key is not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long key)
+    {
+        int slot = hash(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null)
+        {
+            if (keys[slot] == key) return (V) value;
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Check whether a key is mapped.
+     *
+     * @param key the key
+     * @return whether the key is mapped
+     */
+    public boolean containsKey(long key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Map a key to a value, replacing any previous value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value or null if the key was not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(long key, @NotNull V value)
+    {
+        int slot = hash(key) & mask;
+        Object previous;
+        while ((previous = values[slot]) != null)
+        {
+            if (keys[slot] == key)
+            {
+                values[slot] = value;
+                return (V) previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        // keep the load factor at or below one half, probe sequences stay short
+        if (++size > (mask + 1) >> 1)
+        {
+            rehash((mask + 1) << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove the mapping of a key.
+     *
+     * @param key the key
+     * @return the removed value or null if the key was not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(long key)
+    {
+        int slot = hash(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null)
+        {
+            if (keys[slot] == key)
+            {
+                shiftBack(slot);
+                size--;
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear()
+    {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Perform an action for every value in the map, in no particular order.
+     *
+     * @param action the action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(@NotNull Consumer<? super V> action)
+    {
+        for (Object value : values)
+        {
+            if (value != null) action.accept((V) value);
+        }
+    }
+
+    // Close the gap left at a removed slot by moving back entries that would no longer be found.
+    private void shiftBack(int gap)
+    {
+        int slot = (gap + 1) & mask;
+        while (values[slot] != null)
+        {
+            int ideal = hash(keys[slot]) & mask;
+            // move the entry if its ideal slot is not cyclically between the gap and its current slot
+            if (((slot - ideal) & mask) >= ((slot - gap) & mask))
+            {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldValues.length; i++)
+        {
+            if (oldValues[i] == null) continue;
+
+            int slot = hash(oldKeys[i]) & mask;
+            while (values[slot] != null)
+            {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(long key)
+    {
+        // spread all bits of the key, chunk hashes carry most of their entropy in both halves
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,42 @@
+package me.tinyoverflow.griefprevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+
+/**
+ * Creates claims for tests.
+ */
+public final class ClaimFixtures
+{
+    private ClaimFixtures()
+    {
+    }
+
+    /**
+     * Create an administrative top level claim without any trust, which isn't in any data store.
+     *
+     * @param world the world of the claim
+     * @param x1    the X coordinate of the lesser corner
+     * @param y     the Y coordinate of both corners
+     * @param z1    the Z coordinate of the lesser corner
+     * @param x2    the X coordinate of the greater corner
+     * @param z2    the Z coordinate of the greater corner
+     * @param id    the claim ID
+     * @return the claim
+     */
+    public static Claim createClaim(World world, int x1, int y, int z1, int x2, int z2, long id)
+    {
+        return new Claim(
+                new Location(world, x1, y, z1),
+                new Location(world, x2, y, z2),
+                null,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                id
+        );
+    }
+}
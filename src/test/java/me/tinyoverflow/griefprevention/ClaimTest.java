@@ -0,0 +1,61 @@
+package me.tinyoverflow.griefprevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import static me.tinyoverflow.griefprevention.ClaimFixtures.createClaim;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClaimTest
+{
+    private static World mockWorld()
+    {
+        World world = mock(World.class);
+        when(world.getMaxHeight()).thenReturn(320);
+        return world;
+    }
+
+    @Test
+    public void testContainsChecksBoundsAndWorld()
+    {
+        World world = mockWorld();
+        Claim claim = createClaim(world, 0, 10, 0, 9, 9, 0);
+
+        assertTrue(claim.contains(new Location(world, 0, 10, 0), false, false));
+        assertTrue(claim.contains(new Location(world, 9, 320, 9), false, false));
+        assertFalse(claim.contains(new Location(world, 10, 64, 5), false, false));
+        assertFalse(claim.contains(new Location(world, 5, 321, 5), false, false));
+        assertFalse(claim.contains(new Location(world, 5, 9, 5), false, false));
+        assertTrue(claim.contains(new Location(world, 5, 9, 5), true, false));
+        assertFalse(claim.contains(new Location(mockWorld(), 5, 64, 5), true, false));
+    }
+
+    @Test
+    public void testOverlapsChecksBoundsAndWorld()
+    {
+        World world = mockWorld();
+        Claim claim = createClaim(world, 0, 0, 0, 9, 9, 0);
+
+        assertTrue(claim.overlaps(createClaim(world, 9, 0, 9, 20, 20, 0)));
+        assertFalse(claim.overlaps(createClaim(world, 10, 0, 0, 20, 9, 0)));
+        assertFalse(claim.overlaps(createClaim(mockWorld(), 0, 0, 0, 9, 9, 0)));
+    }
+
+    @Test
+    public void testInvalidateBoundsPicksUpNewCorners()
+    {
+        World world = mockWorld();
+        Claim claim = createClaim(world, 0, 0, 0, 9, 9, 0);
+        Location outside = new Location(world, 15, 64, 15);
+        assertFalse(claim.contains(outside, false, false));
+
+        claim.greaterBoundaryCorner = new Location(world, 19, 0, 19);
+        claim.invalidateBounds();
+
+        assertTrue(claim.contains(outside, false, false));
+    }
+}
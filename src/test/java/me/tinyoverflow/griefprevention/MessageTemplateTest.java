@@ -0,0 +1,45 @@
+package me.tinyoverflow.griefprevention;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MessageTemplateTest
+{
+    @Test
+    public void testReplacesPlaceholders()
+    {
+        MessageTemplate template = MessageTemplate.compile("{1} gave {0} to {1}.");
+
+        assertEquals("Bob gave 10 blocks to Bob.", template.render("10 blocks", "Bob"));
+        assertEquals("{1} gave 10 blocks to {1}.", template.render("10 blocks"));
+    }
+
+    @Test
+    public void testReturnsTextWithoutArguments()
+    {
+        MessageTemplate plain = MessageTemplate.compile("Now respecting claims.");
+        MessageTemplate withPlaceholder = MessageTemplate.compile("You have {0} blocks.");
+
+        assertSame(plain.getText(), plain.render());
+        assertSame(plain.getText(), plain.render("unused"));
+        assertSame(withPlaceholder.getText(), withPlaceholder.render());
+    }
+
+    @Test
+    public void testKeepsOtherBracesAsText()
+    {
+        MessageTemplate template = MessageTemplate.compile("{a} {} {01} {{0}} {0");
+
+        assertEquals("{a} {} {01} {x} {0", template.render("x"));
+    }
+
+    @Test
+    public void testDoesNotReplaceInsideArguments()
+    {
+        MessageTemplate template = MessageTemplate.compile("{0}: {1}");
+
+        assertEquals("{1}: text", template.render("{1}", "text"));
+    }
+}
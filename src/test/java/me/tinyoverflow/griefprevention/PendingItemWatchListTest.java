@@ -0,0 +1,80 @@
+package me.tinyoverflow.griefprevention;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PendingItemWatchListTest
+{
+    private static final UUID OWNER = UUID.fromString("fa8d60a7-9645-4a9f-b74d-173966174739");
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final World world = createWorld();
+
+    private static World createWorld()
+    {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        return world;
+    }
+
+    private static ItemStack createItem(Material type, int amount)
+    {
+        ItemStack itemStack = mock(ItemStack.class);
+        when(itemStack.getType()).thenReturn(type);
+        when(itemStack.getAmount()).thenReturn(amount);
+        return itemStack;
+    }
+
+    private PendingItemProtection createProtection(double x, double z, Material type, int amount)
+    {
+        return new PendingItemProtection(new Location(world, x, 64, z), OWNER, NOW + 3000, createItem(type, amount));
+    }
+
+    @Test
+    public void testClaimsMatchingItemAcrossChunkBorder()
+    {
+        PendingItemWatchList watchList = new PendingItemWatchList();
+        PendingItemProtection protection = createProtection(14, 14, Material.DIAMOND, 3);
+        watchList.add(protection);
+        watchList.add(createProtection(14, 14, Material.DIAMOND, 2));
+
+        //wrong amount, wrong world, too far away
+        assertNull(watchList.claim(new Location(world, 17, 64, 17), createItem(Material.DIAMOND, 1), NOW));
+        assertNull(watchList.claim(new Location(createWorld(), 17, 64, 17), createItem(Material.DIAMOND, 3), NOW));
+        assertNull(watchList.claim(new Location(world, 20, 64, 14), createItem(Material.DIAMOND, 3), NOW));
+        assertNull(watchList.claim(new Location(world, 14, 40, 14), createItem(Material.DIAMOND, 3), NOW));
+
+        //the item spawns in the next chunk, within range
+        assertSame(protection, watchList.claim(new Location(world, 18.5, 60, 16.5), createItem(Material.DIAMOND, 3), NOW));
+        assertNull(watchList.claim(new Location(world, 14, 64, 14), createItem(Material.DIAMOND, 3), NOW));
+        assertEquals(1, watchList.size());
+    }
+
+    @Test
+    public void testExpiresProtections()
+    {
+        PendingItemWatchList watchList = new PendingItemWatchList();
+        watchList.add(createProtection(0, 0, Material.STONE, 64));
+        watchList.add(createProtection(0, 0, Material.DIRT, 64));
+        watchList.expire(NOW);
+
+        //expired protections are never claimed, even before they are removed
+        assertNull(watchList.claim(new Location(world, 0, 64, 0), createItem(Material.STONE, 64), NOW + 3001));
+
+        assertEquals(0, watchList.expire(NOW + 2000));
+        assertEquals(2, watchList.size());
+        assertEquals(2, watchList.expire(NOW + 4000));
+        assertEquals(0, watchList.size());
+    }
+}
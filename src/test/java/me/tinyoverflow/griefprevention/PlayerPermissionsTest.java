@@ -0,0 +1,79 @@
+package me.tinyoverflow.griefprevention;
+
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PlayerPermissionsTest
+{
+    private static Player createPlayer()
+    {
+        Player player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+        return player;
+    }
+
+    @Test
+    public void testChecksPlayersWithoutSnapshotDirectly()
+    {
+        Player player = createPlayer();
+        PlayerPermissions permissions = new PlayerPermissions(permissible -> 7, () -> 0);
+
+        when(player.hasPermission("griefprevention.ignoreclaims")).thenReturn(true);
+        assertTrue(permissions.has(player, PlayerPermissions.Node.IGNORE_CLAIMS));
+        assertFalse(permissions.has(player, PlayerPermissions.Node.ADMIN_CLAIMS));
+        assertEquals(7, permissions.getGroupBonusBlocks(player));
+    }
+
+    @Test
+    public void testKeepsSnapshotUntilRefreshed()
+    {
+        Player player = createPlayer();
+        int[] bonusBlocks = { 100 };
+        PlayerPermissions permissions = new PlayerPermissions(permissible -> bonusBlocks[0], () -> 0);
+
+        when(player.hasPermission("griefprevention.adminclaims")).thenReturn(true);
+        permissions.refresh(player);
+
+        when(player.hasPermission("griefprevention.adminclaims")).thenReturn(false);
+        when(player.hasPermission("griefprevention.deleteclaims")).thenReturn(true);
+        bonusBlocks[0] = 200;
+        assertTrue(permissions.has(player, PlayerPermissions.Node.ADMIN_CLAIMS));
+        assertFalse(permissions.has(player, PlayerPermissions.Node.DELETE_CLAIMS));
+        assertEquals(100, permissions.getGroupBonusBlocks(player));
+
+        permissions.refresh(player);
+        assertFalse(permissions.has(player, PlayerPermissions.Node.ADMIN_CLAIMS));
+        assertTrue(permissions.has(player, PlayerPermissions.Node.DELETE_CLAIMS));
+        assertEquals(200, permissions.getGroupBonusBlocks(player));
+
+        permissions.remove(player);
+        when(player.hasPermission("griefprevention.deleteclaims")).thenReturn(false);
+        assertFalse(permissions.has(player, PlayerPermissions.Node.DELETE_CLAIMS));
+    }
+
+    @Test
+    public void testTakesSnapshotAgainOnceStale()
+    {
+        Player player = createPlayer();
+        int[] tick = { 100 };
+        PlayerPermissions permissions = new PlayerPermissions(permissible -> 0, () -> tick[0]);
+
+        when(player.hasPermission("griefprevention.ignoreclaims")).thenReturn(true);
+        permissions.refresh(player);
+
+        when(player.hasPermission("griefprevention.ignoreclaims")).thenReturn(false);
+        tick[0] += PlayerPermissions.MAX_AGE_TICKS - 1;
+        assertTrue(permissions.has(player, PlayerPermissions.Node.IGNORE_CLAIMS));
+
+        tick[0]++;
+        assertFalse(permissions.has(player, PlayerPermissions.Node.IGNORE_CLAIMS));
+    }
+}
@@ -0,0 +1,140 @@
+package me.tinyoverflow.griefprevention;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrustTableTest
+{
+    private static final UUID PLAYER = UUID.fromString("fa8d60a7-9645-4a9f-b74d-173966174739");
+
+    @Test
+    public void testKeepsLevelsAndManagersSeparately()
+    {
+        TrustTable trust = new TrustTable();
+        trust.setPermission(PLAYER.toString(), ClaimPermission.Build);
+        trust.addManager(PLAYER.toString());
+        trust.setPermission("public", ClaimPermission.Access);
+        trust.addManager("[some.group]");
+
+        assertEquals(ClaimPermission.Build, trust.getPermission(PLAYER));
+        assertEquals(ClaimPermission.Build, trust.getPermission(PLAYER.toString()));
+        assertTrue(trust.isManager(PLAYER));
+        assertEquals(ClaimPermission.Access, trust.getPermission("public"));
+        assertNull(trust.getPermission("[some.group]"));
+        assertTrue(trust.isManager("[some.group]"));
+
+        trust.setPermission(PLAYER.toString(), ClaimPermission.Inventory);
+        assertTrue(trust.isManager(PLAYER));
+        assertEquals(ClaimPermission.Inventory, trust.getPermission(PLAYER));
+
+        trust.remove(PLAYER.toString());
+        assertNull(trust.getPermission(PLAYER));
+        assertFalse(trust.isManager(PLAYER));
+        assertEquals(2, trust.size());
+    }
+
+    @Test
+    public void testListsPermissionsLikeTheyWereSet()
+    {
+        TrustTable trust = new TrustTable();
+        trust.setPermission(PLAYER.toString(), ClaimPermission.Build);
+        trust.addManager(PLAYER.toString());
+        trust.setPermission("[some.group]", ClaimPermission.Inventory);
+        trust.setPermission("public", ClaimPermission.Access);
+
+        ArrayList<String> builders = new ArrayList<>();
+        ArrayList<String> containers = new ArrayList<>();
+        ArrayList<String> accessors = new ArrayList<>();
+        ArrayList<String> managers = new ArrayList<>();
+        trust.getPermissions(builders, containers, accessors, managers);
+
+        assertEquals(List.of(PLAYER.toString()), builders);
+        assertEquals(List.of("[some.group]"), containers);
+        assertEquals(List.of("public"), accessors);
+        assertEquals(List.of(PLAYER.toString()), managers);
+    }
+
+    @Test
+    public void testGrantsPermissionsToGroups()
+    {
+        TrustTable trust = new TrustTable();
+        trust.setPermission("[some.group]", ClaimPermission.Inventory);
+        trust.addManager("[other.group]");
+        trust.setPermission("public", ClaimPermission.Build);
+
+        Set<String> nodes = Set.of("some.group", "other.group");
+        assertTrue(trust.isGrantedToGroup(ClaimPermission.Access, nodes::contains));
+        assertTrue(trust.isGrantedToGroup(ClaimPermission.Inventory, nodes::contains));
+        assertFalse(trust.isGrantedToGroup(ClaimPermission.Build, nodes::contains));
+        assertTrue(trust.isGrantedToGroup(ClaimPermission.Manage, nodes::contains));
+        assertFalse(trust.isGrantedToGroup(ClaimPermission.Inventory, node -> false));
+    }
+
+    @Test
+    public void testKeepsNonCanonicalIDsAsTheyAre()
+    {
+        TrustTable trust = new TrustTable();
+        String upperCase = PLAYER.toString().toUpperCase();
+        trust.setPermission(upperCase, ClaimPermission.Access);
+
+        assertNull(trust.getPermission(PLAYER));
+        assertEquals(ClaimPermission.Access, trust.getPermission(upperCase));
+        assertNull(TrustTable.parseUUID("1-1-1-1-1"));
+    }
+
+    @Test
+    public void testMatchesMapThroughManyChanges()
+    {
+        Random random = new Random(42);
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+        {
+            players.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        TrustTable trust = new TrustTable();
+        Map<UUID, ClaimPermission> expected = new HashMap<>();
+        ClaimPermission[] levels = { ClaimPermission.Build, ClaimPermission.Inventory, ClaimPermission.Access };
+        for (int i = 0; i < 5000; i++)
+        {
+            UUID player = players.get(random.nextInt(players.size()));
+            if (random.nextInt(3) == 0)
+            {
+                trust.remove(player.toString());
+                expected.remove(player);
+            }
+            else
+            {
+                ClaimPermission level = levels[random.nextInt(levels.length)];
+                trust.setPermission(player.toString(), level);
+                expected.put(player, level);
+            }
+        }
+
+        for (UUID player : players)
+        {
+            assertEquals(expected.get(player), trust.getPermission(player));
+        }
+        assertEquals(expected.size(), trust.size());
+
+        TrustTable copy = new TrustTable(trust);
+        for (UUID player : players)
+        {
+            copy.remove(player.toString());
+            assertEquals(expected.get(player), trust.getPermission(player));
+        }
+        assertEquals(0, copy.size());
+    }
+}
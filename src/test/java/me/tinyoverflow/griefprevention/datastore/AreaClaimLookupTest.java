@@ -0,0 +1,113 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import me.tinyoverflow.griefprevention.ClaimFixtures;
+import me.tinyoverflow.griefprevention.utils.BoundingBox;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AreaClaimLookupTest
+{
+    private World world;
+    private DataStore dataStore;
+    private ClaimIndex claimIndex;
+    private Set<Claim> claimsInArea;
+
+    private Claim createClaim(int x1, int y1, int z1, int x2, int z2, long id)
+    {
+        Claim claim = ClaimFixtures.createClaim(world, x1, y1, z1, x2, z2, id);
+        claim.inDataStore = true;
+        return claim;
+    }
+
+    @BeforeEach
+    public void setUp()
+    {
+        world = mock(World.class);
+        when(world.getMaxHeight()).thenReturn(320);
+
+        claimsInArea = new HashSet<>();
+        claimIndex = new ClaimIndex();
+        dataStore = mock(DataStore.class);
+        when(dataStore.getClaimsInArea(eq(world), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenAnswer(invocation -> new HashSet<>(claimsInArea));
+    }
+
+    @Test
+    public void testResolvesClaimsAndSubdivisions()
+    {
+        Claim first = createClaim(0, 0, 0, 20, 20, 1);
+        Claim second = createClaim(30, 0, 30, 40, 40, 2);
+        Claim subdivision = createClaim(5, 10, 5, 10, 10, 3);
+        subdivision.parent = first;
+        first.children.add(subdivision);
+        claimsInArea.add(first);
+        claimsInArea.add(second);
+
+        AreaClaimLookup lookup = new AreaClaimLookup(dataStore, claimIndex, world, new BoundingBox(-10, 0, -10, 50, 0, 50));
+
+        assertSame(first, lookup.getClaimAt(1, 64, 1, false));
+        assertSame(second, lookup.getClaimAt(35, 64, 35, false));
+        assertSame(subdivision, lookup.getClaimAt(7, 64, 7, false));
+        assertNull(lookup.getClaimAt(25, 64, 25, false));
+
+        //below the subdivision, height decides whether it's in the subdivision
+        assertSame(first, lookup.getClaimAt(7, 5, 7, false));
+        assertSame(subdivision, lookup.getClaimAt(7, 5, 7, true));
+
+        //claims which were removed meanwhile are skipped
+        subdivision.inDataStore = false;
+        assertSame(first, lookup.getClaimAt(7, 64, 7, false));
+        second.inDataStore = false;
+        assertNull(lookup.getClaimAt(35, 64, 35, false));
+
+        verify(dataStore, never()).getClaimAt(any(Location.class), anyBoolean(), any());
+    }
+
+    @Test
+    public void testReadsClaimsAgainAfterChanges()
+    {
+        AreaClaimLookup lookup = new AreaClaimLookup(dataStore, claimIndex, world, new BoundingBox(-10, 0, -10, 50, 0, 50));
+        assertNull(lookup.getClaimAt(1, 64, 1, false));
+
+        //a claim made while the lookup is kept is found once the index publishes it
+        Claim claim = createClaim(0, 0, 0, 20, 20, 1);
+        claimsInArea.add(claim);
+        claimIndex.beginUpdate();
+        claimIndex.endUpdate();
+
+        assertSame(claim, lookup.getClaimAt(1, 64, 1, false));
+        assertEquals(claim, lookup.getClaimAt(2, 64, 2, false));
+        verify(dataStore, times(2)).getClaimsInArea(eq(world), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testFallsBackOutsideArea()
+    {
+        Claim claim = createClaim(100, 0, 100, 120, 120, 1);
+        when(dataStore.getClaimAt(any(Location.class), eq(false), any())).thenReturn(claim);
+
+        AreaClaimLookup lookup = new AreaClaimLookup(dataStore, claimIndex, world, new BoundingBox(-10, 0, -10, 50, 0, 50));
+
+        assertSame(claim, lookup.getClaimAt(110, 64, 110, false));
+        verify(dataStore).getClaimAt(any(Location.class), eq(false), any());
+    }
+}
@@ -0,0 +1,144 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClaimLogTest
+{
+    @TempDir
+    Path directory;
+
+    private static ClaimRecord createRecord(long id, int x)
+    {
+        return new ClaimRecord(
+                id,
+                id % 2 == 0 ? -1 : id - 1,
+                id % 3 == 0 ? "world_nether" : "world",
+                x, -64, x,
+                x + 9, 70, x + 9,
+                id % 2 == 0 ? new UUID(id, ~id) : null,
+                id % 2 != 0,
+                1_700_000_000_000L + id,
+                List.of("builder", "[group]"),
+                List.of(),
+                List.of("public"),
+                List.of("builder")
+        );
+    }
+
+    @Test
+    public void testLatestRecordWins() throws IOException
+    {
+        Path path = directory.resolve("claims.dat");
+        try (ClaimLog log = ClaimLog.open(path, new ArrayList<>())) {
+            for (int i = 0; i < 10; i++) {
+                log.append(createRecord(i, i));
+            }
+            log.append(createRecord(4, 100));
+            log.appendDelete(5);
+        }
+
+        List<ClaimRecord> records = new ArrayList<>();
+        ClaimLog.open(path, records).close();
+
+        assertEquals(9, records.size());
+        assertTrue(records.contains(createRecord(4, 100)));
+        assertTrue(records.contains(createRecord(6, 6)));
+        assertFalse(records.stream().anyMatch(record -> record.id() == 5));
+    }
+
+    @Test
+    public void testCompaction() throws IOException
+    {
+        Path path = directory.resolve("claims.dat");
+        List<ClaimRecord> live = new ArrayList<>();
+        try (ClaimLog log = ClaimLog.open(path, new ArrayList<>())) {
+            for (int round = 0; round < 5; round++) {
+                live.clear();
+                for (int i = 0; i < 1000; i++) {
+                    ClaimRecord record = createRecord(i, round);
+                    log.append(record);
+                    live.add(record);
+                }
+            }
+            assertTrue(log.needsCompaction());
+
+            long sizeBefore = Files.size(path);
+            assertEquals(1000, log.compact());
+            assertFalse(log.needsCompaction());
+            assertTrue(Files.size(path) < sizeBefore);
+
+            log.append(createRecord(1000, 0));
+        }
+
+        List<ClaimRecord> records = new ArrayList<>();
+        ClaimLog.open(path, records).close();
+        assertEquals(1001, records.size());
+        assertEquals(live, records.subList(0, 1000));
+    }
+
+    @Test
+    public void testFailedCompactionKeepsLogWritable() throws IOException
+    {
+        Path path = directory.resolve("claims.dat");
+        try (ClaimLog log = ClaimLog.open(path, new ArrayList<>())) {
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 1000; i++) {
+                    log.append(createRecord(i, round));
+                }
+            }
+            assertTrue(log.needsCompaction());
+
+            long sizeBefore = Files.size(path);
+            assertThrows(IOException.class, () -> log.compact((source, target) -> {
+                throw new IOException("Unable to replace " + target + ".");
+            }));
+            assertEquals(sizeBefore, Files.size(path));
+            assertFalse(Files.exists(directory.resolve("claims.dat.tmp")));
+            assertFalse(log.needsCompaction());
+
+            log.append(createRecord(1000, 0));
+        }
+
+        List<ClaimRecord> records = new ArrayList<>();
+        ClaimLog.open(path, records).close();
+        assertEquals(1001, records.size());
+        assertEquals(createRecord(999, 2), records.get(999));
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscarded() throws IOException
+    {
+        Path path = directory.resolve("claims.dat");
+        ClaimLog.write(path, List.of(createRecord(0, 0), createRecord(1, 1)));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        List<ClaimRecord> records = new ArrayList<>();
+        try (ClaimLog log = ClaimLog.open(path, records)) {
+            assertTrue(log.getDiscardedBytes() > 0);
+            log.append(createRecord(2, 2));
+        }
+        assertEquals(List.of(createRecord(0, 0)), records);
+
+        records.clear();
+        ClaimLog.open(path, records).close();
+        assertEquals(List.of(createRecord(0, 0), createRecord(2, 2)), records);
+    }
+}
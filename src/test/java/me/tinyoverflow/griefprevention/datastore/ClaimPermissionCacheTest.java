@@ -0,0 +1,69 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import me.tinyoverflow.griefprevention.ClaimPermission;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static me.tinyoverflow.griefprevention.ClaimFixtures.createClaim;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class ClaimPermissionCacheTest
+{
+    @Test
+    public void testRemembersDecisionsPerClaimPlayerAndPermission()
+    {
+        World world = mock(World.class);
+        Claim claim = createClaim(world, 0, 0, 0, 9, 9, 1);
+        Claim other = createClaim(world, 0, 0, 0, 9, 9, 2);
+        UUID player = UUID.randomUUID();
+        Supplier<String> denial = () -> "denied";
+
+        ClaimPermissionCache cache = new ClaimPermissionCache(() -> 0);
+        cache.put(claim, player, ClaimPermission.Build, ClaimPermissionCache.GRANTED);
+        cache.put(claim, player, ClaimPermission.Manage, denial);
+
+        assertSame(ClaimPermissionCache.GRANTED, cache.get(claim, player, ClaimPermission.Build));
+        assertSame(denial, cache.get(claim, player, ClaimPermission.Manage));
+        assertNull(cache.get(claim, player, ClaimPermission.Access));
+        assertNull(cache.get(other, player, ClaimPermission.Build));
+        assertNull(cache.get(claim, UUID.randomUUID(), ClaimPermission.Build));
+    }
+
+    @Test
+    public void testForgetsDecisionsWhenInvalidated()
+    {
+        Claim claim = createClaim(mock(World.class), 0, 0, 0, 9, 9, 1);
+        UUID player = UUID.randomUUID();
+
+        ClaimPermissionCache cache = new ClaimPermissionCache(() -> 0);
+        cache.put(claim, player, ClaimPermission.Build, ClaimPermissionCache.UNTRUSTED);
+        assertSame(ClaimPermissionCache.UNTRUSTED, cache.get(claim, player, ClaimPermission.Build));
+
+        cache.invalidate();
+        assertNull(cache.get(claim, player, ClaimPermission.Build));
+    }
+
+    @Test
+    public void testForgetsDecisionsAfterMaxAge()
+    {
+        Claim claim = createClaim(mock(World.class), 0, 0, 0, 9, 9, 1);
+        UUID player = UUID.randomUUID();
+        AtomicInteger tick = new AtomicInteger(100);
+
+        ClaimPermissionCache cache = new ClaimPermissionCache(tick::get);
+        cache.put(claim, player, ClaimPermission.Access, ClaimPermissionCache.GRANTED);
+
+        tick.addAndGet(ClaimPermissionCache.MAX_AGE_TICKS - 1);
+        assertSame(ClaimPermissionCache.GRANTED, cache.get(claim, player, ClaimPermission.Access));
+
+        tick.incrementAndGet();
+        assertNull(cache.get(claim, player, ClaimPermission.Access));
+    }
+}
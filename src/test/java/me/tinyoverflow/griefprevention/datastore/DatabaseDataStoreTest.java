@@ -0,0 +1,91 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DatabaseDataStoreTest
+{
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException
+    {
+        connection = DriverManager.getConnection("jdbc:h2:mem:");
+        DatabaseDataStore.createSchema(connection);
+        connection.setAutoCommit(false);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException
+    {
+        connection.close();
+    }
+
+    private static ClaimRecord createRecord(long id, int x, List<String> builders)
+    {
+        return new ClaimRecord(
+                id,
+                id % 2 == 0 ? -1 : id - 1,
+                "world",
+                x, -64, x,
+                x + 9, 70, x + 9,
+                id % 2 == 0 ? new UUID(id, ~id) : null,
+                id % 2 != 0,
+                1_700_000_000_000L + id,
+                builders,
+                List.of(),
+                List.of("public"),
+                List.of("builder")
+        );
+    }
+
+    @Test
+    public void testClaimsRoundTrip() throws SQLException
+    {
+        try (DatabaseDataStore.SqlBatch batch = new DatabaseDataStore.SqlBatch(connection)) {
+            for (int i = 0; i < 4; i++) {
+                batch.writeClaim(createRecord(i, i * 100, List.of("[group]", "builder")));
+            }
+            batch.commit();
+        }
+
+        //a later batch replaces a claim as a whole and deletes another
+        try (DatabaseDataStore.SqlBatch batch = new DatabaseDataStore.SqlBatch(connection)) {
+            batch.writeClaim(createRecord(2, 500, List.of()));
+            batch.deleteClaim(3);
+            batch.commit();
+        }
+
+        assertEquals(
+                List.of(
+                        createRecord(0, 0, List.of("[group]", "builder")),
+                        createRecord(1, 100, List.of("[group]", "builder")),
+                        createRecord(2, 500, List.of())
+                ),
+                DatabaseDataStore.readClaimRecords(connection)
+        );
+    }
+
+    @Test
+    public void testMetadata() throws SQLException
+    {
+        assertEquals(0, DatabaseDataStore.readMetadata(connection, "next_claim_id", 0));
+
+        try (DatabaseDataStore.SqlBatch batch = new DatabaseDataStore.SqlBatch(connection)) {
+            batch.writeMetadata("next_claim_id", 41);
+            batch.writeMetadata("next_claim_id", 42);
+            batch.commit();
+        }
+
+        assertEquals(42, DatabaseDataStore.readMetadata(connection, "next_claim_id", 0));
+    }
+}
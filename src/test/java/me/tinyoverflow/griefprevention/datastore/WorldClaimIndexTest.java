@@ -0,0 +1,41 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import me.tinyoverflow.griefprevention.Claim;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static me.tinyoverflow.griefprevention.ClaimFixtures.createClaim;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class WorldClaimIndexTest
+{
+    @Test
+    public void testCollectsClaimsOverlappingArea()
+    {
+        World world = mock(World.class);
+        Claim inside = createClaim(world, 10, 0, 10, 20, 20, 1);
+        Claim acrossRegions = createClaim(world, 500, 0, -600, 530, -490, 2);
+        Claim sameChunkOutside = createClaim(world, 40, 0, 40, 44, 44, 3);
+        Claim farAway = createClaim(world, 5000, 0, 5000, 5010, 5010, 4);
+
+        WorldClaimIndex index = new WorldClaimIndex();
+        index.add(inside);
+        index.add(acrossRegions);
+        index.add(sameChunkOutside);
+        index.add(farAway);
+        index.publish();
+
+        Set<Claim> claims = new HashSet<>();
+        index.collectClaimsInArea(-100, -512, 520, 36, claims);
+        assertEquals(Set.of(inside, acrossRegions), claims);
+
+        //the chunk area includes claims which only share a chunk with the area
+        Set<Claim> touchingChunks = new HashSet<>();
+        index.collectClaims(-100 >> 4, -512 >> 4, 520 >> 4, 36 >> 4, touchingChunks);
+        assertEquals(Set.of(inside, acrossRegions, sameChunkOutside), touchingChunks);
+    }
+}
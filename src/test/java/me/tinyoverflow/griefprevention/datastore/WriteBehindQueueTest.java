@@ -0,0 +1,98 @@
+package me.tinyoverflow.griefprevention.datastore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteBehindQueueTest
+{
+    @Test
+    public void testWritesInlineBeforeStart()
+    {
+        WriteBehindQueue queue = new WriteBehindQueue("test");
+        List<Integer> written = new ArrayList<>();
+
+        queue.submit(1, () -> written.add(1));
+        queue.submit(1, () -> written.add(2));
+
+        assertEquals(List.of(1, 2), written);
+        assertEquals(0, queue.getCoalescedWrites());
+    }
+
+    @Test
+    public void testCoalescesByKey()
+    {
+        WriteBehindQueue queue = new WriteBehindQueue("test");
+        queue.start(TimeUnit.HOURS.toMillis(1), Integer.MAX_VALUE);
+
+        Map<Integer, Integer> written = new ConcurrentHashMap<>();
+        List<Integer> writes = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 100; i++) {
+            int key = i % 10;
+            int value = i;
+            queue.submit(key, () -> {
+                written.put(key, value);
+                writes.add(key);
+            });
+        }
+        assertEquals(10, queue.getQueueDepth());
+
+        queue.flush();
+
+        assertEquals(10, writes.size());
+        for (int key = 0; key < 10; key++) {
+            assertEquals(90 + key, (int) written.get(key));
+        }
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(100, queue.getSubmittedWrites());
+        assertEquals(90, queue.getCoalescedWrites());
+        assertEquals(10, queue.getCompletedWrites());
+        assertEquals(1, queue.getFlushes());
+
+        queue.close();
+    }
+
+    @Test
+    public void testBatchSizeTriggersFlush() throws InterruptedException
+    {
+        WriteBehindQueue queue = new WriteBehindQueue("test");
+        queue.start(TimeUnit.HOURS.toMillis(1), 5);
+
+        CountDownLatch latch = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            queue.submit(i, latch::countDown);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        queue.close();
+    }
+
+    @Test
+    public void testCloseWritesPendingWrites()
+    {
+        WriteBehindQueue queue = new WriteBehindQueue("test");
+        queue.start(TimeUnit.HOURS.toMillis(1), Integer.MAX_VALUE);
+
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 3; i++) {
+            int key = i;
+            queue.submit(key, () -> written.add(key));
+        }
+
+        queue.close();
+        assertEquals(List.of(0, 1, 2), written);
+
+        //writes after closing happen right away
+        queue.submit(3, () -> written.add(3));
+        assertEquals(List.of(0, 1, 2, 3), written);
+    }
+}
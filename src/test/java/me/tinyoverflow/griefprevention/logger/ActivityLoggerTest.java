@@ -0,0 +1,116 @@
+package me.tinyoverflow.griefprevention.logger;
+
+import me.tinyoverflow.griefprevention.configurations.LoggerConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ActivityLoggerTest
+{
+    @TempDir
+    Path directory;
+
+    private static LoggerConfiguration createConfiguration(int capacity)
+    {
+        LoggerConfiguration configuration = mock(LoggerConfiguration.class);
+        when(configuration.getQueueCapacity()).thenReturn(capacity);
+        when(configuration.getOverflowPolicy()).thenReturn(LoggerConfiguration.OverflowPolicy.Drop);
+        return configuration;
+    }
+
+    @Test
+    public void testWritesEntriesToTheFileOfTheirDay() throws IOException
+    {
+        MutableClock clock = new MutableClock(Instant.parse("2023-05-01T23:59:30Z"));
+        ActivityLogger logger = new ActivityLogger(
+                Logger.getAnonymousLogger(),
+                directory.toFile(),
+                createConfiguration(100),
+                clock
+        );
+        logger.start();
+
+        logger.log(ActivityType.EXCEPTION, "first");
+        logger.log(ActivityType.SOCIAL, "disabled");
+        clock.instant = Instant.parse("2023-05-02T00:01:00Z");
+        logger.log(ActivityType.EXCEPTION, "second");
+        logger.close();
+
+        assertEquals(List.of("23:59 first"), Files.readAllLines(directory.resolve("2023-05-01.log"), StandardCharsets.UTF_8));
+        assertEquals(List.of("00:01 second"), Files.readAllLines(directory.resolve("2023-05-02.log"), StandardCharsets.UTF_8));
+        assertEquals(2, logger.getEnqueuedEntries());
+        assertEquals(2, logger.getWrittenEntries());
+        assertEquals(0, logger.getDroppedEntries());
+    }
+
+    @Test
+    public void testDropsEntriesWhileFull() throws IOException
+    {
+        MutableClock clock = new MutableClock(Instant.parse("2023-05-01T12:00:00Z"));
+        ActivityLogger logger = new ActivityLogger(
+                Logger.getAnonymousLogger(),
+                directory.toFile(),
+                createConfiguration(3),
+                clock
+        );
+
+        //nothing is written before the writer starts, so the queue fills up
+        for (int i = 0; i < 5; i++) {
+            logger.log(ActivityType.EXCEPTION, "entry " + i);
+        }
+        assertEquals(3, logger.getQueuedEntries());
+        assertEquals(2, logger.getDroppedEntries());
+
+        logger.start();
+        logger.close();
+
+        assertEquals(
+                List.of("12:00 entry 0", "12:00 entry 1", "12:00 entry 2"),
+                Files.readAllLines(directory.resolve("2023-05-01.log"), StandardCharsets.UTF_8)
+        );
+        assertEquals(0, logger.getQueuedEntries());
+        assertEquals(3, logger.getWrittenEntries());
+    }
+
+    private static class MutableClock extends Clock
+    {
+        private volatile Instant instant;
+
+        MutableClock(Instant instant)
+        {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone()
+        {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant()
+        {
+            return instant;
+        }
+    }
+}
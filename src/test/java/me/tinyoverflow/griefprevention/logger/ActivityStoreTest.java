@@ -0,0 +1,112 @@
+package me.tinyoverflow.griefprevention.logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ActivityStoreTest
+{
+    private static final UUID ALICE = new UUID(1, 1);
+    private static final UUID BOB = new UUID(-1, 2);
+    private static final long DAY_ONE = Instant.parse("2023-05-01T12:00:00Z").toEpochMilli();
+    private static final long DAY_TWO = Instant.parse("2023-05-02T12:00:00Z").toEpochMilli();
+    private static final LocalDate TODAY = LocalDate.of(2023, 5, 2);
+
+    @TempDir
+    Path directory;
+
+    private static ActivityRecord record(long time, UUID player, String world, int x, int z, String message)
+    {
+        return new ActivityRecord(time, ActivityType.SUSPICIOUS, player, world, x, 64, z, message);
+    }
+
+    private ActivityStore createStore()
+    {
+        return new ActivityStore(directory.toFile(), ZoneOffset.UTC);
+    }
+
+    private ActivityStore createFilledStore() throws IOException
+    {
+        ActivityStore store = createStore();
+        store.append(record(DAY_ONE, ALICE, "world", 10, 10, "alice day one"));
+        store.append(record(DAY_ONE + 1, BOB, "world", 12, 12, "bob day one"));
+        store.append(record(DAY_ONE + 2, ALICE, "world", 5000, 5000, "alice far away"));
+        store.append(record(DAY_TWO, ALICE, "world_nether", 10, 10, "alice in the nether"));
+        store.append(record(DAY_TWO + 1, ALICE, "world", -20, 8, "alice day two"));
+        return store;
+    }
+
+    private static List<String> messages(List<ActivityRecord> records)
+    {
+        return records.stream().map(ActivityRecord::message).toList();
+    }
+
+    @Test
+    public void testFindsRecordsByPlayerAndLocation() throws IOException
+    {
+        ActivityStore store = createFilledStore();
+        ActivityQuery near = new ActivityQuery(ALICE, "world", 0, 0, 32, DAY_ONE - 1, 10);
+        ActivityQuery everywhere = ActivityQuery.byPlayer(ALICE, DAY_ONE - 1, 10);
+        ActivityQuery anyone = new ActivityQuery(null, "world", 0, 0, 32, DAY_ONE - 1, 10);
+
+        //the first day is sealed, the second is still open
+        assertTrue(Files.exists(directory.resolve("2023-05-01.idx")));
+        assertFalse(Files.exists(directory.resolve("2023-05-02.idx")));
+        assertEquals(List.of("alice day two", "alice day one"), messages(store.query(near, TODAY)));
+        assertEquals(
+                List.of("alice day two", "alice in the nether", "alice far away", "alice day one"),
+                messages(store.query(everywhere, TODAY))
+        );
+        assertEquals(List.of("alice day two", "bob day one", "alice day one"), messages(store.query(anyone, TODAY)));
+
+        store.close();
+
+        assertTrue(Files.exists(directory.resolve("2023-05-02.idx")));
+        assertEquals(List.of("alice day two", "alice day one"), messages(store.query(near, TODAY)));
+        assertEquals(
+                List.of(record(DAY_TWO + 1, ALICE, "world", -20, 8, "alice day two")),
+                store.query(ActivityQuery.byPlayer(ALICE, DAY_TWO, 1), TODAY)
+        );
+        assertEquals(List.of(), store.query(ActivityQuery.byPlayer(new UUID(3, 3), DAY_ONE, 10), TODAY));
+    }
+
+    @Test
+    public void testIndexesSegmentsWithoutIndexFile() throws IOException
+    {
+        createFilledStore().close();
+        Files.delete(directory.resolve("2023-05-01.idx"));
+
+        ActivityQuery query = ActivityQuery.byPlayer(BOB, DAY_ONE - 1, 10);
+        assertEquals(List.of("bob day one"), messages(createStore().query(query, TODAY)));
+        assertTrue(Files.exists(directory.resolve("2023-05-01.idx")));
+    }
+
+    @Test
+    public void testAppendsToExistingSegmentAfterIncompleteRecord() throws IOException
+    {
+        createFilledStore().close();
+
+        // A record cut short by a crash.
+        Files.write(directory.resolve("2023-05-02.seg"), new byte[]{1, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        ActivityStore store = createStore();
+        store.append(record(DAY_TWO + 2, BOB, "world", 0, 0, "bob day two"));
+        store.close();
+
+        ActivityQuery query = new ActivityQuery(null, "world", 0, 0, 32, DAY_TWO, 10);
+        assertEquals(List.of("bob day two", "alice day two"), messages(store.query(query, TODAY)));
+    }
+}
@@ -0,0 +1,86 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlockMutationBatchTest
+{
+    private static World createWorld()
+    {
+        World world = mock(World.class);
+        when(world.getBlockAt(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            Block block = mock(Block.class);
+            when(block.getX()).thenReturn(invocation.getArgument(0));
+            when(block.getY()).thenReturn(invocation.getArgument(1));
+            when(block.getZ()).thenReturn(invocation.getArgument(2));
+            return block;
+        });
+        return world;
+    }
+
+    @Test
+    public void testPacksPositions()
+    {
+        int[][] positions = {
+                { 0, 0, 0 },
+                { -30_000_000, -2048, 29_999_999 },
+                { 29_999_999, 2047, -30_000_000 },
+                { -1, -64, -1 },
+        };
+
+        for (int[] position : positions)
+        {
+            long packed = BlockMutationBatch.pack(position[0], position[1], position[2]);
+            assertEquals(position[0], BlockMutationBatch.unpackX(packed));
+            assertEquals(position[1], BlockMutationBatch.unpackY(packed));
+            assertEquals(position[2], BlockMutationBatch.unpackZ(packed));
+        }
+    }
+
+    @Test
+    public void testAppliesChangesChunkByChunk()
+    {
+        List<String> applied = new ArrayList<>();
+        BlockMutationBatch batch = new BlockMutationBatch(
+                createWorld(),
+                (block, type) -> applied.add(block.getX() + "," + block.getY() + "," + block.getZ() + " " + type)
+        );
+        batch.add(0, 1, 0, Material.STONE);
+        batch.add(20, 1, 0, Material.DIRT);
+        batch.add(1, 2, 0, Material.STONE);
+        batch.add(-5, 1, 0, null);
+        batch.add(3, 3, -40, Material.DIRT);
+        batch.add(0, 3, 0, Material.STONE);
+
+        batch.sortByChunk();
+        while (batch.applyNext())
+        {
+            assertEquals(applied.size(), batch.getApplied());
+        }
+
+        assertEquals(
+                List.of(
+                        "-5,1,0 null",
+                        "0,1,0 STONE",
+                        "1,2,0 STONE",
+                        "0,3,0 STONE",
+                        "3,3,-40 DIRT",
+                        "20,1,0 DIRT"
+                ),
+                applied
+        );
+        assertEquals(0, batch.getRemaining());
+        assertFalse(batch.applyNext());
+    }
+}
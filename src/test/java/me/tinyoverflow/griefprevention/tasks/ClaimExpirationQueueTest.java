@@ -0,0 +1,61 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ClaimExpirationQueueTest
+{
+    private static final UUID FIRST = new UUID(0, 1);
+    private static final UUID SECOND = new UUID(0, 2);
+    private static final UUID THIRD = new UUID(0, 3);
+
+    @Test
+    public void testReturnsOwnersByDueTime()
+    {
+        ClaimExpirationQueue queue = new ClaimExpirationQueue();
+        queue.update(Set.of(FIRST, SECOND, THIRD), 0);
+        assertEquals(3, queue.countDue(0));
+
+        for (int i = 0; i < 3; i++)
+        {
+            UUID owner = queue.pollDue(0);
+            queue.schedule(owner, owner.equals(FIRST) ? 300 : owner.equals(SECOND) ? 100 : 200);
+        }
+        assertNull(queue.pollDue(50));
+        assertEquals(2, queue.countDue(200));
+
+        assertEquals(SECOND, queue.pollDue(1000));
+        assertEquals(THIRD, queue.pollDue(1000));
+        assertEquals(FIRST, queue.pollDue(1000));
+        assertNull(queue.pollDue(1000));
+    }
+
+    @Test
+    public void testAddsNewOwnersOnceAndDropsFormerOwners()
+    {
+        ClaimExpirationQueue queue = new ClaimExpirationQueue();
+        queue.update(Set.of(FIRST), 0);
+        queue.schedule(queue.pollDue(0), 500);
+
+        queue.update(Set.of(FIRST, SECOND), 100);
+        queue.update(Set.of(FIRST, SECOND), 100);
+        assertEquals(2, queue.size());
+        assertEquals(SECOND, queue.pollDue(100));
+        queue.schedule(SECOND, 200);
+
+        //owners who no longer own claims are dropped when due, and added again once they do
+        queue.update(Set.of(SECOND), 600);
+        assertEquals(SECOND, queue.pollDue(600));
+        assertNull(queue.pollDue(600));
+        assertEquals(0, queue.size());
+
+        queue.update(Set.of(FIRST, SECOND), 700);
+        assertEquals(FIRST, queue.pollDue(700));
+        assertNull(queue.pollDue(700));
+    }
+}
@@ -0,0 +1,43 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import me.tinyoverflow.griefprevention.configurations.ClaimExpirationConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ClaimExpirationSchedulerTest
+{
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void testSortsEnabledPeriods()
+    {
+        ClaimExpirationConfiguration configuration = new ClaimExpirationConfiguration();
+        configuration.chestClaimDays = 30;
+        configuration.unusedClaimDays = 0;
+        configuration.allClaimsDays = 10;
+
+        assertArrayEquals(new long[] { 10 * DAY, 30 * DAY }, ClaimExpirationScheduler.getExpirationPeriods(configuration));
+
+        configuration.chestClaimDays = 0;
+        configuration.allClaimsDays = -1;
+        assertEquals(0, ClaimExpirationScheduler.getExpirationPeriods(configuration).length);
+    }
+
+    @Test
+    public void testSchedulesNextPeriodNotReached()
+    {
+        long[] periods = { 7 * DAY, 14 * DAY, 60 * DAY };
+        long lastPlayed = 1000 * DAY;
+
+        assertEquals(lastPlayed + 7 * DAY, ClaimExpirationScheduler.getNextDueTime(lastPlayed, lastPlayed, periods));
+        assertEquals(lastPlayed + 14 * DAY, ClaimExpirationScheduler.getNextDueTime(lastPlayed, lastPlayed + 7 * DAY, periods));
+        assertEquals(lastPlayed + 60 * DAY, ClaimExpirationScheduler.getNextDueTime(lastPlayed, lastPlayed + 20 * DAY, periods));
+
+        long now = lastPlayed + 100 * DAY;
+        assertEquals(now + 60 * DAY, ClaimExpirationScheduler.getNextDueTime(lastPlayed, now, periods));
+    }
+}
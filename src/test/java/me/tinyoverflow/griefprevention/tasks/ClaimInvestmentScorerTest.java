@@ -0,0 +1,65 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.Biome;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClaimInvestmentScorerTest
+{
+    private static final int SEA_LEVEL = 20;
+    private static final int MAX_Y = 30;
+    private static final Set<Material> PLAYER_BLOCKS = EnumSet.of(Material.CHEST, Material.COBBLESTONE, Material.LAVA);
+
+    //two chests, a column of cobblestone and some lava, everything else is stone
+    private static ChunkSnapshot createSnapshot()
+    {
+        ChunkSnapshot snapshot = mock(ChunkSnapshot.class);
+        when(snapshot.getBlockType(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int x = invocation.getArgument(0);
+            int y = invocation.getArgument(1);
+            int z = invocation.getArgument(2);
+            if (x == 1 && z == 1 && y == 10) return Material.CHEST;
+            if (x == 1 && z == 1 && y == 25) return Material.CHEST;
+            if (x == 2 && z == 2) return Material.COBBLESTONE;
+            if (x == 3 && z == 3 && y == 25) return Material.LAVA;
+            return Material.STONE;
+        });
+        return snapshot;
+    }
+
+    @Test
+    public void testScoresPlayerBlocksInScope()
+    {
+        ChunkSnapshot snapshot = createSnapshot();
+
+        //a chest below and above the sea level band, 10 cobblestone below and 15 above, 1 lava above
+        ClaimInvestmentScorer.Scope survival = new ClaimInvestmentScorer.Scope(0, 15, 0, 15, 5, Biome.PLAINS, false);
+        assertEquals(20 + 20 + 10 + 30 + 2, ClaimInvestmentScorer.scan(snapshot, survival, SEA_LEVEL, MAX_Y, PLAYER_BLOCKS));
+
+        //chests count as regular blocks and lava costs points in creative mode
+        ClaimInvestmentScorer.Scope creative = new ClaimInvestmentScorer.Scope(0, 15, 0, 15, 5, Biome.PLAINS, true);
+        assertEquals(1 + 2 + 10 + 30 - 20, ClaimInvestmentScorer.scan(snapshot, creative, SEA_LEVEL, MAX_Y, PLAYER_BLOCKS));
+    }
+
+    @Test
+    public void testScansOnlyClaimedColumns()
+    {
+        ChunkSnapshot snapshot = createSnapshot();
+
+        ClaimInvestmentScorer.Scope scope = new ClaimInvestmentScorer.Scope(2, 15, 2, 2, 5, Biome.PLAINS, false);
+        assertEquals(10 + 30, ClaimInvestmentScorer.scan(snapshot, scope, SEA_LEVEL, MAX_Y, PLAYER_BLOCKS));
+
+        //starting above the band, everything counts fully
+        ClaimInvestmentScorer.Scope higher = new ClaimInvestmentScorer.Scope(2, 2, 2, 2, 16, Biome.PLAINS, false);
+        assertEquals(14 * 2, ClaimInvestmentScorer.scan(snapshot, higher, SEA_LEVEL, MAX_Y, PLAYER_BLOCKS));
+    }
+}
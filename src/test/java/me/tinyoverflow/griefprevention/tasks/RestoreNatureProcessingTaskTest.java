@@ -0,0 +1,131 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.Material;
+import org.bukkit.World.Environment;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RestoreNatureProcessingTaskTest
+{
+    private static final int SEA_LEVEL = 63;
+    private static final Material[] SCATTERED = {
+            Material.COBBLESTONE,
+            Material.OAK_PLANKS,
+            Material.DIRT,
+            Material.SANDSTONE,
+            Material.SAND,
+            Material.OAK_LOG,
+            Material.OAK_LEAVES,
+            Material.WATER,
+            Material.STONE,
+    };
+
+    private static RestoreNatureRules createRules()
+    {
+        return new RestoreNatureRules(
+                Environment.NORMAL,
+                EnumSet.of(Material.DIRT, Material.GRASS, Material.SNOW, Material.OAK_LOG),
+                EnumSet.of(Material.COBBLESTONE, Material.OAK_PLANKS),
+                EnumSet.of(Material.OAK_LEAVES),
+                EnumSet.of(Material.OAK_LOG),
+                EnumSet.of(Material.GRASS, Material.OAK_LEAVES, Material.VINE, Material.CACTUS),
+                false,
+                false
+        );
+    }
+
+    private static RestoreNatureVolume createGround()
+    {
+        RestoreNatureVolume volume = new RestoreNatureVolume(0, 0, 0, 96);
+        int stone = volume.addId(Material.STONE);
+        int dirt = volume.addId(Material.DIRT);
+        int grassBlock = volume.addId(Material.GRASS_BLOCK);
+        for (int x = 0; x < RestoreNatureVolume.SIZE; x++)
+        {
+            for (int z = 0; z < RestoreNatureVolume.SIZE; z++)
+            {
+                for (int y = 0; y < 60; y++)
+                {
+                    volume.set(x, y, z, stone);
+                }
+                volume.set(x, 60, z, dirt);
+                volume.set(x, 61, z, dirt);
+                volume.set(x, 62, z, dirt);
+                volume.set(x, SEA_LEVEL, z, grassBlock);
+            }
+        }
+        return volume;
+    }
+
+    private static RestoreNatureVolume process(RestoreNatureVolume volume)
+    {
+        return new RestoreNatureProcessingTask(null, 0, createRules(), null, null, SEA_LEVEL, null).process(volume);
+    }
+
+    @Test
+    public void testRemovesPlayerBlocksAndTowers()
+    {
+        RestoreNatureVolume volume = createGround();
+        int cobblestone = volume.addId(Material.COBBLESTONE);
+        int dirt = volume.getId(Material.DIRT);
+        volume.set(5, 64, 5, cobblestone);
+        volume.set(5, 65, 5, cobblestone);
+        for (int y = 64; y <= 70; y++)
+        {
+            volume.set(10, y, 10, dirt);
+        }
+        volume.markCaptured();
+
+        process(volume);
+
+        assertEquals(Material.AIR, volume.getMaterial(volume.get(5, 64, 5)));
+        assertEquals(Material.AIR, volume.getMaterial(volume.get(5, 65, 5)));
+        for (int y = 64; y <= 70; y++)
+        {
+            assertEquals(Material.AIR, volume.getMaterial(volume.get(10, y, 10)));
+        }
+        assertEquals(Material.GRASS_BLOCK, volume.getMaterial(volume.get(10, SEA_LEVEL, 10)));
+        assertEquals(Material.STONE, volume.getMaterial(volume.get(10, 30, 10)));
+    }
+
+    @Test
+    public void testSplittingColumnsAmongWorkersGivesSameResult()
+    {
+        RestoreNatureVolume volume = createGround();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++)
+        {
+            volume.set(
+                    random.nextInt(RestoreNatureVolume.SIZE),
+                    55 + random.nextInt(35),
+                    random.nextInt(RestoreNatureVolume.SIZE),
+                    volume.addId(SCATTERED[random.nextInt(SCATTERED.length)])
+            );
+        }
+        volume.markCaptured();
+
+        RestoreNatureVolume sequential = process(volume.copy());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        RestoreNatureVolume split = pool.submit(() -> process(volume.copy())).join();
+        pool.shutdown();
+
+        int changed = 0;
+        for (int x = 0; x < RestoreNatureVolume.SIZE; x++)
+        {
+            for (int z = 0; z < RestoreNatureVolume.SIZE; z++)
+            {
+                for (int y = 0; y < 96; y++)
+                {
+                    assertEquals(sequential.getMaterial(sequential.get(x, y, z)), split.getMaterial(split.get(x, y, z)));
+                    if (sequential.isChanged(x, y, z)) changed++;
+                }
+            }
+        }
+        assertEquals(true, changed > 0);
+    }
+}
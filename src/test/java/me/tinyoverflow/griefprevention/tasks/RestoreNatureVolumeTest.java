@@ -0,0 +1,74 @@
+package me.tinyoverflow.griefprevention.tasks;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RestoreNatureVolumeTest
+{
+    private static ChunkSnapshot createSnapshot(int chunkX, int chunkZ, Material type)
+    {
+        ChunkSnapshot snapshot = mock(ChunkSnapshot.class);
+        when(snapshot.getX()).thenReturn(chunkX);
+        when(snapshot.getZ()).thenReturn(chunkZ);
+        when(snapshot.getBlockType(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int y = invocation.getArgument(1);
+            return y < 64 ? type : Material.AIR;
+        });
+        return snapshot;
+    }
+
+    @Test
+    public void testUnpacksChunkAndNeighbourEdges()
+    {
+        ChunkSnapshot center = createSnapshot(2, -3, Material.STONE);
+        ChunkSnapshot west = createSnapshot(1, -3, Material.DIRT);
+        ChunkSnapshot east = createSnapshot(3, -3, Material.SAND);
+        ChunkSnapshot north = createSnapshot(2, -4, Material.GRAVEL);
+        ChunkSnapshot south = createSnapshot(2, -2, Material.STONE);
+
+        RestoreNatureVolume volume = new RestoreNatureVolume.Capture(center, west, east, north, south, 0, 128).unpack();
+
+        assertEquals(31, volume.getOriginX());
+        assertEquals(-49, volume.getOriginZ());
+        assertEquals(Material.STONE, volume.getMaterial(volume.get(1, 0, 1)));
+        assertEquals(Material.STONE, volume.getMaterial(volume.get(16, 63, 16)));
+        assertEquals(RestoreNatureVolume.AIR, volume.get(16, 64, 16));
+        assertEquals(Material.DIRT, volume.getMaterial(volume.get(0, 10, 5)));
+        assertEquals(Material.SAND, volume.getMaterial(volume.get(17, 10, 5)));
+        assertEquals(Material.GRAVEL, volume.getMaterial(volume.get(5, 10, 0)));
+        assertEquals(Material.STONE, volume.getMaterial(volume.get(5, 10, 17)));
+
+        //corners aren't captured
+        assertEquals(RestoreNatureVolume.AIR, volume.get(0, 10, 0));
+        assertFalse(volume.isChanged(5, 10, 5));
+    }
+
+    @Test
+    public void testTracksChangesAndPaletteMasks()
+    {
+        RestoreNatureVolume volume = new RestoreNatureVolume(0, 0, 0, 16);
+        int stone = volume.addId(Material.STONE);
+        int sand = volume.addId(Material.SAND);
+        volume.set(3, 4, 5, stone);
+        volume.markCaptured();
+
+        assertEquals(stone, volume.addId(Material.STONE));
+        assertEquals(-1, volume.getId(Material.DIRT));
+        assertArrayEquals(new boolean[]{ false, true, true }, volume.mask(material -> material != Material.AIR));
+
+        volume.set(3, 4, 5, sand);
+        volume.set(3, 5, 5, RestoreNatureVolume.AIR);
+        assertTrue(volume.isChanged(3, 4, 5));
+        assertFalse(volume.isChanged(3, 5, 5));
+        assertEquals(Material.SAND, volume.getMaterial(volume.get(3, 4, 5)));
+    }
+}
@@ -0,0 +1,79 @@
+package me.tinyoverflow.griefprevention.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongHashMapTest
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1L, "a"));
+        assertNull(map.put(-1L, "b"));
+        assertEquals("a", map.put(1L, "c"));
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(1L));
+        assertEquals("b", map.get(-1L));
+        assertNull(map.get(2L));
+        assertEquals("b", map.remove(-1L));
+        assertNull(map.remove(-1L));
+        assertFalse(map.containsKey(-1L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testCopyIsIndependent()
+    {
+        LongHashMap<String> map = new LongHashMap<>();
+        map.put(5L, "a");
+        LongHashMap<String> copy = new LongHashMap<>(map);
+        copy.put(6L, "b");
+        copy.remove(5L);
+        assertEquals("a", map.get(5L));
+        assertNull(map.get(6L));
+        assertEquals(1, map.size());
+        assertEquals("b", copy.get(6L));
+    }
+
+    @Test
+    public void testMatchesHashMap()
+    {
+        // random inserts and removals, including colliding chunk-hash style keys, must behave like a HashMap
+        LongHashMap<Long> map = new LongHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20000; i++)
+        {
+            long key = ((long) (random.nextInt(64) - 32) << 32) ^ (random.nextInt(64) - 32);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            else
+            {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet())
+        {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        int[] visited = { 0 };
+        map.forEachValue(value -> visited[0]++);
+        assertEquals(expected.size(), visited[0]);
+    }
+}